@@ -0,0 +1,95 @@
+// DijkstraBenchmark.java, created Mon Oct 19 19:31:48 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil.jmh;
+
+import net.cscott.jutil.CSRGraph;
+import net.cscott.jutil.GraphAlgorithms;
+import net.cscott.jutil.Heap;
+import net.cscott.jutil.IndexedDoubleHeap;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * JMH benchmark of single-source shortest paths with
+ * {@link GraphAlgorithms#dijkstra}, which exercises
+ * <code>decreaseKey()</code> far more than {@link HeapBenchmark} does.
+ * The graphs are random, with uniformly distributed weights; the
+ * denser the graph, the larger the fraction of
+ * <code>decreaseKey()</code>s among the heap operations.  The
+ * "indexed" heap is an {@link IndexedDoubleHeap} used through its
+ * primitive interface, which allocates nothing per vertex.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ * @see HeapBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class DijkstraBenchmark {
+    /** Which heap implementation to measure. */
+    @Param({"binary", "binomial", "fibonacci", "pairing", "indexed"})
+    public String heap;
+    /** Number of vertices in the graph. */
+    @Param({"10000", "100000"})
+    public int vertices;
+    /** Average out-degree of each vertex. */
+    @Param({"4", "32"})
+    public int degree;
+
+    private CSRGraph g;
+    private double[] dist;
+    private Heap<Double,Integer> h;
+    private IndexedDoubleHeap ih;
+    private final GraphAlgorithms.Stats stats = new GraphAlgorithms.Stats();
+
+    @Setup
+    public void setup() {
+	int m = vertices * degree;
+	int[] src = new int[m], dst = new int[m];
+	double[] w = new double[m];
+	Random r = new Random(7);
+	for (int i=0; i<m; i++) {
+	    src[i] = r.nextInt(vertices);
+	    dst[i] = r.nextInt(vertices);
+	    w[i] = r.nextDouble();
+	}
+	this.g = new CSRGraph(vertices, src, dst, w);
+	this.dist = new double[vertices];
+	if (heap.equals("indexed"))
+	    this.ih = new IndexedDoubleHeap(vertices);
+	else
+	    this.h = HeapBenchmark.<Double,Integer>newHeap(heap);
+	// print the mix of heap operations, once.
+	run(stats);
+	System.out.println(" "+stats);
+    }
+    private double run(GraphAlgorithms.Stats stats) {
+	if (ih!=null)
+	    return GraphAlgorithms.dijkstra(g, 0, -1, ih, dist, null, stats);
+	return GraphAlgorithms.dijkstra(g, 0, -1, h, dist, null, stats);
+    }
+
+    /** Computes the distances from vertex 0 to every other vertex. */
+    @Benchmark
+    public double[] dijkstra() {
+	run(null);
+	return dist;
+    }
+}
@@ -0,0 +1,168 @@
+// HeapBenchmark.java, created Mon Oct 19 19:05:12 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil.jmh;
+
+import net.cscott.jutil.BinaryHeap;
+import net.cscott.jutil.BinomialHeap;
+import net.cscott.jutil.FibonacciHeap;
+import net.cscott.jutil.Heap;
+import net.cscott.jutil.LeftistHeap;
+import net.cscott.jutil.PairingHeap;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * JMH benchmarks of the basic {@link Heap} operations, for each of the
+ * general-purpose heap implementations.  Every benchmark is run for
+ * several heap sizes and key distributions (see {@link Keys}).  The
+ * reported score is invocations per microsecond, and each invocation
+ * handles a whole batch of <code>size</code> entries, so divide by
+ * <code>size</code> for heap operations.  (The batch size is a
+ * parameter, so it can't be given to
+ * <code>@OperationsPerInvocation</code>.)
+ * Run with <code>ant jmh-run</code>, which also reports allocation
+ * rates with <code>-prof gc</code>.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ * @see DijkstraBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class HeapBenchmark {
+    /** Which heap implementation to measure. */
+    @Param({"binary", "binomial", "fibonacci", "pairing", "leftist"})
+    public String heap;
+    /** Number of entries in the heap. */
+    @Param({"1000", "100000"})
+    public int size;
+    /** Distribution of the keys; see {@link Keys}. */
+    @Param({"random", "ascending", "descending", "duplicates"})
+    public String keys;
+
+    private Integer[] k; // keys, in insertion order.
+    private Integer[] more; // keys for the insert/extract mix.
+    private Heap<Integer,Integer> full, other;
+
+    @Setup
+    public void setup() {
+	this.k = Keys.make(keys, size, 1);
+	this.more = Keys.make(keys, size, 2);
+	this.full = fill(HeapBenchmark.<Integer,Integer>newHeap(heap), k);
+	this.other = fill(HeapBenchmark.<Integer,Integer>newHeap(heap), more);
+    }
+
+    /** Inserts <code>size</code> keys into an empty heap. */
+    @Benchmark
+    public Heap<Integer,Integer> insert() {
+	return fill(HeapBenchmark.<Integer,Integer>newHeap(heap), k);
+    }
+    /** Inserts <code>size</code> keys and then extracts them all. */
+    @Benchmark
+    public int insertThenDrain() {
+	Heap<Integer,Integer> h = fill(HeapBenchmark.<Integer,Integer>newHeap(heap), k);
+	int sum = 0;
+	while (!h.isEmpty())
+	    sum += h.extractMinimum().getKey().intValue();
+	return sum;
+    }
+    /** Starting from a heap of <code>size</code> entries, alternates
+     *  extract-min and insert <code>size</code> times (a "churning"
+     *  heap of constant size, as in an event queue).  The heap is
+     *  the same size after each invocation. */
+    @Benchmark
+    public int insertExtractMix() {
+	Heap<Integer,Integer> h = full;
+	int sum = 0;
+	for (int i=0; i<more.length; i++) {
+	    sum += h.extractMinimum().getKey().intValue();
+	    h.insert(more[i], null);
+	}
+	return sum;
+    }
+    /** Copies two heaps of <code>size</code> entries and melds the
+     *  copies. */
+    @Benchmark
+    public Heap<Integer,Integer> union() {
+	Heap<Integer,Integer> a = copy(full), b = copy(other);
+	a.union(b);
+	return a;
+    }
+    /** Copies a heap of <code>size</code> entries; heaps which are
+     *  {@link Cloneable} are cloned. */
+    @Benchmark
+    public Heap<Integer,Integer> copy() {
+	return copy(full);
+    }
+
+    /** Creates an empty heap of the given kind. */
+    static <K,V> Heap<K,V> newHeap(String kind) {
+	if (kind.equals("binary")) return new BinaryHeap<K,V>();
+	if (kind.equals("binomial")) return new BinomialHeap<K,V>();
+	if (kind.equals("fibonacci")) return new FibonacciHeap<K,V>();
+	if (kind.equals("pairing")) return new PairingHeap<K,V>();
+	if (kind.equals("leftist")) return new LeftistHeap<K,V>();
+	throw new IllegalArgumentException("Unknown heap: "+kind);
+    }
+    private static Heap<Integer,Integer> fill(Heap<Integer,Integer> h,
+					      Integer[] keys) {
+	for (int i=0; i<keys.length; i++)
+	    h.insert(keys[i], null);
+	return h;
+    }
+    private static Heap<Integer,Integer> copy(Heap<Integer,Integer> h) {
+	if (h instanceof BinomialHeap)
+	    return ((BinomialHeap<Integer,Integer>)h).clone();
+	if (h instanceof LeftistHeap)
+	    return ((LeftistHeap<Integer,Integer>)h).clone();
+	if (h instanceof BinaryHeap) return new BinaryHeap<Integer,Integer>(h);
+	if (h instanceof FibonacciHeap) return new FibonacciHeap<Integer,Integer>(h);
+	if (h instanceof PairingHeap) return new PairingHeap<Integer,Integer>(h);
+	throw new IllegalArgumentException("Can't copy: "+h.getClass());
+    }
+
+    /** Key distributions for the benchmarks.  Keys are boxed ahead of
+     *  time, so that the benchmarks measure the heaps and not
+     *  {@link Integer#valueOf(int)}. */
+    static final class Keys {
+	private Keys() { }
+	/** Returns <code>n</code> keys with the named distribution:
+	 *  <dl>
+	 *  <dt>random<dd>uniformly distributed;
+	 *  <dt>ascending<dd>increasing, the best case for most heaps;
+	 *  <dt>descending<dd>decreasing, so every key is a new minimum;
+	 *  <dt>duplicates<dd>random, but drawn from only 16 values.
+	 *  </dl> */
+	static Integer[] make(String dist, int n, long seed) {
+	    Random r = new Random(seed);
+	    Integer[] result = new Integer[n];
+	    for (int i=0; i<n; i++) {
+		int key;
+		if (dist.equals("random")) key = r.nextInt();
+		else if (dist.equals("ascending")) key = i;
+		else if (dist.equals("descending")) key = n-i;
+		else if (dist.equals("duplicates")) key = r.nextInt(16);
+		else throw new IllegalArgumentException("Unknown keys: "+dist);
+		result[i] = new Integer(key);
+	    }
+	    return result;
+	}
+    }
+}
@@ -0,0 +1,92 @@
+// BTreeBench.java, created Tue Oct 20 01:31:50 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+/**
+ * Compares {@link BTreeSet} with {@link TreeSet} and
+ * {@link RedBlackTree} as sorted sets of random <code>Integer</code>s:
+ * the heap space each retains, and the rate of successful and
+ * unsuccessful lookups.
+ * <p>
+ * Usage: <code>java net.cscott.jutil.BTreeBench [n [lookups
+ * [fanout]]]</code>
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ */
+public class BTreeBench {
+    public static void main(String[] args) {
+	int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+	int lookups = (args.length > 1) ? Integer.parseInt(args[1]) : 5000000;
+	int fanout = (args.length > 2) ? Integer.parseInt(args[2]) :
+	    BTreeMap.DEFAULT_FANOUT;
+	// share the Integer objects, so only the structures are measured.
+	Random r = new Random(3);
+	Integer[] keys = new Integer[n];
+	for (int i=0; i<n; i++)
+	    keys[i] = Integer.valueOf(r.nextInt(2*n));
+	Integer[] probes = new Integer[1<<20];
+	for (int i=0; i<probes.length; i++)
+	    probes[i] = Integer.valueOf(r.nextInt(2*n));
+	for (int round=0; round<3; round++) { // the first rounds warm up.
+	    for (int i=0; i<3; i++) {
+		long before = used();
+		long start = System.nanoTime();
+		Object s;
+		switch (i) {
+		case 0: {
+		    TreeSet<Integer> ts = new TreeSet<Integer>();
+		    for (int j=0; j<n; j++) ts.add(keys[j]);
+		    s = ts;
+		    break;
+		}
+		case 1: {
+		    RedBlackTree rb = new RedBlackTree();
+		    for (int j=0; j<n; j++)
+			if (!rb.contains(keys[j])) rb.add(keys[j]);
+		    s = rb;
+		    break;
+		}
+		default: {
+		    BTreeSet<Integer> bs = new BTreeSet<Integer>(fanout, null);
+		    for (int j=0; j<n; j++) bs.add(keys[j]);
+		    s = bs;
+		    break;
+		}
+		}
+		long built = System.nanoTime();
+		long bytes = used() - before;
+		int found = 0;
+		long lstart = System.nanoTime();
+		if (s instanceof RedBlackTree) {
+		    RedBlackTree rb = (RedBlackTree) s;
+		    for (int j=0; j<lookups; j++)
+			if (rb.contains(probes[j & (probes.length-1)]))
+			    found++;
+		} else {
+		    Set<Integer> set = (Set<Integer>) s;
+		    for (int j=0; j<lookups; j++)
+			if (set.contains(probes[j & (probes.length-1)]))
+			    found++;
+		}
+		long end = System.nanoTime();
+		System.out.printf("round %d: %-12s build %6.0f ms  "+
+				  "lookup %6.2f M/s  %5.1f bytes/key  (%d)%n",
+				  round, s.getClass().getSimpleName(),
+				  (built-start)/1e6,
+				  lookups / ((end-lstart) / 1000.0),
+				  bytes / (double) n, found);
+		s = null;
+	    }
+	}
+    }
+    private static long used() {
+	Runtime rt = Runtime.getRuntime();
+	for (int i=0; i<3; i++) System.gc();
+	return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,71 @@
+// CompactMultiMapBench.java, created Tue Oct 20 16:40:05 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.Random;
+/**
+ * Compares a {@link GenericMultiMap} with the {@link CompactMultiMap}
+ * frozen from it, as a random graph of <code>Integer</code> vertices:
+ * the heap space each retains per edge, the rate at which the
+ * successors of random vertices can be visited, and the time to
+ * invert the {@link CompactMultiMap}.
+ * <p>
+ * Usage: <code>java net.cscott.jutil.CompactMultiMapBench [vertices
+ * [edges [visits]]]</code>
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ */
+public class CompactMultiMapBench {
+    public static void main(String[] args) {
+	int n = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+	int m = (args.length > 1) ? Integer.parseInt(args[1]) : 2000000;
+	int visits = (args.length > 2) ? Integer.parseInt(args[2]) : 2000000;
+	// share the Integer objects, so only the structures are measured.
+	Integer[] vs = new Integer[n];
+	for (int i=0; i<n; i++) vs[i] = new Integer(i);
+	for (int round=0; round<3; round++) { // the first rounds warm up.
+	    Random r = new Random(5);
+	    long before = used();
+	    GenericMultiMap<Integer,Integer> g =
+		new GenericMultiMap<Integer,Integer>();
+	    for (int j=0; j<m; j++)
+		g.add(vs[r.nextInt(n)], vs[r.nextInt(n)]);
+	    long gbytes = used() - before;
+	    int edges = g.size();
+	    long start = System.nanoTime();
+	    CompactMultiMap<Integer,Integer> c = g.freeze();
+	    long frozen = System.nanoTime();
+	    report(round, "GenericMultiMap", g, vs, visits, gbytes, edges);
+	    g = null;
+	    long cbytes = used() - before;
+	    report(round, "CompactMultiMap", c, vs, visits, cbytes, edges);
+	    long istart = System.nanoTime();
+	    c.invert();
+	    long inverted = System.nanoTime();
+	    System.out.printf("round %d: freeze %6.0f ms  invert %6.0f ms%n",
+			      round, (frozen-start)/1e6,
+			      (inverted-istart)/1e6);
+	}
+    }
+    private static void report(int round, String what,
+			       MultiMap<Integer,Integer> mm, Integer[] vs,
+			       int visits, long bytes, int edges) {
+	Random r = new Random(7);
+	long sum = 0, start = System.nanoTime();
+	for (int j=0; j<visits; j++)
+	    for (Integer v : mm.getValues(vs[r.nextInt(vs.length)]))
+		sum += v.intValue();
+	long elapsed = System.nanoTime() - start;
+	System.out.printf("round %d: %-16s %6.1f bytes/edge  "+
+			  "visit %6.2f M vertices/s  (%d)%n",
+			  round, what, bytes / (double) edges,
+			  visits / (elapsed / 1000.0), sum);
+    }
+    private static long used() {
+	Runtime rt = Runtime.getRuntime();
+	for (int i=0; i<3; i++) System.gc();
+	return rt.totalMemory() - rt.freeMemory();
+    }
+}
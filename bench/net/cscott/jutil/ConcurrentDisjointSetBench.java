@@ -0,0 +1,79 @@
+// ConcurrentDisjointSetBench.java, created Tue Oct 20 11:40:12 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.Random;
+/**
+ * Measures how {@link ConcurrentDisjointIntSet} scales with the
+ * number of threads, finding the connected components of a random
+ * graph with <i>n</i> vertices and <i>m</i> edges.  The edges are
+ * divided evenly between the threads, each of which calls
+ * <code>union</code> on its share; the sequential
+ * {@link DisjointIntSet} is timed on the same graph for comparison,
+ * and supplies the expected number of components.
+ * <p>
+ * Usage: <code>java net.cscott.jutil.ConcurrentDisjointSetBench [n [m
+ * [max-threads]]]</code>
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ */
+public class ConcurrentDisjointSetBench {
+    public static void main(String[] args) throws InterruptedException {
+	int n = (args.length > 0) ? Integer.parseInt(args[0]) : 10000000;
+	int m = (args.length > 1) ? Integer.parseInt(args[1]) : 20000000;
+	int maxThreads = (args.length > 2) ? Integer.parseInt(args[2]) :
+	    Runtime.getRuntime().availableProcessors();
+	Random r = new Random(1);
+	int[] ea = new int[m], eb = new int[m];
+	for (int i = 0; i < m; i++) {
+	    ea[i] = r.nextInt(n); eb[i] = r.nextInt(n);
+	}
+	for (int round = 0; round < 3; round++) { // the first rounds warm up.
+	    long start = System.nanoTime();
+	    DisjointIntSet seq = new DisjointIntSet(n);
+	    int components = n;
+	    for (int i = 0; i < m; i++)
+		if (seq.union(ea[i], eb[i])) components--;
+	    report(round, "sequential", 1, System.nanoTime() - start, m);
+	    for (int t = 1; t <= maxThreads; t *= 2) {
+		start = System.nanoTime();
+		ConcurrentDisjointIntSet cds = run(n, ea, eb, t);
+		long elapsed = System.nanoTime() - start;
+		int c = 0;
+		for (int v = 0; v < n; v++)
+		    if (cds.find(v) == v) c++;
+		if (c != components)
+		    throw new AssertionError(c+" components, expected "+
+					     components);
+		report(round, "concurrent", t, elapsed, m);
+	    }
+	}
+    }
+    private static ConcurrentDisjointIntSet run
+	(int n, final int[] ea, final int[] eb, final int nthreads)
+	throws InterruptedException {
+	final ConcurrentDisjointIntSet cds = new ConcurrentDisjointIntSet(n);
+	Thread[] ts = new Thread[nthreads];
+	for (int t = 0; t < nthreads; t++) {
+	    final int lo = (int) ((long) ea.length * t / nthreads);
+	    final int hi = (int) ((long) ea.length * (t+1) / nthreads);
+	    ts[t] = new Thread() {
+		public void run() {
+		    for (int i = lo; i < hi; i++)
+			cds.union(ea[i], eb[i]);
+		}
+	    };
+	    ts[t].start();
+	}
+	for (Thread t : ts) t.join();
+	return cds;
+    }
+    private static void report(int round, String what, int threads,
+			       long elapsed, int m) {
+	System.out.printf("round %d: %-10s %2d thread(s)  %6.0f ms  "+
+			  "%.2f M unions/s%n", round, what, threads,
+			  elapsed / 1e6, m / (elapsed / 1000.0));
+    }
+}
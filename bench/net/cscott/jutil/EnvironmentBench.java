@@ -0,0 +1,61 @@
+// EnvironmentBench.java, created Tue Oct 20 14:48:10 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.Random;
+/**
+ * Compares the {@link Environment} implementations on the scoping
+ * pattern of a compiler's symbol table: open a scope
+ * (<code>getMark</code>), bind and look up a few names, close it
+ * again (<code>undoToMark</code>), nested to a random depth.
+ * <p>
+ * Usage: <code>java net.cscott.jutil.EnvironmentBench [names
+ * [scopes]]</code>
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ */
+public class EnvironmentBench {
+    public static void main(String[] args) {
+	int names = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+	int scopes = (args.length > 1) ? Integer.parseInt(args[1]) : 2000000;
+	String[] ids = new String[names];
+	for (int i = 0; i < names; i++) ids[i] = "id" + i;
+	for (int round = 0; round < 3; round++) { // the first rounds warm up.
+	    run(round, "HashEnvironment",
+		new HashEnvironment<String,Integer>(), ids, scopes);
+	    run(round, "OpenHashEnvironment",
+		new OpenHashEnvironment<String,Integer>(), ids, scopes);
+	    run(round, "SnapshotEnvironment",
+		new SnapshotEnvironment<String,Integer>(), ids, scopes);
+	    run(round, "PersistentEnvironment",
+		new PersistentEnvironment<String,Integer>(), ids, scopes);
+	}
+    }
+    private static void run(int round, String what,
+			    Environment<String,Integer> env,
+			    String[] ids, int scopes) {
+	Random r = new Random(1);
+	Integer[] vals = new Integer[16];
+	for (int i = 0; i < vals.length; i++) vals[i] = new Integer(i);
+	// globals, which every scope sees.
+	for (int i = 0; i < ids.length; i += 2) env.put(ids[i], vals[0]);
+	Environment.Mark[] stack = new Environment.Mark[32];
+	int depth = 0, hits = 0;
+	long start = System.nanoTime();
+	for (int s = 0; s < scopes; s++) {
+	    if (depth == stack.length || (depth > 0 && r.nextInt(3) == 0))
+		env.undoToMark(stack[--depth]);
+	    stack[depth++] = env.getMark();
+	    for (int j = 0; j < 4; j++)
+		env.put(ids[r.nextInt(ids.length)], vals[j]);
+	    for (int j = 0; j < 8; j++)
+		if (env.get(ids[r.nextInt(ids.length)]) != null) hits++;
+	}
+	long elapsed = System.nanoTime() - start;
+	System.out.printf("round %d: %-21s %6.0f ms  %.1f ns/scope  (%d)%n",
+			  round, what, elapsed / 1e6,
+			  elapsed / (double) scopes, hits);
+    }
+}
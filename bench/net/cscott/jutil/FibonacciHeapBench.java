@@ -0,0 +1,52 @@
+// FibonacciHeapBench.java, created Mon Oct 19 14:30:45 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.Map;
+import java.util.Random;
+/**
+ * Measures {@link FibonacciHeap} <code>extractMinimum()</code>
+ * throughput.  Each round fills a heap with <i>n</i> random keys and
+ * then alternates extract-min with insert (a "churning" heap of
+ * constant size), and finally drains it.  With the <code>recycle</code>
+ * argument, extracted entries are handed back to the heap with
+ * {@link FibonacciHeap#recycle(Map.Entry)}.
+ * <p>
+ * Usage: <code>java net.cscott.jutil.FibonacciHeapBench [n [ops
+ * [recycle]]]</code>
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ */
+public class FibonacciHeapBench {
+    public static void main(String[] args) {
+	int n = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+	int ops = (args.length > 1) ? Integer.parseInt(args[1]) : 2000000;
+	boolean recycle = args.length > 2 && args[2].equals("recycle");
+	for (int round=0; round<5; round++) { // the first rounds warm up.
+	    long start = System.nanoTime();
+	    long check = run(n, ops, recycle);
+	    long elapsed = System.nanoTime() - start;
+	    System.out.printf("round %d: %.2f M extractMin/s  (checksum %d)%n",
+			      round, (ops + n) / (elapsed / 1000.0), check);
+	}
+    }
+    private static long run(int n, int ops, boolean recycle) {
+	FibonacciHeap<Integer,Integer> h = new FibonacciHeap<Integer,Integer>();
+	Random r = new Random(5);
+	Integer v = Integer.valueOf(0);
+	long sum = 0;
+	for (int i=0; i<n; i++)
+	    h.insert(Integer.valueOf(r.nextInt()), v);
+	for (int i=0; i<ops; i++) {
+	    Map.Entry<Integer,Integer> e = h.extractMinimum();
+	    sum += e.getKey().intValue();
+	    if (recycle) h.recycle(e);
+	    h.insert(Integer.valueOf(r.nextInt()), v);
+	}
+	while (!h.isEmpty())
+	    sum += h.extractMinimum().getKey().intValue();
+	return sum;
+    }
+}
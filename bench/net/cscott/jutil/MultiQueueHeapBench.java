@@ -0,0 +1,96 @@
+// MultiQueueHeapBench.java, created Mon Oct 19 12:52:07 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+/**
+ * Scalability benchmark for {@link MultiQueueHeap}.  For each thread
+ * count from 1 to N (default: twice the number of available
+ * processors), every thread performs a mix of <code>insert()</code>
+ * and <code>extractMinimum()</code> operations on a shared, pre-filled
+ * heap, and the aggregate throughput is reported for the relaxed
+ * (striped) heap, the strict (single-stripe) heap, and a
+ * {@link BinaryHeap} guarded by a single monitor.
+ * <p>
+ * Usage: <code>java net.cscott.jutil.MultiQueueHeapBench [maxThreads
+ * [opsPerThread [prefill]]]</code>
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ */
+public class MultiQueueHeapBench {
+    public static void main(String[] args) throws InterruptedException {
+	int maxThreads = (args.length > 0) ? Integer.parseInt(args[0]) :
+	    2*Runtime.getRuntime().availableProcessors();
+	int ops = (args.length > 1) ? Integer.parseInt(args[1]) : 1000000;
+	int prefill = (args.length > 2) ? Integer.parseInt(args[2]) : 1000000;
+	// warm up the JIT.
+	for (int i=0; i<3; i++) {
+	    run(new MultiQueueHeap<Integer,Integer>(), 2, ops/10, prefill/10);
+	    run(new LockedHeap<Integer,Integer>(new BinaryHeap<Integer,Integer>()), 2, ops/10, prefill/10);
+	}
+	System.out.println("threads\trelaxed\tstrict\tlocked  (Mops/s)");
+	for (int t = 1; t <= maxThreads; t = (t < maxThreads && 2*t > maxThreads) ? maxThreads : 2*t) {
+	    double relaxed = run(new MultiQueueHeap<Integer,Integer>(), t, ops, prefill);
+	    double strict = run(new MultiQueueHeap<Integer,Integer>(null, 1), t, ops, prefill);
+	    double locked = run(new LockedHeap<Integer,Integer>(new BinaryHeap<Integer,Integer>()), t, ops, prefill);
+	    System.out.printf("%d\t%.2f\t%.2f\t%.2f%n", t, relaxed, strict, locked);
+	}
+    }
+    /** Returns throughput in millions of operations per second. */
+    private static double run(final Heap<Integer,Integer> h, int nthreads,
+			      final int ops, int prefill)
+	throws InterruptedException {
+	Random r = new Random(42);
+	for (int i=0; i<prefill; i++)
+	    h.insert(Integer.valueOf(r.nextInt()), Integer.valueOf(i));
+	final CountDownLatch start = new CountDownLatch(1);
+	Thread[] ts = new Thread[nthreads];
+	for (int i=0; i<nthreads; i++) {
+	    final Random tr = new Random(i);
+	    ts[i] = new Thread() {
+		public void run() {
+		    try { start.await(); } catch (InterruptedException e) { return; }
+		    Integer v = Integer.valueOf(0);
+		    for (int j=0; j<ops; j++) {
+			// keep the heap size roughly constant.
+			if (tr.nextBoolean())
+			    h.insert(Integer.valueOf(tr.nextInt()), v);
+			else
+			    h.extractMinimum();
+		    }
+		}
+	    };
+	    ts[i].start();
+	}
+	long begin = System.nanoTime();
+	start.countDown();
+	for (Thread t : ts) t.join();
+	long elapsed = System.nanoTime() - begin;
+	return (nthreads * (double) ops) / (elapsed / 1000.0);
+    }
+    /** The baseline: a heap in which every operation holds one lock. */
+    private static class LockedHeap<K,V> extends AbstractHeap<K,V> {
+	private final Heap<K,V> h;
+	LockedHeap(Heap<K,V> h) { super(h.comparator()); this.h = h; }
+	public synchronized Map.Entry<K,V> insert(K key, V value) {
+	    return h.insert(key, value);
+	}
+	public synchronized Map.Entry<K,V> minimum() { return h.minimum(); }
+	public synchronized Map.Entry<K,V> extractMinimum() {
+	    return h.extractMinimum();
+	}
+	public synchronized void decreaseKey(Map.Entry<K,V> me, K newkey) {
+	    h.decreaseKey(me, newkey);
+	}
+	public synchronized void delete(Map.Entry<K,V> me) { h.delete(me); }
+	public synchronized int size() { return h.size(); }
+	public synchronized java.util.Collection<Map.Entry<K,V>> entries() {
+	    return h.entries();
+	}
+	public synchronized void clear() { h.clear(); }
+    }
+}
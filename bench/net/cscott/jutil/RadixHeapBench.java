@@ -0,0 +1,75 @@
+// RadixHeapBench.java, created Mon Oct 19 13:58:12 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.Random;
+/**
+ * Compares {@link RadixHeap} against the comparison-based heaps on a
+ * monotone, Dijkstra-like workload: each extracted key <i>k</i> is
+ * followed by a few inserts with keys in [<i>k</i>, <i>k</i>+C).
+ * {@link LongRadixHeap} is also run through its primitive-key
+ * methods, which box no keys.
+ * <p>
+ * Usage: <code>java net.cscott.jutil.RadixHeapBench [ops [C]]</code>
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ */
+public class RadixHeapBench {
+    public static void main(String[] args) {
+	int ops = (args.length > 0) ? Integer.parseInt(args[0]) : 2000000;
+	int range = (args.length > 1) ? Integer.parseInt(args[1]) : 100000;
+	for (int round=0; round<3; round++) { // the first rounds warm up.
+	    System.out.println("round "+round+" (ns/op):");
+	    long start = System.nanoTime();
+	    long check = runLong(new LongRadixHeap<Integer>(), ops, range);
+	    System.out.printf("  %-14s %6.1f  (checksum %d)%n", "LongRadixHeap",
+			      (System.nanoTime() - start) / (double) ops, check);
+	    report("RadixHeap", new RadixHeap<Long,Integer>(), ops, range);
+	    report("BinaryHeap", new BinaryHeap<Long,Integer>(), ops, range);
+	    report("PairingHeap", new PairingHeap<Long,Integer>(), ops, range);
+	    report("FibonacciHeap", new FibonacciHeap<Long,Integer>(), ops, range);
+	}
+    }
+    private static void report(String name, Heap<Long,Integer> h,
+			       int ops, int range) {
+	long start = System.nanoTime();
+	long check = run(h, ops, range);
+	long elapsed = System.nanoTime() - start;
+	System.out.printf("  %-14s %6.1f  (checksum %d)%n", name,
+			  elapsed / (double) ops, check);
+    }
+    private static long run(Heap<Long,Integer> h, int ops, int range) {
+	Random r = new Random(17);
+	Integer v = Integer.valueOf(0);
+	long sum = 0, k = 0;
+	h.insert(Long.valueOf(0), v);
+	for (int i=0; i<ops && !h.isEmpty(); i++) {
+	    k = h.extractMinimum().getKey().longValue();
+	    sum += k;
+	    // an average branching factor slightly above one keeps the
+	    // heap growing slowly, as in a graph search.
+	    int n = (i % 8 == 0) ? 2 : 1;
+	    for (int j=0; j<n; j++)
+		h.insert(Long.valueOf(k + r.nextInt(range)), v);
+	}
+	return sum;
+    }
+    /** The same workload as <code>run()</code>, with primitive keys. */
+    private static long runLong(LongRadixHeap<Integer> h, int ops, int range) {
+	Random r = new Random(17);
+	Integer v = Integer.valueOf(0);
+	long sum = 0, k = 0;
+	h.insert(0, v);
+	for (int i=0; i<ops && !h.isEmpty(); i++) {
+	    k = h.minimumKey();
+	    h.extractMinimumValue();
+	    sum += k;
+	    int n = (i % 8 == 0) ? 2 : 1;
+	    for (int j=0; j<n; j++)
+		h.insert(k + r.nextInt(range), v);
+	}
+	return sum;
+    }
+}
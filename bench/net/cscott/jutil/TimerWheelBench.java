@@ -0,0 +1,58 @@
+// TimerWheelBench.java, created Mon Oct 19 20:48:09 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.Map;
+import java.util.Random;
+/**
+ * Compares {@link TimerWheel} with {@link BinaryHeap} as a timer queue
+ * on a cancel-heavy workload.  A clock ticks once per operation; each
+ * tick sets a new timer, which is due between <i>n</i> and <i>3n</i>
+ * ticks later, then cancels (with the given probability) the timer set
+ * <i>n</i> ticks ago, which has not fired yet, and fires the timers
+ * which are due.  About <i>n</i> timers are pending at any time.
+ * <p>
+ * Usage: <code>java net.cscott.jutil.TimerWheelBench [n [ops
+ * [cancel-percent]]]</code>
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ */
+public class TimerWheelBench {
+    public static void main(String[] args) {
+	int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+	int ops = (args.length > 1) ? Integer.parseInt(args[1]) : 5000000;
+	int cancel = (args.length > 2) ? Integer.parseInt(args[2]) : 90;
+	for (int round=0; round<5; round++) { // the first rounds warm up.
+	    for (int i=0; i<2; i++) {
+		Heap<Long,Integer> h = (i==0) ?
+		    (Heap<Long,Integer>) new BinaryHeap<Long,Integer>() :
+		    (Heap<Long,Integer>) new TimerWheel<Integer>();
+		long start = System.nanoTime();
+		long fired = run(h, n, ops, cancel);
+		long elapsed = System.nanoTime() - start;
+		System.out.printf("round %d: %-10s %.2f M ticks/s  (%d fired)%n",
+				  round, h.getClass().getSimpleName(),
+				  ops / (elapsed / 1000.0), fired);
+	    }
+	}
+    }
+    private static long run(Heap<Long,Integer> h, int n, int ops, int cancel) {
+	Random r = new Random(5);
+	Integer v = Integer.valueOf(0);
+	Map.Entry<Long,Integer>[] ring = new Map.Entry[n];
+	long fired = 0;
+	for (int clock=0; clock<ops; clock++) {
+	    int slot = clock % n;
+	    if (ring[slot]!=null && r.nextInt(100) < cancel)
+		h.delete(ring[slot]);
+	    ring[slot] = h.insert(Long.valueOf(clock + n + r.nextInt(2*n)), v);
+	    while (h.minimum().getKey().longValue() <= clock) {
+		h.extractMinimum();
+		fired++;
+	    }
+	}
+	return fired;
+    }
+}
@@ -3,8 +3,10 @@
 // Licensed under the terms of the GNU GPL; see COPYING for details.
 package net.cscott.jutil;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Map;
 /**
  * {@link AbstractHeap} provides a skeletal implementation of
@@ -78,6 +80,119 @@ public abstract class AbstractHeap<K,V> implements Heap<K,V> {
 	return false;
     }
     public String toString() { return entries().toString(); }
+
+    // key lookup, with an optional index.
+    /** Maps each key to the entry with that key, or to a {@link Dups}
+     *  list if several entries have equal keys.  <code>null</code> if
+     *  the heap is not indexed. */
+    private Map<K,Object> keyIndex = null;
+    /** Returns a {@link java.util.Map.Entry} in this heap whose key is
+     *  equal to the specified key, or <code>null</code> if there is no
+     *  such entry.  O(1) expected time if the heap is key-indexed
+     *  (see {@link #setKeyIndexed(boolean)}); otherwise this
+     *  implementation scans the entries of the heap in O(n) time. */
+    public Map.Entry<K,V> find(K key) {
+	if (keyIndex!=null) {
+	    Object o = keyIndex.get(key);
+	    return (o instanceof Dups) ? ((Dups<K,V>)o).get(0) :
+		(Map.Entry<K,V>) o;
+	}
+	for (Map.Entry<K,V> e : entries())
+	    if (keyComparator.compare(e.getKey(), key)==0)
+		return e;
+	return null;
+    }
+    /** Removes an entry whose key is equal to the specified key, and
+     *  returns it.  Returns <code>null</code> (and leaves the heap
+     *  unchanged) if there is no such entry.  Takes the time of
+     *  {@link #find(Object)} plus the time of
+     *  {@link #delete(Map.Entry)}. */
+    public Map.Entry<K,V> delete(K key) {
+	Map.Entry<K,V> e = find(key);
+	if (e!=null) delete(e);
+	return e;
+    }
+    /** Replaces the key of an entry whose key is equal to
+     *  <code>key</code> with the specified <b>smaller</b> key, and
+     *  returns the entry.  Returns <code>null</code> (and leaves the
+     *  heap unchanged) if there is no such entry.  Takes the time of
+     *  {@link #find(Object)} plus the time of
+     *  {@link #decreaseKey(Map.Entry,Object)}. */
+    public Map.Entry<K,V> decreaseKey(K key, K newkey) {
+	Map.Entry<K,V> e = find(key);
+	if (e!=null) decreaseKey(e, newkey);
+	return e;
+    }
+    /** Turns the key index on or off.  While it is on, a hash table
+     *  maps keys to entries, so that {@link #find(Object)},
+     *  {@link #delete(Object)} and {@link #decreaseKey(Object,Object)}
+     *  take O(1) expected time plus the cost of the heap operation.
+     *  The index costs a hash table entry per heap entry, plus an
+     *  update on every insertion, removal, and key change.  The index
+     *  compares keys with <code>equals()</code> and
+     *  <code>hashCode()</code>, which should be consistent with this
+     *  heap's comparator.  Turning the index on takes O(n) time.
+     *  <p>
+     *  Subclasses which support the index must call
+     *  {@link #indexInsert(Map.Entry)}, {@link #indexRemove(Map.Entry)},
+     *  {@link #indexRekey(Map.Entry,Object)} and {@link #indexClear()}
+     *  as their entries change, and then override this method to make
+     *  it public. */
+    protected void setKeyIndexed(boolean indexed) {
+	if (!indexed) { keyIndex = null; return; }
+	if (keyIndex!=null) return; // already indexed.
+	keyIndex = new HashMap<K,Object>();
+	for (Map.Entry<K,V> e : entries())
+	    indexAdd(e);
+    }
+    /** Returns <code>true</code> if this heap maintains a key index.
+     * @see #setKeyIndexed(boolean) */
+    public boolean isKeyIndexed() { return keyIndex!=null; }
+    /** Records that the specified entry has been added to this heap. */
+    protected final void indexInsert(Map.Entry<K,V> e) {
+	if (keyIndex!=null) indexAdd(e);
+    }
+    /** Records that the specified entry has been removed from this
+     *  heap.  Must be called before the entry's key changes. */
+    protected final void indexRemove(Map.Entry<K,V> e) {
+	if (keyIndex!=null) indexRemove(e, e.getKey());
+    }
+    /** Records that the key of the specified entry has been changed
+     *  from <code>oldkey</code>. */
+    protected final void indexRekey(Map.Entry<K,V> e, K oldkey) {
+	if (keyIndex==null) return;
+	K newkey = e.getKey();
+	if (newkey==null ? oldkey==null : newkey.equals(oldkey)) return;
+	indexRemove(e, oldkey);
+	indexAdd(e);
+    }
+    /** Records that all entries have been removed from this heap. */
+    protected final void indexClear() {
+	if (keyIndex!=null) keyIndex.clear();
+    }
+    private void indexAdd(Map.Entry<K,V> e) {
+	Object o = keyIndex.put(e.getKey(), e);
+	if (o==null) return;
+	// put back the old entry or list, and add e to it.
+	Dups<K,V> d;
+	if (o instanceof Dups) d = (Dups<K,V>) o;
+	else { d = new Dups<K,V>(); d.add((Map.Entry<K,V>) o); }
+	d.add(e);
+	keyIndex.put(e.getKey(), d);
+    }
+    private void indexRemove(Map.Entry<K,V> e, K key) {
+	Object o = keyIndex.get(key);
+	if (o==e) { keyIndex.remove(key); return; }
+	if (!(o instanceof Dups)) return; // not indexed.
+	// entries may be equal() without being the same entry.
+	Dups<K,V> d = (Dups<K,V>) o;
+	for (int i=0; i<d.size(); i++)
+	    if (d.get(i)==e) { d.remove(i); break; }
+	if (d.size()==1) keyIndex.put(key, d.get(0));
+    }
+    /** A list of entries with equal keys. */
+    private static class Dups<K,V> extends ArrayList<Map.Entry<K,V>> { }
+
     /** Returns the comparator used to compare keys in this {@link Heap},
      *  or <code>null</code> if the keys' natural ordering is used. */
     public Comparator<K> comparator() { return entryComparator.cc; }
@@ -0,0 +1,814 @@
+// BTreeMap.java, created Tue Oct 20 00:12:37 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A {@link BTreeMap} is a {@link SortedMap} implemented as a B+-tree.
+ * Where a {@link java.util.TreeMap} or a {@link RedBlackTree}
+ * allocates one node per key, and follows a pointer per comparison,
+ * a {@link BTreeMap} keeps up to <i>fanout</i> keys in the sorted
+ * array of each node, so that a lookup touches only
+ * <i>log<sub>fanout</sub> n</i> nodes and does most of its
+ * comparisons within a cache line or two.  All the mappings are kept
+ * in the leaves, which are linked together in key order, so
+ * iteration over the whole map or over a
+ * {@link #subMap(Object,Object) subMap} is a walk along arrays.
+ * <p>
+ * A {@link BTreeMap} built from a {@link SortedMap} with the same
+ * ordering (by the {@link #BTreeMap(SortedMap)} constructor or by
+ * {@link #putAll(Map)} into an empty map) is bulk loaded bottom-up
+ * in linear time, without any comparisons.
+ * <p>
+ * Like {@link java.util.TreeMap}, this implementation is not
+ * synchronized, and its iterators are fail-fast.  Keys may be
+ * <code>null</code> only if the map's comparator allows it.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ * @see BTreeSet
+ */
+public class BTreeMap<K,V> extends AbstractMap<K,V>
+    implements SortedMap<K,V> {
+    /** The fanout used if none is given to the constructor. */
+    public static final int DEFAULT_FANOUT = 64;
+    /** The value of every key in a keys-only map. */
+    static final Object PRESENT = new Object();
+    /** Marks a missing key. */
+    private static final Object NONE = new Object();
+
+    private final Comparator<? super K> userComp;
+    private final Comparator<Object> comp;
+    /** The maximum number of keys in a leaf, and of children in an
+     *  internal node. */
+    private final int fanout;
+    /** The minimum number of keys in a leaf, and of children in an
+     *  internal node, except at the root. */
+    private final int min;
+    /** If true, the leaves store no values. */
+    private final boolean keysOnly;
+    private Node root;
+    private Leaf first, last;
+    private int size;
+    private int modCount;
+    // results returned from insert() and delete() on the side.
+    private Object splitKey, oldValue;
+
+    /** Creates an empty {@link BTreeMap} whose keys are ordered by
+     *  their natural ordering. */
+    public BTreeMap() { this(DEFAULT_FANOUT, null); }
+    /** Creates an empty {@link BTreeMap} whose keys are ordered by
+     *  the given {@link Comparator}. */
+    public BTreeMap(Comparator<? super K> c) { this(DEFAULT_FANOUT, c); }
+    /** Creates an empty {@link BTreeMap} with the given fanout whose
+     *  keys are ordered by the given {@link Comparator}, or by their
+     *  natural ordering if <code>c</code> is <code>null</code>.
+     *  @exception IllegalArgumentException if <code>fanout</code> is
+     *  less than four. */
+    public BTreeMap(int fanout, Comparator<? super K> c) {
+	this(fanout, c, false);
+    }
+    /** Creates a {@link BTreeMap} containing the mappings in
+     *  <code>m</code>, ordered by the natural ordering of its keys. */
+    public BTreeMap(Map<? extends K,? extends V> m) {
+	this(); putAll(m);
+    }
+    /** Creates a {@link BTreeMap} containing the mappings in
+     *  <code>m</code>, with the same ordering.  Takes linear time. */
+    public BTreeMap(SortedMap<K,? extends V> m) {
+	this(DEFAULT_FANOUT, m.comparator()); putAll(m);
+    }
+    BTreeMap(int fanout, Comparator<? super K> c, boolean keysOnly) {
+	if (fanout < 4)
+	    throw new IllegalArgumentException("Fanout too small: "+fanout);
+	this.fanout = fanout;
+	this.min = fanout / 2;
+	this.keysOnly = keysOnly;
+	this.userComp = c;
+	this.comp = (Comparator<Object>)
+	    ((c==null) ? Default.comparator : c);
+	clear();
+    }
+
+    // tree nodes.  Every node has room for one extra key (or child)
+    // so that it can overflow before it is split.
+    private static abstract class Node {
+	/** Number of keys in a leaf; number of children in an internal
+	 *  node, which has one fewer key. */
+	int n;
+	final Object[] keys;
+	Node(int nkeys) { keys = new Object[nkeys]; }
+    }
+    private static final class Leaf extends Node {
+	final Object[] vals;
+	Leaf prev, next;
+	Leaf(int fanout, boolean keysOnly) {
+	    super(fanout+1);
+	    vals = keysOnly ? null : new Object[fanout+1];
+	}
+    }
+    private static final class Inner extends Node {
+	// every key in kids[i+1] is >= keys[i] > every key in kids[i]
+	final Node[] kids;
+	Inner(int fanout) {
+	    super(fanout);
+	    kids = new Node[fanout+1];
+	}
+    }
+
+    public int size() { return size; }
+    public void clear() {
+	Leaf l = new Leaf(fanout, keysOnly);
+	root = first = last = l;
+	size = 0;
+	modCount++;
+    }
+    /** Returns the comparator used to order this map, or
+     *  <code>null</code> if it uses the natural ordering of its keys. */
+    public Comparator<? super K> comparator() { return userComp; }
+
+    public boolean containsKey(Object key) {
+	Leaf l = findLeaf(key);
+	int i = lowerBound(l, key);
+	return i < l.n && comp.compare(l.keys[i], key)==0;
+    }
+    public V get(Object key) {
+	Leaf l = findLeaf(key);
+	int i = lowerBound(l, key);
+	if (i < l.n && comp.compare(l.keys[i], key)==0)
+	    return value(l, i);
+	return null;
+    }
+    public V put(K key, V value) {
+	if (size==0) comp.compare(key, key); // type (and null) check.
+	oldValue = null;
+	Node s = insert(root, key, value);
+	if (s != null) { // grow a new root.
+	    Inner r = new Inner(fanout);
+	    r.kids[0] = root; r.kids[1] = s; r.keys[0] = splitKey;
+	    r.n = 2;
+	    root = r;
+	}
+	V result = (V) oldValue;
+	oldValue = splitKey = null;
+	return result;
+    }
+    public V remove(Object key) {
+	if (!delete(root, key)) return null;
+	if (root.n == 1 && root instanceof Inner) // shrink the root.
+	    root = ((Inner)root).kids[0];
+	V result = (V) oldValue;
+	oldValue = null;
+	return result;
+    }
+    /** Copies all of the mappings in <code>m</code> into this map.
+     *  If this map is empty, and <code>m</code> is a {@link SortedMap}
+     *  with the same ordering, this takes linear time. */
+    public void putAll(Map<? extends K,? extends V> m) {
+	if (size==0 && m instanceof SortedMap && !m.isEmpty() &&
+	    sameOrder(((SortedMap<? extends K,? extends V>)m).comparator()))
+	    bulkLoad(m.entrySet().iterator(), m.size());
+	else super.putAll(m);
+    }
+    boolean sameOrder(Comparator<?> c) {
+	return (userComp==null) ? c==null : userComp.equals(c);
+    }
+
+    public K firstKey() {
+	if (size==0) throw new NoSuchElementException();
+	return (K) first.keys[0];
+    }
+    public K lastKey() {
+	if (size==0) throw new NoSuchElementException();
+	return (K) last.keys[last.n-1];
+    }
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+	return new SubMap(false, null, false, null).subMap(fromKey, toKey);
+    }
+    public SortedMap<K,V> headMap(K toKey) {
+	return new SubMap(false, null, false, null).headMap(toKey);
+    }
+    public SortedMap<K,V> tailMap(K fromKey) {
+	return new SubMap(false, null, false, null).tailMap(fromKey);
+    }
+
+    public Set<K> keySet() {
+	return new AbstractSet<K>() {
+	    public int size() { return size; }
+	    public boolean contains(Object o) { return containsKey(o); }
+	    public boolean remove(Object o) {
+		int oldSize = size;
+		BTreeMap.this.remove(o);
+		return size != oldSize;
+	    }
+	    public void clear() { BTreeMap.this.clear(); }
+	    public Iterator<K> iterator() {
+		return new BTreeIterator<K>(false, null, false, null) {
+		    K make(Leaf l, int i) { return (K) l.keys[i]; }
+		};
+	    }
+	};
+    }
+    public Set<Map.Entry<K,V>> entrySet() {
+	return new EntrySet(false, null, false, null) {
+	    public int size() { return size; }
+	    public void clear() { BTreeMap.this.clear(); }
+	};
+    }
+
+    // ---- searching ----
+    private Leaf findLeaf(Object key) {
+	Node x = root;
+	while (x instanceof Inner) {
+	    Inner p = (Inner) x;
+	    x = p.kids[childIndex(p, key)];
+	}
+	return (Leaf) x;
+    }
+    /** Returns the index of the child of <code>p</code> which may
+     *  contain <code>key</code>: the number of keys in <code>p</code>
+     *  which are less than or equal to it. */
+    private int childIndex(Inner p, Object key) {
+	int lo = 0, hi = p.n-1;
+	while (lo < hi) {
+	    int mid = (lo+hi) >>> 1;
+	    if (comp.compare(p.keys[mid], key) <= 0) lo = mid+1;
+	    else hi = mid;
+	}
+	return lo;
+    }
+    /** Returns the index of the first key in <code>l</code> which is
+     *  greater than or equal to <code>key</code>, or <code>l.n</code>
+     *  if there is none. */
+    private int lowerBound(Leaf l, Object key) {
+	int lo = 0, hi = l.n;
+	while (lo < hi) {
+	    int mid = (lo+hi) >>> 1;
+	    if (comp.compare(l.keys[mid], key) < 0) lo = mid+1;
+	    else hi = mid;
+	}
+	return lo;
+    }
+    /** Returns the greatest key less than <code>key</code>, or
+     *  <code>NONE</code>. */
+    private Object lowerKey(Object key) {
+	Leaf l = findLeaf(key);
+	int i = lowerBound(l, key);
+	if (i > 0) return l.keys[i-1];
+	// the keys in l.prev are all less than the keys which led to l.
+	return (l.prev==null) ? NONE : l.prev.keys[l.prev.n-1];
+    }
+    private V value(Leaf l, int i) {
+	return (V) (keysOnly ? PRESENT : l.vals[i]);
+    }
+
+    // ---- insertion ----
+    /** Inserts the mapping into the subtree rooted at <code>x</code>.
+     *  Returns the new right sibling of <code>x</code> if <code>x</code>
+     *  had to be split, leaving the key which separates them in
+     *  <code>splitKey</code>; otherwise returns <code>null</code>. */
+    private Node insert(Node x, Object key, Object value) {
+	if (x instanceof Leaf) {
+	    Leaf l = (Leaf) x;
+	    int i = lowerBound(l, key);
+	    if (i < l.n && comp.compare(l.keys[i], key)==0) {
+		oldValue = value(l, i);
+		if (!keysOnly) l.vals[i] = value;
+		return null;
+	    }
+	    System.arraycopy(l.keys, i, l.keys, i+1, l.n-i);
+	    l.keys[i] = key;
+	    if (!keysOnly) {
+		System.arraycopy(l.vals, i, l.vals, i+1, l.n-i);
+		l.vals[i] = value;
+	    }
+	    l.n++;
+	    size++;
+	    modCount++;
+	    return (l.n > fanout) ? splitLeaf(l) : null;
+	}
+	Inner p = (Inner) x;
+	int i = childIndex(p, key);
+	Node s = insert(p.kids[i], key, value);
+	if (s == null) return null;
+	System.arraycopy(p.keys, i, p.keys, i+1, p.n-1-i);
+	System.arraycopy(p.kids, i+1, p.kids, i+2, p.n-1-i);
+	p.keys[i] = splitKey;
+	p.kids[i+1] = s;
+	p.n++;
+	return (p.n > fanout) ? splitInner(p) : null;
+    }
+    private Leaf splitLeaf(Leaf l) {
+	int mid = l.n / 2;
+	Leaf r = new Leaf(fanout, keysOnly);
+	r.n = l.n - mid;
+	System.arraycopy(l.keys, mid, r.keys, 0, r.n);
+	clear(l.keys, mid, l.n);
+	if (!keysOnly) {
+	    System.arraycopy(l.vals, mid, r.vals, 0, r.n);
+	    clear(l.vals, mid, l.n);
+	}
+	l.n = mid;
+	// link r in after l.
+	r.prev = l; r.next = l.next;
+	if (l.next == null) last = r; else l.next.prev = r;
+	l.next = r;
+	splitKey = r.keys[0];
+	return r;
+    }
+    private Inner splitInner(Inner p) {
+	int mid = p.n / 2;
+	Inner r = new Inner(fanout);
+	r.n = p.n - mid;
+	System.arraycopy(p.kids, mid, r.kids, 0, r.n);
+	System.arraycopy(p.keys, mid, r.keys, 0, r.n-1);
+	splitKey = p.keys[mid-1];
+	clear(p.kids, mid, p.n);
+	clear(p.keys, mid-1, p.n-1);
+	p.n = mid;
+	return r;
+    }
+    private static void clear(Object[] a, int from, int to) {
+	for (int i=from; i<to; i++)
+	    a[i] = null;
+    }
+
+    // ---- deletion ----
+    /** Removes <code>key</code> from the subtree rooted at
+     *  <code>x</code>, leaving its value in <code>oldValue</code>.
+     *  Returns <code>false</code> if it was not present. */
+    private boolean delete(Node x, Object key) {
+	if (x instanceof Leaf) {
+	    Leaf l = (Leaf) x;
+	    int i = lowerBound(l, key);
+	    if (i == l.n || comp.compare(l.keys[i], key)!=0)
+		return false;
+	    oldValue = value(l, i);
+	    l.n--;
+	    System.arraycopy(l.keys, i+1, l.keys, i, l.n-i);
+	    l.keys[l.n] = null;
+	    if (!keysOnly) {
+		System.arraycopy(l.vals, i+1, l.vals, i, l.n-i);
+		l.vals[l.n] = null;
+	    }
+	    size--;
+	    modCount++;
+	    return true;
+	}
+	Inner p = (Inner) x;
+	int i = childIndex(p, key);
+	if (!delete(p.kids[i], key)) return false;
+	if (p.kids[i].n < min) rebalance(p, i);
+	return true;
+    }
+    /** Brings child <code>i</code> of <code>p</code> back up to the
+     *  minimum size, by moving a key over from a sibling or by merging
+     *  with it. */
+    private void rebalance(Inner p, int i) {
+	int j = (i > 0) ? i-1 : i; // merge or share kids j and j+1.
+	Node l = p.kids[j], r = p.kids[j+1];
+	if (l.n + r.n <= fanout) {
+	    merge(p, j);
+	    return;
+	}
+	if (l instanceof Leaf) {
+	    Leaf ll = (Leaf) l, rl = (Leaf) r;
+	    if (i == j) { // move the first key of rl to the end of ll.
+		ll.keys[ll.n] = rl.keys[0];
+		if (!keysOnly) ll.vals[ll.n] = rl.vals[0];
+		ll.n++;
+		rl.n--;
+		System.arraycopy(rl.keys, 1, rl.keys, 0, rl.n);
+		rl.keys[rl.n] = null;
+		if (!keysOnly) {
+		    System.arraycopy(rl.vals, 1, rl.vals, 0, rl.n);
+		    rl.vals[rl.n] = null;
+		}
+	    } else { // move the last key of ll to the start of rl.
+		System.arraycopy(rl.keys, 0, rl.keys, 1, rl.n);
+		if (!keysOnly) System.arraycopy(rl.vals, 0, rl.vals, 1, rl.n);
+		rl.n++;
+		ll.n--;
+		rl.keys[0] = ll.keys[ll.n]; ll.keys[ll.n] = null;
+		if (!keysOnly) {
+		    rl.vals[0] = ll.vals[ll.n]; ll.vals[ll.n] = null;
+		}
+	    }
+	    p.keys[j] = rl.keys[0];
+	} else {
+	    Inner li = (Inner) l, ri = (Inner) r;
+	    if (i == j) { // rotate the first child of ri over to li.
+		li.keys[li.n-1] = p.keys[j];
+		li.kids[li.n] = ri.kids[0];
+		li.n++;
+		p.keys[j] = ri.keys[0];
+		ri.n--;
+		System.arraycopy(ri.kids, 1, ri.kids, 0, ri.n);
+		System.arraycopy(ri.keys, 1, ri.keys, 0, ri.n-1);
+		ri.kids[ri.n] = null; ri.keys[ri.n-1] = null;
+	    } else { // rotate the last child of li over to ri.
+		System.arraycopy(ri.kids, 0, ri.kids, 1, ri.n);
+		System.arraycopy(ri.keys, 0, ri.keys, 1, ri.n-1);
+		ri.n++;
+		ri.kids[0] = li.kids[li.n-1];
+		ri.keys[0] = p.keys[j];
+		p.keys[j] = li.keys[li.n-2];
+		li.n--;
+		li.kids[li.n] = null; li.keys[li.n-1] = null;
+	    }
+	}
+    }
+    /** Merges child <code>j+1</code> of <code>p</code> into child
+     *  <code>j</code>. */
+    private void merge(Inner p, int j) {
+	Node l = p.kids[j], r = p.kids[j+1];
+	if (l instanceof Leaf) {
+	    Leaf ll = (Leaf) l, rl = (Leaf) r;
+	    System.arraycopy(rl.keys, 0, ll.keys, ll.n, rl.n);
+	    if (!keysOnly) System.arraycopy(rl.vals, 0, ll.vals, ll.n, rl.n);
+	    ll.n += rl.n;
+	    ll.next = rl.next;
+	    if (rl.next == null) last = ll; else rl.next.prev = ll;
+	} else {
+	    Inner li = (Inner) l, ri = (Inner) r;
+	    li.keys[li.n-1] = p.keys[j];
+	    System.arraycopy(ri.keys, 0, li.keys, li.n, ri.n-1);
+	    System.arraycopy(ri.kids, 0, li.kids, li.n, ri.n);
+	    li.n += ri.n;
+	}
+	p.n--;
+	System.arraycopy(p.keys, j+1, p.keys, j, p.n-1-j);
+	System.arraycopy(p.kids, j+2, p.kids, j+1, p.n-1-j);
+	p.keys[p.n-1] = null; p.kids[p.n] = null;
+    }
+
+    // ---- bulk loading ----
+    /** Replaces the contents of this (empty) map with the first
+     *  <code>n</code> elements of <code>it</code>, which must be in
+     *  strictly increasing order.  The elements are
+     *  {@link java.util.Map.Entry}s, or, for a keys-only map, keys. */
+    void bulkLoad(Iterator<?> it, int n) {
+	assert size == 0;
+	// fill the leaves evenly; each gets at least fanout/2 keys.
+	int m = (n + fanout - 1) / fanout;
+	Node[] level = new Node[m];
+	Object[] mins = new Object[m];
+	Leaf prev = null;
+	for (int i=0; i<m; i++) {
+	    Leaf l = new Leaf(fanout, keysOnly);
+	    l.n = n/m + ((i < n%m) ? 1 : 0);
+	    for (int j=0; j<l.n; j++) {
+		Object o = it.next();
+		if (keysOnly)
+		    l.keys[j] = (o instanceof Map.Entry) ?
+			((Map.Entry<?,?>)o).getKey() : o;
+		else {
+		    Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+		    l.keys[j] = e.getKey();
+		    l.vals[j] = e.getValue();
+		}
+	    }
+	    l.prev = prev;
+	    if (prev == null) first = l; else prev.next = l;
+	    prev = l;
+	    level[i] = l; mins[i] = l.keys[0];
+	}
+	last = prev;
+	// now build the internal levels the same way.
+	while (m > 1) {
+	    int up = (m + fanout - 1) / fanout;
+	    Node[] nlevel = new Node[up];
+	    Object[] nmins = new Object[up];
+	    for (int i=0, k=0; i<up; i++) {
+		Inner p = new Inner(fanout);
+		p.n = m/up + ((i < m%up) ? 1 : 0);
+		nmins[i] = mins[k];
+		for (int j=0; j<p.n; j++, k++) {
+		    p.kids[j] = level[k];
+		    if (j > 0) p.keys[j-1] = mins[k];
+		}
+		nlevel[i] = p;
+	    }
+	    level = nlevel; mins = nmins; m = up;
+	}
+	root = level[0];
+	size = n;
+	modCount++;
+    }
+
+    // ---- iteration and views ----
+    private abstract class BTreeIterator<T> implements Iterator<T> {
+	final boolean toSet; final Object toKey;
+	Leaf leaf; int idx; // the next key, or leaf==null at the end.
+	Object lastKey = NONE;
+	int expectedModCount = modCount;
+	BTreeIterator(boolean fromSet, Object fromKey,
+		      boolean toSet, Object toKey) {
+	    this.toSet = toSet; this.toKey = toKey;
+	    if (fromSet) seek(fromKey);
+	    else { leaf = first; idx = 0; normalize(); }
+	}
+	abstract T make(Leaf l, int i);
+	/** Positions this iterator at the first key >= key. */
+	private void seek(Object key) {
+	    leaf = findLeaf(key);
+	    idx = lowerBound(leaf, key);
+	    normalize();
+	}
+	private void normalize() {
+	    if (idx == leaf.n) { leaf = leaf.next; idx = 0; }
+	}
+	public boolean hasNext() {
+	    return leaf != null &&
+		(!toSet || comp.compare(leaf.keys[idx], toKey) < 0);
+	}
+	public T next() {
+	    if (modCount != expectedModCount)
+		throw new ConcurrentModificationException();
+	    if (!hasNext()) throw new NoSuchElementException();
+	    T t = make(leaf, idx);
+	    lastKey = leaf.keys[idx];
+	    if (++idx == leaf.n) { leaf = leaf.next; idx = 0; }
+	    return t;
+	}
+	public void remove() {
+	    if (lastKey == NONE) throw new IllegalStateException();
+	    if (modCount != expectedModCount)
+		throw new ConcurrentModificationException();
+	    BTreeMap.this.remove(lastKey);
+	    expectedModCount = modCount;
+	    // keys may have moved between leaves; find our place again.
+	    seek(lastKey);
+	    lastKey = NONE;
+	}
+    }
+    private class Entry extends AbstractMapEntry<K,V> {
+	final K key; V value;
+	Entry(K key, V value) { this.key = key; this.value = value; }
+	public K getKey() { return key; }
+	public V getValue() { return value; }
+	/** Replaces the value in the map as well, without a structural
+	 *  change.  O(lg n) time, since leaves may have been split or
+	 *  merged since this entry was made.
+	 * @exception IllegalStateException if the mapping has been
+	 *            removed from the map. */
+	public V setValue(V value) {
+	    if (keysOnly) throw new UnsupportedOperationException();
+	    Leaf l = findLeaf(key);
+	    int i = lowerBound(l, key);
+	    if (i == l.n || comp.compare(l.keys[i], key) != 0)
+		throw new IllegalStateException("Mapping has been removed.");
+	    V old = (V) l.vals[i];
+	    l.vals[i] = value;
+	    this.value = value;
+	    return old;
+	}
+    }
+    private class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+	final boolean fromSet, toSet; final Object fromKey, toKey;
+	EntrySet(boolean fromSet, Object fromKey,
+		 boolean toSet, Object toKey) {
+	    this.fromSet = fromSet; this.fromKey = fromKey;
+	    this.toSet = toSet; this.toKey = toKey;
+	}
+	public int size() {
+	    int n = 0;
+	    for (Iterator<Map.Entry<K,V>> it = iterator(); it.hasNext(); n++)
+		it.next();
+	    return n;
+	}
+	public Iterator<Map.Entry<K,V>> iterator() {
+	    return new BTreeIterator<Map.Entry<K,V>>
+		(fromSet, fromKey, toSet, toKey) {
+		Map.Entry<K,V> make(Leaf l, int i) {
+		    return new Entry((K) l.keys[i], value(l, i));
+		}
+	    };
+	}
+	public boolean contains(Object o) {
+	    if (!(o instanceof Map.Entry)) return false;
+	    Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+	    Object k = e.getKey();
+	    if (!inRange(k) || !containsKey(k)) return false;
+	    Object v = get(k);
+	    return (v==null) ? e.getValue()==null : v.equals(e.getValue());
+	}
+	public boolean remove(Object o) {
+	    if (!contains(o)) return false;
+	    BTreeMap.this.remove(((Map.Entry<?,?>)o).getKey());
+	    return true;
+	}
+	boolean inRange(Object key) {
+	    return (!fromSet || comp.compare(key, fromKey) >= 0) &&
+		(!toSet || comp.compare(key, toKey) < 0);
+	}
+    }
+    /** A view of the keys of this map in a half-open range. */
+    private class SubMap extends AbstractMap<K,V> implements SortedMap<K,V> {
+	final EntrySet entries;
+	SubMap(boolean fromSet, K fromKey, boolean toSet, K toKey) {
+	    entries = new EntrySet(fromSet, fromKey, toSet, toKey);
+	}
+	public Comparator<? super K> comparator() { return userComp; }
+	public Set<Map.Entry<K,V>> entrySet() { return entries; }
+	public boolean isEmpty() { return !entries.iterator().hasNext(); }
+	public boolean containsKey(Object key) {
+	    return entries.inRange(key) && BTreeMap.this.containsKey(key);
+	}
+	public V get(Object key) {
+	    return entries.inRange(key) ? BTreeMap.this.get(key) : null;
+	}
+	public V put(K key, V value) {
+	    if (!entries.inRange(key))
+		throw new IllegalArgumentException("Key out of range: "+key);
+	    return BTreeMap.this.put(key, value);
+	}
+	public V remove(Object key) {
+	    return entries.inRange(key) ? BTreeMap.this.remove(key) : null;
+	}
+	public K firstKey() {
+	    Iterator<K> it = keySet().iterator();
+	    if (!it.hasNext()) throw new NoSuchElementException();
+	    return it.next();
+	}
+	public K lastKey() {
+	    Object k;
+	    if (entries.toSet) k = lowerKey(entries.toKey);
+	    else k = (size==0) ? NONE : last.keys[last.n-1];
+	    if (k == NONE || !entries.inRange(k))
+		throw new NoSuchElementException();
+	    return (K) k;
+	}
+	public SortedMap<K,V> subMap(K fromKey, K toKey) {
+	    checkRange(fromKey); checkRange(toKey);
+	    if (comp.compare(fromKey, toKey) > 0)
+		throw new IllegalArgumentException("fromKey > toKey");
+	    return new SubMap(true, fromKey, true, toKey);
+	}
+	public SortedMap<K,V> headMap(K toKey) {
+	    checkRange(toKey);
+	    return new SubMap(entries.fromSet, (K) entries.fromKey,
+			      true, toKey);
+	}
+	public SortedMap<K,V> tailMap(K fromKey) {
+	    checkRange(fromKey);
+	    return new SubMap(true, fromKey,
+			      entries.toSet, (K) entries.toKey);
+	}
+	/** Checks that <code>key</code> is within the closed range of
+	 *  this view. */
+	private void checkRange(K key) {
+	    if ((entries.fromSet && comp.compare(key, entries.fromKey) < 0) ||
+		(entries.toSet && comp.compare(key, entries.toKey) > 0))
+		throw new IllegalArgumentException("Key out of range: "+key);
+	}
+    }
+
+    /** Checks the structural invariants of the tree. */
+    private void check() {
+	int n = 0;
+	Leaf prev = null;
+	for (Leaf l = first; l != null; prev = l, l = l.next) {
+	    assert l.prev == prev;
+	    assert l == root || l.n >= min;
+	    for (int i=0; i<l.n; i++, n++)
+		assert i==0 || comp.compare(l.keys[i-1], l.keys[i]) < 0;
+	    if (prev != null && prev.n > 0)
+		assert comp.compare(prev.keys[prev.n-1], l.keys[0]) < 0;
+	}
+	assert prev == last && n == size;
+	check(root, NONE, NONE, 0, new int[] { -1 });
+    }
+    private void check(Node x, Object lo, Object hi, int d, int[] depth) {
+	assert x.n <= fanout && (x == root || x.n >= min);
+	for (int i=0; i<x.n - ((x instanceof Inner) ? 1 : 0); i++) {
+	    assert lo==NONE || comp.compare(lo, x.keys[i]) <= 0;
+	    assert hi==NONE || comp.compare(x.keys[i], hi) < 0;
+	}
+	if (x instanceof Leaf) {
+	    if (depth[0] < 0) depth[0] = d;
+	    assert depth[0] == d : "unbalanced";
+	    return;
+	}
+	Inner p = (Inner) x;
+	for (int i=0; i<p.n; i++)
+	    check(p.kids[i], (i==0) ? lo : p.keys[i-1],
+		  (i==p.n-1) ? hi : p.keys[i], d+1, depth);
+    }
+
+    /** Self-test function. */
+    public static void main(String[] args) {
+	// random operations against a TreeMap, with a small fanout so
+	// the tree gets deep.
+	Random r = new Random(42);
+	for (int fanout=4; fanout<=7; fanout+=3) {
+	    BTreeMap<Integer,Integer> bt =
+		new BTreeMap<Integer,Integer>(fanout, null);
+	    TreeMap<Integer,Integer> tm = new TreeMap<Integer,Integer>();
+	    for (int i=0; i<40000; i++) {
+		Integer k = new Integer(r.nextInt(2000));
+		Integer v = new Integer(i);
+		if (r.nextInt(3) == 0)
+		    assert eq(bt.remove(k), tm.remove(k));
+		else
+		    assert eq(bt.put(k, v), tm.put(k, v));
+		if (i % 1000 == 0) {
+		    bt.check();
+		    assert bt.equals(tm) && tm.equals(bt);
+		}
+	    }
+	    bt.check();
+	    assert bt.size() == tm.size();
+	    assert bt.firstKey().equals(tm.firstKey());
+	    assert bt.lastKey().equals(tm.lastKey());
+	    // range views.
+	    for (int i=0; i<200; i++) {
+		Integer a = new Integer(r.nextInt(2100)-50);
+		Integer b = new Integer(a.intValue()+r.nextInt(300));
+		SortedMap<Integer,Integer> bs = bt.subMap(a, b);
+		SortedMap<Integer,Integer> ts = tm.subMap(a, b);
+		assert bs.equals(ts) && bs.size() == ts.size();
+		assert ts.isEmpty() || bs.lastKey().equals(ts.lastKey());
+		assert ts.isEmpty() || bs.firstKey().equals(ts.firstKey());
+		assert bt.headMap(b).size() == tm.headMap(b).size();
+		assert bt.tailMap(a).keySet().equals(tm.tailMap(a).keySet());
+	    }
+	    // bulk load, and removal through a view's iterator.
+	    BTreeMap<Integer,Integer> bl = new BTreeMap<Integer,Integer>
+		(fanout, null);
+	    bl.putAll(tm);
+	    bl.check();
+	    assert bl.equals(tm);
+	    for (Iterator<Integer> it = bl.subMap(new Integer(500),
+						  new Integer(1500))
+		     .keySet().iterator(); it.hasNext(); )
+		if (it.next().intValue() % 2 == 0) it.remove();
+	    tm.subMap(new Integer(500), new Integer(1500)).keySet()
+		.retainAll(bl.keySet());
+	    bl.check();
+	    assert bl.equals(tm);
+	    for (Iterator<Integer> it = bl.keySet().iterator(); it.hasNext(); ) {
+		it.next(); it.remove();
+	    }
+	    bl.check();
+	    assert bl.isEmpty();
+	}
+	// out of range puts and bad fanouts.
+	BTreeMap<String,String> bs = new BTreeMap<String,String>();
+	bs.put("b", "B"); bs.put("d", "D");
+	try {
+	    bs.headMap("c").put("c", "C");
+	    assert false : "put out of range";
+	} catch (IllegalArgumentException e) { /* expected */ }
+	try {
+	    new BTreeMap<String,String>(3, null);
+	    assert false : "fanout 3";
+	} catch (IllegalArgumentException e) { /* expected */ }
+	assert bs.headMap("c").lastKey().equals("b");
+	try {
+	    bs.tailMap("c").headMap("d").firstKey();
+	    assert false : "empty view";
+	} catch (NoSuchElementException e) { /* expected */ }
+	// setValue writes through, but doesn't resurrect a removed key.
+	Map.Entry<String,String> be = bs.entrySet().iterator().next();
+	assert be.setValue("BB").equals("B") && bs.get("b").equals("BB");
+	bs.remove("b");
+	try {
+	    be.setValue("BBB");
+	    assert false : "setValue on a removed mapping";
+	} catch (IllegalStateException e) { /* expected */ }
+	assert !bs.containsKey("b") && bs.size()==1;
+	// the generic Map tests, with null keys ordered first.
+	Comparator<Object> nullFirst = new Comparator<Object>() {
+	    public int compare(Object o1, Object o2) {
+		if (o1==null) return (o2==null)?0:-1;
+		if (o2==null) return 1;
+		if (o1 instanceof Comparable && o2 instanceof Comparable)
+		    return ((Comparable)o1).compareTo(o2);
+		return o1.hashCode() - o2.hashCode();
+	    }
+	};
+	for (int fanout=4; fanout<=64; fanout*=16) {
+	    boolean ok = TestMap.doit
+		(Factories.bTreeMapFactory(fanout, nullFirst),
+		 "BTreeMap, fanout "+fanout);
+	    assert ok : "BTreeMap failed TestMap";
+	}
+	System.out.println("PASSED.");
+    }
+    private static boolean eq(Object a, Object b) {
+	return (a==null) ? b==null : a.equals(b);
+    }
+}
@@ -0,0 +1,115 @@
+// BTreeSet.java, created Tue Oct 20 01:02:16 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * A {@link BTreeSet} is a {@link SortedSet} backed by a
+ * {@link BTreeMap} whose leaves store only keys, so that a large set
+ * costs little more than the sorted arrays of its elements.  It is
+ * bulk loaded in linear time when built from a {@link SortedSet}
+ * with the same ordering.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ */
+public class BTreeSet<E> extends AbstractSet<E> implements SortedSet<E> {
+    private final SortedMap<E,Object> map;
+
+    /** Creates an empty {@link BTreeSet} whose elements are ordered
+     *  by their natural ordering. */
+    public BTreeSet() { this(BTreeMap.DEFAULT_FANOUT, null); }
+    /** Creates an empty {@link BTreeSet} whose elements are ordered
+     *  by the given {@link Comparator}. */
+    public BTreeSet(Comparator<? super E> c) {
+	this(BTreeMap.DEFAULT_FANOUT, c);
+    }
+    /** Creates an empty {@link BTreeSet} with the given fanout whose
+     *  elements are ordered by the given {@link Comparator}, or by
+     *  their natural ordering if <code>c</code> is <code>null</code>.
+     *  @exception IllegalArgumentException if <code>fanout</code> is
+     *  less than four. */
+    public BTreeSet(int fanout, Comparator<? super E> c) {
+	this(new BTreeMap<E,Object>(fanout, c, true));
+    }
+    /** Creates a {@link BTreeSet} containing the elements of
+     *  <code>c</code>, ordered by their natural ordering. */
+    public BTreeSet(Collection<? extends E> c) { this(); addAll(c); }
+    /** Creates a {@link BTreeSet} containing the elements of
+     *  <code>s</code>, with the same ordering.  Takes linear time. */
+    public BTreeSet(SortedSet<E> s) {
+	this(BTreeMap.DEFAULT_FANOUT, s.comparator()); addAll(s);
+    }
+    private BTreeSet(SortedMap<E,Object> map) { this.map = map; }
+
+    public int size() { return map.size(); }
+    public boolean isEmpty() { return map.isEmpty(); }
+    public boolean contains(Object o) { return map.containsKey(o); }
+    public boolean add(E e) { return map.put(e, BTreeMap.PRESENT)==null; }
+    public boolean remove(Object o) { return map.remove(o)!=null; }
+    public void clear() { map.clear(); }
+    public Iterator<E> iterator() { return map.keySet().iterator(); }
+    /** Adds all of the elements in <code>c</code> to this set.  If
+     *  this set is empty, and <code>c</code> is a {@link SortedSet}
+     *  with the same ordering, this takes linear time. */
+    public boolean addAll(Collection<? extends E> c) {
+	if (map instanceof BTreeMap && map.isEmpty() &&
+	    c instanceof SortedSet && !c.isEmpty() &&
+	    ((BTreeMap<E,Object>)map).sameOrder
+	    (((SortedSet<? extends E>)c).comparator())) {
+	    ((BTreeMap<E,Object>)map).bulkLoad(c.iterator(), c.size());
+	    return true;
+	}
+	return super.addAll(c);
+    }
+
+    public Comparator<? super E> comparator() { return map.comparator(); }
+    public E first() { return map.firstKey(); }
+    public E last() { return map.lastKey(); }
+    public SortedSet<E> subSet(E fromElement, E toElement) {
+	return new BTreeSet<E>(map.subMap(fromElement, toElement));
+    }
+    public SortedSet<E> headSet(E toElement) {
+	return new BTreeSet<E>(map.headMap(toElement));
+    }
+    public SortedSet<E> tailSet(E fromElement) {
+	return new BTreeSet<E>(map.tailMap(fromElement));
+    }
+
+    /** Self-test function. */
+    public static void main(String[] args) {
+	Random r = new Random(17);
+	BTreeSet<Integer> bs = new BTreeSet<Integer>(5, null);
+	TreeSet<Integer> ts = new TreeSet<Integer>();
+	for (int i=0; i<30000; i++) {
+	    Integer k = new Integer(r.nextInt(3000));
+	    if (r.nextInt(3) == 0) assert bs.remove(k) == ts.remove(k);
+	    else assert bs.add(k) == ts.add(k);
+	}
+	assert bs.equals(ts) && ts.equals(bs);
+	assert bs.first().equals(ts.first()) && bs.last().equals(ts.last());
+	SortedSet<Integer> sub = bs.subSet(new Integer(100), new Integer(900));
+	assert sub.equals(ts.subSet(new Integer(100), new Integer(900)));
+	assert sub.headSet(new Integer(500)).last()
+	    .equals(ts.headSet(new Integer(500)).last());
+	sub.clear();
+	ts.subSet(new Integer(100), new Integer(900)).clear();
+	assert bs.equals(ts);
+	// bulk load.
+	BTreeSet<Integer> bl = new BTreeSet<Integer>(ts);
+	assert bl.equals(ts) && bl.size() == ts.size();
+	assert bl.tailSet(new Integer(2000)).equals
+	    (ts.tailSet(new Integer(2000)));
+	assert !bl.add(ts.first()) && bl.remove(ts.first());
+	System.out.println("PASSED.");
+    }
+}
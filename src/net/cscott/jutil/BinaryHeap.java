@@ -5,6 +5,7 @@ package net.cscott.jutil;
 
 import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -14,10 +15,26 @@ import java.util.Map;
  * {@link BinaryHeap} is an implementation of a binary heap.
  * The implementation in CLR is followed, except the comparisons
  * are reversed to keep the <b>minimum</b> element on the top of
- * the heap.  In addition, the function names {@link #downheap(int)}
- * (for what CLR calls 'heapify') and {@link #upheap(int)} (which
- * is part of the INSERT operation) have been adopted from
- * Sedgewick's book.
+ * the heap.  The two basic operations are called <i>sift-down</i>
+ * (what CLR calls 'heapify') and <i>sift-up</i> (which is part of
+ * the INSERT operation); rather than exchanging entries at every
+ * level, both move a "hole" through the heap and store the
+ * displaced entry once, at the end.
+ * <p>
+ * Building a heap from a collection, or merging another heap into
+ * this one with {@link #union(Heap)}, uses Floyd's bottom-up BUILD-HEAP
+ * and takes O(n) time.  When the other heap is also a
+ * {@link BinaryHeap} with the same comparator, its entries are moved
+ * over rather than copied, so they stay valid in this heap.
+ * <p>
+ * A heap may also be <i>bounded</i>: it then holds at most a fixed
+ * number of entries, and once it is full each insertion drops the
+ * entry with the smallest key (possibly the new one).  The heap
+ * therefore retains the entries with the largest keys it has seen,
+ * and its minimum is the smallest key which still makes the cut.
+ * Use a reversed comparator to keep the smallest keys instead.
+ * {@link #extractMinimum(int,Map.Entry[])} and
+ * {@link #drainTo(Collection,int)} remove many entries at once.
  * 
  * @author  C. Scott Ananian <cananian@alumni.princeton.edu>
  * @version $Id: BinaryHeap.java,v 1.7 2006-10-30 20:14:41 cananian Exp $
@@ -26,7 +43,12 @@ import java.util.Map;
 public final class BinaryHeap<K,V> extends AbstractHeap<K,V> {
     private final boolean debug=false;
 
-    final ArrayList<Entry<K,V>> A;
+    /** The heap.  Element zero is reserved. */
+    Entry<K,V>[] A;
+    /** Number of entries in the heap; they are <code>A[1..n]</code>. */
+    int n=0;
+    /** Maximum number of entries, for a bounded heap. */
+    final int bound;
     final Comparator<Map.Entry<K,V>> c;
     
     /** Creates a new, empty {@link BinaryHeap}, which will
@@ -35,6 +57,15 @@ public final class BinaryHeap<K,V> extends AbstractHeap<K,V> {
     /** Creates a new, empty {@link BinaryHeap} with the
      *  specified comparator. */
     public BinaryHeap(Comparator<K> c) { this(Collections.<Map.Entry<K,V>>emptySet(), c); }
+    /** Creates a new, empty, bounded {@link BinaryHeap} with the
+     *  specified comparator, which will hold at most
+     *  <code>bound</code> entries.  Once full, the heap keeps the
+     *  <code>bound</code> entries with the largest keys.
+     * @exception IllegalArgumentException if <code>bound</code> is
+     *            not positive. */
+    public BinaryHeap(Comparator<K> c, int bound) {
+	this(Collections.<Map.Entry<K,V>>emptySet(), c, bound);
+    }
     /** Builds a binary heap from the given heap, using
      *  the same key comparator as the given heap.  O(n) time. */
     public BinaryHeap(Heap<K,? extends V> h) {
@@ -44,125 +75,287 @@ public final class BinaryHeap<K,V> extends AbstractHeap<K,V> {
      *  and a key comparator.
      *  O(n) time. */
     public BinaryHeap(Collection<? extends Map.Entry<? extends K,? extends V>> collection, Comparator<K> comparator) {
+	this(collection, comparator, Integer.MAX_VALUE);
+    }
+    /** Builds a bounded binary heap from a collection of
+     *  {@link java.util.Map.Entry}s and a key comparator.  Only the
+     *  <code>bound</code> entries of the collection with the largest
+     *  keys are retained.  O(n) time if the collection fits in the
+     *  bound, and O(n lg bound) time otherwise.
+     * @exception IllegalArgumentException if <code>bound</code> is
+     *            not positive. */
+    public BinaryHeap(Collection<? extends Map.Entry<? extends K,? extends V>> collection, Comparator<K> comparator, int bound) {
 	super(comparator);
+	if (bound < 1)
+	    throw new IllegalArgumentException("Bound must be positive: "+bound);
+	this.bound = bound;
 	// initialize comparator
 	c = entryComparator(); // cache in field.
 	// initialize A
-	A = new ArrayList<Entry<K,V>>(1+collection.size());
-	A.add(null); /* element zero is reserved */
+	A = (Entry<K,V>[]) new Entry[1+Math.min(Math.max(collection.size(),1), bound)];
 	// use BUILD-HEAP
 	union(collection);
 	if (debug) checkHeap();
     }
+    /** Returns the maximum number of entries this heap will hold, or
+     *  <code>Integer.MAX_VALUE</code> if it is not bounded. */
+    public int bound() { return bound; }
+    /** Insert an entry into the heap.  O(lg n) time.  If the heap is
+     *  bounded and full, either the current minimum is dropped, or (if
+     *  the new key is not larger than the minimum) the new entry is
+     *  dropped instead; in the latter case the returned entry is not in
+     *  the heap.  Use {@link #offer(Object,Object)} to find out which. */
     public Map.Entry<K,V> insert(K key, V value) {
-	int index=A.size();
-	Entry<K,V> e=new Entry<K,V>(key, value, index);
-	A.add(e);
-	upheap(index);
-	if (debug) checkHeap();
+	Entry<K,V> e=new Entry<K,V>(key, value, 0);
+	offer(e);
 	return e;
     }
+    /** Insert an entry into the heap, returning the entry which was
+     *  dropped to stay within the bound: either the former minimum, or
+     *  a new entry with the given key and value if it did not make the
+     *  cut.  Returns <code>null</code> if nothing was dropped, which is
+     *  always the case for an unbounded heap.  O(lg n) time. */
+    public Map.Entry<K,V> offer(K key, V value) {
+	return offer(new Entry<K,V>(key, value, 0));
+    }
+    private Entry<K,V> offer(Entry<K,V> e) {
+	if (n < bound) {
+	    ensureCapacity(n+1);
+	    siftUp(++n, e);
+	    indexInsert(e);
+	    if (debug) checkHeap();
+	    return null;
+	}
+	// bounded, and full.
+	Entry<K,V> min = A[1];
+	if (c.compare(e, min) <= 0) return e; // didn't make the cut.
+	min.index = 0;
+	indexRemove(min);
+	siftDown(1, e);
+	indexInsert(e);
+	if (debug) checkHeap();
+	return min;
+    }
     public Map.Entry<K,V> minimum() {
-	if (size() < 1) throw new java.util.NoSuchElementException();
-	return A.get(1);
+	if (n < 1) throw new java.util.NoSuchElementException();
+	return A[1];
     }
     public Map.Entry<K,V> extractMinimum() {
-	if (size() < 1) throw new java.util.NoSuchElementException();
-	Entry<K,V> min = A.get(1);
-	set(1, A.get(size()));
-	A.remove(size());
-	downheap(1);
+	if (n < 1) throw new java.util.NoSuchElementException();
+	Entry<K,V> min = A[1];
+	removeAt(1);
 	if (debug) checkHeap();
 	return min;
     }
+    /** Remove up to <code>k</code> entries with minimal keys, storing
+     *  them in increasing order in <code>dest[0]</code> through
+     *  <code>dest[k-1]</code>.  Returns the number of entries removed,
+     *  which is less than <code>k</code> only if the heap runs out.
+     *  O(k lg n) time.
+     * @exception IllegalArgumentException if <code>k</code> is negative
+     *            or larger than <code>dest.length</code>. */
+    public int extractMinimum(int k, Map.Entry<K,V>[] dest) {
+	if (k < 0 || k > dest.length)
+	    throw new IllegalArgumentException("Bad count: "+k);
+	int i;
+	for (i=0; i<k && n>0; i++) {
+	    dest[i] = A[1];
+	    removeAt(1);
+	}
+	if (debug) checkHeap();
+	return i;
+    }
+    /** Remove all entries from the heap, adding them to the given
+     *  collection in increasing order.  Returns the number of entries
+     *  removed.  O(n lg n) time. */
+    public int drainTo(Collection<? super Map.Entry<K,V>> coll) {
+	return drainTo(coll, Integer.MAX_VALUE);
+    }
+    /** Remove up to <code>max</code> entries with minimal keys, adding
+     *  them to the given collection in increasing order.  Returns the
+     *  number of entries removed.  O(max lg n) time. */
+    public int drainTo(Collection<? super Map.Entry<K,V>> coll, int max) {
+	int i;
+	for (i=0; i<max && n>0; i++) {
+	    coll.add(A[1]);
+	    removeAt(1);
+	}
+	if (debug) checkHeap();
+	return i;
+    }
+    /** Merges all of the mappings from the specified {@link Heap} into
+     *  this {@link Heap}, leaving the specified heap empty.  O(n+m)
+     *  time, or O(m lg (n+m)) if that is smaller, when the
+     *  specified heap has m entries.  If the specified heap is a
+     *  {@link BinaryHeap} with the same comparator, its entries are
+     *  moved rather than copied. */
     public void union(Heap<? extends K,? extends V> h) {
-	union(h.entries());
+	if (h instanceof BinaryHeap &&
+	    entryComparator().equals(((BinaryHeap)h).entryComparator())) {
+	    // the unsafe cast below from K2 to K and V2 to V should really be
+	    // safe if the entryComparators for the two Heaps are identical.
+	    BinaryHeap<K,V> bh = (BinaryHeap<K,V>) h;
+	    if (bh==this) return;
+	    int m = bh.n;
+	    ensureCapacity(n+m);
+	    for (int i=1; i<=m; i++) {
+		set(n+i, bh.A[i]);
+		indexInsert(bh.A[i]);
+	    }
+	    Arrays.fill(bh.A, 1, m+1, null);
+	    bh.n = 0;
+	    bh.indexClear();
+	    heapifyAdded(m);
+	} else {
+	    union(h.entries());
+	    h.clear();
+	}
     }
     /** Union a collection of {@link java.util.Map.Entry}s, using BUILD-HEAP. */
     private void union(Collection<? extends Map.Entry<? extends K,? extends V>> coll) {
-	// this is the BUILD-HEAP function. pg 145 in CLR.
-	for (Map.Entry<? extends K,? extends V> e : coll)
-	    A.add(new Entry<K,V>(e.getKey(), e.getValue(), A.size()));
-	// okay, now heapify
-	for (int i=size()/2; i>0; i--)
-	    downheap(i);
-	// done!
+	Iterator<? extends Map.Entry<? extends K,? extends V>> it =
+	    coll.iterator();
+	ensureCapacity((int) Math.min((long) n+coll.size(), bound));
+	int m = 0;
+	while (n+m < bound && it.hasNext()) {
+	    Map.Entry<? extends K,? extends V> e = it.next();
+	    ensureCapacity(n+m+1); // in case coll.size() lied.
+	    m++;
+	    set(n+m, new Entry<K,V>(e.getKey(), e.getValue(), 0));
+	    indexInsert(A[n+m]);
+	}
+	heapifyAdded(m);
+	// a bounded heap is now full: the rest must beat the minimum.
+	while (it.hasNext()) {
+	    Map.Entry<? extends K,? extends V> e = it.next();
+	    offer(new Entry<K,V>(e.getKey(), e.getValue(), 0));
+	}
+    }
+    /** Restore the heap condition after <code>m</code> entries have
+     *  been stored past the end of the heap, and then enforce the
+     *  bound. */
+    private void heapifyAdded(int m) {
+	int old = n;
+	n += m;
+	if (m < (old+m) / (33 - Integer.numberOfLeadingZeros(old+m))) {
+	    // a few entries: cheaper to sift each one up.
+	    for (int i=old+1; i<=n; i++)
+		siftUp(i, A[i]);
+	} else {
+	    // this is the BUILD-HEAP function. pg 145 in CLR.
+	    for (int i=n/2; i>0; i--)
+		siftDown(i, A[i]);
+	}
+	// drop the smallest entries of a bounded heap.
+	while (n > bound)
+	    removeAt(1);
 	if (debug) checkHeap();
     }
     public void decreaseKey(Map.Entry<K,V> me, K newkey) {
 	updateKey(me, newkey);
     }
     public void updateKey(Map.Entry<K,V> me, K newkey) {
-	Entry<K,V> e = (Entry<K,V>) me;
-	if (keyComparator().compare(newkey, setKey(e, newkey)) < 0)
-	    upheap(e.index);
+	Entry<K,V> e = checkIn(me);
+	K oldkey = setKey(e, newkey);
+	indexRekey(e, oldkey);
+	if (keyComparator().compare(newkey, oldkey) < 0)
+	    siftUp(e.index, e);
 	else
-	    downheap(e.index);
+	    siftDown(e.index, e);
 	if (debug) checkHeap();
     }
     public void delete(Map.Entry<K,V> me) {
-	int index = ((Entry<K,V>)me).index;
-	// replace this entry with one at end of heap & shrink heap.
-	Entry<K,V> newE = A.get(size());
-	set(index, newE);
-	A.remove(size());
-	// now fixup the heap by calling either downheap or upheap.
-	if (c.compare(newE, me) < 0)
-	    upheap(index); // we've decreased the key
-	else
-	    downheap(index); // we've increased the key
+	removeAt(checkIn(me).index);
 	// done.
 	if (debug) checkHeap();
     }
-    public void clear() { A.clear(); A.add(null); }
-    public int size() { return A.size()-1; /* 0'th element unused. */ }
+    /** Entries which were dropped, extracted or deleted have index 0. */
+    private Entry<K,V> checkIn(Map.Entry<K,V> me) {
+	Entry<K,V> e = (Entry<K,V>) me;
+	if (e.index == 0)
+	    throw new java.util.NoSuchElementException("Entry is not in heap.");
+	return e;
+    }
+    public void clear() {
+	for (int i=1; i<=n; i++) { A[i].index = 0; A[i] = null; }
+	n = 0;
+	indexClear();
+    }
+    /** Turns the key index on or off.  O(n) time to turn it on.
+     * @see AbstractHeap#setKeyIndexed(boolean) */
+    public void setKeyIndexed(boolean indexed) {
+	super.setKeyIndexed(indexed);
+    }
+    public int size() { return n; }
     public Collection<Map.Entry<K,V>> entries() {
 	return new AbstractCollection<Map.Entry<K,V>>() {
-	    public int size() { return BinaryHeap.this.size(); }
+	    public int size() { return n; }
 	    public Iterator<Map.Entry<K,V>> iterator() {
-		final Iterator<Entry<K,V>> it = A.iterator();
-		it.next(); // filter out element 0 of the array list.
-		// weakness of the type system: we need to wrap this
-		// iterator to make it return Map.Entry instead of Entry.
 		return new UnmodifiableIterator<Map.Entry<K,V>>() {
-		    public boolean hasNext() { return it.hasNext(); }
-		    public Map.Entry<K,V> next() { return it.next(); }
+		    int i = 1; // skip element 0 of the array.
+		    public boolean hasNext() { return i <= n; }
+		    public Map.Entry<K,V> next() {
+			if (i > n) throw new java.util.NoSuchElementException();
+			return A[i++];
+		    }
 		};
 	    }
 	};
     }
 
 
-    /** The guts of the binary heap algorithms: DOWNHEAP and UPHEAP */
-    private final void downheap(int i) { // aka HEAPIFY
-	int l = LEFT(i), r = RIGHT(i);
-	int smallest = i;
-	if (l<=size() && c.compare(A.get(l), A.get(smallest)) < 0)
-	    smallest = l;
-	if (r<=size() && c.compare(A.get(r), A.get(smallest)) < 0)
-	    smallest = r;
-	if (smallest != i) {
-	    exchange(i, smallest);
-	    downheap(smallest);
+    /** The guts of the binary heap algorithms: SIFT-DOWN and SIFT-UP.
+     *  Rather than exchanging entries at every level, these move a
+     *  "hole" through the heap and store <code>e</code> once, at the
+     *  end. */
+    private final void siftDown(int i, Entry<K,V> e) { // aka HEAPIFY
+	for (int l = LEFT(i); l <= n; l = LEFT(i)) {
+	    Entry<K,V> child = A[l];
+	    int r = RIGHT(i);
+	    if (r <= n && c.compare(A[r], child) < 0) {
+		l = r; child = A[r];
+	    }
+	    if (c.compare(child, e) >= 0) break;
+	    set(i, child);
+	    i = l;
 	}
+	set(i, e);
     }
-    private final void upheap(int i) {
-	int p = PARENT(i);
-	if (p>0 && i<=size() && c.compare(A.get(p), A.get(i)) > 0) {
-	    exchange(p, i);
-	    upheap(p);
+    private final void siftUp(int i, Entry<K,V> e) {
+	for (int p = PARENT(i); p > 0; p = PARENT(i)) {
+	    Entry<K,V> parent = A[p];
+	    if (c.compare(parent, e) <= 0) break;
+	    set(i, parent);
+	    i = p;
 	}
+	set(i, e);
     }
-    // exchange helper
-    private final void exchange(int i, int j) {
-	if (i==j) return; // efficiency hack.
-	Entry<K,V> ei = A.get(i), ej = A.get(j);
-	A.set(i, ej); ej.index = i;
-	A.set(j, ei); ei.index = j;
+    /** Remove the entry at position <code>i</code>, replacing it with
+     *  the entry at the end of the heap. */
+    private final void removeAt(int i) {
+	Entry<K,V> old = A[i], last = A[n];
+	A[n--] = null;
+	if (i <= n) {
+	    // now fixup the heap by sifting the last entry down or up.
+	    if (c.compare(last, old) < 0)
+		siftUp(i, last); // we've decreased the key
+	    else
+		siftDown(i, last); // we've increased the key
+	}
+	old.index = 0; // no longer in the heap.
+	indexRemove(old);
+    }
+    /** Make room for at least <code>size</code> entries. */
+    private final void ensureCapacity(int size) {
+	if (size < A.length) return;
+	int ncap = Math.max(size+1, 2*A.length);
+	Entry<K,V>[] nA = (Entry<K,V>[]) new Entry[ncap];
+	System.arraycopy(A, 0, nA, 0, n+1);
+	A = nA;
     }
     // set helper
     private final void set(int i, Entry<K,V> e) {
-	A.set(i, e); e.index = i;
+	A[i] = e; e.index = i;
     }
     // macros.  i sure hope the compiler is smart enough to inline these.
     private static final int LEFT(int i) { return 2*i; }
@@ -171,11 +364,16 @@ public final class BinaryHeap<K,V> extends AbstractHeap<K,V> {
 
     // verify the heap condition.
     private final void checkHeap() {
-	for (int i=2; i<A.size(); i++)
-	    assert c.compare(A.get(PARENT(i)), A.get(i)) <= 0;
+	for (int i=2; i<=n; i++)
+	    assert c.compare(A[PARENT(i)], A[i]) <= 0;
+	for (int i=1; i<=n; i++)
+	    assert A[i].index == i;
+	assert n <= bound;
     }
 
-    /** Our {@link BinaryHeap} {@link java.util.Map.Entry}s look like this: */
+    /** Our {@link BinaryHeap} {@link java.util.Map.Entry}s look like
+     *  this.  <code>index</code> is zero when the entry is not in the
+     *  heap. */
     private static class Entry<K,V> extends PairMapEntry<K,V> {
 	int index;
 	Entry(K key, V value, int index) {
@@ -262,6 +460,114 @@ public final class BinaryHeap<K,V> extends AbstractHeap<K,V> {
 	assert h.extractMinimum().getValue().equals("o");
 	assert h.extractMinimum().getValue().equals("m");
 	System.out.println(h);
+	}{
+	// bulk operations, and union of two binary heaps.
+	BinaryHeap<Integer,Integer> h1 = new BinaryHeap<Integer,Integer>();
+	BinaryHeap<Integer,Integer> h2 = new BinaryHeap<Integer,Integer>();
+	java.util.Random r = new java.util.Random(3);
+	ArrayList<Map.Entry<Integer,Integer>> kept =
+	    new ArrayList<Map.Entry<Integer,Integer>>();
+	for (int i=0; i<1000; i++) {
+	    h1.insert(new Integer(r.nextInt(10000)), new Integer(i));
+	    kept.add(h2.insert(new Integer(r.nextInt(10000)), new Integer(i)));
+	}
+	h1.union(h2);
+	h1.checkHeap();
+	assert h1.size()==2000 && h2.isEmpty();
+	// h2's entries moved over, and are still usable.
+	h1.decreaseKey(kept.get(17), new Integer(-1));
+	assert h1.minimum()==kept.get(17);
+	h1.delete(kept.get(17));
+	// a small union is done by sifting up.
+	h2.insert(new Integer(-5), new Integer(-5));
+	h1.union(h2);
+	h1.checkHeap();
+	assert h1.minimum().getKey().intValue()==-5 && h1.size()==2000;
+	Map.Entry<Integer,Integer>[] dest = new Map.Entry[100];
+	assert h1.extractMinimum(100, dest)==100;
+	for (int i=1; i<100; i++)
+	    assert dest[i-1].getKey().intValue() <= dest[i].getKey().intValue();
+	ArrayList<Map.Entry<Integer,Integer>> rest =
+	    new ArrayList<Map.Entry<Integer,Integer>>();
+	assert h1.drainTo(rest, 10)==10 && h1.size()==1890;
+	assert dest[99].getKey().intValue() <= rest.get(0).getKey().intValue();
+	assert h1.drainTo(rest)==1890 && h1.isEmpty() && rest.size()==1900;
+	for (int i=1; i<rest.size(); i++)
+	    assert rest.get(i-1).getKey().intValue() <= rest.get(i).getKey().intValue();
+	assert h1.extractMinimum(10, dest)==0;
+	// union with a different kind of heap empties it.
+	Heap<Integer,Integer> fh = new FibonacciHeap<Integer,Integer>();
+	fh.insert(new Integer(1), new Integer(1));
+	h1.union(fh);
+	assert fh.isEmpty() && h1.size()==1;
+	}{
+	// bounded (top-k) mode.
+	BinaryHeap<Integer,Integer> h = new BinaryHeap<Integer,Integer>(null, 10);
+	assert h.bound()==10;
+	java.util.Random r = new java.util.Random(4);
+	int[] all = new int[1000];
+	for (int i=0; i<all.length; i++) {
+	    all[i] = r.nextInt();
+	    h.insert(new Integer(all[i]), new Integer(i));
+	    assert h.size()==Math.min(i+1, 10);
+	}
+	h.checkHeap();
+	Arrays.sort(all);
+	for (int i=all.length-10; i<all.length; i++)
+	    assert h.extractMinimum().getKey().intValue()==all[i];
+	assert h.offer(new Integer(3), new Integer(3))==null;
+	for (int i=0; i<9; i++)
+	    h.insert(new Integer(5), new Integer(5));
+	Map.Entry<Integer,Integer> d = h.offer(new Integer(1), new Integer(1));
+	assert d.getKey().intValue()==1 && h.size()==10; // rejected.
+	d = h.offer(new Integer(7), new Integer(7));
+	assert d.getKey().intValue()==3 && h.minimum().getKey().intValue()==5;
+	// building from a large collection keeps the top entries.
+	BinaryHeap<Integer,Integer> h3 = new BinaryHeap<Integer,Integer>
+	    (new BinaryHeap<Integer,Integer>(h).entries(), null, 3);
+	assert h3.size()==3 && h3.minimum().getKey().intValue()==5;
+	h3.checkHeap();
+	}{
+	// lookup by key, with the key index.
+	BinaryHeap<Integer,Integer> h = new BinaryHeap<Integer,Integer>();
+	for (int i=0; i<50; i++)
+	    h.insert(new Integer(i), new Integer(i));
+	assert h.find(new Integer(20)).getValue().intValue()==20; // unindexed.
+	h.setKeyIndexed(true);
+	assert h.decreaseKey(new Integer(20), new Integer(-20))!=null;
+	assert h.minimum().getValue().intValue()==20;
+	assert h.delete(new Integer(-20)).getValue().intValue()==20;
+	assert h.find(new Integer(-20))==null && h.find(new Integer(20))==null;
+	Map.Entry<Integer,Integer>[] dest = new Map.Entry[5];
+	h.extractMinimum(5, dest);
+	for (int i=0; i<5; i++)
+	    assert h.find(new Integer(i))==null;
+	assert h.find(new Integer(5))!=null;
+	// moved entries are indexed in their new heap.
+	BinaryHeap<Integer,Integer> h2 = new BinaryHeap<Integer,Integer>();
+	h2.insert(new Integer(100), new Integer(100));
+	h.union(h2);
+	assert h.find(new Integer(100))!=null;
+	// bounded heaps index only the entries they keep.
+	BinaryHeap<Integer,Integer> h4 = new BinaryHeap<Integer,Integer>(null, 2);
+	h4.setKeyIndexed(true);
+	h4.insert(new Integer(1), null); h4.insert(new Integer(2), null);
+	h4.insert(new Integer(3), null); h4.insert(new Integer(0), null);
+	assert h4.find(new Integer(1))==null && h4.find(new Integer(0))==null;
+	assert h4.find(new Integer(3))!=null;
+	// entries which are not in the heap can't be deleted or rekeyed.
+	Map.Entry<Integer,Integer> out = h4.offer(new Integer(-1), null);
+	assert out!=null && out.getKey().intValue()==-1;
+	try {
+	    h4.delete(out);
+	    assert false : "deleted an entry which was never in the heap";
+	} catch (java.util.NoSuchElementException ex) { /* expected */ }
+	Map.Entry<Integer,Integer> gone = h4.extractMinimum();
+	try {
+	    h4.updateKey(gone, new Integer(5));
+	    assert false : "rekeyed an entry which was extracted";
+	} catch (java.util.NoSuchElementException ex) { /* expected */ }
+	assert h4.size()==1 && h4.minimum().getKey().intValue()==3;
 	// DONE.
 	System.out.println("PASSED.");
 	}
@@ -178,6 +178,16 @@ public class BinaryTree {
 	comp = c; 
     }
 
+    /** Creates an empty tree with the same ordering as
+	<code>sibling</code>, which shares its NIL sentinel, so that
+	nodes can be moved between the two without relinking.
+    */
+    protected BinaryTree(BinaryTree sibling) {
+	NIL = sibling.NIL;
+	root = NIL;
+	comp = sibling.comp;
+    }
+
     /** Constructs a node for <code>k</code> and inserts it into this.  
 	Uses nodes' own methods to dispatch 
      */
@@ -245,7 +255,7 @@ public class BinaryTree {
 	if (x.right != NIL) 
 	    return minimum(x.right); 
 	Node y = x.parent; 
-	while(y!=NIL && eq(x, y.right)) { 
+	while(y!=NIL && x == y.right) { 
 	    x = y; 
 	    y = y.parent; 
 	} 
@@ -87,7 +87,9 @@ public class BinomialHeap<K,V> extends AbstractHeap<K,V> implements Cloneable {
     public void union(Heap<? extends K,? extends V> h) {
 	if (h instanceof BinomialHeap &&
 	    entryComparator().equals(((BinomialHeap)h).entryComparator()))
-	    union((BinomialHeap<? extends K, ? extends V>)h);
+	    // the unsafe cast below from K2 to K and V2 to V should really be
+	    // safe if the entryComparators for the two Heaps are identical.
+	    union((BinomialHeap<K,V>)h);
 	else { union(h.entries()); h.clear(); }
     }
     // union a set of Map.Entry's
@@ -115,8 +117,12 @@ public class BinomialHeap<K,V> extends AbstractHeap<K,V> implements Cloneable {
      *  specified map will be empty. */
     public void union(BinomialHeap<K,V> m) {
 	assert m.c.equals(this.c);
+	if (isKeyIndexed())
+	    for (Map.Entry<K,V> e : m.entries())
+		indexInsert(e);
 	union(m.head);
 	m.head = null; // empty out source map.
+	m.indexClear();
     }
     /** Union operation.  The specified node is the head of a binomial map. */
     void union(Node<K,V> n) { // the binomial-heap-union operation.
@@ -162,6 +168,7 @@ public class BinomialHeap<K,V> extends AbstractHeap<K,V> implements Cloneable {
 	Entry<K,V> e = (Entry<K,V>) me;
 	Node<K,V> x = new Node<K,V>(e);
 	union(x);
+	indexInsert(e);
 	if (debug) checkHeap();
     }
     /** Remove and return the map entry with minimal key. O(lg n) time. */
@@ -170,6 +177,7 @@ public class BinomialHeap<K,V> extends AbstractHeap<K,V> implements Cloneable {
 	Node<K,V> x=((Entry<K,V>)minimum()).node; // find min node...
 	// ..and remove it.
 	_removeRoot(x);
+	indexRemove(x.entry);
 	if (debug) checkHeap();
 	// return minimum entry
 	return x.entry;
@@ -206,7 +214,7 @@ public class BinomialHeap<K,V> extends AbstractHeap<K,V> implements Cloneable {
 	if (keyComparator().compare(newkey, x.entry.getKey()) > 0)
 	    throw new UnsupportedOperationException("New key is greater than "+
 						    "current key.");
-	setKey(x.entry, newkey);
+	indexRekey(x.entry, setKey(x.entry, newkey));
 	_bubbleUp(x, false);
 	// done.
 	if (debug) checkHeap();
@@ -235,6 +243,7 @@ public class BinomialHeap<K,V> extends AbstractHeap<K,V> implements Cloneable {
 	Node<K,V> y = _bubbleUp(x, true);
 	// y is now root node to be removed.
 	_removeRoot(y);
+	indexRemove(me);
 	if (debug) checkHeap();
     }
 
@@ -273,6 +282,7 @@ public class BinomialHeap<K,V> extends AbstractHeap<K,V> implements Cloneable {
     /** Removes all mappings from this map. O(1) time. */
     public void clear() {
 	this.head=null;
+	indexClear();
     }
     /** Returns <code>true</code> if this map contains no key-value mappings.*/
     public boolean isEmpty() {
@@ -284,6 +294,7 @@ public class BinomialHeap<K,V> extends AbstractHeap<K,V> implements Cloneable {
     public BinomialHeap<K,V> clone() {
 	BinomialHeap<K,V> bm=new BinomialHeap<K,V>(comparator());
 	bm.head=_clone(null, this.head);
+	bm.setKeyIndexed(isKeyIndexed());
 	if (debug) { checkHeap(head, c); checkHeap(bm.head, bm.c); }
 	return bm;
     }
@@ -299,12 +310,20 @@ public class BinomialHeap<K,V> extends AbstractHeap<K,V> implements Cloneable {
     }
 
     /** Lookup a {@link java.util.Map.Entry} in the heap with key equal to
-     *  the specified key.  O(n), although pruning is done on subtrees
+     *  the specified key, returning <code>null</code> if there is none.
+     *  O(1) expected time if the heap is key-indexed.  Otherwise O(n),
+     *  although pruning is done on subtrees
      *  with root larger than the specified key.  What this means is
      *  that the smaller the key is, the faster this will run. */
     public Map.Entry<K,V> find(K key) {
+	if (isKeyIndexed()) return super.find(key);
 	Node<K,V> x = find(head, key);
-	return x.entry;
+	return (x==null) ? null : x.entry;
+    }
+    /** Turns the key index on or off.  O(n) time to turn it on.
+     * @see AbstractHeap#setKeyIndexed(boolean) */
+    public void setKeyIndexed(boolean indexed) {
+	super.setKeyIndexed(indexed);
     }
 
     /** Find the node with key equal to the specified key. O(n), although
@@ -519,6 +538,33 @@ public class BinomialHeap<K,V> extends AbstractHeap<K,V> implements Cloneable {
 	assert h.extractMinimum().getValue().equals("m");
 	System.out.println(h);
 
+	// lookup by key, without and then with the key index.
+	BinomialHeap<String,String> bh = new BinomialHeap<String,String>();
+	for (String s : new String[] { "J", "O", "B", "S", "J" })
+	    bh.insert(s, s.toLowerCase());
+	assert bh.find("Q")==null && bh.find("S").getValue().equals("s");
+	bh.setKeyIndexed(true);
+	assert bh.isKeyIndexed() && bh.clone().isKeyIndexed();
+	assert bh.decreaseKey("S", "A").getValue().equals("s");
+	assert bh.find("S")==null && bh.find("A").getValue().equals("s");
+	assert bh.delete("J").getKey().equals("J");
+	assert bh.find("J")!=null; // the other one.
+	assert bh.delete("Q")==null && bh.size()==4;
+	assert bh.extractMinimum().getValue().equals("s");
+	assert bh.find("A")==null;
+	BinomialHeap<String,String> bh2 = new BinomialHeap<String,String>();
+	bh2.setKeyIndexed(true);
+	bh2.insert("X", "x");
+	bh.union(bh2);
+	assert bh2.find("X")==null && bh.find("X").getValue().equals("x");
+	bh.clear();
+	assert bh.find("X")==null;
+	// union through the Heap interface takes the fast path.
+	Heap<String,String> hh = new BinomialHeap<String,String>();
+	hh.insert("Y", "y");
+	bh.union(hh);
+	assert hh.isEmpty() && bh.size()==1;
+
 	// done!
 	System.out.println("PASSED.");
     }
@@ -0,0 +1,136 @@
+// CSRGraph.java, created Mon Oct 19 18:02:44 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+/**
+ * A {@link CSRGraph} is an immutable directed graph with weighted
+ * edges, stored in "compressed sparse row" form: the vertices are the
+ * integers <code>0</code> through <code>numVertices()-1</code>, and the
+ * out-edges of vertex <code>v</code> are numbered consecutively from
+ * <code>firstEdge(v)</code> up to (but not including)
+ * <code>firstEdge(v+1)</code>.  Edge targets and weights live in two
+ * parallel primitive arrays, so walking the edges of a vertex touches
+ * contiguous memory and allocates nothing:
+ * <pre>
+ *   for (int e = g.firstEdge(v), end = g.firstEdge(v+1); e &lt; end; e++)
+ *       visit(g.target(e), g.weight(e));
+ * </pre>
+ * An undirected graph is represented by giving each edge in both
+ * directions.  The algorithms in {@link GraphAlgorithms} operate on
+ * {@link CSRGraph}s.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ * @see GraphAlgorithms
+ */
+public final class CSRGraph {
+    /** <code>offsets[v]</code> is the first edge of vertex <code>v</code>;
+     *  <code>offsets[n]</code> is the number of edges. */
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+
+    /** Creates a graph with <code>n</code> vertices and an edge from
+     *  <code>sources[i]</code> to <code>targets[i]</code> with weight
+     *  <code>weights[i]</code> for each <code>i</code>.  The arrays are
+     *  not retained.  O(n+m) time.
+     * @exception IllegalArgumentException if the arrays have different
+     *            lengths, or a vertex number is out of range. */
+    public CSRGraph(int n, int[] sources, int[] targets, double[] weights) {
+	int m = sources.length;
+	if (targets.length != m || weights.length != m)
+	    throw new IllegalArgumentException("Edge arrays differ in length");
+	if (n < 0) throw new IllegalArgumentException("Negative size: "+n);
+	// counting sort of the edges by source.
+	this.offsets = new int[n+1];
+	for (int i=0; i<m; i++) {
+	    checkVertex(sources[i], n);
+	    checkVertex(targets[i], n);
+	    offsets[sources[i]+1]++;
+	}
+	for (int v=0; v<n; v++)
+	    offsets[v+1] += offsets[v];
+	this.targets = new int[m];
+	this.weights = new double[m];
+	int[] next = new int[n];
+	System.arraycopy(offsets, 0, next, 0, n);
+	for (int i=0; i<m; i++) {
+	    int e = next[sources[i]]++;
+	    this.targets[e] = targets[i];
+	    this.weights[e] = weights[i];
+	}
+    }
+    private CSRGraph(int[] offsets, int[] targets, double[] weights) {
+	this.offsets = offsets; this.targets = targets; this.weights = weights;
+    }
+    private static void checkVertex(int v, int n) {
+	if (v < 0 || v >= n)
+	    throw new IllegalArgumentException("Bad vertex: "+v);
+    }
+
+    /** Returns the number of vertices in this graph. */
+    public int numVertices() { return offsets.length-1; }
+    /** Returns the number of edges in this graph. */
+    public int numEdges() { return targets.length; }
+    /** Returns the number of the first out-edge of vertex
+     *  <code>v</code>.  The out-edges of <code>v</code> end just before
+     *  <code>firstEdge(v+1)</code>; <code>firstEdge(numVertices())</code>
+     *  is the number of edges. */
+    public int firstEdge(int v) { return offsets[v]; }
+    /** Returns the number of out-edges of vertex <code>v</code>. */
+    public int outDegree(int v) { return offsets[v+1]-offsets[v]; }
+    /** Returns the vertex which edge <code>e</code> points to. */
+    public int target(int e) { return targets[e]; }
+    /** Returns the weight of edge <code>e</code>. */
+    public double weight(int e) { return weights[e]; }
+
+    /** Returns the graph with every edge of this graph reversed.
+     *  O(n+m) time. */
+    public CSRGraph reverse() {
+	int n = numVertices(), m = numEdges();
+	int[] sources = new int[m];
+	for (int v=0; v<n; v++)
+	    for (int e=offsets[v]; e<offsets[v+1]; e++)
+		sources[e] = v;
+	return new CSRGraph(n, targets, sources, weights);
+    }
+    /** Human-readable representation of the graph. */
+    public String toString() {
+	StringBuffer sb = new StringBuffer("{");
+	for (int v=0; v<numVertices(); v++) {
+	    if (v>0) sb.append(", ");
+	    sb.append(v); sb.append("=[");
+	    for (int e=offsets[v]; e<offsets[v+1]; e++) {
+		if (e>offsets[v]) sb.append(", ");
+		sb.append(targets[e]); sb.append(':'); sb.append(weights[e]);
+	    }
+	    sb.append(']');
+	}
+	sb.append('}');
+	return sb.toString();
+    }
+
+    /** Self-test function. */
+    public static void main(String[] args) {
+	CSRGraph g = new CSRGraph(4, new int[] { 2, 0, 0, 3, 2 },
+				  new int[] { 3, 1, 2, 0, 1 },
+				  new double[] { 5, 1, 2, 6, 4 });
+	System.out.println(g);
+	assert g.numVertices()==4 && g.numEdges()==5;
+	assert g.outDegree(0)==2 && g.outDegree(1)==0 && g.outDegree(2)==2;
+	assert g.firstEdge(4)==5;
+	assert g.target(g.firstEdge(3))==0 && g.weight(g.firstEdge(3))==6;
+	CSRGraph r = g.reverse();
+	assert r.numEdges()==5 && r.outDegree(1)==2 && r.outDegree(0)==1;
+	CSRGraph rr = r.reverse();
+	for (int v=0; v<4; v++)
+	    assert rr.outDegree(v)==g.outDegree(v);
+	assert rr.target(rr.firstEdge(2))+rr.target(rr.firstEdge(2)+1)==4;
+	try {
+	    new CSRGraph(2, new int[] { 0 }, new int[] { 2 }, new double[] { 1 });
+	    assert false;
+	} catch (IllegalArgumentException e) { /* expected */ }
+	System.out.println("PASSED.");
+    }
+}
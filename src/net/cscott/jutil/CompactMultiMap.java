@@ -0,0 +1,324 @@
+// CompactMultiMap.java, created Tue Oct 20 16:02:19 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+/**
+ * A {@link CompactMultiMap} is an immutable {@link MultiMap} laid
+ * out in "compressed sparse row" form, for large read-only relations
+ * such as call graphs.  The distinct keys are kept in one array,
+ * indexed by an open-addressed hash table of <code>int</code>s; the
+ * values of key number <i>i</i> are the slice
+ * <code>[offsets[i], offsets[i+1])</code> of a single array holding
+ * all the values.  That is one reference per mapping, plus a
+ * reference and three or four <code>int</code>s per key, where a
+ * {@link GenericMultiMap} spends a hash set per key and a hash entry
+ * per mapping.
+ * <p>
+ * <code>getValues()</code> and <code>containsKey()</code> take
+ * expected O(1) time; <code>contains(a, b)</code> scans the values
+ * of <code>a</code>.  {@link #invert()} builds the inverse relation,
+ * another {@link CompactMultiMap}, with a counting sort in O(n) time,
+ * and remembers it.  All the mutators throw
+ * {@link UnsupportedOperationException}.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ * @see GenericMultiMap#freeze()
+ */
+public class CompactMultiMap<K,V> extends AbstractMultiMap<K,V>
+    implements InvertibleMultiMap<K,V> {
+    private final Object[] keys;   // the distinct keys.
+    private final int[] offsets;   // keys.length+1 offsets into values.
+    private final Object[] values; // the values of each key, in turn.
+    private final int[] index;     // hash table of key number + 1.
+    private CompactMultiMap<V,K> inverse = null;
+
+    /** Creates a {@link CompactMultiMap} with the same mappings as
+     *  the given {@link MultiMap}. */
+    public CompactMultiMap(MultiMap<? extends K,? extends V> mm) {
+	int nk = 0, n = 0;
+	for (K k : mm.keySet()) {
+	    int s = ((MultiMap<K,? extends V>) mm).getValues(k).size();
+	    if (s > 0) { nk++; n += s; }
+	}
+	this.keys = new Object[nk];
+	this.offsets = new int[nk+1];
+	this.values = new Object[n];
+	int i = 0, j = 0;
+	for (K k : mm.keySet()) {
+	    Collection<? extends V> c =
+		((MultiMap<K,? extends V>) mm).getValues(k);
+	    if (c.isEmpty()) continue;
+	    keys[i++] = k;
+	    for (V v : c) values[j++] = v;
+	    offsets[i] = j;
+	}
+	assert i == nk && j == n : "MultiMap changed while copying";
+	this.index = buildIndex(keys);
+    }
+    /** Creates a {@link CompactMultiMap} from its arrays. */
+    private CompactMultiMap(Object[] keys, int[] offsets, Object[] values) {
+	this.keys = keys;
+	this.offsets = offsets;
+	this.values = values;
+	this.index = buildIndex(keys);
+    }
+
+    // --- READ SIDE
+    public int size() { return values.length; }
+    public boolean isEmpty() { return values.length == 0; }
+    public boolean containsKey(Object key) { return row(key) >= 0; }
+    public V get(Object key) {
+	int r = row(key);
+	return (r < 0) ? null : (V) values[offsets[r]];
+    }
+    /** Returns an unmodifiable view of the values <code>key</code>
+     *  maps to, empty if there are none.
+     *  ({@link MultiMap} specific operation). */
+    public Collection<V> getValues(K key) {
+	int r = row(key);
+	if (r < 0) return Collections.<V>emptySet();
+	return new Slice<V>(values, offsets[r], offsets[r+1]);
+    }
+    /** Returns true if <code>a</code> has a mapping to <code>b</code>
+     *  in <code>this</code>.
+     *  ({@link MultiMap} specific operation). */
+    public boolean contains(Object a, Object b) {
+	int r = row(a);
+	return r >= 0 && indexOf(values, offsets[r], offsets[r+1], b) >= 0;
+    }
+    public boolean containsValue(Object value) {
+	return indexOf(values, 0, values.length, value) >= 0;
+    }
+    public Set<K> keySet() {
+	return new AbstractSet<K>() {
+	    public int size() { return keys.length; }
+	    public boolean contains(Object o) { return row(o) >= 0; }
+	    public Iterator<K> iterator() {
+		return new Slice<K>(keys, 0, keys.length).iterator();
+	    }
+	};
+    }
+    public Collection<V> values() {
+	return new Slice<V>(values, 0, values.length);
+    }
+    /** Returns an unmodifiable set view of the mappings in this map,
+     *  grouped by key. */
+    public MultiMapSet<K,V> entrySet() {
+	return new EntrySet();
+    }
+    private class EntrySet extends AbstractSet<Map.Entry<K,V>>
+	implements MultiMapSet<K,V> {
+	public int size() { return values.length; }
+	public boolean contains(Object o) {
+	    if (!(o instanceof Map.Entry)) return false;
+	    Map.Entry<?,?> me = (Map.Entry<?,?>) o;
+	    return CompactMultiMap.this.contains(me.getKey(), me.getValue());
+	}
+	public Iterator<Map.Entry<K,V>> iterator() {
+	    return new UnmodifiableIterator<Map.Entry<K,V>>() {
+		int r = 0, j = 0;
+		public boolean hasNext() { return j < values.length; }
+		public Map.Entry<K,V> next() {
+		    if (!hasNext()) throw new NoSuchElementException();
+		    while (offsets[r+1] == j) r++;
+		    return new PairMapEntry<K,V>((K) keys[r], (V) values[j++]) {
+			public V setValue(V v) {
+			    throw new UnsupportedOperationException();
+			}
+		    };
+		}
+	    };
+	}
+	public CompactMultiMap<K,V> asMap() { return CompactMultiMap.this; }
+	public CompactMultiMap<K,V> asMultiMap() { return CompactMultiMap.this; }
+    }
+
+    /** Returns the inverse of this map, with each value mapped to
+     *  the keys which map to it.  The inverse is built the first time
+     *  this is called, by a counting sort of the values; the inverse
+     *  of the inverse is <code>this</code>. */
+    public synchronized CompactMultiMap<V,K> invert() {
+	if (inverse != null) return inverse;
+	// number the distinct values, counting the mappings to each.
+	int n = values.length;
+	Object[] vkeys = new Object[Math.min(n, 16)];
+	int[] count = new int[vkeys.length + 1];
+	int[] vid = new int[n];
+	int[] table = new int[tableSize(n)];
+	int mask = table.length - 1, nv = 0;
+	for (int j = 0; j < n; j++) {
+	    Object v = values[j];
+	    int s = hash(v) & mask;
+	    while (table[s] != 0 && !eq(vkeys[table[s]-1], v))
+		s = (s+1) & mask;
+	    if (table[s] == 0) {
+		if (nv == vkeys.length) {
+		    Object[] nk = new Object[2*nv];
+		    int[] nc = new int[2*nv + 1];
+		    System.arraycopy(vkeys, 0, nk, 0, nv);
+		    System.arraycopy(count, 0, nc, 0, nv + 1);
+		    vkeys = nk; count = nc;
+		}
+		vkeys[nv++] = v;
+		table[s] = nv;
+	    }
+	    vid[j] = table[s] - 1;
+	    count[table[s]]++;
+	}
+	// prefix sums give the offset of each row...
+	int[] ioffsets = new int[nv + 1];
+	for (int i = 0; i < nv; i++) ioffsets[i+1] = ioffsets[i] + count[i+1];
+	// ...and then each key goes into the rows of its values.
+	int[] fill = new int[nv];
+	System.arraycopy(ioffsets, 0, fill, 0, nv);
+	Object[] ivalues = new Object[n];
+	for (int r = 0; r < keys.length; r++)
+	    for (int j = offsets[r]; j < offsets[r+1]; j++)
+		ivalues[fill[vid[j]]++] = keys[r];
+	Object[] ikeys = new Object[nv];
+	System.arraycopy(vkeys, 0, ikeys, 0, nv);
+	inverse = new CompactMultiMap<V,K>(ikeys, ioffsets, ivalues);
+	inverse.inverse = this;
+	return inverse;
+    }
+
+    // --- MUTATORS
+    /** Throws {@link UnsupportedOperationException}. */
+    public V put(K key, V value) { die(); return null; }
+    /** Throws {@link UnsupportedOperationException}. */
+    public V remove(Object key) { die(); return null; }
+    /** Throws {@link UnsupportedOperationException}. */
+    public boolean remove(Object key, Object value) { return die(); }
+    /** Throws {@link UnsupportedOperationException}. */
+    public boolean add(K key, V value) { return die(); }
+    /** Throws {@link UnsupportedOperationException}. */
+    public boolean addAll(K key, Collection<? extends V> values) {
+	return die();
+    }
+    /** Throws {@link UnsupportedOperationException}. */
+    public boolean addAll(MultiMap<? extends K,? extends V> mm) {
+	return die();
+    }
+    /** Throws {@link UnsupportedOperationException}. */
+    public boolean retainAll(K key, Collection<?> values) { return die(); }
+    /** Throws {@link UnsupportedOperationException}. */
+    public boolean removeAll(K key, Collection<?> values) { return die(); }
+    /** Throws {@link UnsupportedOperationException}. */
+    public void clear() { die(); }
+    /** Helper function: throws {@link UnsupportedOperationException}. */
+    private boolean die() {
+	throw new UnsupportedOperationException();
+    }
+
+    // --- INTERNALS
+    /** Returns the number of <code>key</code>, or -1. */
+    private int row(Object key) {
+	int mask = index.length - 1;
+	for (int s = hash(key) & mask; index[s] != 0; s = (s+1) & mask)
+	    if (eq(keys[index[s]-1], key)) return index[s]-1;
+	return -1;
+    }
+    private static int[] buildIndex(Object[] keys) {
+	int[] index = new int[tableSize(keys.length)];
+	int mask = index.length - 1;
+	for (int i = 0; i < keys.length; i++) {
+	    int s = hash(keys[i]) & mask;
+	    while (index[s] != 0) s = (s+1) & mask;
+	    index[s] = i+1;
+	}
+	return index;
+    }
+    /** A power of two at least twice <code>n</code>. */
+    private static int tableSize(int n) {
+	int size = 2;
+	while (size < 2*n) size <<= 1;
+	return size;
+    }
+    private static int hash(Object o) {
+	if (o == null) return 0;
+	int h = o.hashCode() * 0x9E3779B9; // fibonacci hashing.
+	return h ^ (h >>> 16);
+    }
+    private static boolean eq(Object a, Object b) {
+	return (a == null) ? b == null : a.equals(b);
+    }
+    private static int indexOf(Object[] a, int from, int to, Object o) {
+	for (int i = from; i < to; i++)
+	    if (eq(a[i], o)) return i;
+	return -1;
+    }
+    /** An unmodifiable view of part of an array. */
+    private static final class Slice<E> extends AbstractCollection<E> {
+	final Object[] a;
+	final int from, to;
+	Slice(Object[] a, int from, int to) {
+	    this.a = a; this.from = from; this.to = to;
+	}
+	public int size() { return to - from; }
+	public boolean contains(Object o) { return indexOf(a, from, to, o) >= 0; }
+	public Iterator<E> iterator() {
+	    return new UnmodifiableIterator<E>() {
+		int i = from;
+		public boolean hasNext() { return i < to; }
+		public E next() {
+		    if (i >= to) throw new NoSuchElementException();
+		    return (E) a[i++];
+		}
+	    };
+	}
+    }
+
+    /** Self-test method. */
+    public static void main(String[] args) {
+	GenericMultiMap<String,String> g = new GenericMultiMap<String,String>();
+	g.add("main", "parse"); g.add("main", "eval"); g.add("main", "print");
+	g.add("eval", "eval"); g.add("eval", "apply"); g.add("apply", "eval");
+	g.add("print", null); g.add(null, "main");
+	g.getValues("unused"); // an empty collection, so not a key.
+	CompactMultiMap<String,String> c = g.freeze();
+	assert c.equals(g) && g.equals(c) && c.hashCode() == g.hashCode();
+	assert c.size() == 8 && c.keySet().size() == 5;
+	assert !c.containsKey("unused") && c.getValues("unused").isEmpty();
+	assert c.contains("main", "eval") && !c.contains("eval", "main");
+	assert c.contains("print", null) && c.contains(null, "main");
+	assert c.getValues("main").size() == 3 && c.get("apply").equals("eval");
+	assert c.containsValue(null) && !c.containsValue("unused");
+	try {
+	    c.add("main", "exit");
+	    assert false : "CompactMultiMap is immutable";
+	} catch (UnsupportedOperationException e) { /* expected */ }
+	try {
+	    c.getValues("main").clear();
+	    assert false : "CompactMultiMap is immutable";
+	} catch (UnsupportedOperationException e) { /* expected */ }
+	CompactMultiMap<String,String> inv = c.invert();
+	assert inv.invert() == c && inv.size() == c.size();
+	assert inv.contains("eval", "main") && inv.contains("eval", "apply");
+	assert inv.contains(null, "print") && inv.getValues("eval").size() == 3;
+	// a random graph, against GenericInvertibleMultiMap.
+	Random r = new Random(29);
+	GenericInvertibleMultiMap<Integer,Integer> gi =
+	    new GenericInvertibleMultiMap<Integer,Integer>();
+	for (int i = 0; i < 20000; i++)
+	    gi.add(new Integer(r.nextInt(3000)), new Integer(r.nextInt(2000)));
+	CompactMultiMap<Integer,Integer> ci =
+	    new CompactMultiMap<Integer,Integer>(gi);
+	assert ci.equals(gi) && ci.size() == gi.size();
+	assert ci.invert().equals(gi.invert());
+	for (Integer k : gi.invert().keySet())
+	    assert ci.invert().getValues(k).size() ==
+		gi.invert().getValues(k).size();
+	System.err.println("PASSED.");
+    }
+}
@@ -0,0 +1,137 @@
+// ConcurrentDisjointIntSet.java, created Tue Oct 20 10:31:45 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+/**
+ * {@link ConcurrentDisjointIntSet} is a lock-free disjoint-set forest
+ * over the integers <code>0</code> to <code>capacity()-1</code>, on
+ * which <code>union</code>, <code>find</code> and
+ * <code>sameSet</code> may all be called concurrently.  It follows
+ * "Concurrent Disjoint Set Union" by Jayanti and Tarjan (PODC 2016):
+ * roots are linked with a compare-and-set, the lower-priority root
+ * under the higher, in a fixed pseudo-random priority order; and
+ * <code>find</code> does path splitting, also with compare-and-set,
+ * which can only ever shorten paths.  The expected total work is
+ * O(m (alpha(n, m/(np)) + lg(np/m + 1))) for <i>m</i> operations by
+ * <i>p</i> threads; with a single thread it is close to that of
+ * {@link DisjointIntSet}.
+ * <p>
+ * Unlike {@link DisjointIntSet}, the capacity is fixed when the set
+ * is created.  Use {@link ConcurrentDisjointSet} for arbitrary
+ * objects.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ */
+public class ConcurrentDisjointIntSet {
+    private final AtomicIntegerArray parent;
+
+    /** Creates a {@link ConcurrentDisjointIntSet} of the integers
+     *  <code>0</code> to <code>capacity-1</code>, each in a set of
+     *  its own. */
+    public ConcurrentDisjointIntSet(int capacity) {
+	if (capacity < 0)
+	    throw new IllegalArgumentException("Negative capacity: "+capacity);
+	int[] p = new int[capacity];
+	for (int i = 0; i < capacity; i++)
+	    p[i] = i;
+	parent = new AtomicIntegerArray(p);
+    }
+
+    /** Returns the number of integers in this set. */
+    public int capacity() { return parent.length(); }
+
+    /** Returns the representative of the set containing
+     *  <code>x</code>.  The representative may change as soon as
+     *  another thread does a <code>union</code>.
+     *  @exception IndexOutOfBoundsException if <code>x</code> is not
+     *  less than <code>capacity()</code>. */
+    public int find(int x) {
+	while (true) {
+	    int p = parent.get(x);
+	    int gp = parent.get(p);
+	    if (p == gp) return p;
+	    // path splitting: point x at its grandparent, and move on
+	    // to its old parent.  Failure means someone else did it.
+	    parent.compareAndSet(x, p, gp);
+	    x = p;
+	}
+    }
+    /** Unites the sets containing <code>x</code> and <code>y</code>.
+     *  @return <code>false</code> if they were already in the same
+     *  set. */
+    public boolean union(int x, int y) {
+	while (true) {
+	    x = find(x);
+	    y = find(y);
+	    if (x == y) return false;
+	    if (priority(x) > priority(y)) { int t = x; x = y; y = t; }
+	    // link the lower-priority root under the higher; fails if x
+	    // has stopped being a root meanwhile.
+	    if (parent.compareAndSet(x, x, y)) return true;
+	}
+    }
+    /** Determines if <code>x</code> and <code>y</code> are in the
+     *  same set. */
+    public boolean sameSet(int x, int y) {
+	while (true) {
+	    x = find(x);
+	    y = find(y);
+	    if (x == y) return true;
+	    // if x is still a root, then at this instant they differed.
+	    if (parent.get(x) == x) return false;
+	}
+    }
+
+    /** A fixed pseudo-random total order on the integers: a bijective
+     *  mixing function (the finalizer of MurmurHash3). */
+    static int priority(int x) {
+	x ^= x >>> 16;
+	x *= 0x85ebca6b;
+	x ^= x >>> 13;
+	x *= 0xc2b2ae35;
+	x ^= x >>> 16;
+	return x;
+    }
+
+    /** Self-test method. */
+    public static void main(String[] args) throws InterruptedException {
+	ConcurrentDisjointIntSet ds = new ConcurrentDisjointIntSet(8);
+	assert ds.union(4, 2) && ds.union(1, 7) && ds.union(7, 2);
+	assert ds.sameSet(4, 1) && !ds.sameSet(0, 1) && !ds.union(1, 4);
+	assert ds.find(0) == 0 && ds.find(4) == ds.find(7);
+	// many threads, each doing a share of a random set of unions,
+	// then checked against a sequential DisjointIntSet.
+	final int n = 200000, m = 150000, nthreads = 4;
+	final int[] ea = new int[m], eb = new int[m];
+	Random r = new Random(5);
+	DisjointIntSet seq = new DisjointIntSet(n);
+	for (int i = 0; i < m; i++) {
+	    ea[i] = r.nextInt(n); eb[i] = r.nextInt(n);
+	    seq.union(ea[i], eb[i]);
+	}
+	final ConcurrentDisjointIntSet cds = new ConcurrentDisjointIntSet(n);
+	Thread[] ts = new Thread[nthreads];
+	for (int t = 0; t < nthreads; t++) {
+	    final int me = t;
+	    ts[t] = new Thread() {
+		public void run() {
+		    for (int i = me; i < m; i += nthreads) {
+			cds.union(ea[i], eb[i]);
+			cds.sameSet(eb[i], ea[(i*7) % m]);
+		    }
+		}
+	    };
+	    ts[t].start();
+	}
+	for (Thread t : ts) t.join();
+	for (int i = 0; i < 100000; i++) {
+	    int a = r.nextInt(n), b = (i % 2 == 0) ? r.nextInt(n) : eb[i % m];
+	    assert cds.sameSet(a, b) == seq.sameSet(a, b);
+	}
+	System.err.println("PASSED.");
+    }
+}
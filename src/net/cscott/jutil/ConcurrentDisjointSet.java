@@ -0,0 +1,144 @@
+// ConcurrentDisjointSet.java, created Tue Oct 20 11:02:38 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+/**
+ * {@link ConcurrentDisjointSet} is a lock-free disjoint-set forest
+ * over arbitrary objects, on which <code>union</code>,
+ * <code>find</code> and <code>sameSet</code> may all be called
+ * concurrently.  It uses the same algorithm as
+ * {@link ConcurrentDisjointIntSet}, with a node object per element
+ * kept in a {@link ConcurrentHashMap}; as with {@link DisjointSet},
+ * an element gets a node only when it is first passed to
+ * <code>union</code>.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ */
+public class ConcurrentDisjointSet<E> {
+    private final ConcurrentMap<E,Node<E>> elmap =
+	new ConcurrentHashMap<E,Node<E>>();
+    // numbers the nodes, to give each a distinct priority.
+    private final AtomicInteger counter = new AtomicInteger();
+
+    /** Creates a {@link ConcurrentDisjointSet}. */
+    public ConcurrentDisjointSet() { }
+
+    /** Unites the sets that contain <code>o1</code> and
+     *  <code>o2</code>.
+     *  @return <code>false</code> if they were already in the same
+     *  set. */
+    public boolean union(E o1, E o2) {
+	Node<E> x = node(o1), y = node(o2);
+	while (true) {
+	    x = findNode(x);
+	    y = findNode(y);
+	    if (x == y) return false;
+	    if (x.priority > y.priority) { Node<E> t = x; x = y; y = t; }
+	    if (Node.PARENT.compareAndSet(x, x, y)) return true;
+	}
+    }
+    /** Returns the representative of the set containing
+     *  <code>o</code>.  The representative may change as soon as
+     *  another thread does a <code>union</code>. */
+    public E find(E o) {
+	Node<E> x = elmap.get(o);
+	if (x == null) return o;
+	return findNode(x).element;
+    }
+    /** Determines if <code>o1</code> and <code>o2</code> are in the
+     *  same set. */
+    public boolean sameSet(E o1, E o2) {
+	Node<E> x = elmap.get(o1), y = elmap.get(o2);
+	if (x == null || y == null)
+	    return (o1 == null) ? o2 == null : o1.equals(o2);
+	while (true) {
+	    x = findNode(x);
+	    y = findNode(y);
+	    if (x == y) return true;
+	    if (x.parent == x) return false;
+	}
+    }
+    /** Determines if <code>o</code> has ever been passed to
+     *  <code>union</code>. */
+    public boolean contains(Object o) { return elmap.containsKey(o); }
+
+    private Node<E> node(E o) {
+	Node<E> x = elmap.get(o);
+	if (x != null) return x;
+	Node<E> n = new Node<E>(o, ConcurrentDisjointIntSet.priority
+				(counter.getAndIncrement()));
+	x = elmap.putIfAbsent(o, n);
+	return (x == null) ? n : x;
+    }
+    /** Finds the root above <code>x</code>, splitting the path. */
+    private static <E> Node<E> findNode(Node<E> x) {
+	while (true) {
+	    Node<E> p = x.parent, gp = p.parent;
+	    if (p == gp) return p;
+	    Node.PARENT.compareAndSet(x, p, gp);
+	    x = p;
+	}
+    }
+    // node representation.
+    private static final class Node<E> {
+	static final AtomicReferenceFieldUpdater<Node,Node> PARENT =
+	    AtomicReferenceFieldUpdater.newUpdater
+	    (Node.class, Node.class, "parent");
+	volatile Node<E> parent;
+	final E element;
+	final int priority;
+	Node(E element, int priority) {
+	    this.parent = this; this.element = element;
+	    this.priority = priority;
+	}
+    }
+
+    /** Self-test method. */
+    public static void main(String[] args) throws InterruptedException {
+	ConcurrentDisjointSet<String> ds = new ConcurrentDisjointSet<String>();
+	String a="a", b="b", c="c", d="d", e="e", f="f", g="g", h="h";
+	assert !ds.contains(a) && ds.find(a)==a && ds.sameSet(a, a);
+	ds.union(e, c); ds.union(b, h); ds.union(h, c);
+	assert ds.find(e)==ds.find(c) && ds.find(h)==ds.find(e);
+	assert ds.find(b)==ds.find(c) && ds.find(b)!=ds.find(a);
+	ds.union(d, f); ds.union(g, d);
+	assert ds.sameSet(d, g) && !ds.sameSet(d, c) && !ds.sameSet(a, d);
+	assert ds.union(c, f) && !ds.union(e, g);
+	assert ds.find(e)==ds.find(f) && ds.find(a)==a;
+	// concurrent unions of Integers, against DisjointIntSet.
+	final int n = 20000, m = 15000, nthreads = 4;
+	final java.util.Random r = new java.util.Random(9);
+	final int[] ea = new int[m], eb = new int[m];
+	DisjointIntSet seq = new DisjointIntSet(n);
+	for (int i = 0; i < m; i++) {
+	    ea[i] = r.nextInt(n); eb[i] = r.nextInt(n);
+	    seq.union(ea[i], eb[i]);
+	}
+	final ConcurrentDisjointSet<Integer> cds =
+	    new ConcurrentDisjointSet<Integer>();
+	Thread[] ts = new Thread[nthreads];
+	for (int t = 0; t < nthreads; t++) {
+	    final int me = t;
+	    ts[t] = new Thread() {
+		public void run() {
+		    for (int i = me; i < m; i += nthreads)
+			cds.union(Integer.valueOf(ea[i]), Integer.valueOf(eb[i]));
+		}
+	    };
+	    ts[t].start();
+	}
+	for (Thread t : ts) t.join();
+	for (int i = 0; i < 20000; i++) {
+	    int x = r.nextInt(n), y = eb[i % m];
+	    assert cds.sameSet(Integer.valueOf(x), Integer.valueOf(y))
+		== seq.sameSet(x, y);
+	}
+	System.err.println("PASSED.");
+    }
+}
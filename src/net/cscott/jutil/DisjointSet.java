@@ -19,9 +19,12 @@ import java.util.Set;
  * 
  * @author  C. Scott Ananian <cananian@alumni.princeton.edu>
  * @version $Id: DisjointSet.java,v 1.4 2006-10-30 19:58:05 cananian Exp $
+ * @see DisjointIntSet
+ * @see UndoableDisjointSet
  */
 public class DisjointSet<E>  {
     private final Map<E,Node<E>> elmap = new HashMap<E,Node<E>>();
+    private int numClasses = 0;
 
     /** Creates a {@link DisjointSet}. */
     public DisjointSet() { }
@@ -53,57 +56,123 @@ public class DisjointSet<E>  {
     public boolean contains(Object o) {
 	return elmap.containsKey(o);
     }
+    /** Returns the number of elements in the set containing
+     *  <code>o</code>, in O(alpha(n)) time. */
+    public int classSize(E o) {
+	Node<E> x = elmap.get(o);
+	return (x==null) ? 1 : _find_set(x).size;
+    }
+    /** Returns an unmodifiable {@link Set} view of the members of the
+     *  set containing <code>o</code>.  Its <code>size()</code> and
+     *  <code>contains()</code> take O(alpha(n)) time, and iterating
+     *  over it takes O(1) time per member.  The view follows later
+     *  unions. */
+    public Set<E> members(final E o) {
+	return new AbstractSet<E>() {
+	    public int size() { return classSize(o); }
+	    public boolean contains(Object e) {
+		Node<E> x = elmap.get(o), y = elmap.get(e);
+		if (x==null || y==null) return (o==null) ? e==null : o.equals(e);
+		return _find_set(x)==_find_set(y);
+	    }
+	    public Iterator<E> iterator() {
+		Node<E> x = elmap.get(o);
+		if (x==null) return Default.singletonIterator(o);
+		return new RingIterator<E>(x);
+	    }
+	};
+    }
+    /** Returns an unmodifiable {@link Set} view of the sets in this
+     *  {@link DisjointSet}, each as a {@link Set} of its members as
+     *  returned by {@link #members(Object)}.  Elements which have
+     *  never been passed to <code>union</code> do not appear.
+     *  Iterating over every member of every set takes O(n) time. */
+    public Set<Set<E>> classes() {
+	return new AbstractSet<Set<E>>() {
+	    public int size() { return numClasses; }
+	    public Iterator<Set<E>> iterator() {
+		return new FilterIterator<Node<E>,Set<E>>
+		    (elmap.values().iterator(),
+		     new FilterIterator.Filter<Node<E>,Set<E>>() {
+			public boolean isElement(Node<E> n) {
+			    return n.parent==n;
+			}
+			public Set<E> map(Node<E> n) {
+			    return members(n.element);
+			}
+		    });
+	    }
+	};
+    }
     // these are the routines according to CLR
     private Node<E> _make_set(E o) {
 	assert !elmap.containsKey(o);
 	Node<E> x = new Node<E>(o);
 	elmap.put(o, x);
+	numClasses++;
 	return x;
     }
-    private Node<E> _find_set(Node<E> x) {
+    private static <E> Node<E> _find_set(Node<E> x) {
 	if (x.parent != x)
 	    x.parent = _find_set(x.parent);
 	return x.parent;
     }
     private void _union(Node<E> x, Node<E> y) {
-	_link(_find_set(x), _find_set(y));
+	x = _find_set(x); y = _find_set(y);
+	if (x == y) return; // already in the same set.
+	_link(x, y);
     }
     private void _link(Node<E> x, Node<E> y) {
-	if (x.rank > y.rank)
+	// splice the two circular member lists together.
+	Node<E> t = x.next; x.next = y.next; y.next = t;
+	numClasses--;
+	if (x.rank > y.rank) {
 	    y.parent = x;
-	else {
+	    x.size += y.size;
+	} else {
 	    x.parent = y;
+	    y.size += x.size;
 	    if (x.rank == y.rank)
 		y.rank++;
 	}
     }
     /** Returns an unmodifiable {@link Map} view of the disjoint
      *  set, where every element is mapped to its canonical representative.
+     *  Iterating over its entries visits the sets one at a time, and
+     *  does not allocate an entry per element.
      */
     public Map<E,E> asMap() {
 	return new AbstractMap<E,E>() {
+	    public int size() { return elmap.size(); }
 	    public boolean containsKey(Object key) {
 		return elmap.containsKey(key);
 	    }
 	    // XXX: returns identity mapping for objects not in set.
 	    public E get(Object key) { return find((E)key); }
 	    public Set<Map.Entry<E,E>> entrySet() {
-		final Set<E> objects = elmap.keySet();
 		return new AbstractSet<Map.Entry<E,E>>() {
-		    public int size() { return objects.size(); }
+		    public int size() { return elmap.size(); }
 		    public Iterator<Map.Entry<E,E>> iterator() {
-			final Iterator<E> objit = objects.iterator();
+			final Iterator<Node<E>> nodeit =
+			    elmap.values().iterator();
 			return new UnmodifiableIterator<Map.Entry<E,E>>() {
-			    public boolean hasNext(){ return objit.hasNext(); }
+			    Node<E> root = null, n = null;
+			    public boolean hasNext() {
+				if (n!=null) return true;
+				while (nodeit.hasNext()) {
+				    Node<E> r = nodeit.next();
+				    if (r.parent==r) { root = n = r; return true; }
+				}
+				return false;
+			    }
 			    public Map.Entry<E,E> next() {
-				final E key = objit.next();
-				return new AbstractMapEntry<E,E>() {
-				    public E getKey() { return key; }
-				    public E getValue() {
-					// note deferred for efficiency.
-					return find(key);
-				    }
-				};
+				if (!hasNext())
+				    throw new java.util.NoSuchElementException();
+				Node<E> e = n;
+				// compress as we go, so getValue() is O(1).
+				e.parent = root;
+				n = (e.next==root) ? null : e.next;
+				return e;
 			    }
 			};
 		    }
@@ -120,13 +189,32 @@ public class DisjointSet<E>  {
 	}
 	return mm.toString();
     }
-    // node representation.
-    private static class Node<E> {
+    // node representation.  Every node is on a circular list of the
+    // members of its set; size is only kept up to date in the root.
+    // A node is also the map entry for its element in asMap().
+    private static class Node<E> extends AbstractMapEntry<E,E> {
 	Node<E> parent;
+	Node<E> next;
 	final E element;
 	int rank;
+	int size;
 	Node(E element) {
-	    this.parent = this; this.element = element; this.rank = 0;
+	    this.parent = this; this.next = this; this.element = element;
+	    this.rank = 0; this.size = 1;
+	}
+	public E getKey() { return element; }
+	public E getValue() { return _find_set(this).element; }
+    }
+    private static class RingIterator<E> extends UnmodifiableIterator<E> {
+	final Node<E> start;
+	Node<E> n;
+	RingIterator(Node<E> start) { this.start = this.n = start; }
+	public boolean hasNext() { return n!=null; }
+	public E next() {
+	    if (n==null) throw new java.util.NoSuchElementException();
+	    E e = n.element;
+	    n = (n.next==start) ? null : n.next;
+	    return e;
 	}
     }
     /** Self-test method. */
@@ -142,9 +230,42 @@ public class DisjointSet<E>  {
 	ds.union(d, f); ds.union(g, d);
 	assert ds.find(d)==ds.find(f) && ds.find(f)==ds.find(g);
 	assert ds.find(d)!=ds.find(c) && ds.find(d)!=ds.find(a);
+	ds.union(f, g); // a repeated union changes nothing.
+	assert ds.classSize(d)==3 && ds.members(g).contains(f);
+	assert ds.classes().size()==2 && ds.classSize(a)==1;
 	ds.union(c, f);
 	assert ds.find(e)==ds.find(f);
 	assert ds.find(a)==a;
+	assert ds.classSize(b)==7 && ds.members(a).size()==1;
+	assert ds.members(e).equals(new java.util.HashSet<String>
+	    (java.util.Arrays.asList(new String[] { b,c,d,e,f,g,h })));
+	assert ds.classes().size()==1 && ds.asMap().size()==7;
+	for (Map.Entry<String,String> me : ds.asMap().entrySet())
+	    assert me.getValue()==ds.find(me.getKey());
+	// random unions, checking the member lists against find().
+	java.util.Random r = new java.util.Random(3);
+	DisjointSet<Integer> is = new DisjointSet<Integer>();
+	for (int i=0; i<2000; i++) {
+	    Integer x = new Integer(r.nextInt(1500));
+	    Integer y = new Integer(r.nextInt(1500));
+	    if (!x.equals(y)) is.union(x, y);
+	}
+	int total = 0;
+	for (Set<Integer> cls : is.classes()) {
+	    Integer rep = null;
+	    for (Integer x : cls) {
+		if (rep==null) rep = is.find(x);
+		assert is.find(x).equals(rep) && cls.contains(x);
+		total++;
+	    }
+	    assert cls.size()==is.classSize(rep);
+	}
+	assert total==is.asMap().size();
+	int roots = 0;
+	for (Map.Entry<Integer,Integer> me : is.asMap().entrySet())
+	    if (me.getKey().equals(me.getValue())) roots++;
+	assert roots==is.classes().size();
+	assert is.asMap().entrySet().size()==total;
 	System.err.println("PASSED.");
     }
 }
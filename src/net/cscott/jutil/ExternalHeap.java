@@ -0,0 +1,462 @@
+// ExternalHeap.java, created Mon Oct 19 17:20:09 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+/**
+ * An {@link ExternalHeap} is a {@link Heap} which can grow larger than
+ * the available memory.  New entries go into an in-memory
+ * {@link BinaryHeap} buffer.  When the buffer reaches its budget, its
+ * entries are written out in sorted order to a temporary file, called
+ * a <i>run</i>.  <code>extractMinimum()</code> merges the buffer and
+ * the heads of all the runs lazily, reading each run sequentially
+ * through a buffered NIO channel.  When there are too many runs, the
+ * smallest half of them are merged into one, so that each entry is
+ * rewritten O(lg n) times in total.
+ * <p>
+ * The memory budget is given as the number of entries in the buffer;
+ * in addition, each open run keeps one entry and an I/O buffer in
+ * memory.  Keys and values are written with the {@link Serializer}s
+ * given to the constructor.  Since entries move between memory and
+ * disk, an {@link ExternalHeap} cannot support
+ * <code>decreaseKey()</code>, <code>updateKey()</code>,
+ * <code>delete()</code> or <code>entries()</code>; these throw
+ * {@link UnsupportedOperationException}.  The
+ * {@link java.util.Map.Entry}s returned by <code>insert()</code>
+ * hold the key and value inserted but are otherwise inert.
+ * I/O errors are reported as {@link RuntimeException}s wrapping the
+ * {@link IOException}.
+ * <p>
+ * Call {@link #close()} (or {@link #clear()}) when done with the heap
+ * to delete its temporary files; they are not deleted on exit.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ */
+public class ExternalHeap<K,V> extends AbstractHeap<K,V>
+    implements java.io.Closeable {
+    /** Default number of entries kept in memory. */
+    public static final int DEFAULT_BUFFER_SIZE = 1<<20;
+    /** Size of the I/O buffer for each run, in bytes. */
+    private static final int IO_BUFFER_SIZE = 1<<16;
+
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final int bufferSize, maxRuns;
+    private final File tmpdir;
+    /** Entries which have not been spilled. */
+    private final BinaryHeap<K,V> buffer;
+    /** The runs, keyed by the key of their first unread entry. */
+    private final BinaryHeap<K,Run<K,V>> runs;
+    /** Number of entries in the runs. */
+    private long runEntries = 0;
+
+    /** Creates a new, empty {@link ExternalHeap}, sorted according to
+     *  the given {@link Comparator}, which keeps up to
+     *  {@link #DEFAULT_BUFFER_SIZE} entries in memory and spills to
+     *  the default temporary-file directory. */
+    public ExternalHeap(Comparator<K> c, Serializer<K> keySerializer,
+			Serializer<V> valueSerializer) {
+	this(c, keySerializer, valueSerializer, DEFAULT_BUFFER_SIZE, null);
+    }
+    /** Creates a new, empty {@link ExternalHeap}, sorted according to
+     *  the given {@link Comparator}, which keeps up to
+     *  <code>bufferSize</code> entries in memory and spills to files in
+     *  <code>tmpdir</code> (or the default temporary-file directory, if
+     *  <code>tmpdir</code> is <code>null</code>).
+     * @exception IllegalArgumentException if <code>bufferSize</code> is
+     *            not positive. */
+    public ExternalHeap(Comparator<K> c, Serializer<K> keySerializer,
+			Serializer<V> valueSerializer, int bufferSize,
+			File tmpdir) {
+	this(c, keySerializer, valueSerializer, bufferSize, 64, tmpdir);
+    }
+    /** Creates a new, empty {@link ExternalHeap}, as above, which
+     *  keeps at most <code>maxRuns</code> runs open at once.
+     * @exception IllegalArgumentException if <code>bufferSize</code> is
+     *            not positive or <code>maxRuns</code> is less than two. */
+    public ExternalHeap(Comparator<K> c, Serializer<K> keySerializer,
+			Serializer<V> valueSerializer, int bufferSize,
+			int maxRuns, File tmpdir) {
+	super(c);
+	if (bufferSize < 1)
+	    throw new IllegalArgumentException("Bad buffer size: "+bufferSize);
+	if (maxRuns < 2)
+	    throw new IllegalArgumentException("Bad maximum runs: "+maxRuns);
+	this.keySerializer = keySerializer;
+	this.valueSerializer = valueSerializer;
+	this.bufferSize = bufferSize;
+	this.maxRuns = maxRuns;
+	this.tmpdir = tmpdir;
+	this.buffer = new BinaryHeap<K,V>(c);
+	this.runs = new BinaryHeap<K,Run<K,V>>(c);
+    }
+
+    /** Insert an entry into the heap, spilling the in-memory buffer to
+     *  disk if it is full.  O(lg n) amortized time, plus I/O. */
+    public Map.Entry<K,V> insert(K key, V value) {
+	Map.Entry<K,V> e = buffer.insert(key, value);
+	if (buffer.size() >= bufferSize) spill();
+	return e;
+    }
+    public Map.Entry<K,V> minimum() {
+	Map.Entry<K,V> e = buffer.isEmpty() ? null : buffer.minimum();
+	if (runs.isEmpty()) {
+	    if (e==null) throw new NoSuchElementException();
+	    return e;
+	}
+	Run<K,V> r = runs.minimum().getValue();
+	if (e!=null && keyComparator().compare(e.getKey(), r.key) <= 0)
+	    return e;
+	return new PairMapEntry<K,V>(r.key, r.value);
+    }
+    public Map.Entry<K,V> extractMinimum() {
+	if (runs.isEmpty() ||
+	    (!buffer.isEmpty() &&
+	     keyComparator().compare(buffer.minimum().getKey(),
+				     runs.minimum().getKey()) <= 0))
+	    return buffer.extractMinimum(); // throws NSEE if empty.
+	Run<K,V> r = runs.minimum().getValue();
+	Map.Entry<K,V> e = new PairMapEntry<K,V>(r.key, r.value);
+	runEntries--;
+	advance(r);
+	return e;
+    }
+    /** Merges all of the entries of the given heap into this one,
+     *  leaving the given heap empty. */
+    public void union(Heap<? extends K,? extends V> h) {
+	if (h instanceof ExternalHeap) {
+	    ExternalHeap<? extends K,? extends V> eh =
+		(ExternalHeap<? extends K,? extends V>) h;
+	    if (eh==this) return;
+	    while (!eh.isEmpty()) {
+		Map.Entry<? extends K,? extends V> e = eh.extractMinimum();
+		insert(e.getKey(), e.getValue());
+	    }
+	} else super.union(h);
+    }
+    /** Not supported.
+     * @exception UnsupportedOperationException always. */
+    public void decreaseKey(Map.Entry<K,V> me, K newkey) {
+	throw new UnsupportedOperationException
+	    ("ExternalHeap does not support decreaseKey()");
+    }
+    /** Not supported.
+     * @exception UnsupportedOperationException always. */
+    public void updateKey(Map.Entry<K,V> me, K newkey) {
+	throw new UnsupportedOperationException
+	    ("ExternalHeap does not support updateKey()");
+    }
+    /** Not supported.
+     * @exception UnsupportedOperationException always. */
+    public void delete(Map.Entry<K,V> me) {
+	throw new UnsupportedOperationException
+	    ("ExternalHeap does not support delete()");
+    }
+    /** Not supported: the entries may not fit in memory.
+     * @exception UnsupportedOperationException always. */
+    public Collection<Map.Entry<K,V>> entries() {
+	throw new UnsupportedOperationException
+	    ("ExternalHeap does not support entries()");
+    }
+    /** Returns the number of entries in the heap, or
+     *  <code>Integer.MAX_VALUE</code> if there are more than that.
+     *  Use {@link #longSize()} for the exact count. */
+    public int size() {
+	return (int) Math.min(longSize(), Integer.MAX_VALUE);
+    }
+    /** Returns the number of entries in the heap. */
+    public long longSize() { return buffer.size() + runEntries; }
+    public boolean isEmpty() { return buffer.isEmpty() && runs.isEmpty(); }
+    /** Returns the number of runs currently on disk. */
+    public int runs() { return runs.size(); }
+    /** Removes all entries from the heap, and deletes its temporary
+     *  files. */
+    public void clear() {
+	buffer.clear();
+	while (!runs.isEmpty())
+	    runs.extractMinimum().getValue().close();
+	runEntries = 0;
+    }
+    /** Equivalent to {@link #clear()}. */
+    public void close() { clear(); }
+    // entries() is not supported, so use identity.
+    public boolean equals(Object o) { return this==o; }
+    public int hashCode() { return System.identityHashCode(this); }
+    public String toString() {
+	return "ExternalHeap[size="+longSize()+", runs="+runs()+"]";
+    }
+
+    /** Write the buffer out as a new run, merging runs if there are
+     *  too many. */
+    private void spill() {
+	int n = buffer.size();
+	if (n==0) return;
+	Run<K,V> r = newRun();
+	try {
+	    while (!buffer.isEmpty()) {
+		Map.Entry<K,V> e = buffer.extractMinimum();
+		keySerializer.write(e.getKey(), r.out);
+		valueSerializer.write(e.getValue(), r.out);
+	    }
+	} catch (IOException ex) {
+	    r.close();
+	    throw failed(ex);
+	}
+	open(r, n);
+	if (runs.size() >= maxRuns) mergeRuns();
+    }
+    /** Merge the smaller half of the runs (but at least two of them)
+     *  into one run. */
+    private void mergeRuns() {
+	ArrayList<Run<K,V>> all = new ArrayList<Run<K,V>>(runs.size());
+	while (!runs.isEmpty())
+	    all.add(runs.extractMinimum().getValue());
+	Collections.sort(all, new Comparator<Run<K,V>>() {
+	    public int compare(Run<K,V> a, Run<K,V> b) {
+		return (a.remaining < b.remaining) ? -1 :
+		    (a.remaining > b.remaining) ? 1 : 0;
+	    }
+	});
+	int m = Math.max(2, all.size()/2); // merging one run saves nothing.
+	BinaryHeap<K,Run<K,V>> merge = new BinaryHeap<K,Run<K,V>>(comparator());
+	long count = 0;
+	for (int i=0; i<all.size(); i++) {
+	    Run<K,V> r = all.get(i);
+	    if (i<m) {
+		r.handle = merge.insert(r.key, r);
+		count += 1 + r.remaining;
+	    } else r.handle = runs.insert(r.key, r);
+	}
+	Run<K,V> out = newRun();
+	try {
+	    while (!merge.isEmpty()) {
+		Run<K,V> r = merge.minimum().getValue();
+		keySerializer.write(r.key, out.out);
+		valueSerializer.write(r.value, out.out);
+		if (!r.next(keySerializer, valueSerializer)) {
+		    merge.extractMinimum();
+		    r.close();
+		} else merge.updateKey(r.handle, r.key);
+	    }
+	} catch (IOException ex) {
+	    out.close();
+	    throw failed(ex);
+	}
+	runEntries -= count; // open() adds them back.
+	open(out, count);
+    }
+    /** Create a new run file, open for writing. */
+    private Run<K,V> newRun() {
+	try {
+	    File f = File.createTempFile("jutil-heap", ".run", tmpdir);
+	    Run<K,V> r = new Run<K,V>(f);
+	    r.out = new DataOutputStream(new BufferedOutputStream
+		(Channels.newOutputStream(new FileOutputStream(f).getChannel()),
+		 IO_BUFFER_SIZE));
+	    return r;
+	} catch (IOException ex) {
+	    throw failed(ex);
+	}
+    }
+    /** Finish writing the given run of <code>n</code> entries, and open
+     *  it for reading. */
+    private void open(Run<K,V> r, long n) {
+	try {
+	    r.out.close();
+	    r.out = null;
+	    r.in = new DataInputStream(new BufferedInputStream
+		(Channels.newInputStream(new FileInputStream(r.file).getChannel()),
+		 IO_BUFFER_SIZE));
+	    r.remaining = n;
+	    r.next(keySerializer, valueSerializer);
+	} catch (IOException ex) {
+	    r.close();
+	    throw failed(ex);
+	}
+	r.handle = runs.insert(r.key, r);
+	runEntries += n;
+    }
+    /** Move the given run, which is the minimum of <code>runs</code>,
+     *  on to its next entry. */
+    private void advance(Run<K,V> r) {
+	try {
+	    if (r.next(keySerializer, valueSerializer)) {
+		runs.updateKey(r.handle, r.key);
+		return;
+	    }
+	} catch (IOException ex) {
+	    throw failed(ex);
+	}
+	runs.extractMinimum();
+	r.close();
+    }
+    private static RuntimeException failed(IOException ex) {
+	return new RuntimeException("I/O error in ExternalHeap", ex);
+    }
+
+    /** A sorted run of entries on disk. */
+    private static final class Run<K,V> {
+	final File file;
+	DataOutputStream out;
+	DataInputStream in;
+	/** The next entry of the run. */
+	K key; V value;
+	/** Number of entries in the file after the current one. */
+	long remaining;
+	/** The entry for this run in its heap of runs. */
+	Map.Entry<K,Run<K,V>> handle;
+	Run(File file) { this.file = file; }
+	/** Read the next entry; returns false at the end of the run. */
+	boolean next(Serializer<K> ks, Serializer<V> vs) throws IOException {
+	    if (remaining==0) { key = null; value = null; return false; }
+	    key = ks.read(in);
+	    value = vs.read(in);
+	    remaining--;
+	    return true;
+	}
+	void close() {
+	    try {
+		if (out!=null) out.close();
+		if (in!=null) in.close();
+	    } catch (IOException ex) { /* we're deleting it anyway */ }
+	    out = null; in = null;
+	    file.delete();
+	}
+    }
+
+    /** A {@link Serializer} writes objects of one type to a
+     *  {@link DataOutput}, and reads them back from a
+     *  {@link DataInput}. */
+    public interface Serializer<T> {
+	/** Write <code>t</code> to <code>out</code>. */
+	public void write(T t, DataOutput out) throws IOException;
+	/** Read back an object written by {@link #write}. */
+	public T read(DataInput in) throws IOException;
+    }
+    /** A {@link Serializer} for (non-null) {@link Integer}s. */
+    public static final Serializer<Integer> INTEGER = new Serializer<Integer>() {
+	public void write(Integer i, DataOutput out) throws IOException {
+	    out.writeInt(i.intValue());
+	}
+	public Integer read(DataInput in) throws IOException {
+	    return Integer.valueOf(in.readInt());
+	}
+    };
+    /** A {@link Serializer} for (non-null) {@link Long}s. */
+    public static final Serializer<Long> LONG = new Serializer<Long>() {
+	public void write(Long l, DataOutput out) throws IOException {
+	    out.writeLong(l.longValue());
+	}
+	public Long read(DataInput in) throws IOException {
+	    return Long.valueOf(in.readLong());
+	}
+    };
+    /** A {@link Serializer} for (non-null) {@link Double}s. */
+    public static final Serializer<Double> DOUBLE = new Serializer<Double>() {
+	public void write(Double d, DataOutput out) throws IOException {
+	    out.writeDouble(d.doubleValue());
+	}
+	public Double read(DataInput in) throws IOException {
+	    return Double.valueOf(in.readDouble());
+	}
+    };
+    /** A {@link Serializer} for {@link String}s, which may be
+     *  <code>null</code>. */
+    public static final Serializer<String> STRING = new Serializer<String>() {
+	public void write(String s, DataOutput out) throws IOException {
+	    out.writeBoolean(s!=null);
+	    if (s!=null) out.writeUTF(s);
+	}
+	public String read(DataInput in) throws IOException {
+	    return in.readBoolean() ? in.readUTF() : null;
+	}
+    };
+
+    /** Self-test function. */
+    public static void main(String[] args) {
+	File dir = new File(System.getProperty("java.io.tmpdir"));
+	int before = countRuns(dir);
+	ExternalHeap<Integer,String> h = new ExternalHeap<Integer,String>
+	    (null, INTEGER, STRING, 100, 4, dir);
+	BinaryHeap<Integer,String> ref = new BinaryHeap<Integer,String>();
+	assert h.isEmpty() && h.size()==0;
+	java.util.Random r = new java.util.Random(7);
+	for (int i=0; i<20000; i++) {
+	    if (ref.isEmpty() || r.nextInt(3)!=0) {
+		Integer k = new Integer(r.nextInt(100000));
+		String v = (i%10==0) ? null : ("v"+i);
+		h.insert(k, v);
+		ref.insert(k, v);
+	    } else {
+		assert h.minimum().getKey().equals(ref.minimum().getKey());
+		Map.Entry<Integer,String> e = h.extractMinimum();
+		assert e.getKey().equals(ref.extractMinimum().getKey());
+	    }
+	    assert h.size()==ref.size();
+	    assert h.runs() < 4;
+	}
+	assert h.runs() > 0 && countRuns(dir) > before;
+	System.out.println(h);
+	// union with an in-memory heap.
+	BinaryHeap<Integer,String> extra = new BinaryHeap<Integer,String>();
+	extra.insert(new Integer(-1), "first");
+	h.union(extra);
+	ref.insert(new Integer(-1), "first");
+	assert extra.isEmpty();
+	assert h.extractMinimum().getValue().equals("first");
+	ref.extractMinimum();
+	try {
+	    h.decreaseKey(h.minimum(), new Integer(0));
+	    assert false;
+	} catch (UnsupportedOperationException ex) { /* expected */ }
+	while (!ref.isEmpty())
+	    assert h.extractMinimum().getKey().equals(ref.extractMinimum().getKey());
+	assert h.isEmpty() && h.runs()==0 && countRuns(dir)==before;
+	// close() removes the files of a non-empty heap.
+	for (int i=0; i<1000; i++)
+	    h.insert(new Integer(i), null);
+	assert countRuns(dir) > before;
+	h.close();
+	assert h.isEmpty() && countRuns(dir)==before;
+	// with maxRuns=2, every spill merges down to a single run.
+	ExternalHeap<Integer,String> h2 = new ExternalHeap<Integer,String>
+	    (null, INTEGER, STRING, 10, 2, dir);
+	for (int i=0; i<1000; i++) {
+	    h2.insert(new Integer(r.nextInt(100000)), null);
+	    assert h2.runs() < 2;
+	}
+	assert h2.runs()==1 && h2.size()==1000;
+	for (int prev = Integer.MIN_VALUE; !h2.isEmpty(); ) {
+	    int k = h2.extractMinimum().getKey().intValue();
+	    assert prev <= k;
+	    prev = k;
+	}
+	h2.close();
+	assert countRuns(dir)==before;
+	System.out.println("PASSED.");
+    }
+    private static int countRuns(File dir) {
+	int n = 0;
+	for (String s : dir.list())
+	    if (s.startsWith("jutil-heap") && s.endsWith(".run")) n++;
+	return n;
+    }
+}
@@ -179,6 +179,44 @@ public final class Factories {
 	};
     }
     
+    /** A {@link SetFactory} that generates {@link BTreeSet}s. */
+    public static final SetFactory bTreeSetFactory = Factories.<Comparable>bTreeSetFactory();
+    public static final <V extends Comparable<V>> SetFactory<V> bTreeSetFactory() {
+	return bTreeSetFactory(BTreeMap.DEFAULT_FANOUT, null);
+    }
+    /** Returns a {@link SetFactory} that generates {@link BTreeSet}s
+     *  with the given fanout, ordered by the given {@link Comparator}
+     *  (or by natural ordering, if <code>comp</code> is
+     *  <code>null</code>). */
+    public static final <V> SetFactory<V> bTreeSetFactory(final int fanout, final Comparator<? super V> comp) {
+	return new SerialSetFactory<V>() {
+	    public BTreeSet<V> makeSet(Collection<? extends V> c) {
+		BTreeSet<V> result = new BTreeSet<V>(fanout, comp);
+		result.addAll(c);
+		return result;
+	    }
+	};
+    }
+
+    /** A {@link MapFactory} that generates {@link BTreeMap}s. */
+    public static final MapFactory bTreeMapFactory = Factories.<Comparable,Object>bTreeMapFactory();
+    public static final <K extends Comparable<K>,V> MapFactory<K,V> bTreeMapFactory() {
+	return bTreeMapFactory(BTreeMap.DEFAULT_FANOUT, null);
+    }
+    /** Returns a {@link MapFactory} that generates {@link BTreeMap}s
+     *  with the given fanout, ordered by the given {@link Comparator}
+     *  (or by natural ordering, if <code>comp</code> is
+     *  <code>null</code>). */
+    public static final <K,V> MapFactory<K,V> bTreeMapFactory(final int fanout, final Comparator<? super K> comp) {
+	return new SerialMapFactory<K,V>() {
+	    public BTreeMap<K,V> makeMap(Map<? extends K,? extends V> map) {
+		BTreeMap<K,V> result = new BTreeMap<K,V>(fanout, comp);
+		result.putAll(map);
+		return result;
+	    }
+	};
+    }
+
     /** A {@link ListFactory} that generates {@link LinkedList}s. */
     public static final ListFactory linkedListFactory = linkedListFactory();
     public static final <V> ListFactory<V> linkedListFactory() {
@@ -17,17 +17,31 @@ import java.util.Map;
  * <p>
  * Implementation is based on the description in <i>Introduction to
  * Algorithms</i> by Cormen, Leiserson, and Riverst, in Chapter 21.
+ * <p>
+ * The heap's {@link java.util.Map.Entry}s are also its tree nodes, and
+ * the degree table used by extract-min is reused from call to call, so
+ * the only allocation in steady state is one entry per insert.
+ * Heaps which churn through many entries can avoid even that by
+ * handing removed entries back with {@link #recycle(Map.Entry)}.
  * 
  * @author  C. Scott Ananian <cananian@alumni.princeton.edu>
  * @version $Id: FibonacciHeap.java,v 1.8 2006-10-30 19:58:05 cananian Exp $
  */
 public class FibonacciHeap<K,V> extends AbstractHeap<K,V> {
 
-    Node<K,V> min=null;
+    Entry<K,V> min=null;
     /** Number of nodes in this heap. */
     int n=0;
-    /** Maximum degree of any node */
-    int D=0;
+    /** Degree table for {@link #_consolidate()}; all null between
+     *  calls. */
+    private Entry<K,V>[] A = (Entry<K,V>[]) new Entry[8];
+    /** Free list of recycled entries, linked through their
+     *  <code>child</code> fields. */
+    private Entry<K,V> pool=null;
+    /** Number of entries in the free list. */
+    private int poolSize=0;
+    /** Maximum number of recycled entries to keep. */
+    private static final int MAX_POOL = 1024;
     final Comparator<Map.Entry<K,V>> c; // convenience field.
     
     /** Creates a new, empty {@link FibonacciHeap}, sorted according
@@ -55,30 +69,55 @@ public class FibonacciHeap<K,V> extends AbstractHeap<K,V> {
 
     /** Insert an entry into the heap. */
     public Map.Entry<K,V> insert(K key, V value) {
-	Entry<K,V> e = new Entry<K,V>(key, value);
+	Entry<K,V> e;
+	if (pool==null) e = new Entry<K,V>(key, value);
+	else { // reuse a recycled entry.
+	    e = pool; pool = e.child; poolSize--;
+	    e._setKey(key); e.setValue(value);
+	}
 	insert(e);
 	return e;
     }
     protected void insert(Map.Entry<K,V> me) {
-	Node<K,V> x = new Node<K,V>((Entry<K,V>)me);
-	// THESE ARE DONE IN THE CONSTRUCTOR.
-	// x.degree=0; x.parent=x.child=null;
-	// x.left = x.right = x;  x.mark = false;
+	Entry<K,V> x = (Entry<K,V>) me;
+	x.degree=0; x.parent=x.child=null;
+	x.left = x.right = x;  x.mark = false;
 	_concatenateListsContaining(x, min);
-	if (min==null || c.compare(x.entry, min.entry) < 0)
+	if (min==null || c.compare(x, min) < 0)
 	    min = x;
 	n++; // increase size;
+	indexInsert(x);
 	// done.
     }
     public Map.Entry<K,V> minimum() {
 	if (this.min==null) throw new java.util.NoSuchElementException();
-	return this.min.entry;
+	return this.min;
+    }
+    /** Gives an entry back to this heap for reuse by a later
+     *  <code>insert()</code>, saving an allocation.  The entry must
+     *  have been returned by <code>extractMinimum()</code> or removed
+     *  by <code>delete()</code>, and the caller must not use it again
+     *  in any way: its key and value will be overwritten.  At most a
+     *  fixed number of entries are kept; the rest are left to the
+     *  garbage collector.  O(1) time.
+     * @exception IllegalArgumentException if the entry is still in
+     *            the heap. */
+    public void recycle(Map.Entry<K,V> me) {
+	Entry<K,V> e = (Entry<K,V>) me;
+	if (e.left!=null)
+	    throw new IllegalArgumentException("Entry is still in heap.");
+	if (poolSize >= MAX_POOL) return;
+	e._setKey(null); e.setValue(null); // don't retain key and value.
+	e.child = pool; pool = e; poolSize++;
     }
     public void union(FibonacciHeap<K,V> h) {
 	// if you're comparing this to CLR, this=='h1' and h=='h2'
+	if (isKeyIndexed())
+	    for (Map.Entry<K,V> e : h.entries())
+		indexInsert(e);
 	_concatenateListsContaining(this.min, h.min);
 	if (this.min==null || 
-	    (h.min!=null && c.compare(h.min.entry, this.min.entry) < 0))
+	    (h.min!=null && c.compare(h.min, this.min) < 0))
 	    this.min = h.min;
 	this.n += h.n;
 	h.clear();
@@ -89,13 +128,13 @@ public class FibonacciHeap<K,V> extends AbstractHeap<K,V> {
 	    entryComparator().equals(((FibonacciHeap)h).entryComparator()))
 	    // the unsafe cast below from K2 to K and V2 to V should really be
 	    // safe if the entryComparators for the two Heaps are identical.
-	    union((FibonacciHeap<? extends K,? extends V>)h);
+	    union((FibonacciHeap<K,V>)h);
 	else super.union(h);
     }
     public Map.Entry<K,V> extractMinimum() {
 	if (this.min==null) throw new java.util.NoSuchElementException();
-	Node<K,V> z = this.min;
-	Node<K,V> x = z.child;
+	Entry<K,V> z = this.min;
+	Entry<K,V> x = z.child;
 	if (x!=null) do { // for each child x of z...
 	    x.parent=null;
 	    x=x.right;
@@ -103,7 +142,7 @@ public class FibonacciHeap<K,V> extends AbstractHeap<K,V> {
 	// add z's children to the root list.
 	_concatenateListsContaining(z.child, z);
 	// remove z from the root list.
-	Node<K,V> zRight = z.right;
+	Entry<K,V> zRight = z.right;
 	_removeFromList(z);
 	if (z==zRight) { // z was the only node on the root list
 	    assert n==1;
@@ -114,48 +153,56 @@ public class FibonacciHeap<K,V> extends AbstractHeap<K,V> {
 	    _consolidate();
 	}
 	n--;
-	return z.entry;
+	indexRemove(z);
+	// z is no longer in the heap.
+	z.left = z.right = z.parent = z.child = null;
+	z.degree = 0;
+	return z;
     }
     // reduce the number of trees in the fibonacci heap
     private void _consolidate() {
-	ArrayList<Node<K,V>> A = new ArrayList<Node<K,V>>
-	    (Collections.<Node<K,V>>nCopies(D(n)+1, null));
+	Entry<K,V>[] A = this.A;
+	if (A.length <= maxDegree(n)) // grow the degree table.
+	    A = this.A = (Entry<K,V>[]) new Entry[maxDegree(n)+1];
+	int top = 0; // highest occupied slot of A.
 	// for each node w in the root list of H
 	// (remove each node from the root list as we iterate)
-	for (Node<K,V> w = min; w!=null; ) {
-	    Node<K,V> x = w;
+	for (Entry<K,V> w = min; w!=null; ) {
+	    Entry<K,V> x = w;
 	    { // iterator
-		Node<K,V> wR = w.right; 
+		Entry<K,V> wR = w.right; 
 		_removeFromList(w);
 		w = (w==wR) ? null : wR;
 	    }
 	    int  d = x.degree;
-	    while (A.get(d) != null) {
-		Node<K,V> y = A.get(d);
-		if (c.compare(x.entry, y.entry) > 0) {
-		    Node<K,V> t=x; x=y; y=t; // exchange x and y
+	    Entry<K,V> y;
+	    while ((y = A[d]) != null) {
+		if (c.compare(x, y) > 0) {
+		    Entry<K,V> t=x; x=y; y=t; // exchange x and y
 		}
 		_link(y, x);
-		A.set(d, null);
+		A[d] = null;
 		d++;
 	    }
-	    A.set(d, x);
+	    A[d] = x;
+	    if (d > top) top = d;
 	}
 	
 	min = null;
-	for (int i=0; i < A.size(); i++) {
-	    if (A.get(i) != null) {
+	for (int i=0; i <= top; i++) {
+	    Entry<K,V> x = A[i];
+	    if (x != null) {
+		A[i] = null; // leave the table empty for next time.
 		// add A[i] to the root list of H (it already has no siblings)
-		assert A.get(i).parent == null; // it is a root.
-		assert A.get(i).left == A.get(i) && A.get(i).right == A.get(i);
-		_concatenateListsContaining(min, A.get(i));
-		if (min==null ||
-		    c.compare(A.get(i).entry, min.entry) < 0)
-		    min = A.get(i);
+		assert x.parent == null; // it is a root.
+		assert x.left == x && x.right == x;
+		_concatenateListsContaining(min, x);
+		if (min==null || c.compare(x, min) < 0)
+		    min = x;
 	    }
 	}
     }
-    private void _link(Node<K,V> y, Node<K,V> x) {
+    private void _link(Entry<K,V> y, Entry<K,V> x) {
 	// both x and y are roots.
 	assert x.parent==null && y.parent==null;
 	// y should already have been removed from root list.
@@ -172,25 +219,25 @@ public class FibonacciHeap<K,V> extends AbstractHeap<K,V> {
 	if (!delete && keyComparator().compare(newkey, entry.getKey()) > 0)
 	    throw new UnsupportedOperationException("New key is greater than "+
 						    "current key.");
-	setKey(entry, newkey);
-	Node<K,V> x = entry.node;
-	Node<K,V> y = x.parent;
-	if (y!=null && (delete || c.compare(x.entry, y.entry) < 0)) {
+	if (!delete) indexRekey(entry, entry._setKey(newkey));
+	Entry<K,V> x = entry;
+	Entry<K,V> y = x.parent;
+	if (y!=null && (delete || c.compare(x, y) < 0)) {
 	    _cut(x, y);
 	    _cascadingCut(y);
 	}
-	if (delete || c.compare(x.entry, min.entry) < 0)
+	if (delete || c.compare(x, min) < 0)
 	    min = x;
 	// ta-da!
     }
-    private void _cut(Node<K,V> x, Node<K,V> y) {
+    private void _cut(Entry<K,V> x, Entry<K,V> y) {
 	y.removeChild(x);
 	_concatenateListsContaining(x, min);
 	x.parent = null;
 	x.mark = false;
     }
-    private void _cascadingCut(Node<K,V> y) {
-	Node<K,V> z = y.parent;
+    private void _cascadingCut(Entry<K,V> y) {
+	Entry<K,V> z = y.parent;
 	if (z==null) return;
 	if (y.mark == false) {
 	    y.mark = true;
@@ -206,19 +253,24 @@ public class FibonacciHeap<K,V> extends AbstractHeap<K,V> {
     }
 
     public int size() { return n; }
-    public void clear() { min=null; n=0; }
+    public void clear() { min=null; n=0; indexClear(); }
+    /** Turns the key index on or off.  O(n) time to turn it on.
+     * @see AbstractHeap#setKeyIndexed(boolean) */
+    public void setKeyIndexed(boolean indexed) {
+	super.setKeyIndexed(indexed);
+    }
 
     public Collection<Map.Entry<K,V>> entries() {
 	return new AbstractCollection<Map.Entry<K,V>>() {
 	    public int size() { return n; }
 	    public Iterator<Map.Entry<K,V>> iterator() {
 		return new UnmodifiableIterator<Map.Entry<K,V>>() {
-		    Node<K,V> next = min;
+		    Entry<K,V> next = min;
 		    public boolean hasNext() { return next!=null; }
 		    public Map.Entry<K,V> next() {
 			if (next==null)
 			    throw new java.util.NoSuchElementException();
-			Node<K,V> n=next; next=successor(next); return n.entry;
+			Entry<K,V> n=next; next=successor(next); return n;
 		    }
 		};
 	    }
@@ -226,11 +278,11 @@ public class FibonacciHeap<K,V> extends AbstractHeap<K,V> {
     }
     /** Return the next node after the specified node in the iteration order.
      *  O(1) time. */
-    private Node<K,V> successor(Node<K,V> n) {
+    private Entry<K,V> successor(Entry<K,V> n) {
 	assert n!=null;
 	if (n.child!=null) return n.child;
 	do {
-	Node<K,V> first = (n.parent==null) ? this.min : n.parent.child;
+	Entry<K,V> first = (n.parent==null) ? this.min : n.parent.child;
 	assert first!=null && n.right!=null;
 	if (n.right != first) return n.right;
 	n=n.parent;
@@ -238,41 +290,26 @@ public class FibonacciHeap<K,V> extends AbstractHeap<K,V> {
 	return null;
     }
 
-    /** The underlying {@link java.util.Map.Entry} representation. */
+    /** The underlying {@link java.util.Map.Entry} representation, which
+     *  is also the node representation for the fibonacci heap. */
     static final class Entry<K,V> extends PairMapEntry<K,V> {
-	Node<K,V> node;
-	Entry(K key, V value) { super(key, value); }
-	K _setKey(K key) { return super.setKey(key); }
-    }
-    // to implement updateKey, etc...
-    protected final K setKey(Map.Entry<K,V> me, K newkey) {
-	Entry<K,V> e = (Entry<K,V>) me;
-	return e._setKey(newkey);
-    }
-    /** The underlying node representation for the fibonacci heap. */
-    static final class Node<K,V> {
-	Node<K,V> parent, child;
-	Entry<K,V> entry;
-	Node<K,V> left, right;
+	/** <code>left</code> is <code>null</code> iff the entry is not
+	 *  in a heap. */
+	Entry<K,V> parent, child;
+	Entry<K,V> left, right;
 	int degree;
 	boolean mark;
 	/*-----------------------------*/
-	Node(Entry<K,V> e) {
-	    this.entry = e;
-	    this.entry.node = this;
-	    this.parent = this.child = null;
-	    this.degree=0;
-	    this.left = this.right = this;
-	    this.mark = false;
-	}
-	void addChild(Node<K,V> c) {
+	Entry(K key, V value) { super(key, value); }
+	K _setKey(K key) { return super.setKey(key); }
+	void addChild(Entry<K,V> c) {
 	    assert c.left == c && c.right == c;
 	    if (this.child==null) this.child = c;
 	    else _concatenateListsContaining(this.child, c);
 	    c.parent = this;
 	    degree++;
 	}
-	void removeChild(Node<K,V> c) {
+	void removeChild(Entry<K,V> c) {
 	    assert c.parent == this;
 	    if (this.child==c) this.child=c.right;
 	    _removeFromList(c);
@@ -280,36 +317,35 @@ public class FibonacciHeap<K,V> extends AbstractHeap<K,V> {
 	    degree--;
 	    if (degree==0) this.child=null;
 	}
-	public String toString() {
-	    return "<"+entry+", d:"+degree+", parent:"+_2s(parent)+
-		", child:"+_2s(child)+", left:"+_2s(left)+
-		", right:"+_2s(right)+", mark:"+mark+">";
-	}
-	private String _2s(Node<K,V> n) {return n==null?"(nil)":n.entry.toString();}
+    }
+    // to implement updateKey, etc...
+    protected final K setKey(Map.Entry<K,V> me, K newkey) {
+	Entry<K,V> e = (Entry<K,V>) me;
+	return e._setKey(newkey);
     }
     /** Concatenate two right/left lists together. */
-    private static <K,V> void _concatenateListsContaining(Node<K,V> a, Node<K,V> b) {
+    private static <K,V> void _concatenateListsContaining(Entry<K,V> a, Entry<K,V> b) {
 	if (a==null || b==null) return; // nothing to link in.
-	Node<K,V> c = a.right, d = b.left;
+	Entry<K,V> c = a.right, d = b.left;
 	a.right = b;
 	b.left  = a;
 	d.right = c;
 	c.left  = d;
     }
     /** Remove a node from its left/right list. */
-    private static <K,V> void _removeFromList(Node<K,V> a) {
+    private static <K,V> void _removeFromList(Entry<K,V> a) {
 	a.left.right = a.right;
 	a.right.left = a.left;
 	a.left = a.right = a;
     }
-    /** Calculate the value of D(n) */
-    private static int D(int n) {
-	// calculate log-base-phi of n as (log n/log phi)
-	double Dn = Math.log(n) / log_phi;
-	return (int) Math.floor(Dn);
+    /** Return an upper bound on D(n), the maximum degree of any node
+     *  in an n-node heap.  D(n) is at most log-base-phi of n, and
+     *  1/lg(phi) is about 1.44, so 1.5 times the number of bits in n
+     *  is enough. */
+    private static int maxDegree(int n) {
+	int bits = 32 - Integer.numberOfLeadingZeros(n);
+	return bits + (bits >> 1) + 1;
     }
-    private final static double phi = (1 + Math.sqrt(5)) / 2.0;
-    private final static double log_phi = Math.log(phi);
 
     /** Self-test method. */
     public static void main(String[] args) {
@@ -388,8 +424,65 @@ public class FibonacciHeap<K,V> extends AbstractHeap<K,V> {
 	assert h.extractMinimum().getValue().equals("o");
 	assert h.extractMinimum().getValue().equals("m");
 	System.out.println("5: "+h);
+	}{
+	// recycled entries should be reused, and a heap which churns
+	// should still sort correctly.
+	FibonacciHeap<Integer,Integer> h = new FibonacciHeap<Integer,Integer>();
+	java.util.Random r = new java.util.Random(1);
+	for (int i=0; i<1000; i++)
+	    h.insert(new Integer(r.nextInt(1000)), new Integer(i));
+	Map.Entry<Integer,Integer> e = h.insert(new Integer(-1), new Integer(-1));
+	try {
+	    h.recycle(e);
+	    assert false : "recycled an entry still in the heap";
+	} catch (IllegalArgumentException ex) { /* expected */ }
+	assert h.extractMinimum()==e;
+	h.recycle(e);
+	assert e.getKey()==null && e.getValue()==null;
+	assert h.insert(new Integer(5000), new Integer(5000))==e;
+	int last = Integer.MIN_VALUE;
+	for (int i=0; i<5000; i++) {
+	    Map.Entry<Integer,Integer> m = h.extractMinimum();
+	    assert last <= m.getKey().intValue();
+	    last = m.getKey().intValue();
+	    h.recycle(m);
+	    h.insert(new Integer(last + r.nextInt(1000)), new Integer(i));
+	}
+	assert h.size()==1001;
+	for (last = Integer.MIN_VALUE; !h.isEmpty(); ) {
+	    int k = h.extractMinimum().getKey().intValue();
+	    assert last <= k;
+	    last = k;
+	}
+	}{
+	// lookup by key through the key index, as a scheduler would
+	// reprioritize jobs.
+	FibonacciHeap<Integer,String> h = new FibonacciHeap<Integer,String>();
+	for (int i=0; i<100; i++)
+	    h.insert(new Integer(i*10), "job"+i);
+	h.setKeyIndexed(true);
+	h.extractMinimum(); // job0; forces a consolidation.
+	assert h.find(new Integer(0))==null;
+	assert h.decreaseKey(new Integer(500), new Integer(5)).getValue().equals("job50");
+	assert h.find(new Integer(500))==null && h.minimum().getValue().equals("job50");
+	assert h.delete(new Integer(990)).getValue().equals("job99");
+	assert h.delete(new Integer(990))==null && h.size()==98;
+	Map.Entry<Integer,String> e = h.find(new Integer(700));
+	h.updateKey(e, new Integer(7000)); // goes through delete/insert.
+	assert h.find(new Integer(7000))==e && h.find(new Integer(700))==null;
+	FibonacciHeap<Integer,String> h2 = new FibonacciHeap<Integer,String>();
+	h2.insert(new Integer(3), "three");
+	h.union(h2);
+	assert h.find(new Integer(3)).getValue().equals("three");
+	assert h.extractMinimum().getValue().equals("three");
+	assert h.find(new Integer(3))==null;
+	// union through the Heap interface takes the fast path.
+	Heap<Integer,String> hh = new FibonacciHeap<Integer,String>();
+	hh.insert(new Integer(4), "four");
+	h.union(hh);
+	assert hh.isEmpty() && h.minimum().getValue().equals("four");
+	}
 	// DONE.
 	System.out.println("PASSED.");
-	}
     }
 }
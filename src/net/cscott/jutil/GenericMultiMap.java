@@ -197,6 +197,15 @@ public class GenericMultiMap<K,V> extends AbstractMultiMap<K,V> {
 	    return false;
     }
 
+    /** Returns an immutable copy of <code>this</code>, as a
+	{@link CompactMultiMap}, which takes a small fraction of the
+	space and can be cheaply inverted.  Later changes to
+	<code>this</code> do not affect the copy.
+    */
+    public CompactMultiMap<K,V> freeze() {
+	return new CompactMultiMap<K,V>(this);
+    }
+
     /** Returns a set view of the keys in this map. */
     public Set<K> keySet() {
 	return keySet;
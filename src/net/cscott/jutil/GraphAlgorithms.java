@@ -0,0 +1,423 @@
+// GraphAlgorithms.java, created Mon Oct 19 18:30:17 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+/**
+ * {@link GraphAlgorithms} contains the classic priority-queue-driven
+ * graph algorithms -- Dijkstra's shortest paths, bidirectional
+ * Dijkstra, A* search, and Prim's minimum spanning tree -- written
+ * once against any {@link Heap}, so that the best heap for a given
+ * workload can be chosen by measurement.  Each algorithm also has a
+ * version which takes an {@link IndexedDoubleHeap}; with it, and with
+ * result arrays supplied by the caller, each call allocates only a
+ * small queue adapter (and a {@link Stats} object if none is passed),
+ * however large the graph.  With a general {@link Heap}, each call
+ * also allocates an array with a slot for every vertex, and each
+ * queued vertex costs one {@link java.util.Map.Entry} and one boxed
+ * {@link Double}.
+ * <p>
+ * The graphs are {@link CSRGraph}s.  The shortest-path algorithms
+ * require non-negative edge weights; Prim's algorithm treats the graph
+ * as undirected, so each edge should be present in both directions.
+ * The heaps passed in are cleared before use, and must support
+ * <code>decreaseKey()</code> (so a {@link LeftistHeap} won't do).  An
+ * optional {@link Stats} object counts the heap operations and edge
+ * relaxations of each run.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ * @see CSRGraph
+ */
+public final class GraphAlgorithms {
+    private GraphAlgorithms() { } // no instances.
+
+    /** Counters for the work done by one or more runs of an algorithm.
+     *  Counts accumulate until {@link #reset()} is called. */
+    public static final class Stats {
+	/** Number of <code>insert()</code> operations on the heap. */
+	public long inserts;
+	/** Number of <code>extractMinimum()</code> operations. */
+	public long extractMins;
+	/** Number of <code>decreaseKey()</code> operations. */
+	public long decreaseKeys;
+	/** Number of edges examined. */
+	public long edgesScanned;
+	/** Number of edges which improved a tentative distance. */
+	public long relaxations;
+	/** Zero all counters. */
+	public void reset() {
+	    inserts = extractMins = decreaseKeys = edgesScanned = relaxations = 0;
+	}
+	public String toString() {
+	    return "[inserts="+inserts+", extractMins="+extractMins+
+		", decreaseKeys="+decreaseKeys+", edgesScanned="+edgesScanned+
+		", relaxations="+relaxations+"]";
+	}
+    }
+    /** An A* heuristic: a lower bound on the distance from a vertex to
+     *  the target.  It should be <i>consistent</i>: for every edge from
+     *  <code>u</code> to <code>v</code> with weight <code>w</code>,
+     *  <code>estimate(u) &lt;= w + estimate(v)</code>.  Vertices are
+     *  re-opened if it is not, which may cost time but not
+     *  correctness, as long as the estimate is never too large. */
+    public interface Heuristic {
+	/** Returns a lower bound on the distance from <code>v</code> to
+	 *  the target. */
+	public double estimate(int v);
+    }
+
+    /*------------------------------------------------------------*/
+    /** Computes shortest-path distances from <code>source</code>, using
+     *  the given heap.  On return <code>dist[v]</code> is the distance
+     *  to <code>v</code> (<code>Double.POSITIVE_INFINITY</code> if it is
+     *  unreachable) and <code>pred[v]</code> is the vertex before
+     *  <code>v</code> on a shortest path (-1 for the source and for
+     *  unreachable vertices).  If <code>target</code> is non-negative,
+     *  the search stops as soon as the target's distance is known, and
+     *  distances to vertices farther away than it are not final.
+     *  <code>pred</code> and <code>stats</code> may be
+     *  <code>null</code>.
+     * @return the distance to <code>target</code>, or 0 if
+     *         <code>target</code> is negative. */
+    public static double dijkstra(CSRGraph g, int source, int target,
+				  Heap<Double,Integer> heap, double[] dist,
+				  int[] pred, Stats stats) {
+	if (stats==null) stats = new Stats(); // not shared.
+	return dijkstra(g, source, target, new HeapQueue(heap, g, stats),
+			dist, pred, stats);
+    }
+    /** As above, using an {@link IndexedDoubleHeap}; allocates O(1)
+     *  space. */
+    public static double dijkstra(CSRGraph g, int source, int target,
+				  IndexedDoubleHeap heap, double[] dist,
+				  int[] pred, Stats stats) {
+	if (stats==null) stats = new Stats(); // not shared.
+	return dijkstra(g, source, target, new IndexedQueue(heap, stats),
+			dist, pred, stats);
+    }
+    private static double dijkstra(CSRGraph g, int source, int target,
+				   Queue q, double[] dist, int[] pred,
+				   Stats stats) {
+	return search(g, source, target, null, q, dist, pred, stats);
+    }
+
+    /** Finds the shortest-path distance from <code>source</code> to
+     *  <code>target</code> by searching forward from the source and
+     *  backward from the target at the same time, which usually
+     *  settles far fewer vertices than {@link #dijkstra}.
+     *  <code>reverse</code> must be <code>g.reverse()</code> (pass it
+     *  in so that it can be computed once).  On return
+     *  <code>distF</code> and <code>distB</code> hold the tentative
+     *  forward and backward distances, which are exact only for
+     *  vertices near the source and target respectively.
+     *  <code>stats</code> may be <code>null</code>.
+     * @return the distance from <code>source</code> to
+     *         <code>target</code>, or
+     *         <code>Double.POSITIVE_INFINITY</code> if it is
+     *         unreachable. */
+    public static double bidirectionalDijkstra
+	(CSRGraph g, CSRGraph reverse, int source, int target,
+	 Heap<Double,Integer> forward, Heap<Double,Integer> backward,
+	 double[] distF, double[] distB, Stats stats) {
+	if (stats==null) stats = new Stats(); // not shared.
+	return bidirectional(g, reverse, source, target,
+			     new HeapQueue(forward, g, stats),
+			     new HeapQueue(backward, g, stats),
+			     distF, distB, stats);
+    }
+    /** As above, using {@link IndexedDoubleHeap}s; allocates O(1)
+     *  space. */
+    public static double bidirectionalDijkstra
+	(CSRGraph g, CSRGraph reverse, int source, int target,
+	 IndexedDoubleHeap forward, IndexedDoubleHeap backward,
+	 double[] distF, double[] distB, Stats stats) {
+	if (stats==null) stats = new Stats(); // not shared.
+	return bidirectional(g, reverse, source, target,
+			     new IndexedQueue(forward, stats),
+			     new IndexedQueue(backward, stats),
+			     distF, distB, stats);
+    }
+    private static double bidirectional(CSRGraph g, CSRGraph r,
+					int s, int t, Queue qf, Queue qb,
+					double[] distF, double[] distB,
+					Stats stats) {
+	Arrays.fill(distF, 0, g.numVertices(), Double.POSITIVE_INFINITY);
+	Arrays.fill(distB, 0, g.numVertices(), Double.POSITIVE_INFINITY);
+	qf.clear(); qb.clear();
+	distF[s] = 0; qf.insert(s, 0);
+	distB[t] = 0; qb.insert(t, 0);
+	double mu = (s==t) ? 0 : Double.POSITIVE_INFINITY;
+	while (!qf.isEmpty() && !qb.isEmpty()) {
+	    double kf = qf.minimumKey(), kb = qb.minimumKey();
+	    if (kf + kb >= mu) break; // no shorter path remains.
+	    // expand the side with the smaller frontier key.
+	    boolean fwd = kf <= kb;
+	    CSRGraph gg = fwd ? g : r;
+	    Queue q = fwd ? qf : qb;
+	    double[] dist = fwd ? distF : distB, other = fwd ? distB : distF;
+	    int u = q.extractMinimum();
+	    double du = dist[u];
+	    for (int e=gg.firstEdge(u), end=gg.firstEdge(u+1); e<end; e++) {
+		stats.edgesScanned++;
+		int v = gg.target(e);
+		double nd = du + gg.weight(e);
+		if (nd < dist[v]) {
+		    stats.relaxations++;
+		    dist[v] = nd;
+		    if (q.contains(v)) q.decreaseKey(v, nd);
+		    else q.insert(v, nd);
+		}
+		if (dist[v] + other[v] < mu) mu = dist[v] + other[v];
+	    }
+	}
+	return mu;
+    }
+
+    /** Finds a shortest path from <code>source</code> to
+     *  <code>target</code> with A* search, guided by the given
+     *  heuristic.  <code>dist</code> and <code>pred</code> are as for
+     *  {@link #dijkstra}, but only vertices which were searched have
+     *  finite distances.  <code>pred</code> and <code>stats</code> may
+     *  be <code>null</code>.
+     * @return the distance from <code>source</code> to
+     *         <code>target</code>, or
+     *         <code>Double.POSITIVE_INFINITY</code> if it is
+     *         unreachable. */
+    public static double aStar(CSRGraph g, int source, int target,
+			       Heuristic h, Heap<Double,Integer> heap,
+			       double[] dist, int[] pred, Stats stats) {
+	if (stats==null) stats = new Stats(); // not shared.
+	return search(g, source, target, h, new HeapQueue(heap, g, stats),
+		      dist, pred, stats);
+    }
+    /** As above, using an {@link IndexedDoubleHeap}; allocates O(1)
+     *  space. */
+    public static double aStar(CSRGraph g, int source, int target,
+			       Heuristic h, IndexedDoubleHeap heap,
+			       double[] dist, int[] pred, Stats stats) {
+	if (stats==null) stats = new Stats(); // not shared.
+	return search(g, source, target, h, new IndexedQueue(heap, stats),
+		      dist, pred, stats);
+    }
+    /** Dijkstra's algorithm, or A* if <code>h</code> is non-null. */
+    private static double search(CSRGraph g, int source, int target,
+				 Heuristic h, Queue q, double[] dist,
+				 int[] pred, Stats stats) {
+	int n = g.numVertices();
+	Arrays.fill(dist, 0, n, Double.POSITIVE_INFINITY);
+	if (pred!=null) Arrays.fill(pred, 0, n, -1);
+	q.clear();
+	dist[source] = 0;
+	q.insert(source, (h==null) ? 0 : h.estimate(source));
+	while (!q.isEmpty()) {
+	    int u = q.extractMinimum();
+	    if (u==target) return dist[u];
+	    double du = dist[u];
+	    for (int e=g.firstEdge(u), end=g.firstEdge(u+1); e<end; e++) {
+		stats.edgesScanned++;
+		int v = g.target(e);
+		double nd = du + g.weight(e);
+		if (nd < dist[v]) {
+		    stats.relaxations++;
+		    dist[v] = nd;
+		    if (pred!=null) pred[v] = u;
+		    double key = (h==null) ? nd : nd + h.estimate(v);
+		    if (q.contains(v)) q.decreaseKey(v, key);
+		    else q.insert(v, key); // new, or re-opened by A*.
+		}
+	    }
+	}
+	return (target<0) ? 0 : Double.POSITIVE_INFINITY;
+    }
+
+    /** Computes a minimum spanning tree of the connected component
+     *  containing <code>root</code> with Prim's algorithm.  On return,
+     *  <code>parent[v]</code> is the parent of <code>v</code> in the
+     *  tree (-1 for the root and for vertices not in the component) and
+     *  <code>key[v]</code> is the weight of the edge to its parent
+     *  (<code>Double.POSITIVE_INFINITY</code> for vertices not in the
+     *  component).  <code>stats</code> may be <code>null</code>.
+     * @return the total weight of the tree. */
+    public static double prim(CSRGraph g, int root, Heap<Double,Integer> heap,
+			      int[] parent, double[] key, Stats stats) {
+	if (stats==null) stats = new Stats(); // not shared.
+	return prim(g, root, new HeapQueue(heap, g, stats), parent, key, stats);
+    }
+    /** As above, using an {@link IndexedDoubleHeap}; allocates O(1)
+     *  space. */
+    public static double prim(CSRGraph g, int root, IndexedDoubleHeap heap,
+			      int[] parent, double[] key, Stats stats) {
+	if (stats==null) stats = new Stats(); // not shared.
+	return prim(g, root, new IndexedQueue(heap, stats), parent, key, stats);
+    }
+    private static double prim(CSRGraph g, int root, Queue q,
+			       int[] parent, double[] key, Stats stats) {
+	int n = g.numVertices();
+	Arrays.fill(key, 0, n, Double.POSITIVE_INFINITY);
+	Arrays.fill(parent, 0, n, -1);
+	q.clear();
+	key[root] = 0;
+	q.insert(root, 0);
+	double total = 0;
+	while (!q.isEmpty()) {
+	    int u = q.extractMinimum();
+	    total += key[u];
+	    for (int e=g.firstEdge(u), end=g.firstEdge(u+1); e<end; e++) {
+		stats.edgesScanned++;
+		int v = g.target(e);
+		double w = g.weight(e);
+		// a vertex is in the tree iff it has a key and is not queued.
+		if (w < key[v] && (q.contains(v) || key[v]==Double.POSITIVE_INFINITY)) {
+		    stats.relaxations++;
+		    key[v] = w;
+		    parent[v] = u;
+		    if (q.contains(v)) q.decreaseKey(v, w);
+		    else q.insert(v, w);
+		}
+	    }
+	}
+	return total;
+    }
+
+    /*------------------------------------------------------------*/
+    /** The priority queue operations used by the algorithms, on
+     *  vertices with <code>double</code> keys. */
+    private static abstract class Queue {
+	final Stats stats;
+	Queue(Stats stats) { this.stats = stats; }
+	abstract void clear();
+	abstract boolean isEmpty();
+	abstract boolean contains(int v);
+	abstract double minimumKey();
+	abstract void insert(int v, double key);
+	abstract void decreaseKey(int v, double key);
+	abstract int extractMinimum();
+    }
+    /** A {@link Queue} backed by an {@link IndexedDoubleHeap}. */
+    private static final class IndexedQueue extends Queue {
+	final IndexedDoubleHeap h;
+	IndexedQueue(IndexedDoubleHeap h, Stats stats) { super(stats); this.h = h; }
+	void clear() { h.clear(); }
+	boolean isEmpty() { return h.isEmpty(); }
+	boolean contains(int v) { return h.contains(v); }
+	double minimumKey() { return h.minimumPriority(); }
+	void insert(int v, double key) { stats.inserts++; h.insert(v, key); }
+	void decreaseKey(int v, double key) {
+	    stats.decreaseKeys++; h.decreaseKey(v, key);
+	}
+	int extractMinimum() { stats.extractMins++; return h.extractMinimum(); }
+    }
+    /** A {@link Queue} backed by a general {@link Heap}, which keeps
+     *  the heap entry for each queued vertex. */
+    private static final class HeapQueue extends Queue {
+	final Heap<Double,Integer> h;
+	final Map.Entry<Double,Integer>[] entries;
+	HeapQueue(Heap<Double,Integer> h, CSRGraph g, Stats stats) {
+	    super(stats);
+	    this.h = h;
+	    this.entries = (Map.Entry<Double,Integer>[])
+		new Map.Entry[g.numVertices()];
+	}
+	void clear() { h.clear(); Arrays.fill(entries, null); }
+	boolean isEmpty() { return h.isEmpty(); }
+	boolean contains(int v) { return entries[v]!=null; }
+	double minimumKey() { return h.minimum().getKey().doubleValue(); }
+	void insert(int v, double key) {
+	    stats.inserts++;
+	    entries[v] = h.insert(Double.valueOf(key), Integer.valueOf(v));
+	}
+	void decreaseKey(int v, double key) {
+	    stats.decreaseKeys++;
+	    h.decreaseKey(entries[v], Double.valueOf(key));
+	}
+	int extractMinimum() {
+	    stats.extractMins++;
+	    int v = h.extractMinimum().getValue().intValue();
+	    entries[v] = null;
+	    return v;
+	}
+    }
+
+    /** Self-test function. */
+    public static void main(String[] args) {
+	// a small example: CLR figure 25.5 (Dijkstra).
+	int s=0, t=1, x=2, y=3, z=4;
+	CSRGraph g = new CSRGraph(5,
+	    new int[]    { s, s, t, t, y, y, y, x, z, z },
+	    new int[]    { t, y, x, y, t, x, z, z, s, x },
+	    new double[] {10, 5, 1, 2, 3, 9, 2, 4, 7, 6 });
+	double[] dist = new double[5];
+	int[] pred = new int[5];
+	Stats stats = new Stats();
+	dijkstra(g, s, -1, new FibonacciHeap<Double,Integer>(), dist, pred, stats);
+	assert Arrays.equals(dist, new double[] { 0, 8, 9, 5, 7 });
+	assert Arrays.equals(pred, new int[] { -1, y, t, s, y });
+	assert stats.extractMins==5 && stats.decreaseKeys > 0;
+	System.out.println(stats);
+	// compare all the heaps on random graphs.
+	Random r = new Random(8);
+	int n = 2000, m = 10000;
+	int[] src = new int[2*m], dst = new int[2*m];
+	double[] w = new double[2*m];
+	for (int i=0; i<m; i++) {
+	    src[2*i] = dst[2*i+1] = r.nextInt(n);
+	    dst[2*i] = src[2*i+1] = r.nextInt(n);
+	    w[2*i] = w[2*i+1] = r.nextInt(100);
+	}
+	g = new CSRGraph(n, src, dst, w);
+	CSRGraph rev = g.reverse();
+	double[] ref = new double[n], d2 = new double[n];
+	int[] par = new int[n];
+	dist = new double[n];
+	pred = new int[n];
+	dijkstra(g, 0, -1, new IndexedDoubleHeap(n), ref, null, null);
+	double mst = prim(g, 0, new IndexedDoubleHeap(n), par, d2, null);
+	java.util.List<Heap<Double,Integer>> heaps =
+	    new java.util.ArrayList<Heap<Double,Integer>>();
+	heaps.add(new BinaryHeap<Double,Integer>());
+	heaps.add(new BinomialHeap<Double,Integer>());
+	heaps.add(new FibonacciHeap<Double,Integer>());
+	heaps.add(new PairingHeap<Double,Integer>());
+	heaps.add(new IndexedDoubleHeap().asHeap());
+	for (Heap<Double,Integer> h : heaps) {
+	    dijkstra(g, 0, -1, h, dist, null, null);
+	    assert Arrays.equals(dist, ref) : h.getClass();
+	    assert prim(g, 0, h, par, d2, null)==mst;
+	}
+	// point-to-point queries.
+	IndexedDoubleHeap f = new IndexedDoubleHeap(n), b = new IndexedDoubleHeap(n);
+	double[] db = new double[n];
+	for (int i=0; i<20; i++) {
+	    int a = r.nextInt(n), c = r.nextInt(n);
+	    dijkstra(g, a, -1, f, ref, null, null);
+	    stats.reset();
+	    assert dijkstra(g, a, c, b, dist, pred, stats)==ref[c];
+	    long uni = stats.extractMins;
+	    stats.reset();
+	    assert bidirectionalDijkstra(g, rev, a, c, f, b, dist, db, stats)==ref[c];
+	    assert bidirectionalDijkstra(g, rev, a, c, new BinaryHeap<Double,Integer>(),
+					 new PairingHeap<Double,Integer>(),
+					 dist, db, null)==ref[c];
+	    // a zero heuristic is plain Dijkstra.
+	    Heuristic zero = new Heuristic() {
+		public double estimate(int v) { return 0; }
+	    };
+	    assert aStar(g, a, c, zero, f, dist, pred, null)==ref[c];
+	    assert aStar(g, a, c, zero, new BinaryHeap<Double,Integer>(),
+			 dist, pred, null)==ref[c];
+	    // follow the path back.
+	    if (ref[c] < Double.POSITIVE_INFINITY) {
+		int len = 0;
+		for (int v=c; v!=a; v=pred[v]) len++;
+		assert len <= n;
+	    }
+	    if (i==0) System.out.println("unidirectional extractMins: "+uni+
+					 ", bidirectional: "+stats);
+	}
+	System.out.println("PASSED.");
+    }
+}
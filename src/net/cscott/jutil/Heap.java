@@ -109,6 +109,9 @@ import java.util.Map;
  * @see BinaryHeap
  * @see BinomialHeap
  * @see FibonacciHeap
+ * @see PairingHeap
+ * @see LeftistHeap
+ * @see TimerWheel
  */
 public interface Heap<K,V> {
     /** Inserts a node with the specified key and value into the
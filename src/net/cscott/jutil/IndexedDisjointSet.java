@@ -0,0 +1,99 @@
+// IndexedDisjointSet.java, created Tue Oct 20 09:52:03 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+/**
+ * {@link IndexedDisjointSet} is a disjoint-set forest over objects
+ * which an {@link Indexer} numbers densely, kept in a
+ * {@link DisjointIntSet} instead of the map and node objects of a
+ * {@link DisjointSet}.  {@link #find(Object)} needs an
+ * {@link Indexer} which
+ * {@link Indexer#implementsReverseMapping() implements the reverse
+ * mapping}; the other methods work with any {@link Indexer}.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ */
+public class IndexedDisjointSet<E> {
+    private final Indexer<E> indexer;
+    private final DisjointIntSet ds;
+
+    /** Creates an {@link IndexedDisjointSet} using the given
+     *  {@link Indexer}. */
+    public IndexedDisjointSet(Indexer<E> indexer) {
+	this(indexer, new DisjointIntSet());
+    }
+    /** Creates an {@link IndexedDisjointSet} using the given
+     *  {@link Indexer}, with room for the objects whose indices are
+     *  less than <code>capacity</code>. */
+    public IndexedDisjointSet(Indexer<E> indexer, int capacity) {
+	this(indexer, new DisjointIntSet(capacity));
+    }
+    private IndexedDisjointSet(Indexer<E> indexer, DisjointIntSet ds) {
+	this.indexer = indexer;
+	this.ds = ds;
+    }
+
+    /** Unites the sets that contain <code>o1</code> and
+     *  <code>o2</code>.  If both were previously singletons, the
+     *  representative of the union is <code>o2</code>.
+     *  @return <code>false</code> if they were already in the same
+     *  set. */
+    public boolean union(E o1, E o2) {
+	return ds.union(indexer.getID(o1), indexer.getID(o2));
+    }
+    /** Returns the representative of the set containing
+     *  <code>o</code>.
+     *  @exception UnsupportedOperationException if the
+     *  {@link Indexer} does not implement <code>getByID()</code>. */
+    public E find(E o) {
+	int id = indexer.getID(o);
+	int r = ds.find(id);
+	return (r == id) ? o : indexer.getByID(r);
+    }
+    /** Determines if <code>o1</code> and <code>o2</code> are in the
+     *  same set. */
+    public boolean sameSet(E o1, E o2) {
+	return ds.sameSet(indexer.getID(o1), indexer.getID(o2));
+    }
+    /** Determines if there is a set of more than one element
+     *  containing <code>o</code>. */
+    public boolean contains(E o) { return ds.contains(indexer.getID(o)); }
+
+    /** Self-test method. */
+    public static void main(String[] args) {
+	final List<String> byID = new ArrayList<String>();
+	final Map<String,Integer> ids = new HashMap<String,Integer>();
+	Indexer<String> ix = new Indexer<String>() {
+	    public int getID(String o) {
+		Integer i = ids.get(o);
+		if (i == null) {
+		    i = new Integer(byID.size());
+		    ids.put(o, i);
+		    byID.add(o);
+		}
+		return i.intValue();
+	    }
+	    public String getByID(int id) { return byID.get(id); }
+	    public boolean implementsReverseMapping() { return true; }
+	};
+	IndexedDisjointSet<String> ds = new IndexedDisjointSet<String>(ix);
+	String a="a", b="b", c="c", d="d", e="e", f="f", g="g", h="h";
+	assert !ds.contains(a) && ds.find(a)==a;
+	ds.union(e, c); ds.union(b, h); ds.union(h, c);
+	assert ds.find(e)==ds.find(c) && ds.find(h)==ds.find(e);
+	assert ds.find(b)==ds.find(c) && ds.find(b)!=ds.find(a);
+	assert ds.sameSet(b, e) && !ds.sameSet(a, b);
+	ds.union(d, f); ds.union(g, d);
+	assert ds.find(d)==ds.find(f) && ds.find(f)==ds.find(g);
+	assert ds.union(c, f) && !ds.union(e, g);
+	assert ds.find(e)==ds.find(f) && ds.find(a)==a;
+	assert ds.contains(e) && !ds.contains(a);
+	System.err.println("PASSED.");
+    }
+}
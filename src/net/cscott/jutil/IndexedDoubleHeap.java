@@ -0,0 +1,231 @@
+// IndexedDoubleHeap.java, created Mon Oct 19 09:40:02 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+/**
+ * {@link IndexedDoubleHeap} is a d-ary min-heap of <code>int</code>
+ * element ids ordered by <code>double</code> priorities.  Unlike the
+ * general {@link Heap} implementations, it never allocates a
+ * {@link java.util.Map.Entry} or boxes a key: element ids, priorities,
+ * and the id-to-position index all live in primitive arrays.  This
+ * makes it well suited to algorithms like Dijkstra's, whose elements
+ * are already numbered densely from zero.
+ * <p>
+ * Each id may be in the heap at most once.  Insert, extract-min,
+ * decrease-key, update-key and delete take O(d log<sub>d</sub> n)
+ * time; minimum and membership tests take O(1).  Priorities are
+ * compared with the primitive <code>&lt;</code> operator, so
+ * <code>NaN</code> priorities are not permitted.  Use
+ * {@link #asHeap()} to pass this heap where a {@link Heap} is expected.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ * @see IndexedLongHeap
+ */
+public final class IndexedDoubleHeap extends AbstractIndexedHeap<Double> {
+    /** Priorities, in heap order: <code>prio[i]</code> is the priority
+     *  of element <code>heap[i]</code>. */
+    private double[] prio;
+
+    /** Creates an empty 4-ary {@link IndexedDoubleHeap}. */
+    public IndexedDoubleHeap() { this(16); }
+    /** Creates an empty 4-ary {@link IndexedDoubleHeap} with room for
+     *  ids less than <code>capacity</code>. */
+    public IndexedDoubleHeap(int capacity) { this(capacity, 4); }
+    /** Creates an empty {@link IndexedDoubleHeap} with room for
+     *  ids less than <code>capacity</code>, in which every node has
+     *  <code>arity</code> children.
+     * @exception IllegalArgumentException if <code>arity</code> is not
+     *            a power of two. */
+    public IndexedDoubleHeap(int capacity, int arity) {
+	super(capacity, arity);
+	this.prio = new double[heap.length];
+    }
+
+    /** Inserts the element <code>id</code> with the given priority.
+     * @exception IllegalArgumentException if <code>id</code> is negative
+     *            or already in the heap, or the priority is NaN. */
+    public void insert(int id, double priority) {
+	checkPriority(priority);
+	prepareInsert(id);
+	siftUp(size++, id, priority);
+    }
+    /** Returns the priority of the element <code>id</code>.
+     * @exception NoSuchElementException if <code>id</code> is not in
+     *            the heap. */
+    public double priority(int id) { return prio[position(id)]; }
+    /** Returns the smallest priority in the heap.
+     * @exception NoSuchElementException if the heap is empty. */
+    public double minimumPriority() {
+	if (size==0) throw new NoSuchElementException();
+	return prio[0];
+    }
+    /** Removes an element with minimal priority from the heap and
+     *  returns its id.
+     * @exception NoSuchElementException if the heap is empty. */
+    public int extractMinimum() {
+	if (size==0) throw new NoSuchElementException();
+	int min = heap[0];
+	pos[min] = -1;
+	int last = --size;
+	if (last > 0) siftDown(0, heap[last], prio[last]);
+	return min;
+    }
+    /** Replaces the priority of the element <code>id</code> with the
+     *  given <b>smaller</b> priority.
+     * @exception UnsupportedOperationException if the new priority is
+     *            greater than the current one. */
+    public void decreaseKey(int id, double priority) {
+	int i = position(id);
+	checkPriority(priority);
+	if (priority > prio[i])
+	    throw new UnsupportedOperationException("New key is greater than "+
+						    "current key.");
+	siftUp(i, id, priority);
+    }
+    /** Replaces the priority of the element <code>id</code> with the
+     *  given priority, which may be larger or smaller than the current
+     *  one. */
+    public void updateKey(int id, double priority) {
+	int i = position(id);
+	checkPriority(priority);
+	if (priority < prio[i]) siftUp(i, id, priority);
+	else siftDown(i, id, priority);
+    }
+    /** Removes the element <code>id</code> from the heap.
+     * @exception NoSuchElementException if <code>id</code> is not in
+     *            the heap. */
+    public void delete(int id) {
+	int i = position(id);
+	pos[id] = -1;
+	int last = --size;
+	if (i == last) return;
+	// fill the hole with the last element, and move it up or down.
+	int e = heap[last];
+	double p = prio[last];
+	if (p < prio[i]) siftUp(i, e, p);
+	else siftDown(i, e, p);
+    }
+
+    /** Move element <code>id</code> with priority <code>p</code> up
+     *  from the hole at position <code>i</code>. */
+    private void siftUp(int i, int id, double p) {
+	while (i > 0) {
+	    int parent = (i-1) >>> shift;
+	    double pp = prio[parent];
+	    if (!(p < pp)) break;
+	    int pe = heap[parent];
+	    heap[i] = pe; prio[i] = pp; pos[pe] = i;
+	    i = parent;
+	}
+	heap[i] = id; prio[i] = p; pos[id] = i;
+    }
+    /** Move element <code>id</code> with priority <code>p</code> down
+     *  from the hole at position <code>i</code>. */
+    private void siftDown(int i, int id, double p) {
+	int n = size;
+	for (int c = (i << shift) + 1; c < n; c = (i << shift) + 1) {
+	    // find the smallest child.
+	    int end = Math.min(c + arity, n), best = c;
+	    double bp = prio[c];
+	    for (int j = c+1; j < end; j++)
+		if (prio[j] < bp) { best = j; bp = prio[j]; }
+	    if (!(bp < p)) break;
+	    int be = heap[best];
+	    heap[i] = be; prio[i] = bp; pos[be] = i;
+	    i = best;
+	}
+	heap[i] = id; prio[i] = p; pos[id] = i;
+    }
+    private static void checkPriority(double p) {
+	if (p != p) throw new IllegalArgumentException("NaN priority");
+    }
+
+    void growPriorities(int capacity) {
+	double[] nprio = new double[capacity];
+	System.arraycopy(prio, 0, nprio, 0, size);
+	prio = nprio;
+    }
+    Double boxedPriority(int id) { return Double.valueOf(priority(id)); }
+    void insertBoxed(int id, Double p) { insert(id, p.doubleValue()); }
+    void decreaseKeyBoxed(int id, Double p) { decreaseKey(id, p.doubleValue()); }
+    void updateKeyBoxed(int id, Double p) { updateKey(id, p.doubleValue()); }
+
+    // verify the heap condition.
+    private void checkHeap() {
+	for (int i=1; i<size; i++)
+	    assert prio[(i-1)>>>shift] <= prio[i];
+	for (int i=0; i<size; i++)
+	    assert pos[heap[i]] == i;
+    }
+
+    /** Self-test function. */
+    public static void main(String[] args) {
+	for (int arity = 2; arity <= 8; arity *= 2) {
+	    IndexedDoubleHeap h = new IndexedDoubleHeap(4, arity);
+	    assert h.isEmpty() && h.size()==0;
+	    // example from CLR, page 146/151
+	    int el[] = { -4, -1, -3, -2, -16, -9, -10, -14, -8, -7 };
+	    for (int i=0; i<el.length; i++)
+		h.insert(i+10, el[i]);
+	    assert h.size()==10 && h.minimum()==14;
+	    assert h.minimumPriority()==-16;
+	    h.decreaseKey(10, -20); // -4
+	    assert h.minimum()==10;
+	    h.updateKey(10, 0);
+	    h.delete(17); // -14
+	    assert !h.contains(17) && h.contains(18);
+	    double last = Double.NEGATIVE_INFINITY;
+	    int count = 0;
+	    while (!h.isEmpty()) {
+		double p = h.minimumPriority();
+		h.extractMinimum();
+		assert last <= p;
+		last = p; count++;
+	    }
+	    assert count==9 && last==0;
+	    // random tests against a reference array.
+	    Random r = new Random(arity);
+	    double[] ref = new double[1000];
+	    for (int i=0; i<ref.length; i++) {
+		ref[i] = r.nextInt(500);
+		h.insert(i, ref[i]);
+	    }
+	    for (int i=0; i<5000; i++) {
+		int id = r.nextInt(ref.length);
+		if (!h.contains(id)) { ref[id]=r.nextInt(500); h.insert(id, ref[id]); }
+		else if (r.nextBoolean()) { ref[id]-=r.nextInt(50); h.decreaseKey(id, ref[id]); }
+		else if (r.nextBoolean()) { ref[id]=r.nextInt(500); h.updateKey(id, ref[id]); }
+		else h.delete(id);
+		h.checkHeap();
+		assert !h.contains(id) || h.priority(id)==ref[id];
+	    }
+	    for (last = Double.NEGATIVE_INFINITY; !h.isEmpty(); ) {
+		int id = h.minimum();
+		assert ref[id]==h.minimumPriority() && last <= ref[id];
+		last = ref[id];
+		assert h.extractMinimum()==id && !h.contains(id);
+	    }
+	}
+	// test the Heap view (tests borrowed from BinaryHeap.java)
+	Heap<Double,Integer> h = new IndexedDoubleHeap().asHeap();
+	Map.Entry<Double,Integer> e3 = h.insert(3.0, 3);
+	Map.Entry<Double,Integer> e1 = h.insert(1.0, 1);
+	h.insert(2.0, 2);
+	assert h.size()==3 && h.minimum().getValue().intValue()==1;
+	h.decreaseKey(e3, 0.5);
+	assert h.minimum().equals(e3) && e3.getKey().doubleValue()==0.5;
+	h.delete(e1);
+	assert h.size()==2 && e1.getKey().doubleValue()==1.0;
+	h.updateKey(e3, 5.0);
+	assert h.extractMinimum().getValue().intValue()==2;
+	Map.Entry<Double,Integer> e = h.extractMinimum();
+	assert e.getValue().intValue()==3 && e.getKey().doubleValue()==5.0;
+	assert h.isEmpty();
+	System.out.println("PASSED.");
+    }
+}
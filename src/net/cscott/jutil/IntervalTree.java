@@ -21,6 +21,7 @@ import java.util.Iterator;
     <p> To make use of an {@link IntervalTree} cleaner, a
     convenience method, <code>addInterval</code> is provided.
     @see IntervalTree#addInterval
+    @see LongIntervalTree
 
     @see "CLR section 15.3, (page 290)."  */
 public class IntervalTree extends RedBlackTree { 
@@ -77,11 +78,13 @@ public class IntervalTree extends RedBlackTree {
         if (p==NIL)
             return;
 
-        if (p.left() == NIL || p.right() == NIL)
-            setMax(p, interval(p).high);
-        else
-            setMax(p, Math.max( max(p.left()), max(p.right()) ));
+        int m = interval(p).high;
+        if (p.left() != NIL)  m = Math.max(m, max(p.left()));
+        if (p.right() != NIL) m = Math.max(m, max(p.right()));
+        setMax(p, m);
     }
+    protected void subtreeChanged(Node x) { fixMax(x); }
+    protected RedBlackTree makeTree() { return new IntervalTree(this); }
     private void setMax(Node n, int m) { ((IntervalNode) n).max = m; }
     
     private Interval interval(Node n) { return (Interval) n.key; }
@@ -89,6 +92,9 @@ public class IntervalTree extends RedBlackTree {
 
     /** Constructs a new empty {@link IntervalTree}. */
     public IntervalTree() { super(Interval.COMPARE); }
+    /** Constructs a new empty {@link IntervalTree} which can
+	exchange nodes with <code>sibling</code>. */
+    protected IntervalTree(IntervalTree sibling) { super(sibling); }
     
     /** Returns some {@link Interval} in <code>this</code> which
 	overlaps the bounds defined by the argument interval
@@ -140,6 +146,70 @@ public class IntervalTree extends RedBlackTree {
 	    return allOverlapping(x.right(), i);
 	}
     }
+    /** Callback for the allocation-free queries
+	{@link IntervalTree#forEachOverlapping} and
+	{@link IntervalTree#forEachContaining}. */
+    public interface Visitor {
+	/** Called once for each {@link Interval} found.  Returns
+	    <code>false</code> to stop the search, or <code>true</code>
+	    to continue it. */
+	public boolean visit(Interval i);
+    }
+
+    /** Calls <code>v.visit()</code> on every {@link Interval} in
+	<code>this</code> which overlaps [<code>low</code>,
+	<code>high</code>], in order of low endpoint, until it returns
+	<code>false</code>.  Unlike <code>allOverlapping</code>, this
+	allocates nothing.  Takes O(min(n, (k+1) lg n)) time, where k
+	is the number of intervals visited: the intervals found need
+	not be adjacent in order of low endpoint (see CLR, exercise
+	14.3-4), and even a search which finds nothing takes O(lg n).
+	Returns <code>false</code> if the visitor stopped the search.
+    */
+    public boolean forEachOverlapping(int low, int high, Visitor v) {
+	return forEachOverlapping(root(), low, high, v);
+    }
+    private boolean forEachOverlapping(Node x, int low, int high, Visitor v) {
+	// recurse on the left, iterate on the right.
+	for ( ; x != NIL && max(x) >= low; x = x.right()) {
+	    if (!forEachOverlapping(x.left(), low, high, v)) return false;
+	    Interval i = interval(x);
+	    if (i.low > high) break; // so is everything to the right.
+	    if (i.high >= low && !v.visit(i)) return false;
+	}
+	return true;
+    }
+    /** Calls <code>v.visit()</code> on every {@link Interval} in
+	<code>this</code> which contains the point <code>p</code>, in
+	order of low endpoint, until it returns <code>false</code>.
+	Returns <code>false</code> if the visitor stopped the search.
+    */
+    public boolean forEachContaining(int p, Visitor v) {
+	return forEachOverlapping(root(), p, p, v);
+    }
+    /** Returns the number of {@link Interval}s in <code>this</code>
+	which overlap [<code>low</code>,<code>high</code>], without
+	allocating anything. */
+    public int countOverlapping(int low, int high) {
+	return countOverlapping(root(), low, high);
+    }
+    private int countOverlapping(Node x, int low, int high) {
+	int n = 0;
+	for ( ; x != NIL && max(x) >= low; x = x.right()) {
+	    n += countOverlapping(x.left(), low, high);
+	    Interval i = interval(x);
+	    if (i.low > high) break;
+	    if (i.high >= low) n++;
+	}
+	return n;
+    }
+    /** Returns the number of {@link Interval}s in <code>this</code>
+	which contain the point <code>p</code>, without allocating
+	anything. */
+    public int countContaining(int p) {
+	return countOverlapping(root(), p, p);
+    }
+
     /** Constructs a new {@link Interval} <i>i</i> and adds
 	<i>i</i> to <code>this</code>. 
 	Convenience method.
@@ -175,6 +245,72 @@ public class IntervalTree extends RedBlackTree {
 	System.out.println(t.dump());
 	testSearchOverlap(t,22,25);
 	testSearchOverlap(t,11,14);
+
+	// the callback queries agree with allOverlapping.
+	final StringBuffer sb = new StringBuffer();
+	Visitor print = new Visitor() {
+	    public boolean visit(Interval i) {
+		sb.append(i.datum+" ");
+		return true;
+	    }
+	};
+	assert t.forEachOverlapping(8, 16, print);
+	assert sb.toString().equals("5-8 6-10 8-9 15-23 16-21 ") : sb;
+	int n = 0;
+	for (Iterator it = t.allOverlapping(new Interval(null, 8, 16));
+	     it.hasNext(); it.next())
+	    n++;
+	assert n == 5 && t.countOverlapping(8, 16) == 5;
+	assert t.countOverlapping(11, 14) == 0;
+	assert t.countContaining(26) == 2 && t.countContaining(4) == 0;
+	sb.setLength(0);
+	t.forEachContaining(19, print);
+	assert sb.toString().equals("15-23 16-21 17-19 19-20 ") : sb;
+	// early termination.
+	final int[] seen = new int[1];
+	assert !t.forEachOverlapping(0, 100, new Visitor() {
+	    public boolean visit(Interval i) { return ++seen[0] < 3; }
+	});
+	assert seen[0] == 3;
+
+	// random intervals, against brute force.
+	java.util.Random r = new java.util.Random(1);
+	java.util.List ivals = new java.util.ArrayList();
+	t = new IntervalTree();
+	for (int i=0; i<2000; i++) {
+	    int lo = r.nextInt(10000);
+	    ivals.add(t.addInterval(null, lo, lo+r.nextInt(i%10==0 ? 3000 : 50)));
+	}
+	for (int q=0; q<200; q++) {
+	    int lo = r.nextInt(10000), hi = lo + r.nextInt(100), expect = 0;
+	    for (Iterator it = ivals.iterator(); it.hasNext(); )
+		if (((Interval) it.next()).overlaps(new Interval(null, lo, hi)))
+		    expect++;
+	    assert t.countOverlapping(lo, hi) == expect;
+	}
+	// split and join keep the max fields up to date.
+	IntervalTree u = (IntervalTree) t.split(new Interval(null, 5000, 5000));
+	for (int q=0; q<200; q++) {
+	    int lo = r.nextInt(10000), hi = lo + r.nextInt(100);
+	    int el = 0, eu = 0;
+	    for (Iterator it = ivals.iterator(); it.hasNext(); ) {
+		Interval i = (Interval) it.next();
+		if (i.overlaps(new Interval(null, lo, hi))) {
+		    if (i.low < 5000) el++; else eu++;
+		}
+	    }
+	    assert t.countOverlapping(lo, hi) == el;
+	    assert u.countOverlapping(lo, hi) == eu;
+	}
+	t.join(u);
+	for (int q=0; q<200; q++) {
+	    int lo = r.nextInt(10000), hi = lo + r.nextInt(100), expect = 0;
+	    for (Iterator it = ivals.iterator(); it.hasNext(); )
+		if (((Interval) it.next()).overlaps(new Interval(null, lo, hi)))
+		    expect++;
+	    assert t.countOverlapping(lo, hi) == expect;
+	}
+	System.out.println("PASSED.");
     }
 
     private static void addTestIval(IntervalTree t, int low, int high) {
@@ -0,0 +1,198 @@
+// LeftistHeap.java, created Mon Oct 19 16:41:27 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+/**
+ * A {@link LeftistHeap} is a mutable {@link Heap} backed by an
+ * immutable {@link PersistentHeap}.  Each operation replaces the
+ * backing heap with a new version, so {@link #clone()} and
+ * {@link #snapshot()} take O(1) time and the copies share structure;
+ * this suits searches which branch a priority queue at every step.
+ * Insert, extract-min and union take O(lg n) time.  Delete must
+ * first search for the entry, which takes O(n) time in the worst case.
+ * <p>
+ * Since entries are shared between clones, they are immutable, and
+ * so <code>decreaseKey()</code> and <code>updateKey()</code> are not
+ * supported: they could not keep the caller's entry in the heap.
+ * Delete the entry and insert a new one instead.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ * @see PersistentHeap
+ */
+public class LeftistHeap<K,V> extends AbstractHeap<K,V> implements Cloneable {
+    private PersistentHeap<K,V> h;
+
+    /** Creates a new, empty {@link LeftistHeap}, sorted according to
+     *  its keys' natural order.  O(1) time. */
+    public LeftistHeap() { this((Comparator<K>)null); }
+    /** Creates a new, empty {@link LeftistHeap}, sorted according to
+     *  the given {@link Comparator}.  O(1) time. */
+    public LeftistHeap(Comparator<K> c) {
+	this(new PersistentHeap<K,V>(c));
+    }
+    /** Constructs a new heap with the same entries as the specified
+     *  {@link Heap}.  O(n) time. */
+    public LeftistHeap(Heap<K,? extends V> h) {
+	this(h.entries(), h.comparator());
+    }
+    /** Constructs a new heap from a collection of
+     *  {@link java.util.Map.Entry}s and a key comparator.  O(n) time. */
+    public LeftistHeap(Collection<? extends Map.Entry<? extends K,? extends V>> collection, Comparator<K> comparator) {
+	this(new PersistentHeap<K,V>(collection, comparator));
+    }
+    /** Creates a new {@link LeftistHeap} whose initial contents are the
+     *  entries of the given {@link PersistentHeap}.  O(1) time. */
+    public LeftistHeap(PersistentHeap<K,V> h) {
+	super(h.comparator());
+	this.h = h;
+    }
+
+    /** Returns the current contents of this heap as a
+     *  {@link PersistentHeap}, which will not change as this heap
+     *  does.  O(1) time. */
+    public PersistentHeap<K,V> snapshot() { return h; }
+    /** Returns a copy of this heap, which shares its structure with
+     *  this one.  O(1) time. */
+    public LeftistHeap<K,V> clone() {
+	try {
+	    return (LeftistHeap<K,V>) super.clone();
+	} catch (CloneNotSupportedException e) {
+	    throw new RuntimeException(e); // can't happen.
+	}
+    }
+
+    /** Insert an entry into the heap.  O(lg n) time. */
+    public Map.Entry<K,V> insert(K key, V value) {
+	PersistentHeap.Entry<K,V> e = new PersistentHeap.Entry<K,V>(key, value);
+	h = h.insert(e);
+	return e;
+    }
+    /** Returns an entry with minimal key.  O(1) time. */
+    public Map.Entry<K,V> minimum() { return h.minimum(); }
+    /** Remove and return an entry with minimal key.  O(lg n) time. */
+    public Map.Entry<K,V> extractMinimum() {
+	Map.Entry<K,V> e = h.minimum();
+	h = h.removeMinimum();
+	return e;
+    }
+    /** Merges the entries of the given heap into this one, leaving
+     *  the given heap empty.  O(lg n) time if the given heap is also a
+     *  {@link LeftistHeap} with the same comparator. */
+    public void union(Heap<? extends K,? extends V> hh) {
+	if (hh instanceof LeftistHeap &&
+	    entryComparator().equals(((LeftistHeap)hh).entryComparator())) {
+	    // the unsafe cast below from K2 to K and V2 to V should really be
+	    // safe if the entryComparators for the two Heaps are identical.
+	    LeftistHeap<K,V> lh = (LeftistHeap<K,V>) hh;
+	    if (lh==this) return;
+	    h = h.union(lh.h);
+	    lh.clear();
+	} else super.union(hh);
+    }
+    /** Not supported: entries are immutable.
+     * @exception UnsupportedOperationException always. */
+    public void decreaseKey(Map.Entry<K,V> me, K newkey) {
+	throw new UnsupportedOperationException
+	    ("LeftistHeap does not support decreaseKey()");
+    }
+    /** Not supported: entries are immutable.
+     * @exception UnsupportedOperationException always. */
+    public void updateKey(Map.Entry<K,V> me, K newkey) {
+	throw new UnsupportedOperationException
+	    ("LeftistHeap does not support updateKey()");
+    }
+    /** Remove the specified entry from this heap.  O(n) time.
+     * @exception java.util.NoSuchElementException if the entry is not
+     *            in this heap. */
+    public void delete(Map.Entry<K,V> me) {
+	PersistentHeap<K,V> nh = h.remove(me);
+	if (nh==h)
+	    throw new java.util.NoSuchElementException("Entry is not in heap.");
+	h = nh;
+    }
+    public int size() { return h.size(); }
+    public void clear() { h = new PersistentHeap<K,V>(h.comparator()); }
+    public Collection<Map.Entry<K,V>> entries() { return h.entries(); }
+
+    /** Self-test function. */
+    public static void main(String[] args) {
+	{
+	// (tests borrowed from BinaryHeap.java)
+	LeftistHeap<String,String> h = new LeftistHeap<String,String>();
+	assert h.size()==0 && h.isEmpty();
+	ArrayList<Map.Entry<String,String>> mel =
+	    new ArrayList<Map.Entry<String,String>>();
+	mel.add(h.insert("C", "c1"));
+	mel.add(h.insert("S", "s1"));
+	mel.add(h.insert("A", "a"));
+	mel.add(h.insert("S", "s2"));
+	mel.add(h.insert("C", "c2"));
+	mel.add(h.insert("O", "o"));
+	mel.add(h.insert("T", "t1"));
+	mel.add(h.insert("T", "t2"));
+	mel.add(h.insert("Z", "z"));
+	mel.add(h.insert("M", "m"));
+
+	LeftistHeap<String,String> copy = h.clone();
+	assert h.extractMinimum().getValue().equals("a");
+	System.out.println(h);
+	// rekeying would have to replace the entry, so it isn't allowed.
+	try {
+	    h.decreaseKey(mel.get(3), "B"); // s2
+	    assert false : "decreaseKey should be unsupported";
+	} catch (UnsupportedOperationException ex) { /* expected */ }
+	try {
+	    h.updateKey(mel.get(9), "P"); // m
+	    assert false : "updateKey should be unsupported";
+	} catch (UnsupportedOperationException ex) { /* expected */ }
+	assert h.size()==9 && h.find("S")!=null;
+	h.delete(mel.get(3)); // s2
+	h.insert("B", "s2");
+	assert h.extractMinimum().getValue().equals("s2");
+	h.delete(mel.get(4)); // c2
+	assert h.extractMinimum().getValue().equals("c1");
+	System.out.println(h);
+	h.delete(mel.get(9)); // m
+	h.insert("P", "m");
+	assert h.extractMinimum().getValue().equals("o");
+	assert h.extractMinimum().getValue().equals("m");
+	System.out.println(h);
+	// the clone is unaffected, and its entries are still valid.
+	assert copy.size()==10 && copy.minimum()==mel.get(2);
+	copy.delete(mel.get(4));
+	assert copy.size()==9;
+	assert h.size()==4 && h.snapshot().size()==4;
+	}{
+	// union of two leftist heaps empties the argument.
+	LeftistHeap<Integer,Integer> a = new LeftistHeap<Integer,Integer>();
+	LeftistHeap<Integer,Integer> b = new LeftistHeap<Integer,Integer>();
+	java.util.Random r = new java.util.Random(6);
+	for (int i=0; i<1000; i++) {
+	    a.insert(new Integer(r.nextInt(1000)), null);
+	    b.insert(new Integer(r.nextInt(1000)), null);
+	}
+	PersistentHeap<Integer,Integer> snap = a.snapshot();
+	a.union(b);
+	assert a.size()==2000 && b.isEmpty() && snap.size()==1000;
+	a.union(new BinaryHeap<Integer,Integer>
+		(Collections.singleton(new PairMapEntry<Integer,Integer>
+				       (new Integer(-1), null)), null));
+	assert a.size()==2001 && a.minimum().getKey().intValue()==-1;
+	int last = Integer.MIN_VALUE;
+	while (!a.isEmpty()) {
+	    int k = a.extractMinimum().getKey().intValue();
+	    assert last <= k;
+	    last = k;
+	}
+	}
+	// DONE.
+	System.out.println("PASSED.");
+    }
+}
@@ -0,0 +1,520 @@
+// LongIntervalTree.java, created Mon Oct 19 21:12:50 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+/**
+ * A {@link LongIntervalTree} is a mutable collection of closed
+ * intervals with <code>long</code> endpoints, each carrying a datum of
+ * type <code>T</code>, which supports efficient lookup of the
+ * intervals overlapping a given range.  It is a red-black tree
+ * ordered by the intervals' low endpoints and augmented with the
+ * largest high endpoint in each subtree, as in {@link IntervalTree},
+ * but it is typed, stores its endpoints as primitives, and can be
+ * built from a batch of intervals in O(n lg n) time -- a sort followed
+ * by an O(n) balanced build -- rather than by n separate insertions.
+ * <p>
+ * The {@link Interval} objects are the nodes of the tree, so an
+ * interval can belong to only one tree at a time, and can be removed
+ * in O(lg n) time without a search.  Adding, removing and querying
+ * never allocate, except that the bulk build sorts a copy of its
+ * input.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ * @see IntervalTree
+ * @see "CLR section 15.3, (page 290)."
+ */
+public class LongIntervalTree<T> extends AbstractCollection<LongIntervalTree.Interval<T>> {
+    /** A closed interval [<code>low</code>,<code>high</code>] holding
+     *  a datum.  The endpoints and datum are immutable. */
+    public static final class Interval<T> {
+	public final long low;
+	public final long high;
+	public final T datum;
+	// tree structure.
+	Interval<T> left, right, parent;
+	/** Largest <code>high</code> in the subtree rooted here. */
+	long max;
+	boolean red;
+	/** The tree this interval belongs to, or <code>null</code>. */
+	LongIntervalTree<T> tree;
+
+	/** Creates an interval [<code>low</code>,<code>high</code>]
+	 *  holding <code>datum</code>, which may be <code>null</code>.
+	 * @exception IllegalArgumentException if <code>low &gt; high</code>. */
+	public Interval(T datum, long low, long high) {
+	    if (low > high)
+		throw new IllegalArgumentException("Empty interval: ["+
+						   low+","+high+"]");
+	    this.low = low; this.high = high; this.datum = datum;
+	    this.max = high;
+	}
+	/** Returns true if this interval and [<code>low</code>,
+	 *  <code>high</code>] have a point in common. */
+	public boolean overlaps(long low, long high) {
+	    return this.low <= high && this.high >= low;
+	}
+	/** Returns true if this interval and <code>i</code> have a point
+	 *  in common. */
+	public boolean overlaps(Interval<?> i) {
+	    return overlaps(i.low, i.high);
+	}
+	public String toString() { return "["+low+","+high+"]="+datum; }
+    }
+    /** Orders intervals by low endpoint, then by high endpoint. */
+    private static final Comparator<Interval<?>> ORDER =
+	new Comparator<Interval<?>>() {
+	    public int compare(Interval<?> a, Interval<?> b) {
+		if (a.low != b.low) return (a.low < b.low) ? -1 : 1;
+		if (a.high != b.high) return (a.high < b.high) ? -1 : 1;
+		return 0;
+	    }
+	};
+
+    /** Sentinel: the children of the leaves and the parent of the
+     *  root.  Its <code>max</code> is smaller than any endpoint. */
+    private final Interval<T> NIL;
+    private Interval<T> root;
+    private int size = 0;
+
+    /** Constructs a new empty {@link LongIntervalTree}. */
+    public LongIntervalTree() {
+	this.NIL = new Interval<T>(null, Long.MIN_VALUE, Long.MIN_VALUE);
+	NIL.left = NIL.right = NIL.parent = NIL;
+	this.root = NIL;
+    }
+    /** Constructs a {@link LongIntervalTree} holding the given
+     *  intervals, which must not belong to any other tree.  The
+     *  intervals are sorted and the tree is built balanced in one
+     *  pass, in O(n lg n) time.
+     * @exception IllegalArgumentException if an interval already
+     *            belongs to a tree, or appears twice. */
+    public LongIntervalTree(Collection<? extends Interval<T>> intervals) {
+	this();
+	Interval<T>[] a = intervals.toArray
+	    ((Interval<T>[]) new Interval[intervals.size()]);
+	for (int i=0; i<a.length; i++) {
+	    if (a[i].tree!=null) {
+		for (int j=0; j<i; j++) a[j].tree = null; // undo.
+		throw new IllegalArgumentException(a[i]+" is already in a tree");
+	    }
+	    a[i].tree = this;
+	}
+	Arrays.sort(a, ORDER);
+	// the shortest root-to-leaf path of the balanced tree has
+	// 'black' nodes; color the nodes below that depth red.
+	int black = 0;
+	for (int n=a.length; n>0; n=(n-1)/2) black++;
+	this.root = build(a, 0, a.length, 0, black, NIL);
+	this.size = a.length;
+    }
+    /** Builds a balanced subtree from <code>a[lo..hi)</code>, whose root
+     *  is at the given depth. */
+    private Interval<T> build(Interval<T>[] a, int lo, int hi, int depth,
+			      int black, Interval<T> parent) {
+	if (lo==hi) return NIL;
+	int mid = lo + (hi-lo-1)/2; // the larger half goes right.
+	Interval<T> x = a[mid];
+	x.parent = parent;
+	x.red = depth >= black;
+	x.left = build(a, lo, mid, depth+1, black, x);
+	x.right = build(a, mid+1, hi, depth+1, black, x);
+	fixMax(x);
+	return x;
+    }
+
+    /** Constructs a new {@link Interval} and adds it to this tree.
+     *  O(lg n) time.
+     * @return the new interval, which can be used to remove it.
+     * @exception IllegalArgumentException if <code>low &gt; high</code>. */
+    public Interval<T> addInterval(T datum, long low, long high) {
+	Interval<T> i = new Interval<T>(datum, low, high);
+	add(i);
+	return i;
+    }
+    /** Adds the given interval to this tree.  O(lg n) time.
+     * @exception IllegalArgumentException if the interval already
+     *            belongs to a tree. */
+    public boolean add(Interval<T> z) {
+	if (z.tree!=null)
+	    throw new IllegalArgumentException(z+" is already in a tree");
+	z.tree = this;
+	// binary-tree insert, updating max on the way down.
+	Interval<T> y = NIL;
+	for (Interval<T> x = root; x != NIL; ) {
+	    y = x;
+	    if (z.high > x.max) x.max = z.high;
+	    x = (ORDER.compare(z, x) < 0) ? x.left : x.right;
+	}
+	z.parent = y;
+	if (y == NIL) root = z;
+	else if (ORDER.compare(z, y) < 0) y.left = z;
+	else y.right = z;
+	z.left = z.right = NIL;
+	z.max = z.high;
+	z.red = true;
+	insertFixup(z);
+	size++;
+	return true;
+    }
+    /** Removes the given interval from this tree.  O(lg n) time.
+     * @return false if the interval is not in this tree. */
+    public boolean remove(Object o) {
+	if (!(o instanceof Interval) || ((Interval<?>)o).tree != this)
+	    return false;
+	Interval<T> z = (Interval<T>) o;
+	// CLR, 3rd edition, RB-DELETE.
+	Interval<T> x, y = z;
+	boolean yWasRed = y.red;
+	if (z.left == NIL) {
+	    x = z.right;
+	    transplant(z, z.right);
+	} else if (z.right == NIL) {
+	    x = z.left;
+	    transplant(z, z.left);
+	} else {
+	    y = z.right;
+	    while (y.left != NIL) y = y.left;
+	    yWasRed = y.red;
+	    x = y.right;
+	    if (y.parent == z) x.parent = y;
+	    else {
+		transplant(y, y.right);
+		y.right = z.right;
+		y.right.parent = y;
+	    }
+	    transplant(z, y);
+	    y.left = z.left;
+	    y.left.parent = y;
+	    y.red = z.red;
+	}
+	// every node whose subtree changed lies on the path from x up.
+	for (Interval<T> p = x.parent; p != NIL; p = p.parent)
+	    fixMax(p);
+	if (!yWasRed) deleteFixup(x);
+	NIL.parent = NIL;
+	z.left = z.right = z.parent = null;
+	z.max = z.high;
+	z.tree = null;
+	size--;
+	return true;
+    }
+    /** Returns true if the given interval is in this tree.  O(1) time. */
+    public boolean contains(Object o) {
+	return (o instanceof Interval) && ((Interval<?>)o).tree == this;
+    }
+    public int size() { return size; }
+    /** Removes all intervals from this tree.  O(n) time. */
+    public void clear() {
+	unlinkAll(root);
+	root = NIL;
+	size = 0;
+    }
+    private void unlinkAll(Interval<T> x) {
+	while (x != NIL) {
+	    unlinkAll(x.left);
+	    Interval<T> r = x.right;
+	    x.left = x.right = x.parent = null;
+	    x.max = x.high;
+	    x.tree = null;
+	    x = r;
+	}
+    }
+
+    /** Returns some interval in this tree which overlaps
+     *  [<code>low</code>,<code>high</code>], or <code>null</code> if
+     *  there is none.  O(lg n) time.
+     *  <p> This operation is named "Interval-Search" in CLR.
+     * @see "CLR, pg 291" */
+    public Interval<T> searchOverlapping(long low, long high) {
+	Interval<T> x = root;
+	while (x != NIL && !x.overlaps(low, high)) {
+	    if (x.left != NIL && x.left.max >= low) x = x.left;
+	    else x = x.right;
+	}
+	return (x == NIL) ? null : x;
+    }
+    /** Adds every interval in this tree which overlaps
+     *  [<code>low</code>,<code>high</code>] to <code>result</code>, in
+     *  order of low endpoint.  O(min(n, (k+1) lg n)) time, where k is
+     *  the number of intervals reported, since they need not be
+     *  adjacent in order of low endpoint; a query which reports
+     *  nothing still takes O(lg n).
+     * @return the number of intervals added. */
+    public int allOverlapping(long low, long high,
+			      Collection<? super Interval<T>> result) {
+	return allOverlapping(root, low, high, result);
+    }
+    private int allOverlapping(Interval<T> x, long low, long high,
+			       Collection<? super Interval<T>> result) {
+	int n = 0;
+	// recurse on the left, iterate on the right.
+	for ( ; x != NIL && x.max >= low; x = x.right) {
+	    n += allOverlapping(x.left, low, high, result);
+	    if (x.low > high) break; // so is everything to the right.
+	    if (x.high >= low) { result.add(x); n++; }
+	}
+	return n;
+    }
+    /** Adds every interval in this tree which contains the point
+     *  <code>p</code> to <code>result</code>, in order of low endpoint.
+     * @return the number of intervals added. */
+    public int allContaining(long p, Collection<? super Interval<T>> result) {
+	return allOverlapping(p, p, result);
+    }
+
+    /** Returns an iterator over the intervals in this tree, in order
+     *  of low endpoint.  The iterator supports <code>remove()</code>. */
+    public Iterator<Interval<T>> iterator() {
+	return new Iterator<Interval<T>>() {
+	    Interval<T> next = minimum(root), last = null;
+	    public boolean hasNext() { return next != NIL; }
+	    public Interval<T> next() {
+		if (next == NIL) throw new NoSuchElementException();
+		last = next;
+		next = successor(next);
+		return last;
+	    }
+	    public void remove() {
+		if (last == null) throw new IllegalStateException();
+		// removal doesn't move other nodes, so 'next' is still good.
+		LongIntervalTree.this.remove(last);
+		last = null;
+	    }
+	};
+    }
+
+    // red-black tree helpers.
+    private Interval<T> minimum(Interval<T> x) {
+	if (x == NIL) return NIL;
+	while (x.left != NIL) x = x.left;
+	return x;
+    }
+    private Interval<T> successor(Interval<T> x) {
+	if (x.right != NIL) return minimum(x.right);
+	Interval<T> y = x.parent;
+	while (y != NIL && x == y.right) { x = y; y = y.parent; }
+	return y;
+    }
+    private void fixMax(Interval<T> x) {
+	long m = x.high;
+	if (x.left.max > m) m = x.left.max;
+	if (x.right.max > m) m = x.right.max;
+	x.max = m;
+    }
+    private void transplant(Interval<T> u, Interval<T> v) {
+	if (u.parent == NIL) root = v;
+	else if (u == u.parent.left) u.parent.left = v;
+	else u.parent.right = v;
+	v.parent = u.parent;
+    }
+    private void leftRotate(Interval<T> x) {
+	Interval<T> y = x.right;
+	x.right = y.left;
+	if (y.left != NIL) y.left.parent = x;
+	transplant(x, y);
+	y.left = x;
+	x.parent = y;
+	y.max = x.max; // y's subtree has the same intervals x's had.
+	fixMax(x);
+    }
+    private void rightRotate(Interval<T> x) {
+	Interval<T> y = x.left;
+	x.left = y.right;
+	if (y.right != NIL) y.right.parent = x;
+	transplant(x, y);
+	y.right = x;
+	x.parent = y;
+	y.max = x.max;
+	fixMax(x);
+    }
+    private void insertFixup(Interval<T> z) {
+	while (z.parent.red) {
+	    Interval<T> g = z.parent.parent;
+	    if (z.parent == g.left) {
+		Interval<T> y = g.right;
+		if (y.red) {
+		    z.parent.red = y.red = false;
+		    g.red = true;
+		    z = g;
+		} else {
+		    if (z == z.parent.right) { z = z.parent; leftRotate(z); }
+		    z.parent.red = false;
+		    g.red = true;
+		    rightRotate(g);
+		}
+	    } else {
+		Interval<T> y = g.left;
+		if (y.red) {
+		    z.parent.red = y.red = false;
+		    g.red = true;
+		    z = g;
+		} else {
+		    if (z == z.parent.left) { z = z.parent; rightRotate(z); }
+		    z.parent.red = false;
+		    g.red = true;
+		    leftRotate(g);
+		}
+	    }
+	}
+	root.red = false;
+    }
+    private void deleteFixup(Interval<T> x) {
+	while (x != root && !x.red) {
+	    if (x == x.parent.left) {
+		Interval<T> w = x.parent.right;
+		if (w.red) {
+		    w.red = false;
+		    x.parent.red = true;
+		    leftRotate(x.parent);
+		    w = x.parent.right;
+		}
+		if (!w.left.red && !w.right.red) {
+		    w.red = true;
+		    x = x.parent;
+		} else {
+		    if (!w.right.red) {
+			w.left.red = false;
+			w.red = true;
+			rightRotate(w);
+			w = x.parent.right;
+		    }
+		    w.red = x.parent.red;
+		    x.parent.red = false;
+		    w.right.red = false;
+		    leftRotate(x.parent);
+		    x = root;
+		}
+	    } else {
+		Interval<T> w = x.parent.left;
+		if (w.red) {
+		    w.red = false;
+		    x.parent.red = true;
+		    rightRotate(x.parent);
+		    w = x.parent.left;
+		}
+		if (!w.right.red && !w.left.red) {
+		    w.red = true;
+		    x = x.parent;
+		} else {
+		    if (!w.left.red) {
+			w.right.red = false;
+			w.red = true;
+			leftRotate(w);
+			w = x.parent.left;
+		    }
+		    w.red = x.parent.red;
+		    x.parent.red = false;
+		    w.left.red = false;
+		    rightRotate(x.parent);
+		    x = root;
+		}
+	    }
+	}
+	x.red = false;
+    }
+    /** Checks the red-black and max invariants of the subtree rooted at
+     *  <code>x</code>, and returns its black height. */
+    private int check(Interval<T> x) {
+	if (x == NIL) { assert !NIL.red && NIL.max==Long.MIN_VALUE; return 1; }
+	assert x.tree == this;
+	assert x.left == NIL || (x.left.parent == x && ORDER.compare(x.left, x) <= 0);
+	assert x.right == NIL || (x.right.parent == x && ORDER.compare(x, x.right) <= 0);
+	assert !x.red || (!x.left.red && !x.right.red) : "red-red";
+	assert x.max == Math.max(x.high, Math.max(x.left.max, x.right.max)) : "max";
+	int bl = check(x.left), br = check(x.right);
+	assert bl == br : "black height";
+	return bl + (x.red ? 0 : 1);
+    }
+
+    /** Self-test function. */
+    public static void main(String[] args) {
+	LongIntervalTree<String> t = new LongIntervalTree<String>();
+	// using example data from CLR pg 291
+	long[][] clr = { {0,3}, {5,8}, {15,23}, {6,10}, {16,21}, {8,9},
+			 {17,19}, {25,30}, {19,20}, {26,26} };
+	List<Interval<String>> ivals = new ArrayList<Interval<String>>();
+	for (int i=0; i<clr.length; i++)
+	    ivals.add(t.addInterval(clr[i][0]+"-"+clr[i][1], clr[i][0], clr[i][1]));
+	t.check(t.root);
+	assert t.size()==10;
+	System.out.println(t);
+	assert t.searchOverlapping(22, 25)!=null;
+	assert t.searchOverlapping(11, 14)==null;
+	List<Interval<String>> found = new ArrayList<Interval<String>>();
+	assert t.allOverlapping(8, 16, found)==5;
+	assert found.toString().equals
+	    ("[[5,8]=5-8, [6,10]=6-10, [8,9]=8-9, [15,23]=15-23, [16,21]=16-21]")
+	    : found;
+	found.clear();
+	assert t.allContaining(26, found)==2;
+	assert t.remove(ivals.get(2)) && !t.contains(ivals.get(2)); // 15-23
+	assert !t.remove(ivals.get(2));
+	t.check(t.root);
+	assert t.searchOverlapping(22, 24)==null;
+	// bulk build gives the same answers.
+	LongIntervalTree<String> b;
+	try {
+	    b = new LongIntervalTree<String>(ivals);
+	    assert false : "interval in two trees";
+	} catch (IllegalArgumentException e) { /* expected */ }
+	t.clear();
+	assert t.isEmpty() && ivals.get(0).tree==null;
+	b = new LongIntervalTree<String>(ivals);
+	b.check(b.root);
+	found.clear();
+	assert b.allOverlapping(8, 16, found)==5;
+
+	// random intervals, against brute force.
+	Random r = new Random(3);
+	for (int n : new int[] { 0, 1, 2, 3, 7, 8, 100, 1000 }) {
+	    List<Interval<Integer>> all = new ArrayList<Interval<Integer>>();
+	    for (int i=0; i<n; i++) {
+		long lo = r.nextInt(10000) - 5000 + ((long)r.nextInt(3) << 40);
+		all.add(new Interval<Integer>(Integer.valueOf(i), lo,
+					      lo + r.nextInt(200)));
+	    }
+	    LongIntervalTree<Integer> bt = new LongIntervalTree<Integer>(all);
+	    bt.check(bt.root);
+	    assert bt.size()==n;
+	    // remove half, through the iterator and directly.
+	    int i = 0;
+	    for (Iterator<Interval<Integer>> it = bt.iterator(); it.hasNext(); i++) {
+		it.next();
+		if (i%4==0) it.remove();
+	    }
+	    for (int j=0; j<all.size(); j+=4) bt.remove(all.get(j));
+	    bt.check(bt.root);
+	    // and add some more.
+	    for (int j=0; j<n/2; j++) {
+		long lo = r.nextInt(10000) - 5000;
+		all.add(bt.addInterval(Integer.valueOf(-j), lo, lo + r.nextInt(50)));
+	    }
+	    bt.check(bt.root);
+	    long prev = Long.MIN_VALUE;
+	    for (Interval<Integer> iv : bt) { assert prev <= iv.low; prev = iv.low; }
+	    for (int q=0; q<100; q++) {
+		long lo = r.nextInt(12000) - 6000, hi = lo + r.nextInt(300);
+		List<Interval<Integer>> got = new ArrayList<Interval<Integer>>();
+		int k = bt.allOverlapping(lo, hi, got);
+		int expect = 0;
+		for (Interval<Integer> iv : all)
+		    if (bt.contains(iv) && iv.overlaps(lo, hi)) expect++;
+		assert k==expect && got.size()==k : lo+" "+hi+" "+k+"!="+expect;
+		Interval<Integer> some = bt.searchOverlapping(lo, hi);
+		assert (some==null) == (expect==0);
+	    }
+	}
+	System.out.println("PASSED.");
+    }
+}
@@ -0,0 +1,113 @@
+// LongRadixHeap.java, created Wed Oct 21 09:12:40 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+/**
+ * A {@link LongRadixHeap} is a {@link RadixHeap} with {@link Long}
+ * keys which can also be inserted and changed as primitive
+ * <code>long</code>s.  An entry inserted with
+ * {@link #insert(long,Object)} keeps its key unboxed, and only
+ * allocates a {@link Long} if its <code>getKey()</code> is called;
+ * together with <code>minimumKey()</code> and
+ * <code>extractMinimumValue()</code>, a monotone workload like
+ * Dijkstra's algorithm can run without boxing any keys.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ */
+public class LongRadixHeap<V> extends RadixHeap<Long,V> {
+    /** Creates a new, empty {@link LongRadixHeap}. */
+    public LongRadixHeap() { super(); }
+    /** Constructs a new heap with the same entries as the specified
+     *  {@link Heap}.  O(n) time. */
+    public LongRadixHeap(Heap<Long,? extends V> h) { super(h); }
+
+    /** Insert an entry into the heap, with a primitive key.  O(1) time.
+     * @exception IllegalArgumentException if <code>key</code> is smaller
+     *            than the last extracted key. */
+    public Map.Entry<Long,V> insert(long key, V value) {
+	return insertLong(key, value);
+    }
+    /** Replace the key in the specified map entry with the specified
+     *  <b>smaller</b> primitive key.  O(1) time.
+     * @exception UnsupportedOperationException if the new key is
+     *            greater than the current key.
+     * @exception IllegalArgumentException if the new key is smaller
+     *            than the last extracted key.
+     * @exception NoSuchElementException if the entry is not in the
+     *            heap. */
+    public void decreaseKey(Map.Entry<Long,V> me, long newkey) {
+	rekeyLong(me, newkey, true);
+    }
+    /** Replace the key in the specified map entry with the specified
+     *  primitive key, which may be larger or smaller than its current
+     *  key.  O(1) time.
+     * @exception IllegalArgumentException if the new key is smaller
+     *            than the last extracted key.
+     * @exception NoSuchElementException if the entry is not in the
+     *            heap. */
+    public void updateKey(Map.Entry<Long,V> me, long newkey) {
+	rekeyLong(me, newkey, false);
+    }
+
+    /** Self-test function. */
+    public static void main(String[] args) {
+	LongRadixHeap<String> h = new LongRadixHeap<String>();
+	Map.Entry<Long,String> a = h.insert(10, "a");
+	Map.Entry<Long,String> b = h.insert(Long.valueOf(20), "b");
+	Map.Entry<Long,String> c = h.insert(30, "c");
+	assert h.minimumKey()==10 && h.size()==3;
+	h.decreaseKey(c, 5);
+	assert h.minimumKey()==5 && c.getKey().longValue()==5;
+	h.updateKey(a, 25);
+	try {
+	    h.decreaseKey(b, 21);
+	    assert false : "increase not caught";
+	} catch (UnsupportedOperationException ex) { /* expected */ }
+	assert h.extractMinimumValue().equals("c") && h.lastKey()==5;
+	try {
+	    h.insert(4, "x");
+	    assert false : "monotonicity violation not caught";
+	} catch (IllegalArgumentException ex) { /* expected */ }
+	assert h.extractMinimum().getKey().longValue()==20;
+	assert h.extractMinimum().getKey().equals(Long.valueOf(25));
+	assert h.isEmpty();
+	// extracted entries can't be rekeyed or deleted.
+	try {
+	    h.updateKey(c, 30);
+	    assert false : "rekeyed an extracted entry";
+	} catch (NoSuchElementException ex) { /* expected */ }
+	try {
+	    h.decreaseKey(a, 25);
+	    assert false : "rekeyed an extracted entry";
+	} catch (NoSuchElementException ex) { /* expected */ }
+	try {
+	    h.delete(b);
+	    assert false : "deleted an extracted entry";
+	} catch (NoSuchElementException ex) { /* expected */ }
+	assert h.isEmpty();
+	// primitive and boxed keys mixed, against a BinaryHeap.
+	Random r = new Random(3);
+	LongRadixHeap<Integer> rh = new LongRadixHeap<Integer>();
+	Heap<Long,Integer> bh = new BinaryHeap<Long,Integer>();
+	long base = 0;
+	for (int i=0; i<20000; i++) {
+	    if (rh.isEmpty() || r.nextInt(3)!=0) {
+		long k = base + r.nextInt(1000);
+		if (i%2==0) rh.insert(k, Integer.valueOf(i));
+		else rh.insert(Long.valueOf(k), Integer.valueOf(i));
+		bh.insert(Long.valueOf(k), Integer.valueOf(i));
+	    } else {
+		long k = rh.minimumKey();
+		assert k == rh.extractMinimum().getKey().longValue();
+		assert k == bh.extractMinimum().getKey().longValue();
+		base = k;
+	    }
+	}
+	System.out.println("PASSED.");
+    }
+}
@@ -0,0 +1,407 @@
+// MultiQueueHeap.java, created Mon Oct 19 12:15:40 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+/**
+ * A {@link MultiQueueHeap} is a {@link Heap} which may be shared by
+ * many threads.  It is a <i>relaxed</i> priority queue: it is built
+ * from a number of independently-locked {@link BinaryHeap}s
+ * ("stripes"), and threads only ever lock one stripe at a time, so
+ * there is no single point of contention.
+ * <p>
+ * <code>insert()</code> adds the entry to a randomly-chosen unlocked
+ * stripe.  <code>extractMinimum()</code> looks at the minimum of two
+ * randomly-chosen stripes (without locking) and removes the smaller
+ * of the two.  The result is therefore not always the true minimum.
+ * With <i>q</i> stripes, the expected <i>rank</i> of an extracted
+ * entry -- the number of entries in the heap with strictly smaller
+ * keys -- is O(<i>q</i>), and it is O(<i>q</i> lg <i>q</i>) with high
+ * probability.  (See "MultiQueues: Simple Relaxed Concurrent Priority
+ * Queues" by Rihani, Sanders and Dementiev, SPAA 2015.)  The default
+ * uses two stripes per available processor.  A heap with a single
+ * stripe is <i>strict</i>: it always returns a true minimum, at the
+ * cost of serializing all operations on one lock.
+ * <p>
+ * <code>insert()</code>, <code>extractMinimum()</code>,
+ * <code>decreaseKey()</code>, <code>updateKey()</code> and
+ * <code>delete()</code> may all be called concurrently.
+ * <code>minimum()</code>, <code>size()</code> and
+ * <code>entries()</code> return a consistent answer only if the heap
+ * is not being modified at the same time; <code>entries()</code>
+ * returns a snapshot rather than a live view.  Since another thread
+ * may remove an entry at any time, <code>decreaseKey()</code>,
+ * <code>updateKey()</code> and <code>delete()</code> throw a
+ * {@link NoSuchElementException} if the given entry is no longer in
+ * the heap.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ * @see BinaryHeap
+ */
+public class MultiQueueHeap<K,V> extends AbstractHeap<K,V> {
+    private final Stripe<K,V>[] stripes;
+    private final AtomicInteger size = new AtomicInteger();
+    private final Comparator<Map.Entry<K,V>> c; // convenience field.
+
+    /** Creates a new, empty {@link MultiQueueHeap} with two stripes
+     *  per available processor, sorted according to its keys' natural
+     *  order. */
+    public MultiQueueHeap() { this((Comparator<K>)null); }
+    /** Creates a new, empty {@link MultiQueueHeap} with two stripes
+     *  per available processor, sorted according to the given
+     *  {@link Comparator}. */
+    public MultiQueueHeap(Comparator<K> c) {
+	this(c, 2*Runtime.getRuntime().availableProcessors());
+    }
+    /** Creates a new, empty {@link MultiQueueHeap} with the given number
+     *  of stripes, sorted according to the given {@link Comparator}.
+     *  A heap with one stripe is strict.
+     * @exception IllegalArgumentException if <code>stripes</code> is
+     *            less than one. */
+    public MultiQueueHeap(Comparator<K> c, int stripes) {
+	super(c);
+	if (stripes < 1)
+	    throw new IllegalArgumentException("Need at least one stripe: "+
+					       stripes);
+	this.c = entryComparator();
+	this.stripes = (Stripe<K,V>[]) new Stripe[stripes];
+	for (int i=0; i<stripes; i++)
+	    this.stripes[i] = new Stripe<K,V>(c);
+    }
+    /** Constructs a new heap with the same entries as the specified
+     *  {@link Heap}. */
+    public MultiQueueHeap(Heap<K,? extends V> h) {
+	this(h.comparator());
+	for (Map.Entry<K,? extends V> e : h.entries())
+	    insert(e.getKey(), e.getValue());
+    }
+
+    /** Returns the number of stripes in this heap. */
+    public int stripes() { return stripes.length; }
+    /** Returns <code>true</code> if this heap always extracts a true
+     *  minimum; that is, if it has only one stripe. */
+    public boolean isStrict() { return stripes.length==1; }
+
+    /** Insert an entry into a random stripe of the heap.  O(lg n)
+     *  time. */
+    public Map.Entry<K,V> insert(K key, V value) {
+	Entry<K,V> e = new Entry<K,V>(key, value);
+	insert(e);
+	return e;
+    }
+    protected void insert(Map.Entry<K,V> me) {
+	Entry<K,V> e = (Entry<K,V>) me;
+	Stripe<K,V> s = lockRandom();
+	try {
+	    s.insert(e);
+	} finally {
+	    s.lock.unlock();
+	}
+	size.incrementAndGet();
+    }
+    /** Returns the entry with minimal key among the minima of all
+     *  stripes.  O(q) time, for q stripes; does not lock. */
+    public Map.Entry<K,V> minimum() {
+	Entry<K,V> best = null;
+	for (Stripe<K,V> s : stripes) {
+	    Entry<K,V> t = s.top;
+	    if (t!=null && (best==null || c.compare(t, best) < 0))
+		best = t;
+	}
+	if (best==null) throw new NoSuchElementException();
+	return best;
+    }
+    /** Remove and return an entry with small key.  The entry returned
+     *  is the smaller of the minima of two randomly-chosen stripes;
+     *  see the class comment for the resulting rank error. */
+    public Map.Entry<K,V> extractMinimum() {
+	for (int tries=0; tries < 2*stripes.length; tries++) {
+	    Stripe<K,V> a = stripes[random(stripes.length)];
+	    Stripe<K,V> b = stripes[random(stripes.length)];
+	    Entry<K,V> ta = a.top, tb = b.top;
+	    if (ta==null && tb==null) {
+		if (size.get()==0) break;
+		continue;
+	    }
+	    Stripe<K,V> s = (tb==null || (ta!=null && c.compare(ta,tb) <= 0))
+		? a : b;
+	    if (!lock(s, tries)) continue;
+	    try {
+		if (s.heap.isEmpty()) continue;
+		size.decrementAndGet();
+		return s.extractMinimum();
+	    } finally {
+		s.lock.unlock();
+	    }
+	}
+	// the heap is empty or nearly so; look at each stripe in turn.
+	for (Stripe<K,V> s : stripes) {
+	    s.lock.lock();
+	    try {
+		if (!s.heap.isEmpty()) {
+		    size.decrementAndGet();
+		    return s.extractMinimum();
+		}
+	    } finally {
+		s.lock.unlock();
+	    }
+	}
+	throw new NoSuchElementException();
+    }
+    /** Replace the key in the specified map entry with the specified
+     *  <b>smaller</b> key.  O(lg n) time. */
+    public void decreaseKey(Map.Entry<K,V> me, K newkey) {
+	Entry<K,V> e = (Entry<K,V>) me;
+	Stripe<K,V> s = lockStripeOf(e);
+	try {
+	    if (keyComparator().compare(newkey, e.getKey()) > 0)
+		throw new UnsupportedOperationException("New key is greater "+
+							"than current key.");
+	    s.heap.decreaseKey(e.handle, newkey);
+	    e._setKey(newkey);
+	    s.updateTop();
+	} finally {
+	    s.lock.unlock();
+	}
+    }
+    /** Replace the key in the specified map entry with the specified
+     *  key, which may be either larger or smaller than its current
+     *  key.  O(lg n) time. */
+    public void updateKey(Map.Entry<K,V> me, K newkey) {
+	Entry<K,V> e = (Entry<K,V>) me;
+	Stripe<K,V> s = lockStripeOf(e);
+	try {
+	    s.heap.updateKey(e.handle, newkey);
+	    e._setKey(newkey);
+	    s.updateTop();
+	} finally {
+	    s.lock.unlock();
+	}
+    }
+    /** Remove the specified map entry from the mapping.  O(lg n) time. */
+    public void delete(Map.Entry<K,V> me) {
+	Entry<K,V> e = (Entry<K,V>) me;
+	Stripe<K,V> s = lockStripeOf(e);
+	try {
+	    s.delete(e);
+	} finally {
+	    s.lock.unlock();
+	}
+	size.decrementAndGet();
+    }
+    public int size() { return size.get(); }
+    /** Removes all entries from this heap.  Entries inserted
+     *  concurrently with the <code>clear()</code> may survive it. */
+    public void clear() {
+	for (Stripe<K,V> s : stripes) {
+	    s.lock.lock();
+	    try {
+		int n = s.heap.size();
+		for (Map.Entry<K,Entry<K,V>> he : s.heap.entries())
+		    he.getValue().stripe = null;
+		s.heap.clear();
+		s.top = null;
+		size.addAndGet(-n);
+	    } finally {
+		s.lock.unlock();
+	    }
+	}
+    }
+    /** Returns a snapshot of the entries in this heap.  Each stripe is
+     *  copied atomically, but the heap as a whole is not. */
+    public Collection<Map.Entry<K,V>> entries() {
+	List<Map.Entry<K,V>> l = new ArrayList<Map.Entry<K,V>>(size());
+	for (Stripe<K,V> s : stripes) {
+	    s.lock.lock();
+	    try {
+		for (Map.Entry<K,Entry<K,V>> he : s.heap.entries())
+		    l.add(he.getValue());
+	    } finally {
+		s.lock.unlock();
+	    }
+	}
+	return Collections.unmodifiableList(l);
+    }
+
+    /** Lock and return a randomly-chosen stripe. */
+    private Stripe<K,V> lockRandom() {
+	for (int tries=0; ; tries++) {
+	    Stripe<K,V> s = stripes[random(stripes.length)];
+	    if (lock(s, tries)) return s;
+	}
+    }
+    /** Try to lock the given stripe, on the <code>tries</code>'th
+     *  attempt to lock any stripe.  Skipping a busy stripe is only
+     *  worthwhile while there are others to try: with one stripe, or
+     *  after <code>SPIN_TRIES</code> failures, block instead. */
+    private boolean lock(Stripe<K,V> s, int tries) {
+	if (stripes.length==1 || tries >= SPIN_TRIES) {
+	    s.lock.lock();
+	    return true;
+	}
+	return s.lock.tryLock();
+    }
+    private static final int SPIN_TRIES = 4;
+    /** Lock and return the stripe containing the given entry. */
+    private Stripe<K,V> lockStripeOf(Entry<K,V> e) {
+	for (;;) {
+	    Stripe<K,V> s = e.stripe;
+	    if (s==null)
+		throw new NoSuchElementException("Entry is not in heap.");
+	    s.lock.lock();
+	    if (e.stripe==s) return s;
+	    s.lock.unlock(); // entry moved; try again.
+	}
+    }
+
+    /** Per-thread xorshift random number generators, so that picking a
+     *  stripe doesn't contend on a shared {@link java.util.Random}. */
+    private static final ThreadLocal<int[]> seed = new ThreadLocal<int[]>() {
+	private final AtomicInteger next = new AtomicInteger(0x9E3779B9);
+	protected int[] initialValue() {
+	    int s = next.getAndAdd(0x61C88647);
+	    return new int[] { (s==0) ? 1 : s };
+	}
+    };
+    private static int random(int n) {
+	int[] s = seed.get();
+	int x = s[0];
+	x ^= x << 13; x ^= x >>> 17; x ^= x << 5;
+	s[0] = x;
+	return (x & 0x7FFFFFFF) % n;
+    }
+
+    /** One independently-locked binary heap. */
+    private static final class Stripe<K,V> {
+	final ReentrantLock lock = new ReentrantLock();
+	final BinaryHeap<K,Entry<K,V>> heap;
+	/** The minimum entry of this stripe, or <code>null</code> if the
+	 *  stripe is empty.  May be read without holding the lock. */
+	volatile Entry<K,V> top = null;
+	Stripe(Comparator<K> c) { this.heap = new BinaryHeap<K,Entry<K,V>>(c); }
+	// all of the following must be called with the lock held.
+	void insert(Entry<K,V> e) {
+	    e.handle = heap.insert(e.getKey(), e);
+	    e.stripe = this;
+	    updateTop();
+	}
+	Entry<K,V> extractMinimum() {
+	    Entry<K,V> e = heap.extractMinimum().getValue();
+	    e.stripe = null;
+	    updateTop();
+	    return e;
+	}
+	void delete(Entry<K,V> e) {
+	    heap.delete(e.handle);
+	    e.stripe = null;
+	    updateTop();
+	}
+	void updateTop() {
+	    top = heap.isEmpty() ? null : heap.minimum().getValue();
+	}
+    }
+    /** Our {@link MultiQueueHeap} {@link java.util.Map.Entry}s look like
+     *  this: */
+    private static final class Entry<K,V> extends PairMapEntry<K,V> {
+	/** The stripe containing this entry, or <code>null</code> if the
+	 *  entry is not in the heap. */
+	volatile Stripe<K,V> stripe;
+	/** The corresponding entry in the stripe's {@link BinaryHeap}. */
+	Map.Entry<K,Entry<K,V>> handle;
+	Entry(K key, V value) { super(key, value); }
+	K _setKey(K newKey) { return setKey(newKey); }
+    }
+    // to implement updateKey, etc...
+    protected final K setKey(Map.Entry<K,V> me, K newkey) {
+	return ((Entry<K,V>) me)._setKey(newkey);
+    }
+
+    /** Self-test function. */
+    public static void main(String[] args) throws InterruptedException {
+	{
+	// with one stripe, this should behave just like a BinaryHeap.
+	// (tests borrowed from BinaryHeap.java)
+	Heap<String,String> h = new MultiQueueHeap<String,String>(null, 1);
+	assert h.size()==0 && h.isEmpty();
+
+	ArrayList<Map.Entry<String,String>> mel =
+	    new ArrayList<Map.Entry<String,String>>();
+	mel.add(h.insert("C", "c1"));
+	mel.add(h.insert("S", "s1"));
+	mel.add(h.insert("A", "a"));
+	mel.add(h.insert("S", "s2"));
+	mel.add(h.insert("C", "c2"));
+	mel.add(h.insert("O", "o"));
+	mel.add(h.insert("T", "t1"));
+	mel.add(h.insert("T", "t2"));
+	mel.add(h.insert("Z", "z"));
+	mel.add(h.insert("M", "m"));
+
+	assert h.extractMinimum().getValue().equals("a");
+	System.out.println(h);
+	h.decreaseKey(mel.get(3), "B"); // s2
+	assert h.extractMinimum().getValue().equals("s2");
+	h.delete(mel.get(4)); // c2
+	assert h.extractMinimum().getValue().equals("c1");
+	System.out.println(h);
+	// finally, test updateKey
+	h.updateKey(mel.get(9), "P"); // m
+	assert h.extractMinimum().getValue().equals("o");
+	assert h.extractMinimum().getValue().equals("m");
+	System.out.println(h);
+	h.clear();
+	assert h.isEmpty() && h.size()==0;
+	}{
+	// many threads inserting and extracting concurrently: every entry
+	// must come out exactly once.
+	final MultiQueueHeap<Integer,Integer> h =
+	    new MultiQueueHeap<Integer,Integer>(null, 8);
+	final int nthreads = 4, per = 20000;
+	final AtomicInteger extracted = new AtomicInteger();
+	final boolean[] seen = new boolean[nthreads*per];
+	Thread[] ts = new Thread[nthreads];
+	for (int t=0; t<nthreads; t++) {
+	    final int base = t*per;
+	    ts[t] = new Thread() {
+		public void run() {
+		    for (int i=0; i<per; i++) {
+			Map.Entry<Integer,Integer> e =
+			    h.insert(Integer.valueOf((i*7919) % per),
+				     Integer.valueOf(base+i));
+			// another thread may have extracted e already.
+			try {
+			    if (i%3==0) h.decreaseKey(e, e.getKey()-1);
+			} catch (NoSuchElementException ex) { /* ok */ }
+			if (i%2==1) {
+			    int v = h.extractMinimum().getValue().intValue();
+			    synchronized (seen) { assert !seen[v]; seen[v]=true; }
+			    extracted.incrementAndGet();
+			}
+		    }
+		}
+	    };
+	    ts[t].start();
+	}
+	for (Thread t : ts) t.join();
+	assert h.size() + extracted.get() == nthreads*per;
+	assert h.entries().size() == h.size();
+	while (!h.isEmpty()) {
+	    int v = h.extractMinimum().getValue().intValue();
+	    assert !seen[v]; seen[v] = true;
+	}
+	for (boolean b : seen) assert b;
+	}
+	// DONE.
+	System.out.println("PASSED.");
+    }
+}
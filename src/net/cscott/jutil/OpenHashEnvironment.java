@@ -0,0 +1,324 @@
+// OpenHashEnvironment.java, created Tue Oct 20 14:05:36 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+/**
+ * An {@link OpenHashEnvironment} is an {@link Environment} which keeps
+ * only the current binding of each key, in an open-addressed hash
+ * table, and records the value each <code>put</code> or
+ * <code>remove</code> overwrote in a flat undo log of (slot, previous
+ * value) pairs.  Unlike a {@link HashEnvironment}, neither
+ * <code>put</code>, <code>remove</code>, nor <code>undoToMark</code>
+ * allocates anything (except when the table or log grows), and
+ * undoing a change is a single array store.
+ * <p>
+ * A key stays in the table while it is bound or while the undo log
+ * refers to its slot; keys which are neither are dropped the next
+ * time the table is rehashed.  Unbinding through the iterators of
+ * the collection views is undoable like any other
+ * <code>remove</code>.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ */
+public class OpenHashEnvironment<K,V> extends AbstractMap<K,V>
+    implements Environment<K,V> {
+    /** Marks an unbound slot; distinct from a <code>null</code> value. */
+    private static final Object ABSENT = new Object();
+    /** Stands in for the <code>null</code> key. */
+    private static final Object NULL_KEY = new Object();
+
+    // the hash table, with linear probing.  keys[i]==null means an
+    // empty slot; vals[i]==ABSENT means a key with no binding.
+    private Object[] keys;
+    private Object[] vals;
+    private int used = 0; // slots with a key.
+    private int size = 0; // slots with a binding.
+    // the undo log.
+    private int[] logSlot;
+    private Object[] logPrev;
+    private int logSize = 0;
+
+    /** Creates an {@link OpenHashEnvironment}. */
+    public OpenHashEnvironment() { this(16); }
+    /** Creates an {@link OpenHashEnvironment} with room for about
+     *  <code>expectedSize</code> keys before it must grow. */
+    public OpenHashEnvironment(int expectedSize) {
+	if (expectedSize < 0)
+	    throw new IllegalArgumentException("Negative size: "+expectedSize);
+	int cap = 8;
+	while (cap - (cap>>2) <= expectedSize) cap <<= 1;
+	keys = new Object[cap];
+	vals = new Object[cap];
+	logSlot = new int[16];
+	logPrev = new Object[16];
+    }
+    /** Creates an {@link OpenHashEnvironment} with all the mappings in
+     *  the given map. */
+    public OpenHashEnvironment(Map<? extends K,? extends V> m) {
+	this(m.size());
+	putAll(m);
+    }
+
+    // -- MAP INTERFACE
+    /** Returns <code>true</code> if this map contains a mapping for the
+     *  specified key. */
+    public boolean containsKey(Object key) {
+	int i = slot(maskNull(key));
+	return keys[i]!=null && vals[i]!=ABSENT;
+    }
+    /** Returns the value to which this map maps the specified key. */
+    public V get(Object key) {
+	int i = slot(maskNull(key));
+	if (keys[i]==null) return null;
+	return OpenHashEnvironment.<V>unmaskAbsent(vals[i]);
+    }
+    /** Associates the specified value with the specified key in this map. */
+    public V put(K key, V value) {
+	Object k = maskNull(key);
+	int i = slot(k);
+	if (keys[i]==null) {
+	    if (used+1 > keys.length - (keys.length>>2)) {
+		rehash(true);
+		i = slot(k);
+	    }
+	    keys[i] = k;
+	    vals[i] = ABSENT;
+	    used++;
+	}
+	Object old = vals[i];
+	log(i, old);
+	vals[i] = value;
+	if (old==ABSENT) { size++; return null; }
+	return (V) old;
+    }
+    /** Removes the mapping for this key from this map if present. */
+    public V remove(Object key) {
+	int i = slot(maskNull(key));
+	if (keys[i]==null || vals[i]==ABSENT) return null;
+	Object old = vals[i];
+	log(i, old);
+	vals[i] = ABSENT;
+	size--;
+	return (V) old;
+    }
+    /** Returns the number of key-value mappings in this map. */
+    public int size() { return size; }
+    /** Clears all mappings. */
+    public void clear() {
+	for (int i=0; i<keys.length; i++)
+	    if (keys[i]!=null && vals[i]!=ABSENT) {
+		log(i, vals[i]);
+		vals[i] = ABSENT;
+	    }
+	size = 0;
+    }
+
+    // --- ENVIRONMENT INTERFACE
+    public Environment.Mark getMark() {
+	return new Mark(logSize);
+    }
+    public void undoToMark(Environment.Mark m) {
+	int mark = ((Mark)m).i;
+	assert mark <= logSize : "undoToMark not repeatable!";
+	while (logSize > mark) {
+	    int i = logSlot[--logSize];
+	    Object prev = logPrev[logSize];
+	    logPrev[logSize] = null; // don't retain garbage.
+	    if (vals[i]==ABSENT) size++;
+	    if (prev==ABSENT) size--;
+	    vals[i] = prev;
+	}
+    }
+    private static class Mark implements Environment.Mark {
+	final int i;
+	Mark(int i) { this.i = i; }
+    }
+
+    // --- INTERNALS
+    private static Object maskNull(Object key) {
+	return (key==null) ? NULL_KEY : key;
+    }
+    private static <V> V unmaskAbsent(Object val) {
+	return (val==ABSENT) ? null : (V) val;
+    }
+    private static int hash(Object k) {
+	int h = k.hashCode() * 0x9E3779B9; // fibonacci hashing.
+	return h ^ (h >>> 16);
+    }
+    /** Returns the slot holding <code>k</code>, or the empty slot
+     *  where it would go. */
+    private int slot(Object k) {
+	int mask = keys.length-1;
+	for (int i = hash(k) & mask; ; i = (i+1) & mask) {
+	    Object kk = keys[i];
+	    if (kk==null || kk==k || kk.equals(k)) return i;
+	}
+    }
+    private void log(int slot, Object prev) {
+	if (logSize==logSlot.length) {
+	    int[] ns = new int[2*logSize];
+	    Object[] np = new Object[2*logSize];
+	    System.arraycopy(logSlot, 0, ns, 0, logSize);
+	    System.arraycopy(logPrev, 0, np, 0, logSize);
+	    logSlot = ns; logPrev = np;
+	}
+	logSlot[logSize] = slot;
+	logPrev[logSize] = prev;
+	logSize++;
+    }
+    /** Rebuilds the table, dropping keys which are unbound and not
+     *  mentioned in the undo log, and renumbering the slots in the
+     *  log.  If <code>grow</code> is true, leaves room for at least
+     *  one more key. */
+    private void rehash(boolean grow) {
+	int oldCap = keys.length;
+	boolean[] live = new boolean[oldCap];
+	int n = 0;
+	for (int j=0; j<logSize; j++) live[logSlot[j]] = true;
+	for (int i=0; i<oldCap; i++) {
+	    if (keys[i]!=null && vals[i]!=ABSENT) live[i] = true;
+	    if (live[i]) n++;
+	}
+	if (grow) n++;
+	int cap = 8;
+	while (cap - (cap>>2) < n || (grow && cap < n*2)) cap <<= 1;
+	Object[] oldKeys = keys, oldVals = vals;
+	int[] moved = new int[oldCap];
+	keys = new Object[cap];
+	vals = new Object[cap];
+	used = 0;
+	for (int i=0; i<oldCap; i++) {
+	    if (!live[i]) continue;
+	    int j = slot(oldKeys[i]);
+	    keys[j] = oldKeys[i];
+	    vals[j] = oldVals[i];
+	    moved[i] = j;
+	    used++;
+	}
+	for (int j=0; j<logSize; j++) logSlot[j] = moved[logSlot[j]];
+    }
+
+    // --- EVIL EVIL SET VIEW
+    /** The {@link java.util.Set} returned by this method is really a
+     *  {@link MapSet}. */
+    public MapSet<K,V> entrySet() {
+	return new HashEnvironment.AbstractMapSet<K,V>() {
+	    public int size() { return OpenHashEnvironment.this.size; }
+	    public Iterator<Map.Entry<K,V>> iterator() {
+		return new Iterator<Map.Entry<K,V>>() {
+		    int i = advance(0);
+		    K last = null;
+		    boolean canRemove = false;
+		    int advance(int j) {
+			while (j < keys.length &&
+			       (keys[j]==null || vals[j]==ABSENT))
+			    j++;
+			return j;
+		    }
+		    public boolean hasNext() { return i < keys.length; }
+		    public Map.Entry<K,V> next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			Object k = keys[i];
+			final K key = (k==NULL_KEY) ? null : (K) k;
+			i = advance(i+1);
+			last = key; canRemove = true;
+			// the entry is backed by the map, not by the slot,
+			// in case the table is rehashed.
+			return new AbstractMapEntry<K,V>() {
+			    public K getKey() { return key; }
+			    public V getValue() { return get(key); }
+			    public V setValue(V value) {
+				return put(key, value);
+			    }
+			};
+		    }
+		    // unbinding a key leaves the table in place, so the
+		    // iteration can carry on.
+		    public void remove() {
+			if (!canRemove) throw new IllegalStateException();
+			OpenHashEnvironment.this.remove(last);
+			canRemove = false;
+		    }
+		};
+	    }
+	    public OpenHashEnvironment<K,V> asMap() {
+		return OpenHashEnvironment.this;
+	    }
+	};
+    }
+
+    /** Self-test function. */
+    public static void main(String argv[]) {
+	Environment<String,String> e = new OpenHashEnvironment<String,String>();
+	assert e.size()==0 && !e.containsKey("a") && !e.containsKey("b");
+	e.put("a","a"); e.put("a","b");
+	assert e.size()==1 && e.containsKey("a") && e.containsValue("b");
+	assert !e.containsValue("a") && !e.containsValue("c");
+	Environment.Mark m = e.getMark();
+	e.remove("a"); e.remove("a");
+	assert e.size()==0 && !e.containsKey("a");
+	assert !e.containsKey("b") && !e.containsValue("b");
+	assert !e.containsValue("a");
+	e.put("b","b"); e.put("b","c");
+	assert e.size()==1 && e.containsKey("b");
+	assert !e.containsKey("a") && e.containsValue("c");
+	assert !e.containsValue("b");
+	e.undoToMark(m);
+	assert e.size()==1 && e.containsKey("a") && !e.containsKey("b");
+	e.put("c", "d"); e.put("c", "d");
+	assert e.size()==2 && e.containsKey("c") && e.containsValue("d");
+	m = e.getMark();
+	e.clear();
+	assert e.size()==0 && !e.containsKey("a") && !e.containsKey("b");
+	e.undoToMark(m);
+	assert e.size()==2 && e.containsKey("c") && e.containsValue("d");
+	assert e.containsKey("a") && !e.containsKey("b");
+	e.undoToMark(m); // repeatable.
+	assert e.size()==2 && e.get("a").equals("b");
+	e.put(null, null);
+	assert e.size()==3 && e.containsKey(null) && e.get(null)==null;
+	assert e.containsValue(null) && e.keySet().contains(null);
+	e.undoToMark(m);
+	assert e.size()==2 && !e.containsKey(null);
+	// random scoped puts, removes and undos, against HashEnvironment,
+	// with enough keys to force several rehashes.
+	Random r = new Random(17);
+	Environment<Integer,Integer> oe = new OpenHashEnvironment<Integer,Integer>();
+	Environment<Integer,Integer> he = new HashEnvironment<Integer,Integer>();
+	java.util.List<Environment.Mark[]> marks =
+	    new java.util.ArrayList<Environment.Mark[]>();
+	for (int k=0; k<50000; k++) {
+	    int op = r.nextInt(20);
+	    Integer key = new Integer(r.nextInt(k/10 + 10));
+	    if (op==0) {
+		marks.add(new Environment.Mark[] { oe.getMark(), he.getMark() });
+	    } else if (op==1 && !marks.isEmpty()) {
+		int j = r.nextInt(marks.size());
+		Environment.Mark[] mm = marks.get(j);
+		oe.undoToMark(mm[0]); he.undoToMark(mm[1]);
+		while (marks.size() > j+1) marks.remove(marks.size()-1);
+	    } else if (op < 6) {
+		assert eq(oe.remove(key), he.remove(key));
+	    } else {
+		Integer v = (op==6) ? null : new Integer(r.nextInt());
+		assert eq(oe.put(key, v), he.put(key, v));
+	    }
+	    assert oe.size()==he.size();
+	    assert oe.containsKey(key)==he.containsKey(key);
+	    assert eq(oe.get(key), he.get(key));
+	    if (k % 5000 == 0) assert oe.equals(he) && he.equals(oe);
+	}
+	assert oe.equals(he) && oe.hashCode()==he.hashCode();
+	System.err.println("PASSED.");
+    }
+    private static boolean eq(Object a, Object b) {
+	return (a==null) ? b==null : a.equals(b);
+    }
+}
@@ -0,0 +1,219 @@
+// OrderStatisticTree.java, created Mon Oct 19 23:05:41 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+/** An {@link OrderStatisticTree} is a {@link RedBlackTree} in which
+    each node also records the size of its subtree, so that the
+    <i>k</i>th smallest element, and the rank of a given key, can be
+    found in O(lg n) time instead of by an O(n) walk.  This makes it
+    suitable for running medians and percentiles over a sliding
+    window: add each new element, remove each expiring one, and
+    {@link #select(int) select} the element of the desired rank.
+
+    <p> The subtree sizes are maintained in the same way that
+    {@link IntervalTree} maintains its <code>max</code> field: the
+    <code>setLeft</code>, <code>setRight</code> and
+    <code>setParent</code> hooks, through which
+    <code>leftRotate</code>, <code>rightRotate</code> and
+    <code>swapPositions</code> do all their work, recompute the size
+    of the node whose children change, and insertion and deletion
+    then bring the ancestors of the changed node up to date.
+
+    <p> Elements equal under the tree's comparator may be added more
+    than once; each copy counts separately.
+
+    @author  C. Scott Ananian <cscott@cscott.net>
+    @version $Id$
+    @see "CLR section 15.1, (page 281)."
+*/
+public class OrderStatisticTree extends RedBlackTree {
+
+    private class OSNode extends RBNode {
+	// number of (non-NIL) nodes in the subtree rooted at this.
+	protected int size = 1;
+	OSNode(Object o) { super(o); }
+    }
+    protected Node makeNode(Object o) { return new OSNode(o); }
+
+    protected Node setLeft(Node p, Node l) {
+	Node n = super.setLeft(p,l); fixSize(p); return n;
+    }
+    protected Node setRight(Node p, Node r) {
+	Node n = super.setRight(p,r); fixSize(p); return n;
+    }
+    protected Node setParent(Node c, Node p) {
+	Node n = super.setParent(c,p); fixSize(p); return n;
+    }
+    // a rotation sets the parent's link to the rotated subtree before
+    // it finishes rebuilding the subtree, so fix all three afterwards.
+    protected void leftRotate(Node x) {
+	super.leftRotate(x);
+	fixSize(x); fixSize(x.parent()); fixSize(x.parent().parent());
+    }
+    protected void rightRotate(Node x) {
+	super.rightRotate(x);
+	fixSize(x); fixSize(x.parent()); fixSize(x.parent().parent());
+    }
+    private void fixSize(Node p) {
+	if (p == NIL) return;
+	((OSNode) p).size = 1 + size(p.left()) + size(p.right());
+    }
+    private int size(Node n) { return (n == NIL) ? 0 : ((OSNode) n).size; }
+    protected void subtreeChanged(Node x) { fixSize(x); }
+    protected RedBlackTree makeTree() { return new OrderStatisticTree(this); }
+
+    /** Creates an empty tree which accepts only <i>mutually
+        comparable</i> elements. */
+    public OrderStatisticTree() { super(); }
+    /** Creates an empty tree which uses <code>c</code> to determine
+        element ordering. */
+    public OrderStatisticTree(Comparator c) { super(c); }
+    /** Creates an empty tree which can exchange nodes with
+	<code>sibling</code>. */
+    protected OrderStatisticTree(OrderStatisticTree sibling) {
+	super(sibling);
+    }
+
+    /** Returns the number of elements in <code>this</code>.  O(1) time. */
+    public int size() { return size(root()); }
+
+    /** Returns the element of rank <code>k</code>: the
+	<code>k</code>th smallest, counting from zero.  O(lg n) time.
+	@exception IndexOutOfBoundsException if <code>k</code> is
+	negative or not less than <code>size()</code>.
+	@see "CLR, pg 282"
+    */
+    public Object select(int k) {
+	if (k < 0 || k >= size())
+	    throw new IndexOutOfBoundsException("Rank: "+k+", Size: "+size());
+	Node x = root();
+	while (true) {
+	    int r = size(x.left());
+	    if (k == r) return x.key;
+	    if (k < r) x = x.left();
+	    else { k -= r+1; x = x.right(); }
+	}
+    }
+    /** Returns the number of elements in <code>this</code> which are
+	strictly less than <code>key</code>; if <code>key</code> is
+	present, this is the rank of its first occurrence.
+	<code>key</code> need not be present.  O(lg n) time. */
+    public int rank(Object key) {
+	int r = 0;
+	for (Node x = root(); x != NIL; ) {
+	    if (comp.compare(key, x.key) <= 0)
+		x = x.left();
+	    else {
+		r += size(x.left()) + 1;
+		x = x.right();
+	    }
+	}
+	return r;
+    }
+    /** Returns the number of elements <i>e</i> in <code>this</code>
+	with <code>low</code> &lt;= <i>e</i> &lt; <code>high</code>.
+	O(lg n) time. */
+    public int countInRange(Object low, Object high) {
+	return Math.max(0, rank(high) - rank(low));
+    }
+    /** Returns the element at the given quantile: for
+	<code>q</code> between 0 and 1, the element of rank
+	<i>floor(q * (size()-1))</i>.  <code>quantile(0.5)</code> is
+	the (lower) median.  O(lg n) time.
+	@exception IndexOutOfBoundsException if <code>this</code> is
+	empty.
+	@exception IllegalArgumentException if <code>q</code> is not
+	between 0 and 1. */
+    public Object quantile(double q) {
+	if (!(q >= 0 && q <= 1))
+	    throw new IllegalArgumentException("Bad quantile: "+q);
+	return select((int) Math.floor(q * (size()-1)));
+    }
+
+    // checks the size fields of the subtree rooted at x.
+    private int checkSizes(Node x) {
+	if (x == NIL) return 0;
+	int s = 1 + checkSizes(x.left()) + checkSizes(x.right());
+	assert s == size(x) : "bad size at "+x;
+	return s;
+    }
+
+    public static void main(String[] args) {
+	OrderStatisticTree t = new OrderStatisticTree();
+	String[] strings = { "foo", "bar", "wistfully_3", "willing_4",
+			     "whilst_5", "whitling_6", "away_7", "at_8",
+			     "the_9", "bar" };
+	for (int i=0; i<strings.length; i++)
+	    t.add(strings[i]);
+	t.checkSizes(t.root());
+	assert t.size() == 10;
+	assert t.select(0).equals("at_8") && t.select(9).equals("wistfully_3");
+	assert t.select(2).equals("bar") && t.select(3).equals("bar");
+	assert t.rank("bar") == 2 && t.rank("baz") == 4 && t.rank("a") == 0;
+	assert t.countInRange("b", "w") == 4; // bar bar foo the_9
+	t.remove("bar");
+	t.checkSizes(t.root());
+	assert t.size() == 9 && t.rank("baz") == 3;
+	try {
+	    t.select(9);
+	    assert false : "select beyond the end";
+	} catch (IndexOutOfBoundsException e) { /* expected */ }
+
+	// running median over a sliding window, against a sorted list.
+	Random r = new Random(7);
+	OrderStatisticTree w = new OrderStatisticTree();
+	LinkedList<Integer> window = new LinkedList<Integer>();
+	for (int i=0; i<20000; i++) {
+	    Integer x = new Integer(r.nextInt(1000));
+	    window.addLast(x);
+	    w.add(x);
+	    if (window.size() > 101)
+		w.remove(window.removeFirst());
+	    if (i % 97 == 0) {
+		w.checkSizes(w.root());
+		List<Integer> sorted = new ArrayList<Integer>(window);
+		Collections.sort(sorted);
+		assert w.size() == sorted.size();
+		assert w.quantile(0.5).equals(sorted.get((sorted.size()-1)/2));
+		assert w.quantile(0.9).equals
+		    (sorted.get((int) Math.floor(0.9*(sorted.size()-1))));
+		int k = r.nextInt(sorted.size());
+		assert w.select(k).equals(sorted.get(k));
+		Integer key = new Integer(r.nextInt(1000));
+		int expect = 0;
+		while (expect < sorted.size() &&
+		       sorted.get(expect).compareTo(key) < 0)
+		    expect++;
+		assert w.rank(key) == expect;
+	    }
+	}
+	// drain it.
+	while (!window.isEmpty())
+	    w.remove(window.removeFirst());
+	assert w.size() == 0;
+	// split and set operations keep the sizes up to date.
+	OrderStatisticTree a = new OrderStatisticTree();
+	OrderStatisticTree b = new OrderStatisticTree();
+	for (int i=0; i<3000; i++) {
+	    a.add(new Integer(2*i));
+	    b.add(new Integer(3*i));
+	}
+	OrderStatisticTree hi = (OrderStatisticTree) a.split(new Integer(3001));
+	a.checkSizes(a.root()); hi.checkSizes(hi.root());
+	assert a.size() == 1501 && hi.size() == 1499;
+	a.join(hi);
+	a.union(b);
+	a.checkSizes(a.root());
+	assert a.size() == 5000; // 3000 evens + 3000 multiples of 3 - 1000
+	assert a.rank(new Integer(6)) == 4 && a.select(4).equals(new Integer(6));
+	System.out.println("PASSED.");
+    }
+}
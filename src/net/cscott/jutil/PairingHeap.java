@@ -0,0 +1,391 @@
+// PairingHeap.java, created Mon Oct 19 11:02:18 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+/**
+ * A {@link PairingHeap} is a self-adjusting heap-ordered multiway
+ * tree.  It has O(1) insert, minimum and union operations and
+ * O(lg n) amortized extract-min, delete and decrease-key; Fredman
+ * proved an &Omega;(lg lg n) amortized lower bound for decrease-key,
+ * so it cannot match the O(1) of a {@link FibonacciHeap}.  In
+ * practice its constant factors are much smaller, though, so it is
+ * usually the best choice for decrease-key-heavy algorithms such as
+ * Dijkstra's.
+ * <p>
+ * Two variants of the merge performed after the root is removed are
+ * provided: the standard {@link Variant#TWO_PASS two-pass} merge,
+ * and the {@link Variant#MULTIPASS multipass} merge, which repeatedly
+ * pairs up trees front-to-back until only one is left.
+ * <p>
+ * Implementation is based on "The Pairing Heap: A New Form of
+ * Self-Adjusting Heap" by Fredman, Sedgewick, Sleator and Tarjan
+ * (<i>Algorithmica</i> 1, 1986).
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ */
+public class PairingHeap<K,V> extends AbstractHeap<K,V> {
+    /** The ways in which the children of a deleted root can be
+     *  merged back into a single tree. */
+    public static enum Variant {
+	/** Link pairs of trees left-to-right, then link the results
+	 *  right-to-left into one tree. */
+	TWO_PASS,
+	/** Link pairs of trees front-to-back, appending each result
+	 *  to the back, until one tree remains. */
+	MULTIPASS
+    }
+
+    Node<K,V> root=null;
+    /** Number of nodes in this heap. */
+    int n=0;
+    final boolean multipass;
+    final Comparator<Map.Entry<K,V>> c; // convenience field.
+
+    /** Creates a new, empty two-pass {@link PairingHeap}, sorted
+     *  according to its keys' natural order.  O(1) time. */
+    public PairingHeap() { this(Collections.<Map.Entry<K,V>>emptySet(), null); }
+    /** Creates a new, empty two-pass {@link PairingHeap}, sorted
+     *  according to the given {@link Comparator}.  O(1) time. */
+    public PairingHeap(Comparator<K> c) { this(c, Variant.TWO_PASS); }
+    /** Creates a new, empty {@link PairingHeap} using the given merge
+     *  variant, sorted according to the given {@link Comparator}.
+     *  O(1) time. */
+    public PairingHeap(Comparator<K> c, Variant variant) {
+	this(Collections.<Map.Entry<K,V>>emptySet(), c, variant);
+    }
+    /** Constructs a new two-pass heap with the same entries as the
+     *  specified {@link Heap}.  O(n) time. */
+    public PairingHeap(Heap<K,? extends V> h) {
+	this(h.entries(), h.comparator());
+    }
+    /** Constructs a new two-pass heap from a collection of
+     *  {@link java.util.Map.Entry}s and a key comparator.  O(n) time. */
+    public PairingHeap(Collection<? extends Map.Entry<? extends K,? extends V>> collection, Comparator<K> comparator) {
+	this(collection, comparator, Variant.TWO_PASS);
+    }
+    /** Constructs a new heap using the given merge variant from a
+     *  collection of {@link java.util.Map.Entry}s and a key comparator.
+     *  O(n) time. */
+    public PairingHeap(Collection<? extends Map.Entry<? extends K,? extends V>> collection, Comparator<K> comparator, Variant variant) {
+	super(comparator);
+	c = entryComparator();
+	multipass = (variant == Variant.MULTIPASS);
+	for (Map.Entry<? extends K,? extends V> e : collection)
+	    insert(e.getKey(), e.getValue());
+    }
+
+    /** Returns the merge variant used by this heap. */
+    public Variant variant() {
+	return multipass ? Variant.MULTIPASS : Variant.TWO_PASS;
+    }
+
+    /** Insert an entry into the heap.  O(1) time. */
+    public Map.Entry<K,V> insert(K key, V value) {
+	Node<K,V> x = new Node<K,V>(key, value);
+	insert(x);
+	return x;
+    }
+    protected void insert(Map.Entry<K,V> me) {
+	Node<K,V> x = (Node<K,V>) me;
+	assert x.child==null && x.prev==null && x.next==null;
+	root = (root==null) ? x : _link(root, x);
+	n++;
+    }
+    /** Returns a mapping entry with minimal key.  O(1) time. */
+    public Map.Entry<K,V> minimum() {
+	if (root==null) throw new java.util.NoSuchElementException();
+	return root;
+    }
+    /** Remove and return a map entry with minimal key.  O(lg n)
+     *  amortized time. */
+    public Map.Entry<K,V> extractMinimum() {
+	if (root==null) throw new java.util.NoSuchElementException();
+	Node<K,V> z = root;
+	root = _combine(z.child);
+	z.child = null;
+	n--;
+	return z;
+    }
+    /** Merges all of the mappings from the specified
+     *  {@link PairingHeap} into this one in O(1) time.  The comparator
+     *  for <code>h</code> <b>must be identical</b> to the comparator
+     *  for <code>this</code>.  After calling <code>union()</code>,
+     *  <code>h</code> will be empty. */
+    public void union(PairingHeap<K,V> h) {
+	assert h.c.equals(this.c);
+	if (h==this || h.root==null) return;
+	root = (root==null) ? h.root : _link(root, h.root);
+	n += h.n;
+	h.clear();
+    }
+    public void union(Heap<? extends K,? extends V> h) {
+	if (h instanceof PairingHeap &&
+	    entryComparator().equals(((PairingHeap)h).entryComparator()))
+	    // the unsafe cast below from K2 to K and V2 to V should really be
+	    // safe if the entryComparators for the two Heaps are identical.
+	    union((PairingHeap<K,V>)h);
+	else super.union(h);
+    }
+    /** Replace the key in the specified map entry with the specified
+     *  <b>smaller</b> key.  O(lg n) amortized time, although usually
+     *  much faster. */
+    public void decreaseKey(Map.Entry<K,V> me, K newkey) {
+	Node<K,V> x = (Node<K,V>) me;
+	if (keyComparator().compare(newkey, x.getKey()) > 0)
+	    throw new UnsupportedOperationException("New key is greater than "+
+						    "current key.");
+	setKey(x, newkey);
+	if (x==root) return;
+	_cut(x);
+	root = _link(root, x);
+    }
+    /** Remove the specified map entry from the mapping.  O(lg n)
+     *  amortized time. */
+    public void delete(Map.Entry<K,V> me) {
+	Node<K,V> x = (Node<K,V>) me;
+	if (x==root) { extractMinimum(); return; }
+	_cut(x);
+	Node<K,V> sub = _combine(x.child);
+	x.child = null;
+	if (sub!=null) root = _link(root, sub);
+	n--;
+    }
+    public int size() { return n; }
+    public void clear() { root=null; n=0; }
+
+    public Collection<Map.Entry<K,V>> entries() {
+	return new AbstractCollection<Map.Entry<K,V>>() {
+	    public int size() { return n; }
+	    public Iterator<Map.Entry<K,V>> iterator() {
+		final ArrayList<Node<K,V>> stack = new ArrayList<Node<K,V>>();
+		if (root!=null) stack.add(root);
+		return new UnmodifiableIterator<Map.Entry<K,V>>() {
+		    public boolean hasNext() { return !stack.isEmpty(); }
+		    public Map.Entry<K,V> next() {
+			if (stack.isEmpty())
+			    throw new java.util.NoSuchElementException();
+			Node<K,V> x = stack.remove(stack.size()-1);
+			if (x.next!=null) stack.add(x.next);
+			if (x.child!=null) stack.add(x.child);
+			return x;
+		    }
+		};
+	    }
+	};
+    }
+
+    /** Makes the root with the larger key the leftmost child of the
+     *  other, and returns the new root.  Both nodes must be roots of
+     *  trees which are not in any sibling list. O(1) time. */
+    private Node<K,V> _link(Node<K,V> a, Node<K,V> b) {
+	if (c.compare(b, a) < 0) { Node<K,V> t=a; a=b; b=t; }
+	b.prev = a;
+	b.next = a.child;
+	if (a.child!=null) a.child.prev = b;
+	a.child = b;
+	a.prev = a.next = null;
+	return a;
+    }
+    /** Removes the subtree rooted at x from its parent and siblings. */
+    private void _cut(Node<K,V> x) {
+	if (x.prev.child==x) x.prev.child = x.next; // leftmost child.
+	else x.prev.next = x.next;
+	if (x.next!=null) x.next.prev = x.prev;
+	x.prev = x.next = null;
+    }
+    /** Merges a list of sibling trees into a single tree, returning
+     *  its root (or <code>null</code> if the list was empty). */
+    private Node<K,V> _combine(Node<K,V> first) {
+	if (first==null) return null;
+	first.prev = null;
+	if (first.next==null) return first;
+	return multipass ? _multiPass(first) : _twoPass(first);
+    }
+    private Node<K,V> _twoPass(Node<K,V> first) {
+	// first pass: link pairs left to right.  the results are pushed
+	// onto a stack (linked through 'next') so that the second pass
+	// can visit them right to left.
+	Node<K,V> stack = null;
+	for (Node<K,V> a = first; a!=null; ) {
+	    Node<K,V> b = a.next;
+	    if (b==null) { a.prev = null; a.next = stack; stack = a; break; }
+	    Node<K,V> rest = b.next;
+	    a.next = b.next = null;
+	    Node<K,V> w = _link(a, b);
+	    w.next = stack; stack = w;
+	    a = rest;
+	}
+	// second pass: link each result into the one on its right.
+	Node<K,V> result = stack;
+	stack = stack.next;
+	result.next = null;
+	while (stack!=null) {
+	    Node<K,V> s = stack;
+	    stack = s.next;
+	    s.next = null;
+	    result = _link(result, s);
+	}
+	return result;
+    }
+    private Node<K,V> _multiPass(Node<K,V> first) {
+	// treat the sibling list as a FIFO queue of trees.
+	Node<K,V> head = first, tail = first;
+	while (tail.next!=null) tail = tail.next;
+	while (head.next!=null) {
+	    Node<K,V> a = head, b = head.next;
+	    head = b.next;
+	    a.next = b.next = null;
+	    Node<K,V> w = _link(a, b);
+	    if (head==null) head = w; // that was the last pair.
+	    else { tail.next = w; tail = w; }
+	}
+	return head;
+    }
+
+    /** The underlying node representation for the pairing heap, which
+     *  is also the {@link java.util.Map.Entry} we hand out. */
+    static final class Node<K,V> extends PairMapEntry<K,V> {
+	/** Leftmost child. */
+	Node<K,V> child;
+	/** Right sibling. */
+	Node<K,V> next;
+	/** Left sibling, or parent if this is the leftmost child. */
+	Node<K,V> prev;
+	Node(K key, V value) { super(key, value); }
+	K _setKey(K key) { return super.setKey(key); }
+    }
+    // to implement updateKey, etc...
+    protected final K setKey(Map.Entry<K,V> me, K newkey) {
+	Node<K,V> x = (Node<K,V>) me;
+	return x._setKey(newkey);
+    }
+
+    /** Self-test method. */
+    public static void main(String[] args) {
+	for (Variant v : Variant.values()) {
+	{
+	Heap<Integer,Integer> h = new PairingHeap<Integer,Integer>(null, v);
+	assert h.size()==0 && h.isEmpty();
+	// example from CLR, page 146/151
+	h = new PairingHeap<Integer,Integer>
+	    (new AbstractCollection<Map.Entry<Integer,Integer>>() {
+	    int el[] = { -4, -1, -3, -2, -16, -9, -10, -14, -8, -7 };
+	    public int size() { return el.length; }
+	    public Iterator<Map.Entry<Integer,Integer>> iterator() {
+		return new UnmodifiableIterator<Map.Entry<Integer,Integer>>() {
+		    int i = 0;
+		    public boolean hasNext() { return i<el.length; }
+		    public Map.Entry<Integer,Integer> next() {
+			Integer io = new Integer(el[i++]);
+			return new PairMapEntry<Integer,Integer>(io, io);
+		    }
+		};
+	    }
+	}, null/* default comparator */, v);
+	assert h.size()==10 && !h.isEmpty();
+	assert h.minimum().getKey().equals(new Integer(-16));
+	System.out.println(h);
+	h.insert(new Integer(-15), new Integer(-15));
+	assert h.size()==11 && !h.isEmpty();
+	assert h.minimum().getKey().equals(new Integer(-16));
+	// now verify that we'll get all the keys out in properly sorted order
+	assert h.extractMinimum().getKey().equals(new Integer(-16));
+	assert h.extractMinimum().getKey().equals(new Integer(-15));
+	assert h.extractMinimum().getKey().equals(new Integer(-14));
+	assert h.extractMinimum().getKey().equals(new Integer(-10));
+	assert h.extractMinimum().getKey().equals(new Integer(-9));
+	assert h.extractMinimum().getKey().equals(new Integer(-8));
+	assert h.extractMinimum().getKey().equals(new Integer(-7));
+	assert h.extractMinimum().getKey().equals(new Integer(-4));
+	assert h.extractMinimum().getKey().equals(new Integer(-3));
+	assert h.extractMinimum().getKey().equals(new Integer(-2));
+	assert h.extractMinimum().getKey().equals(new Integer(-1));
+	assert h.isEmpty() && h.size()==0;
+	}{
+	// test delete, decreaseKey, and updateKey
+	// (tests borrowed from BinaryHeap.java)
+	Heap<String,String> h = new PairingHeap<String,String>(null, v);
+	assert h.isEmpty() && h.size()==0;
+
+	ArrayList<Map.Entry<String,String>> mel =
+	    new ArrayList<Map.Entry<String,String>>();
+	mel.add(h.insert("C", "c1"));
+	mel.add(h.insert("S", "s1"));
+	mel.add(h.insert("A", "a"));
+	mel.add(h.insert("S", "s2"));
+	mel.add(h.insert("C", "c2"));
+	mel.add(h.insert("O", "o"));
+	mel.add(h.insert("T", "t1"));
+	mel.add(h.insert("T", "t2"));
+	mel.add(h.insert("Z", "z"));
+	mel.add(h.insert("M", "m"));
+
+	assert h.extractMinimum().getValue().equals("a");
+	System.out.println(h);
+	h.decreaseKey(mel.get(3), "B"); // s2
+	assert h.extractMinimum().getValue().equals("s2");
+	h.delete(mel.get(4)); // c2
+	assert h.extractMinimum().getValue().equals("c1");
+	System.out.println(h);
+	// finally, test updateKey
+	h.updateKey(mel.get(9), "P"); // m
+	assert h.extractMinimum().getValue().equals("o");
+	assert h.extractMinimum().getValue().equals("m");
+	System.out.println(h);
+	// union with another pairing heap, and with a binary heap.
+	PairingHeap<String,String> h2 = new PairingHeap<String,String>(null, v);
+	h2.insert("B", "b"); h2.insert("Y", "y");
+	h.union(h2);
+	assert h2.isEmpty() && h.size()==6;
+	Heap<String,String> h3 = new BinaryHeap<String,String>();
+	h3.insert("D", "d");
+	h.union(h3);
+	assert h3.isEmpty() && h.size()==7;
+	assert h.extractMinimum().getValue().equals("b");
+	assert h.extractMinimum().getValue().equals("d");
+	assert h.entries().size()==5;
+	}{
+	// random decreaseKey/delete-heavy test.
+	Random r = new Random(42);
+	PairingHeap<Integer,Integer> h = new PairingHeap<Integer,Integer>(null, v);
+	ArrayList<Map.Entry<Integer,Integer>> live =
+	    new ArrayList<Map.Entry<Integer,Integer>>();
+	for (int i=0; i<10000; i++) {
+	    int op = r.nextInt(8);
+	    if (op < 3 || live.isEmpty())
+		live.add(h.insert(r.nextInt(100000), i));
+	    else if (op < 6) {
+		Map.Entry<Integer,Integer> e = live.get(r.nextInt(live.size()));
+		h.decreaseKey(e, e.getKey()-r.nextInt(1000));
+	    } else if (op < 7) {
+		h.delete(live.remove(r.nextInt(live.size())));
+	    } else {
+		Map.Entry<Integer,Integer> e = h.extractMinimum();
+		for (Map.Entry<Integer,Integer> o : live)
+		    assert e.getKey() <= o.getKey();
+		live.remove(e);
+	    }
+	    assert h.size()==live.size();
+	}
+	int last = Integer.MIN_VALUE;
+	while (!h.isEmpty()) {
+	    int k = h.extractMinimum().getKey();
+	    assert last <= k;
+	    last = k;
+	}
+	}
+	}
+	// DONE.
+	System.out.println("PASSED.");
+    }
+}
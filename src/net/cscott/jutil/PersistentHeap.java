@@ -0,0 +1,284 @@
+// PersistentHeap.java, created Mon Oct 19 16:05:12 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.NoSuchElementException;
+/**
+ * {@link PersistentHeap} implements a persistent priority queue, based
+ * on a leftist heap with path copying.  Like {@link PersistentMap}, it
+ * does not implement the standard {@link Heap} API but instead exposes
+ * the underlying functional operations: every "modification" returns a
+ * new {@link PersistentHeap} and leaves this one unchanged, and the
+ * two share all but O(lg n) of their nodes.  Use {@link #asHeap()} (or
+ * {@link LeftistHeap} directly) for a mutable {@link Heap} with a
+ * constant-time <code>clone()</code>.
+ * <p>
+ * <code>insert()</code>, <code>removeMinimum()</code> and
+ * <code>union()</code> take O(lg n) time; <code>minimum()</code>,
+ * <code>size()</code> and copying take O(1).  Removing an arbitrary
+ * entry must search for it, which takes O(n) time, although subtrees
+ * whose root is larger than the entry's key are pruned.
+ * <p>
+ * The leftist heap is from <cite>C. A. Crane, "Linear lists and
+ * priority queues as balanced binary trees", Stanford University
+ * technical report STAN-CS-72-259 (1972)</cite>; see also Knuth,
+ * <i>The Art of Computer Programming</i>, vol. 3, section 5.2.3.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ * @see LeftistHeap
+ */
+public class PersistentHeap<K,V> implements java.io.Serializable {
+    final Node<K,V> root;
+    final Comparator<K> c;
+
+    /** Creates an empty {@link PersistentHeap} whose key objects will
+     *  all implement {@link java.lang.Comparable}. */
+    public PersistentHeap() {
+	// cast below is safe iff K implements Comparable.
+	this((Comparator<K>)Default.comparator);
+    }
+    /** Creates an empty {@link PersistentHeap} whose key objects are
+     *  ordered by the given {@link Comparator}. */
+    public PersistentHeap(Comparator<K> c) {
+	this((Node<K,V>)null, (c==null) ? (Comparator<K>)Default.comparator : c);
+    }
+    /** Creates a {@link PersistentHeap} containing all the entries in
+     *  the given collection, ordered by the given {@link Comparator}.
+     *  O(n) time. */
+    public PersistentHeap(Collection<? extends Map.Entry<? extends K,? extends V>> collection, Comparator<K> c) {
+	this(build(collection, (c==null) ? (Comparator<K>)Default.comparator : c),
+	     (c==null) ? (Comparator<K>)Default.comparator : c);
+    }
+    /** Creates a {@link PersistentHeap} from a root {@link Node} and a
+     *  {@link Comparator}. */
+    private PersistentHeap(Node<K,V> root, Comparator<K> c) {
+	this.root = root; this.c = c;
+    }
+    /** Returns a heap with the given root, reusing this one if the
+     *  root is unchanged. */
+    private PersistentHeap<K,V> with(Node<K,V> new_root) {
+	return (new_root==root) ? this : new PersistentHeap<K,V>(new_root, c);
+    }
+
+    /** Returns the comparator used to order the keys of this heap. */
+    public Comparator<K> comparator() { return c; }
+    /** Determines if this {@link PersistentHeap} has any entries. */
+    public boolean isEmpty() { return root==null; }
+    /** Returns the number of entries in this {@link PersistentHeap}.
+     *  O(1) time. */
+    public int size() { return (root==null) ? 0 : root.size; }
+
+    /** Creates and returns a new {@link PersistentHeap} identical to
+     *  this one, except that it also contains an entry mapping
+     *  <code>key</code> to <code>value</code>.  Duplicate keys are
+     *  permitted.  O(lg n) time. */
+    public PersistentHeap<K,V> insert(K key, V value) {
+	return insert(new Entry<K,V>(key, value));
+    }
+    PersistentHeap<K,V> insert(Entry<K,V> e) {
+	return with(merge(root, new Node<K,V>(e, null, null), c));
+    }
+    /** Returns an entry with minimal key.  O(1) time.
+     * @exception NoSuchElementException if the heap is empty. */
+    public Map.Entry<K,V> minimum() {
+	if (root==null) throw new NoSuchElementException();
+	return root.entry;
+    }
+    /** Returns a new {@link PersistentHeap} identical to this one,
+     *  except that the entry returned by {@link #minimum()} has been
+     *  removed.  O(lg n) time.
+     * @exception NoSuchElementException if the heap is empty. */
+    public PersistentHeap<K,V> removeMinimum() {
+	if (root==null) throw new NoSuchElementException();
+	return with(merge(root.left, root.right, c));
+    }
+    /** Returns a new {@link PersistentHeap} containing all the entries
+     *  in this one and in the given one.  O(lg n) time if both heaps
+     *  use the same comparator, otherwise O(m lg (n+m)) time where m
+     *  is the size of the given heap. */
+    public PersistentHeap<K,V> union(PersistentHeap<K,V> h) {
+	if (h.root==null) return this;
+	if (this.root==null && this.c.equals(h.c)) return h;
+	if (this.c.equals(h.c))
+	    return with(merge(this.root, h.root, c));
+	// slow way
+	Node<K,V> new_root = this.root;
+	for (Map.Entry<K,V> e : h.entries())
+	    new_root = merge(new_root, new Node<K,V>((Entry<K,V>)e, null, null), c);
+	return with(new_root);
+    }
+    /** Returns a new {@link PersistentHeap} identical to this one,
+     *  except that it does not contain the given entry.  Entries are
+     *  compared by identity, not with <code>equals()</code>.  Returns
+     *  this heap if the entry is not present.  O(n) time, although
+     *  subtrees whose root key is larger than the entry's are not
+     *  searched. */
+    public PersistentHeap<K,V> remove(Map.Entry<K,V> me) {
+	if (root==null) return this;
+	K key = me.getKey();
+	// depth-first search for the entry, keeping the path to it.
+	ArrayList<Node<K,V>> path = new ArrayList<Node<K,V>>();
+	ArrayList<Node<K,V>> stack = new ArrayList<Node<K,V>>();
+	ArrayList<Integer> depth = new ArrayList<Integer>();
+	stack.add(root); depth.add(0);
+	Node<K,V> found = null;
+	while (found==null && !stack.isEmpty()) {
+	    Node<K,V> n = stack.remove(stack.size()-1);
+	    int d = depth.remove(depth.size()-1);
+	    while (path.size() > d) path.remove(path.size()-1);
+	    path.add(n);
+	    if (n.entry==me) { found = n; break; }
+	    if (c.compare(n.entry.key, key) > 0) continue; // prune.
+	    if (n.right!=null) { stack.add(n.right); depth.add(d+1); }
+	    if (n.left!=null) { stack.add(n.left); depth.add(d+1); }
+	}
+	if (found==null) return this;
+	// replace the node with the union of its children, and copy the
+	// path back up to the root.
+	Node<K,V> cur = merge(found.left, found.right, c);
+	for (int i=path.size()-2; i>=0; i--) {
+	    Node<K,V> p = path.get(i), child = path.get(i+1);
+	    cur = (p.left==child) ? make(p.entry, cur, p.right) :
+		make(p.entry, p.left, cur);
+	}
+	return with(cur);
+    }
+    /** Returns an unmodifiable collection of the entries in this heap,
+     *  in no particular order. */
+    public Collection<Map.Entry<K,V>> entries() {
+	return new AbstractCollection<Map.Entry<K,V>>() {
+	    public int size() { return PersistentHeap.this.size(); }
+	    public Iterator<Map.Entry<K,V>> iterator() {
+		final ArrayList<Node<K,V>> stack = new ArrayList<Node<K,V>>();
+		if (root!=null) stack.add(root);
+		return new UnmodifiableIterator<Map.Entry<K,V>>() {
+		    public boolean hasNext() { return !stack.isEmpty(); }
+		    public Map.Entry<K,V> next() {
+			if (stack.isEmpty()) throw new NoSuchElementException();
+			Node<K,V> n = stack.remove(stack.size()-1);
+			if (n.right!=null) stack.add(n.right);
+			if (n.left!=null) stack.add(n.left);
+			return n.entry;
+		    }
+		};
+	    }
+	};
+    }
+    /** Returns a mutable {@link Heap} whose initial contents are the
+     *  entries of this heap.  Changes to the returned {@link Heap} do
+     *  not affect this {@link PersistentHeap}.  O(1) time. */
+    public LeftistHeap<K,V> asHeap() { return new LeftistHeap<K,V>(this); }
+    /** Human-readable representation of the heap. */
+    public String toString() { return entries().toString(); }
+
+    /*---------------------------------------------------------------*/
+    /** Merge two leftist heaps, copying the right spines.  O(lg n). */
+    static <K,V> Node<K,V> merge(Node<K,V> a, Node<K,V> b, Comparator<K> c) {
+	if (a==null) return b;
+	if (b==null) return a;
+	if (c.compare(b.entry.key, a.entry.key) < 0) {
+	    Node<K,V> t = a; a = b; b = t;
+	}
+	return make(a.entry, a.left, merge(a.right, b, c));
+    }
+    /** Make a node, swapping the children if needed so that the left
+     *  child has the larger rank. */
+    private static <K,V> Node<K,V> make(Entry<K,V> e, Node<K,V> a, Node<K,V> b) {
+	return (rank(a) >= rank(b)) ? new Node<K,V>(e, a, b) :
+	    new Node<K,V>(e, b, a);
+    }
+    private static int rank(Node n) { return (n==null) ? 0 : n.rank; }
+    /** Build a heap from a collection in O(n) time, by melding
+     *  singleton heaps pairwise. */
+    private static <K,V> Node<K,V> build(Collection<? extends Map.Entry<? extends K,? extends V>> coll, Comparator<K> c) {
+	LinkedList<Node<K,V>> queue = new LinkedList<Node<K,V>>();
+	for (Map.Entry<? extends K,? extends V> e : coll)
+	    queue.add(new Node<K,V>(new Entry<K,V>(e.getKey(), e.getValue()),
+				    null, null));
+	while (queue.size() > 1)
+	    queue.add(merge(queue.removeFirst(), queue.removeFirst(), c));
+	return queue.isEmpty() ? null : queue.getFirst();
+    }
+
+    /** The immutable {@link java.util.Map.Entry}s of a
+     *  {@link PersistentHeap}, which may be shared among many heaps. */
+    static final class Entry<K,V> extends AbstractMapEntry<K,V>
+	implements java.io.Serializable {
+	final K key;
+	final V value;
+	Entry(K key, V value) { this.key = key; this.value = value; }
+	public K getKey() { return key; }
+	public V getValue() { return value; }
+    }
+    /** Immutable nodes of a leftist heap.  The rank of a node is the
+     *  length of its right spine. */
+    static final class Node<K,V> implements java.io.Serializable {
+	final Entry<K,V> entry;
+	final Node<K,V> left, right;
+	final int rank, size;
+	Node(Entry<K,V> entry, Node<K,V> left, Node<K,V> right) {
+	    this.entry = entry; this.left = left; this.right = right;
+	    this.rank = 1 + rank(right);
+	    this.size = 1 + ((left==null) ? 0 : left.size) +
+		((right==null) ? 0 : right.size);
+	}
+    }
+
+    /** Self-test function. */
+    public static void main(String[] args) {
+	// example from CLR, page 146/151
+	int el[] = { -4, -1, -3, -2, -16, -9, -10, -14, -8, -7 };
+	PersistentHeap<Integer,Integer> h0 = new PersistentHeap<Integer,Integer>();
+	PersistentHeap<Integer,Integer> h = h0;
+	for (int i=0; i<el.length; i++)
+	    h = h.insert(new Integer(el[i]), new Integer(i));
+	assert h0.isEmpty() && h.size()==10;
+	assert h.minimum().getKey().intValue()==-16;
+	// old versions are unchanged.
+	PersistentHeap<Integer,Integer> h1 = h.removeMinimum();
+	assert h.size()==10 && h.minimum().getKey().intValue()==-16;
+	assert h1.size()==9 && h1.minimum().getKey().intValue()==-14;
+	PersistentHeap<Integer,Integer> h2 = h1.insert(new Integer(-20), null);
+	assert h1.minimum().getKey().intValue()==-14;
+	assert h2.minimum().getKey().intValue()==-20;
+	// remove an arbitrary entry.
+	Map.Entry<Integer,Integer> m9 = null;
+	for (Map.Entry<Integer,Integer> e : h.entries())
+	    if (e.getKey().intValue()==-9) m9 = e;
+	PersistentHeap<Integer,Integer> h3 = h.remove(m9);
+	assert h3.size()==9 && h.size()==10 && h3.remove(m9)==h3;
+	// union, and draining in order.
+	PersistentHeap<Integer,Integer> u = h3.union(h2);
+	assert u.size()==19;
+	int last = Integer.MIN_VALUE, count9 = 0;
+	for (PersistentHeap<Integer,Integer> x = u; !x.isEmpty(); x = x.removeMinimum()) {
+	    int k = x.minimum().getKey().intValue();
+	    assert last <= k;
+	    if (k==-9) count9++;
+	    last = k;
+	}
+	assert count9==1;
+	// build from a collection; deep left paths don't hurt remove().
+	PersistentHeap<Integer,Integer> b = new PersistentHeap<Integer,Integer>
+	    (h.entries(), null);
+	assert b.size()==10 && b.minimum().getKey().intValue()==-16;
+	PersistentHeap<Integer,Integer> deep = h0;
+	for (int i=0; i<100000; i++)
+	    deep = deep.insert(new Integer(-i), null);
+	Map.Entry<Integer,Integer> bottom = null;
+	for (Map.Entry<Integer,Integer> e : deep.entries())
+	    if (e.getKey().intValue()==0) bottom = e;
+	assert deep.remove(bottom).size()==99999;
+	System.out.println(u);
+	System.out.println("PASSED.");
+    }
+}
@@ -0,0 +1,404 @@
+// RadixHeap.java, created Mon Oct 19 13:20:31 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+/**
+ * A {@link RadixHeap} is a <i>monotone</i> {@link Heap} with integer
+ * keys: the key of every entry inserted must be no smaller than the
+ * key most recently returned by <code>extractMinimum()</code>.  This
+ * is the case for Dijkstra's algorithm with non-negative integer
+ * weights, and for event-driven simulations whose clock only moves
+ * forward.  Keys may be {@link Integer}s, {@link Long}s, or any other
+ * {@link Number}; only their <code>longValue()</code> is used.
+ * <p>
+ * Entries are kept in 65 unsorted buckets.  Bucket <i>i</i> holds the
+ * entries whose key first differs from the last extracted key in bit
+ * <i>i-1</i>; bucket 0 holds the entries equal to it.  When bucket 0
+ * is empty, <code>extractMinimum()</code> finds the first non-empty
+ * bucket and redistributes its entries into lower buckets.  Each
+ * entry can only move down, so insert and decrease-key are O(1) and
+ * extract-min is amortized O(lg C), where C is the difference between
+ * the largest and smallest keys in the heap.  Keys are compared as
+ * primitive <code>long</code>s; the comparator is never called.
+ * <p>
+ * The methods of {@link Heap} take and return boxed keys; only
+ * <code>minimumKey()</code>, <code>lastKey()</code> and
+ * <code>extractMinimumValue()</code> avoid boxing.  Use a
+ * {@link LongRadixHeap} to insert and change keys as primitive
+ * <code>long</code>s as well.
+ * <p>
+ * Inserting a key smaller than the last extracted key, or decreasing
+ * a key below it, throws an {@link IllegalArgumentException}.
+ * <code>minimum()</code> does not count as an extraction, and
+ * <code>clear()</code> forgets the last extracted key.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ * @see LongRadixHeap
+ * @see IndexedLongHeap
+ * @see TimerWheel
+ */
+public class RadixHeap<K extends Number,V> extends AbstractHeap<K,V> {
+    /** Bucket <i>i</i> is a doubly-linked list of entries. */
+    private final Entry<K,V>[] buckets = (Entry<K,V>[]) new Entry[65];
+    /** The last extracted key; all keys in the heap are at least this. */
+    private long last = Long.MIN_VALUE;
+    /** Number of entries in the heap. */
+    private int size = 0;
+
+    /** Creates a new, empty {@link RadixHeap}. */
+    public RadixHeap() { super((Comparator<K>)LONG_VALUE_COMPARATOR); }
+    /** Constructs a new heap with the same entries as the specified
+     *  {@link Heap}.  O(n) time. */
+    public RadixHeap(Heap<K,? extends V> h) {
+	this();
+	for (Map.Entry<K,? extends V> e : h.entries())
+	    insert(e.getKey(), e.getValue());
+    }
+
+    /** Insert an entry into the heap.  O(1) time.
+     * @exception IllegalArgumentException if <code>key</code> is smaller
+     *            than the last extracted key. */
+    public Map.Entry<K,V> insert(K key, V value) {
+	Entry<K,V> e = new Entry<K,V>(key, value);
+	insert(e);
+	return e;
+    }
+    protected void insert(Map.Entry<K,V> me) {
+	Entry<K,V> e = (Entry<K,V>) me;
+	checkKey(e.k);
+	link(e);
+	size++;
+    }
+    /** Returns an entry with minimal key.  O(1) time if the smallest
+     *  entries have already been redistributed; otherwise this scans
+     *  the first non-empty bucket, which may hold O(n) entries.
+     * @exception NoSuchElementException if the heap is empty. */
+    public Map.Entry<K,V> minimum() {
+	if (size==0) throw new NoSuchElementException();
+	if (buckets[0]!=null) return buckets[0];
+	return bucketMinimum(firstBucket());
+    }
+    /** Returns the key of an entry with minimal key as a primitive
+     *  <code>long</code>.  Takes the same time as
+     *  <code>minimum()</code>.
+     * @exception NoSuchElementException if the heap is empty. */
+    public long minimumKey() {
+	if (size==0) throw new NoSuchElementException();
+	if (buckets[0]!=null) return last;
+	return bucketMinimum(firstBucket()).k;
+    }
+    /** Returns the key most recently extracted from this heap, as a
+     *  primitive <code>long</code>, or <code>Long.MIN_VALUE</code> if
+     *  nothing has been extracted since the heap was created or
+     *  cleared.  No key smaller than this may be inserted. */
+    public long lastKey() { return last; }
+    /** Remove and return an entry with minimal key.  Amortized O(lg C)
+     *  time.
+     * @exception NoSuchElementException if the heap is empty. */
+    public Map.Entry<K,V> extractMinimum() {
+	if (size==0) throw new NoSuchElementException();
+	if (buckets[0]==null) redistribute();
+	Entry<K,V> e = buckets[0];
+	unlink(e);
+	size--;
+	return e;
+    }
+    /** Remove an entry with minimal key and return its value.
+     *  Equivalent to <code>extractMinimum().getValue()</code>. */
+    public V extractMinimumValue() {
+	return extractMinimum().getValue();
+    }
+    /** Replace the key in the specified map entry with the specified
+     *  <b>smaller</b> key.  O(1) time.
+     * @exception UnsupportedOperationException if the new key is
+     *            greater than the current key.
+     * @exception IllegalArgumentException if the new key is smaller
+     *            than the last extracted key.
+     * @exception NoSuchElementException if the entry is not in the
+     *            heap. */
+    public void decreaseKey(Map.Entry<K,V> me, K newkey) {
+	rekey(checkIn(me), newkey.longValue(), newkey, true);
+    }
+    /** Replace the key in the specified map entry with the specified
+     *  key, which may be larger or smaller than its current key.
+     *  O(1) time.
+     * @exception IllegalArgumentException if the new key is smaller
+     *            than the last extracted key.
+     * @exception NoSuchElementException if the entry is not in the
+     *            heap. */
+    public void updateKey(Map.Entry<K,V> me, K newkey) {
+	rekey(checkIn(me), newkey.longValue(), newkey, false);
+    }
+    /** Remove the specified map entry from the mapping.  O(1) time.
+     * @exception NoSuchElementException if the entry is not in the
+     *            heap. */
+    public void delete(Map.Entry<K,V> me) {
+	unlink(checkIn(me));
+	size--;
+    }
+    public int size() { return size; }
+    /** Removes all entries from this heap, and forgets the last
+     *  extracted key.  O(n) time. */
+    public void clear() {
+	for (int i=0; i<buckets.length; i++) {
+	    for (Entry<K,V> e = buckets[i]; e!=null; e = e.next)
+		e.bucket = -1;
+	    buckets[i] = null;
+	}
+	size = 0;
+	last = Long.MIN_VALUE;
+    }
+    public Collection<Map.Entry<K,V>> entries() {
+	return new AbstractCollection<Map.Entry<K,V>>() {
+	    public int size() { return size; }
+	    public Iterator<Map.Entry<K,V>> iterator() {
+		return new UnmodifiableIterator<Map.Entry<K,V>>() {
+		    int i = 0;
+		    Entry<K,V> e = advance(buckets[0]);
+		    private Entry<K,V> advance(Entry<K,V> x) {
+			while (x==null && ++i < buckets.length)
+			    x = buckets[i];
+			return x;
+		    }
+		    public boolean hasNext() { return e!=null; }
+		    public Map.Entry<K,V> next() {
+			if (e==null) throw new NoSuchElementException();
+			Entry<K,V> r = e;
+			e = advance(e.next);
+			return r;
+		    }
+		};
+	    }
+	};
+    }
+
+    // primitive-key operations, for LongRadixHeap.  The key of the
+    // entry is boxed as a Long only when getKey() is called.
+    Map.Entry<K,V> insertLong(long key, V value) {
+	Entry<K,V> e = new Entry<K,V>(key, value);
+	insert(e);
+	return e;
+    }
+    void rekeyLong(Map.Entry<K,V> me, long key, boolean decrease) {
+	rekey(checkIn(me), key, null, decrease);
+    }
+
+    // helper functions.
+    /** Give entry <code>e</code> the key <code>k</code>, whose boxed
+     *  form is <code>boxed</code> (or <code>null</code>, to box it on
+     *  demand). */
+    private void rekey(Entry<K,V> e, long k, K boxed, boolean decrease) {
+	if (decrease && k > e.k)
+	    throw new UnsupportedOperationException("New key is greater than "+
+						    "current key.");
+	checkKey(k);
+	unlink(e);
+	e.k = k;
+	e.key = boxed;
+	link(e);
+    }
+    /** Entries which were extracted or deleted have bucket -1. */
+    private Entry<K,V> checkIn(Map.Entry<K,V> me) {
+	Entry<K,V> e = (Entry<K,V>) me;
+	if (e.bucket < 0)
+	    throw new NoSuchElementException("Entry is not in heap.");
+	return e;
+    }
+    private void checkKey(long k) {
+	if (k < last)
+	    throw new IllegalArgumentException
+		("Key "+k+" is less than the last extracted key "+last+
+		 "; radix heaps are monotone.");
+    }
+    /** Returns the bucket for key <code>k</code>, which must be at
+     *  least <code>last</code>. */
+    private int bucketOf(long k) {
+	return 64 - Long.numberOfLeadingZeros(k ^ last);
+    }
+    /** Returns the index of the first non-empty bucket. */
+    private int firstBucket() {
+	int i = 0;
+	while (buckets[i]==null) i++;
+	return i;
+    }
+    /** Returns an entry with minimal key in bucket <code>i</code>. */
+    private Entry<K,V> bucketMinimum(int i) {
+	Entry<K,V> min = buckets[i];
+	for (Entry<K,V> e = min.next; e!=null; e = e.next)
+	    if (e.k < min.k) min = e;
+	return min;
+    }
+    /** Bucket 0 is empty: make the smallest remaining key the new
+     *  <code>last</code> and redistribute its bucket, which moves every
+     *  entry in it to a lower bucket. */
+    private void redistribute() {
+	int i = firstBucket();
+	last = bucketMinimum(i).k;
+	Entry<K,V> e = buckets[i];
+	buckets[i] = null;
+	while (e!=null) {
+	    Entry<K,V> next = e.next;
+	    link(e);
+	    e = next;
+	}
+    }
+    private void link(Entry<K,V> e) {
+	int b = bucketOf(e.k);
+	Entry<K,V> head = buckets[b];
+	e.bucket = b;
+	e.prev = null;
+	e.next = head;
+	if (head!=null) head.prev = e;
+	buckets[b] = e;
+    }
+    private void unlink(Entry<K,V> e) {
+	if (e.prev==null) buckets[e.bucket] = e.next;
+	else e.prev.next = e.next;
+	if (e.next!=null) e.next.prev = e.prev;
+	e.prev = e.next = null;
+	e.bucket = -1;
+    }
+
+    /** Compares {@link Number}s by their <code>longValue()</code>. */
+    private static final Comparator<Number> LONG_VALUE_COMPARATOR =
+	new Comparator<Number>() {
+	    public int compare(Number a, Number b) {
+		long x = a.longValue(), y = b.longValue();
+		return (x < y) ? -1 : (x > y) ? 1 : 0;
+	    }
+	};
+
+    /** Our {@link RadixHeap} {@link java.util.Map.Entry}s look like
+     *  this: */
+    private static final class Entry<K extends Number,V>
+	extends AbstractMapEntry<K,V> {
+	/** The key, as a primitive. */
+	long k;
+	/** The key, boxed; <code>null</code> if it has not been boxed
+	 *  yet, in which case <code>K</code> is {@link Long}. */
+	K key;
+	V value;
+	/** The bucket containing this entry, or -1. */
+	int bucket = -1;
+	/** Neighbors in the bucket's list. */
+	Entry<K,V> prev, next;
+	Entry(K key, V value) {
+	    this.k = key.longValue(); this.key = key; this.value = value;
+	}
+	Entry(long k, V value) { this.k = k; this.value = value; }
+	public K getKey() {
+	    if (key==null) key = (K) Long.valueOf(k);
+	    return key;
+	}
+	public V getValue() { return value; }
+	public V setValue(V newValue) {
+	    V old = value;
+	    value = newValue;
+	    return old;
+	}
+	K _setKey(K newKey) {
+	    K old = getKey();
+	    this.k = newKey.longValue();
+	    this.key = newKey;
+	    return old;
+	}
+    }
+    // to implement updateKey, etc...
+    protected final K setKey(Map.Entry<K,V> me, K newkey) {
+	return ((Entry<K,V>) me)._setKey(newkey);
+    }
+
+    /** Self-test function. */
+    public static void main(String[] args) {
+	// example from CLR, page 146/151, shifted to be non-negative.
+	RadixHeap<Integer,Integer> h = new RadixHeap<Integer,Integer>();
+	assert h.isEmpty() && h.size()==0;
+	int el[] = { 4, 1, 3, 2, 16, 9, 10, 14, 8, 7 };
+	for (int i=0; i<el.length; i++)
+	    h.insert(Integer.valueOf(el[i]), Integer.valueOf(i));
+	assert h.size()==10;
+	assert h.minimum().getKey().intValue()==1 && h.minimumKey()==1;
+	assert h.lastKey()==Long.MIN_VALUE; // minimum() doesn't extract.
+	h.insert(Integer.valueOf(0), Integer.valueOf(-1));
+	assert h.extractMinimumValue().intValue()==-1 && h.lastKey()==0;
+	assert h.extractMinimum().getKey().intValue()==1;
+	try {
+	    h.insert(Integer.valueOf(0), Integer.valueOf(0));
+	    assert false : "monotonicity violation not caught";
+	} catch (IllegalArgumentException ex) { /* expected */ }
+	h.insert(Integer.valueOf(1), Integer.valueOf(99)); // equal is ok.
+	assert h.extractMinimumValue().intValue()==99;
+	System.out.println(h);
+	{
+	// decreaseKey, delete and updateKey (tests borrowed from
+	// BinaryHeap.java, with letters as numbers)
+	RadixHeap<Long,String> hh = new RadixHeap<Long,String>();
+	ArrayList<Map.Entry<Long,String>> mel =
+	    new ArrayList<Map.Entry<Long,String>>();
+	String s = "CSASCOTTZM";
+	for (int i=0; i<s.length(); i++)
+	    mel.add(hh.insert(Long.valueOf(s.charAt(i)),
+			      s.substring(i, i+1).toLowerCase()+i));
+	assert hh.extractMinimum().getValue().equals("a2");
+	hh.decreaseKey(mel.get(3), Long.valueOf('B')); // s3
+	assert hh.extractMinimum().getValue().equals("s3");
+	hh.delete(mel.get(4)); // c4
+	assert hh.extractMinimum().getValue().equals("c0");
+	hh.updateKey(mel.get(9), Long.valueOf('P')); // m9
+	assert hh.extractMinimum().getValue().equals("o5");
+	assert hh.extractMinimum().getValue().equals("m9");
+	assert hh.size()==4 && hh.entries().size()==4;
+	try {
+	    hh.decreaseKey(mel.get(8), Long.valueOf('A'));
+	    assert false : "monotonicity violation not caught";
+	} catch (IllegalArgumentException ex) { /* expected */ }
+	// entries which were deleted or extracted are not in the heap.
+	try {
+	    hh.delete(mel.get(4)); // c4, deleted above.
+	    assert false : "deleted an entry twice";
+	} catch (NoSuchElementException ex) { /* expected */ }
+	try {
+	    hh.updateKey(mel.get(2), Long.valueOf('Z')); // a2, extracted.
+	    assert false : "rekeyed an extracted entry";
+	} catch (NoSuchElementException ex) { /* expected */ }
+	assert hh.size()==4 && hh.entries().size()==4;
+	hh.clear();
+	assert hh.isEmpty() && hh.lastKey()==Long.MIN_VALUE;
+	}
+	// negative and very large keys, against a reference BinaryHeap
+	// driven with the same monotone (Dijkstra-like) workload.
+	Random r = new Random(1);
+	RadixHeap<Long,Integer> rh = new RadixHeap<Long,Integer>();
+	Heap<Long,Integer> bh = new BinaryHeap<Long,Integer>();
+	long base = -1000;
+	for (int i=0; i<20000; i++) {
+	    if (rh.isEmpty() || r.nextInt(3)!=0) {
+		long k = base + ((i%100==0) ? (r.nextLong()>>>2) : r.nextInt(1000));
+		rh.insert(Long.valueOf(k), Integer.valueOf(i));
+		bh.insert(Long.valueOf(k), Integer.valueOf(i));
+	    } else {
+		long k = rh.extractMinimum().getKey().longValue();
+		assert k == bh.extractMinimum().getKey().longValue();
+		base = k;
+	    }
+	    assert rh.size()==bh.size();
+	}
+	for (long prev = base; !rh.isEmpty(); ) {
+	    long k = rh.extractMinimum().getKey().longValue();
+	    assert prev <= k && k == bh.extractMinimum().getKey().longValue();
+	    prev = k;
+	}
+	// DONE.
+	System.out.println("PASSED.");
+    }
+}
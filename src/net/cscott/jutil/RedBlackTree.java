@@ -55,6 +55,12 @@ public class RedBlackTree extends BinaryTree {
 
     public RedBlackTree() { super(); }
     public RedBlackTree(Comparator c) { super(c); }
+    /** Creates an empty tree with the same ordering as
+	<code>sibling</code>, which can exchange nodes with it (and
+	with its other siblings) without relinking them.  Used by
+	{@link #makeTree()}.
+    */
+    protected RedBlackTree(RedBlackTree sibling) { super(sibling); }
 
     // helper method to clear out casts in code.  I can't wait for GJ
     // so I'll be able to get around this in better ways.
@@ -69,6 +75,7 @@ public class RedBlackTree extends BinaryTree {
     protected void insertNode(Node x) {
 	checkRep();
 	super.insertNode(x);
+	Node z = x; // x moves up the tree below.
 	setColor(x, RED);
 	while(x != root() && color(x.parent()) == RED) {
 	    if (x.parent() == x.parent().parent().left()) {
@@ -106,6 +113,7 @@ public class RedBlackTree extends BinaryTree {
 	    }
 	}
 	setColor(root(), BLACK);
+	subtreeChangedUp(z);
 
 	checkRep();
     }
@@ -124,6 +132,9 @@ public class RedBlackTree extends BinaryTree {
 	    y = z;
 	else
 	    y = successor(z);
+	// the lowest node whose subtree will change.
+	Node start = (y == z) ? z.parent() :
+	    (y.parent() == z) ? y : y.parent();
 
 	if (y.left() != NIL)
 	    x = y.left();
@@ -142,6 +153,10 @@ public class RedBlackTree extends BinaryTree {
 	// System.out.println(" x:"+x+" y:"+y+" z:"+z);
 	if (y != z) {
 	    swapPositions(y,z);
+	    // if y was z's child, x's parent is now y.  swapPositions
+	    // fixes this for a real node, but not for NIL.
+	    if (x.parent() == z)
+		setParent(x, y);
 	}
 	
 	// sadly, below are the only significant differences versus
@@ -150,6 +165,7 @@ public class RedBlackTree extends BinaryTree {
 	// procedures without making the whole thing an obvious hack.
 	if (color(z) == BLACK) // we swap above, so z's col instead of y's col 
 	    rbDeleteFixup(x);
+	subtreeChangedUp(start);
 
 	// System.out.println(dump());
 
@@ -261,5 +277,390 @@ public class RedBlackTree extends BinaryTree {
 	setParent(x, y);
     }
 
-    public static void main(String[] args) { (new RedBlackTree()).test(); }
+    // ------------------------------------------------------------
+    // split, join and set operations.
+    //
+    // These follow "Just Join for Parallel Ordered Sets" (Blelloch,
+    // Ferizovic & Sun, SPAA 2016): everything is built from join(),
+    // which links two trees and a middle node in time proportional
+    // to the difference of their black heights.  The algorithms work
+    // on detached subtrees (whose top node's parent is NIL), each of
+    // which is passed around with its black height so that it never
+    // has to be recomputed.  A subtree's top may be red.
+
+    /** Creates an empty tree of the same class and ordering as
+	<code>this</code>, using the {@link
+	#RedBlackTree(RedBlackTree)} constructor so that the two can
+	exchange nodes.  {@link #split(Object)} puts its result in
+	such a tree.  Subclasses which keep their own data in their
+	nodes must override this to create an instance of their own
+	class.
+    */
+    protected RedBlackTree makeTree() { return new RedBlackTree(this); }
+
+    /** Called, bottom-up, on every node whose subtree was changed by
+	an insertion, deletion, split, join or set operation other
+	than through a rotation, so that subclasses can recompute any
+	data derived from the subtree rooted at <code>x</code>.  The
+	default implementation does nothing.
+    */
+    protected void subtreeChanged(Node x) { }
+    // insertNode and deleteNode link nodes in and splice them out
+    // without going through the hooks; rotations fix up the nodes
+    // they move out of the path from p to the root.
+    private void subtreeChangedUp(Node p) {
+	for ( ; p != NIL; p = p.parent())
+	    subtreeChanged(p);
+    }
+
+    /** Removes every element greater than or equal to
+	<code>key</code> from <code>this</code>, and returns them in a
+	new tree of the same class.  O(lg n) time.
+    */
+    public RedBlackTree split(Object key) {
+	RedBlackTree t = makeTree();
+	Sub l = new Sub(), r = new Sub();
+	split(root(), blackHeight(root()), key, false, l, r);
+	setTop(l);
+	t.setTop(r);
+	return t;
+    }
+    /** Moves every element of <code>other</code> into
+	<code>this</code>, leaving <code>other</code> empty.  Every
+	element of <code>other</code> must be greater than or equal to
+	every element of <code>this</code>.  Takes O(lg n) time if
+	<code>other</code> shares nodes with <code>this</code> (that
+	is, if it was produced by {@link #split(Object)} from this or
+	a related tree); otherwise its nodes must first be relinked,
+	in time linear in its size.
+	@exception IllegalArgumentException if <code>other</code> is
+	of a different class, has a different ordering, or has an
+	element less than the maximum of <code>this</code>.
+    */
+    public void join(RedBlackTree other) {
+	checkCompatible(other);
+	if (other == this || other.root() == other.NIL) return;
+	if (root() != NIL && comp.compare(maximum(), other.minimum()) > 0)
+	    throw new IllegalArgumentException("Trees overlap");
+	Node b = adopt(other);
+	Sub out = new Sub();
+	join2(root(), blackHeight(root()), b, blackHeight(b), out);
+	setTop(out);
+    }
+    /** Moves every element of <code>other</code> which is not
+	already in <code>this</code> into <code>this</code>, leaving
+	<code>other</code> empty.  When the trees have sizes
+	<i>m</i> &lt;= <i>n</i>, takes O(<i>m</i> lg(<i>n/m</i>+1))
+	time.  Treats both
+	trees as sets: if either has duplicate elements, which copies
+	survive is unspecified.  If <code>other</code> does not share
+	nodes with <code>this</code>, its nodes are first relinked, in
+	time linear in its size; so pass the smaller tree.
+	@exception IllegalArgumentException if <code>other</code> is
+	of a different class or has a different ordering.
+    */
+    public void union(RedBlackTree other) { setOp(UNION, other); }
+    /** Removes from <code>this</code> every element which is not
+	also in <code>other</code>, and leaves <code>other</code>
+	empty.  The same time bounds and caveats apply as for {@link
+	#union(RedBlackTree)}.
+    */
+    public void intersection(RedBlackTree other) { setOp(INTERSECTION, other); }
+    /** Removes from <code>this</code> every element which is also
+	in <code>other</code>, and leaves <code>other</code> empty.
+	The same time bounds and caveats apply as for {@link
+	#union(RedBlackTree)}.
+    */
+    public void difference(RedBlackTree other) { setOp(DIFFERENCE, other); }
+
+    private static final int UNION = 0, INTERSECTION = 1, DIFFERENCE = 2;
+
+    private void setOp(int op, RedBlackTree other) {
+	checkCompatible(other);
+	if (other == this) {
+	    if (op == DIFFERENCE) setRoot(NIL);
+	    return;
+	}
+	Node b = adopt(other);
+	Sub out = new Sub();
+	setOp(op, root(), blackHeight(root()), b, blackHeight(b), out);
+	setTop(out);
+    }
+    private void setOp(int op, Node a, int abh, Node b, int bbh,
+		       Sub out) {
+	if (a == NIL || b == NIL) {
+	    if (op == UNION && a == NIL) out.set(b, bbh);
+	    else if (op == INTERSECTION || a == NIL) out.set(NIL, 0);
+	    else out.set(a, abh);
+	    return;
+	}
+	// split a around the top of b.
+	Node bl = b.left(), br = b.right();
+	int cbh = bbh - ((color(b) == BLACK) ? 1 : 0);
+	detach(bl); detach(br);
+	Sub l = new Sub(), r = new Sub();
+	Node eq = split(a, abh, b.key, true, l, r);
+	// recurse on the two halves.
+	Sub lo = new Sub(), hi = new Sub();
+	setOp(op, l.top, l.bh, bl, cbh, lo);
+	setOp(op, r.top, r.bh, br, cbh, hi);
+	// keep the element from this in preference to the one from other.
+	Node mid = (op == UNION) ? ((eq != NIL) ? eq : b) :
+	    (op == INTERSECTION) ? eq : NIL;
+	if (mid != NIL) join(lo.top, lo.bh, mid, hi.top, hi.bh, out);
+	else join2(lo.top, lo.bh, hi.top, hi.bh, out);
+    }
+    /** A detached subtree and its black height. */
+    private static final class Sub {
+	Node top; int bh;
+	void set(Node top, int bh) { this.top = top; this.bh = bh; }
+    }
+    /** Returns the number of black nodes on each path from
+	<code>x</code> (inclusive) down to NIL (exclusive). */
+    private int blackHeight(Node x) {
+	int bh = 0;
+	for ( ; x != NIL; x = x.left())
+	    if (color(x) == BLACK) bh++;
+	return bh;
+    }
+    private void detach(Node x) { if (x != NIL) setParent(x, NIL); }
+    /** Makes the subtree <code>s</code> the whole of this tree. */
+    private void setTop(Sub s) {
+	if (s.top != NIL) setColor(s.top, BLACK);
+	setRoot(s.top);
+    }
+    private void checkCompatible(RedBlackTree other) {
+	if (other.getClass() != getClass() || !comp.equals(other.comp))
+	    throw new IllegalArgumentException("Incompatible trees");
+    }
+    /** Empties <code>other</code> and returns its former root, after
+	relinking its nodes to share <code>this</code>'s NIL if
+	necessary. */
+    private Node adopt(RedBlackTree other) {
+	Node b = other.root();
+	other.setRoot(other.NIL);
+	if (other.NIL != NIL && b != other.NIL)
+	    relink(b, other.NIL);
+	if (b == other.NIL) b = NIL;
+	detach(b);
+	return b;
+    }
+    private void relink(Node x, Node oldNIL) {
+	// children first, so x's data is recomputed from theirs.
+	if (x.left() != oldNIL) relink(x.left(), oldNIL);
+	if (x.right() != oldNIL) relink(x.right(), oldNIL);
+	if (x.left() == oldNIL) setLeft(x, NIL);
+	if (x.right() == oldNIL) setRight(x, NIL);
+	if (x.parent() == oldNIL) setParent(x, NIL);
+    }
+
+    /** Splits the subtree <code>t</code> of black height
+	<code>bh</code> into the elements less than <code>key</code>,
+	which are put in <code>l</code>, and the rest, which are put
+	in <code>r</code>.  If <code>three</code> is true, a node
+	equal to <code>key</code> is put in neither, and returned;
+	otherwise, or if there is none, returns NIL.
+	@see "Just Join, Figure 2"
+    */
+    private Node split(Node t, int bh, Object key, boolean three,
+		       Sub l, Sub r) {
+	if (t == NIL) {
+	    l.set(NIL, 0); r.set(NIL, 0);
+	    return NIL;
+	}
+	Node tl = t.left(), tr = t.right();
+	int cbh = bh - ((color(t) == BLACK) ? 1 : 0);
+	detach(tl); detach(tr);
+	int c = comp.compare(key, t.key);
+	if (three && c == 0) {
+	    l.set(tl, cbh); r.set(tr, cbh);
+	    return t;
+	}
+	Node eq;
+	if (c <= 0) { // t and everything to its right go in r.
+	    eq = split(tl, cbh, key, three, l, r);
+	    join(r.top, r.bh, t, tr, cbh, r);
+	} else {
+	    eq = split(tr, cbh, key, three, l, r);
+	    join(tl, cbh, t, l.top, l.bh, l);
+	}
+	return eq;
+    }
+    /** Splits off the maximum node of the non-empty subtree
+	<code>t</code>, putting the rest in <code>out</code>, and
+	returns it. */
+    private Node splitLast(Node t, int bh, Sub out) {
+	Node tl = t.left(), tr = t.right();
+	int cbh = bh - ((color(t) == BLACK) ? 1 : 0);
+	detach(tl); detach(tr);
+	if (tr == NIL) {
+	    out.set(tl, cbh);
+	    return t;
+	}
+	Node last = splitLast(tr, cbh, out);
+	join(tl, cbh, t, out.top, out.bh, out);
+	return last;
+    }
+    /** Joins two subtrees, every element of <code>l</code> being
+	less than or equal to every element of <code>r</code>. */
+    private void join2(Node l, int lbh, Node r, int rbh, Sub out) {
+	if (l == NIL) { out.set(r, rbh); return; }
+	Node k = splitLast(l, lbh, out);
+	join(out.top, out.bh, k, r, rbh, out);
+    }
+    /** Joins subtrees <code>l</code> and <code>r</code> using the
+	node <code>k</code>, which must lie between them, and puts
+	the result in <code>out</code>.  O(|bh(l)-bh(r)|+1) time.
+    */
+    private void join(Node l, int lbh, Node k, Node r, int rbh, Sub out) {
+	// with black tops, l and r can hang below a red k.
+	if (color(l) == RED) { setColor(l, BLACK); lbh++; }
+	if (color(r) == RED) { setColor(r, BLACK); rbh++; }
+	setColor(k, RED);
+	if (lbh == rbh) {
+	    link(k, l, r, NIL, false);
+	    subtreeChanged(k);
+	    out.set(k, lbh);
+	    return;
+	}
+	// hang k, with the shorter tree, in place of the node y on the
+	// inner spine of the taller tree which has the same black
+	// height; then fix the red k as if it had just been inserted.
+	boolean right = (lbh > rbh);
+	Node y = right ? l : r, p = NIL; // y may end up NIL; track p.
+	for (int h = right ? lbh : rbh; color(y) == RED || h > (right ? rbh : lbh); ) {
+	    if (color(y) == BLACK) h--;
+	    p = y;
+	    y = right ? y.right() : y.left();
+	}
+	if (right) link(k, y, r, p, true);
+	else link(k, l, y, p, false);
+	insertFixup(k);
+	// now update the path back up to the top.
+	Node top = k;
+	for (Node x = k; x != NIL; x = x.parent()) {
+	    subtreeChanged(x);
+	    top = x;
+	}
+	int bh = right ? lbh : rbh;
+	if (color(top) == RED) { setColor(top, BLACK); bh++; }
+	out.set(top, bh);
+    }
+    /** Makes <code>l</code> and <code>r</code> the children of
+	<code>k</code>, and hangs <code>k</code> from <code>p</code>,
+	as its right child if <code>asRight</code>. */
+    private void link(Node k, Node l, Node r, Node p, boolean asRight) {
+	setLeft(k, l); if (l != NIL) setParent(l, k);
+	setRight(k, r); if (r != NIL) setParent(r, k);
+	setParent(k, p);
+	if (p != NIL) {
+	    if (asRight) setRight(p, k); else setLeft(p, k);
+	}
+    }
+    /** Restores property (3) above a red node <code>x</code> in a
+	detached subtree with a black top.
+	@see "CLR, pg. 268"
+    */
+    private void insertFixup(Node x) {
+	while (color(x.parent()) == RED) {
+	    Node p = x.parent(), g = p.parent(); // p isn't the black top.
+	    boolean left = (p == g.left());
+	    Node y = left ? g.right() : g.left();
+	    if (color(y) == RED) {
+		setColor(p, BLACK);
+		setColor(y, BLACK);
+		setColor(g, RED);
+		x = g;
+		continue;
+	    }
+	    if (left && x == p.right()) { x = p; leftRotate(x); }
+	    else if (!left && x == p.left()) { x = p; rightRotate(x); }
+	    setColor(x.parent(), BLACK);
+	    setColor(g, RED);
+	    if (left) rightRotate(g); else leftRotate(g);
+	}
+    }
+
+    /** Checks properties (3) and (4) of the subtree rooted at
+	<code>n</code>, and returns its black height. */
+    private int checkBlackHeight(Node n) {
+	if (n == NIL) return 0;
+	if (color(n) == RED)
+	    assert color(n.left()) == BLACK && color(n.right()) == BLACK
+		: "(3) viol. on "+n;
+	if (n.left() != NIL) assert n.left().parent() == n;
+	if (n.right() != NIL) assert n.right().parent() == n;
+	int lh = checkBlackHeight(n.left()), rh = checkBlackHeight(n.right());
+	assert lh == rh : "(4) viol. on "+n;
+	return lh + ((color(n) == BLACK) ? 1 : 0);
+    }
+    private void checkAll() {
+	assert color(root()) == BLACK;
+	assert root() == NIL || root().parent() == NIL;
+	checkBlackHeight(root());
+    }
+    private java.util.List<Object> toList() {
+	java.util.List<Object> l = new java.util.ArrayList<Object>();
+	if (root() != NIL)
+	    for (Node n = minimum(root()); n != NIL; n = successor(n))
+		l.add(n.key);
+	return l;
+    }
+    private static RedBlackTree randomTree(java.util.Random r, int n, int range,
+					   java.util.TreeSet<Integer> s) {
+	RedBlackTree t = new RedBlackTree();
+	while (s.size() < n) {
+	    Integer i = new Integer(r.nextInt(range));
+	    if (s.add(i)) t.add(i);
+	}
+	return t;
+    }
+
+    public static void main(String[] args) {
+	(new RedBlackTree()).test();
+	java.util.Random r = new java.util.Random(11);
+	// split and join.
+	for (int i=0; i<200; i++) {
+	    java.util.TreeSet<Integer> s = new java.util.TreeSet<Integer>();
+	    RedBlackTree t = randomTree(r, r.nextInt(500), 1000, s);
+	    Integer key = new Integer(r.nextInt(1100)-50);
+	    RedBlackTree u = t.split(key);
+	    t.checkAll(); u.checkAll();
+	    assert t.toList().equals(new java.util.ArrayList<Object>(s.headSet(key)));
+	    assert u.toList().equals(new java.util.ArrayList<Object>(s.tailSet(key)));
+	    t.join(u);
+	    t.checkAll(); u.checkAll();
+	    assert t.toList().equals(new java.util.ArrayList<Object>(s));
+	    assert u.root() == u.NIL;
+	}
+	try {
+	    RedBlackTree a = new RedBlackTree(), b = new RedBlackTree();
+	    a.add("b"); b.add("a");
+	    a.join(b);
+	    assert false : "join of overlapping trees";
+	} catch (IllegalArgumentException e) { /* expected */ }
+	// set operations, against TreeSet; with big trees on every
+	// other round.
+	for (int i=0; i<60; i++) {
+	    int max = (i % 2 == 0) ? 300 : 20000;
+	    for (int op=UNION; op<=DIFFERENCE; op++) {
+		java.util.TreeSet<Integer> sa = new java.util.TreeSet<Integer>();
+		java.util.TreeSet<Integer> sb = new java.util.TreeSet<Integer>();
+		RedBlackTree a = randomTree(r, r.nextInt(max), 2*max, sa);
+		RedBlackTree b = randomTree(r, r.nextInt(max), 2*max, sb);
+		if (r.nextBoolean()) { // have b share a's nodes.
+		    RedBlackTree c = a.makeTree();
+		    for (Integer x : sb) c.add(x);
+		    b = c;
+		}
+		if (op == UNION) { a.union(b); sa.addAll(sb); }
+		if (op == INTERSECTION) { a.intersection(b); sa.retainAll(sb); }
+		if (op == DIFFERENCE) { a.difference(b); sa.removeAll(sb); }
+		a.checkAll();
+		assert a.toList().equals(new java.util.ArrayList<Object>(sa));
+		assert b.root() == b.NIL;
+	    }
+	}
+	System.out.println("PASSED.");
+    }
 }
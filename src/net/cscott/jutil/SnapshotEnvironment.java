@@ -0,0 +1,453 @@
+// SnapshotEnvironment.java, created Tue Oct 20 15:21:44 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+/**
+ * A {@link SnapshotEnvironment} is an {@link Environment} whose marks
+ * are immutable snapshots: {@link #getMark()} returns a
+ * {@link Snapshot}, a read-only {@link Map} of the bindings at the
+ * time it was taken, which any thread may query without locking
+ * while the environment goes on changing.  The bindings are kept in
+ * a persistent hash array mapped trie, so a <code>get</code> looks at
+ * one node per five bits of hash code, a <code>put</code> or
+ * <code>remove</code> copies just the nodes on one root-to-leaf path,
+ * and <code>getMark()</code> and <code>undoToMark()</code> take O(1)
+ * time.
+ * <p>
+ * Only one thread at a time may modify a {@link SnapshotEnvironment}.
+ * Other threads may read it (or any {@link Snapshot}) concurrently;
+ * each read sees the environment as of some recent modification, and
+ * an iterator sees it as of the time the iterator was created.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ * @see PersistentEnvironment
+ */
+public class SnapshotEnvironment<K,V> extends AbstractMap<K,V>
+    implements Environment<K,V> {
+    private volatile Snapshot<K,V> current;
+
+    /** Creates a {@link SnapshotEnvironment} with no mappings. */
+    public SnapshotEnvironment() { this.current = new Snapshot<K,V>(); }
+    /** Creates a {@link SnapshotEnvironment} with the same mappings as
+     *  the given {@link Map}. */
+    public SnapshotEnvironment(Map<? extends K,? extends V> m) {
+	this();
+	putAll(m);
+    }
+
+    // ------------- MAP INTERFACE ---------------
+    /** Remove all mappings from this map. */
+    public void clear() { current = new Snapshot<K,V>(); }
+    /** Returns the number of key-value mappings in this map. */
+    public int size() { return current.size; }
+    /** Returns the value to which this map maps the specified key. */
+    public V get(Object key) { return current.get(key); }
+    /** Returns <code>true</code> if this map contains a mapping for the
+     *  specified key. */
+    public boolean containsKey(Object key) {
+	return current.containsKey(key);
+    }
+    /** Associates the specified value with the specified key in this map. */
+    public V put(K key, V value) {
+	Snapshot<K,V> s = current;
+	Object k = maskNull(key);
+	int h = hash(k);
+	Object old = s.root.get(k, h, 0);
+	Node root = s.root.put(k, h, value, 0);
+	if (root != s.root)
+	    current = new Snapshot<K,V>(root, (old==ABSENT) ? s.size+1 : s.size);
+	return (old==ABSENT) ? null : (V) old;
+    }
+    /** Removes the mapping for this key from this map if present. */
+    public V remove(Object key) {
+	Snapshot<K,V> s = current;
+	Object k = maskNull(key);
+	int h = hash(k);
+	Object old = s.root.get(k, h, 0);
+	if (old==ABSENT) return null;
+	Node root = s.root.remove(k, h, 0);
+	if (root==null) root = Node.EMPTY;
+	current = new Snapshot<K,V>(root, s.size-1);
+	return (V) old;
+    }
+
+    // ------------- ENVIRONMENT INTERFACE ---------------
+    /** Returns an immutable snapshot of the current state of this
+     *  environment, which is also a mark that will allow you to
+     *  restore it. */
+    public Snapshot<K,V> getMark() { return current; }
+    /** Undo all changes since the supplied mark, restoring the map to
+     *  its state at the time the mark was taken. */
+    public void undoToMark(Environment.Mark m) {
+	current = (Snapshot<K,V>) m;
+    }
+
+    // ------------- THE DREADED ENTRYSET ---------------
+    /** Returns a set view of the mappings contained in this map.  Its
+     *  iterators traverse a snapshot, so they never throw
+     *  <code>ConcurrentModificationException</code>; removing through
+     *  them, or setting the value of an entry, modifies this map. */
+    public Set<Map.Entry<K,V>> entrySet() {
+	return new AbstractSet<Map.Entry<K,V>>() {
+	    public int size() { return current.size; }
+	    public Iterator<Map.Entry<K,V>> iterator() {
+		final Iterator<Map.Entry<K,V>> it =
+		    current.entrySet().iterator();
+		return new Iterator<Map.Entry<K,V>>() {
+		    K last = null;
+		    boolean canRemove = false;
+		    public boolean hasNext() { return it.hasNext(); }
+		    public Map.Entry<K,V> next() {
+			final K key = it.next().getKey();
+			last = key; canRemove = true;
+			return new AbstractMapEntry<K,V>() {
+			    public K getKey() { return key; }
+			    public V getValue() { return get(key); }
+			    public V setValue(V value) {
+				return put(key, value);
+			    }
+			};
+		    }
+		    public void remove() {
+			if (!canRemove) throw new IllegalStateException();
+			SnapshotEnvironment.this.remove(last);
+			canRemove = false;
+		    }
+		};
+	    }
+	};
+    }
+
+    /** An immutable snapshot of the bindings of a
+     *  {@link SnapshotEnvironment}, as returned by
+     *  {@link SnapshotEnvironment#getMark()}.  A {@link Snapshot} may be
+     *  shared freely between threads. */
+    public static final class Snapshot<K,V> extends AbstractMap<K,V>
+	implements Environment.Mark {
+	final Node root;
+	final int size;
+	Snapshot() { this(Node.EMPTY, 0); }
+	Snapshot(Node root, int size) { this.root = root; this.size = size; }
+
+	public int size() { return size; }
+	public boolean containsKey(Object key) {
+	    Object k = maskNull(key);
+	    return root.get(k, hash(k), 0) != ABSENT;
+	}
+	public V get(Object key) {
+	    Object k = maskNull(key);
+	    Object v = root.get(k, hash(k), 0);
+	    return (v==ABSENT) ? null : (V) v;
+	}
+	public Set<Map.Entry<K,V>> entrySet() {
+	    return new AbstractSet<Map.Entry<K,V>>() {
+		public int size() { return size; }
+		public Iterator<Map.Entry<K,V>> iterator() {
+		    return new EntryIterator<K,V>(root);
+		}
+	    };
+	}
+    }
+
+    // ------------- THE TRIE ---------------
+    /** Distinguishes a missing key from a <code>null</code> value. */
+    private static final Object ABSENT = new Object();
+    /** Stands in for the <code>null</code> key. */
+    private static final Object NULL_KEY = new Object();
+    private static Object maskNull(Object key) {
+	return (key==null) ? NULL_KEY : key;
+    }
+    private static int hash(Object k) {
+	int h = k.hashCode();
+	return h ^ (h >>> 16);
+    }
+
+    /** An immutable trie node.  The array holds key/value pairs, or
+     *  a <code>null</code> key followed by a child node.  At depth
+     *  <code>shift &lt; 32</code> the pairs are indexed by five bits
+     *  of the hash, which are present in <code>bitmap</code>; below
+     *  that, all keys have the same hash and the pairs are simply
+     *  listed. */
+    static final class Node {
+	static final Node EMPTY = new Node(0, new Object[0]);
+	final int bitmap;
+	final Object[] a;
+	Node(int bitmap, Object[] a) { this.bitmap = bitmap; this.a = a; }
+
+	/** Returns the index in <code>a</code> of the pair for
+	 *  <code>k</code>, or -1. */
+	private int collisionIndex(Object k) {
+	    for (int i=0; i<a.length; i+=2)
+		if (a[i].equals(k)) return i;
+	    return -1;
+	}
+	Object get(Object k, int h, int shift) {
+	    Node n = this;
+	    while (shift < 32) {
+		int bit = 1 << ((h >>> shift) & 31);
+		if ((n.bitmap & bit)==0) return ABSENT;
+		int i = 2 * Integer.bitCount(n.bitmap & (bit-1));
+		Object kk = n.a[i];
+		if (kk!=null)
+		    return (kk==k || kk.equals(k)) ? n.a[i+1] : ABSENT;
+		n = (Node) n.a[i+1];
+		shift += 5;
+	    }
+	    int i = n.collisionIndex(k);
+	    return (i<0) ? ABSENT : n.a[i+1];
+	}
+	Node put(Object k, int h, Object v, int shift) {
+	    if (shift >= 32) {
+		int i = collisionIndex(k);
+		if (i<0) return new Node(0, insert(a, a.length, k, v));
+		return (a[i+1]==v) ? this : new Node(0, replace(a, i+1, v));
+	    }
+	    int bit = 1 << ((h >>> shift) & 31);
+	    int i = 2 * Integer.bitCount(bitmap & (bit-1));
+	    if ((bitmap & bit)==0)
+		return new Node(bitmap | bit, insert(a, i, k, v));
+	    Object kk = a[i];
+	    if (kk==null) {
+		Node child = (Node) a[i+1];
+		Node nc = child.put(k, h, v, shift+5);
+		return (nc==child) ? this : new Node(bitmap, replace(a, i+1, nc));
+	    }
+	    if (kk==k || kk.equals(k))
+		return (a[i+1]==v) ? this : new Node(bitmap, replace(a, i+1, v));
+	    // push the existing pair and the new one down a level.
+	    Node child = pair(kk, hash(kk), a[i+1], k, h, v, shift+5);
+	    Object[] na = replace(a, i, null);
+	    na[i+1] = child;
+	    return new Node(bitmap, na);
+	}
+	/** Returns the node without <code>k</code>, which must be
+	 *  present; <code>null</code> if that leaves it empty. */
+	Node remove(Object k, int h, int shift) {
+	    if (shift >= 32) {
+		int i = collisionIndex(k);
+		return (a.length==2) ? null : new Node(0, delete(a, i));
+	    }
+	    int bit = 1 << ((h >>> shift) & 31);
+	    int i = 2 * Integer.bitCount(bitmap & (bit-1));
+	    if (a[i]!=null) { // the pair itself.
+		if (a.length==2) return null;
+		return new Node(bitmap & ~bit, delete(a, i));
+	    }
+	    Node nc = ((Node) a[i+1]).remove(k, h, shift+5);
+	    // a child holding just one pair is folded back into us.
+	    if (nc.a.length==2 && nc.a[0]!=null) {
+		Object[] na = replace(a, i, nc.a[0]);
+		na[i+1] = nc.a[1];
+		return new Node(bitmap, na);
+	    }
+	    return new Node(bitmap, replace(a, i+1, nc));
+	}
+	private static Node pair(Object k1, int h1, Object v1,
+				 Object k2, int h2, Object v2, int shift) {
+	    if (shift >= 32)
+		return new Node(0, new Object[] { k1, v1, k2, v2 });
+	    int b1 = (h1 >>> shift) & 31, b2 = (h2 >>> shift) & 31;
+	    if (b1==b2)
+		return new Node(1 << b1, new Object[]
+		    { null, pair(k1, h1, v1, k2, h2, v2, shift+5) });
+	    if (b1 > b2)
+		return new Node((1 << b1) | (1 << b2),
+				new Object[] { k2, v2, k1, v1 });
+	    return new Node((1 << b1) | (1 << b2),
+			    new Object[] { k1, v1, k2, v2 });
+	}
+	private static Object[] insert(Object[] a, int i, Object k, Object v) {
+	    Object[] na = new Object[a.length+2];
+	    System.arraycopy(a, 0, na, 0, i);
+	    na[i] = k; na[i+1] = v;
+	    System.arraycopy(a, i, na, i+2, a.length-i);
+	    return na;
+	}
+	private static Object[] replace(Object[] a, int i, Object o) {
+	    Object[] na = (Object[]) a.clone();
+	    na[i] = o;
+	    return na;
+	}
+	private static Object[] delete(Object[] a, int i) {
+	    Object[] na = new Object[a.length-2];
+	    System.arraycopy(a, 0, na, 0, i);
+	    System.arraycopy(a, i+2, na, i, a.length-i-2);
+	    return na;
+	}
+    }
+    /** Iterates over the pairs of a trie, depth first. */
+    private static final class EntryIterator<K,V>
+	extends UnmodifiableIterator<Map.Entry<K,V>> {
+	// a trie is at most eight levels deep.
+	private final Object[][] stack = new Object[8][];
+	private final int[] pos = new int[8];
+	private int depth = 0;
+	EntryIterator(Node root) {
+	    stack[0] = root.a;
+	    advance();
+	}
+	/** Moves to the next pair, or sets depth to -1. */
+	private void advance() {
+	    while (depth >= 0) {
+		Object[] a = stack[depth];
+		int i = pos[depth];
+		if (i >= a.length) { depth--; continue; }
+		if (a[i]!=null) return;
+		pos[depth] += 2;
+		depth++;
+		stack[depth] = ((Node) a[i+1]).a;
+		pos[depth] = 0;
+	    }
+	}
+	public boolean hasNext() { return depth >= 0; }
+	public Map.Entry<K,V> next() {
+	    if (depth < 0) throw new NoSuchElementException();
+	    Object[] a = stack[depth];
+	    int i = pos[depth];
+	    pos[depth] += 2;
+	    final Object k = a[i], v = a[i+1];
+	    advance();
+	    return new AbstractMapEntry<K,V>() {
+		public K getKey() { return (k==NULL_KEY) ? null : (K) k; }
+		public V getValue() { return (V) v; }
+	    };
+	}
+    }
+
+    /** Self-test function. */
+    public static void main(String argv[]) throws InterruptedException {
+	SnapshotEnvironment<String,String> e =
+	    new SnapshotEnvironment<String,String>();
+	assert e.size()==0 && !e.containsKey("a") && !e.containsKey("b");
+	e.put("a","a"); e.put("a","b");
+	assert e.size()==1 && e.containsKey("a") && e.containsValue("b");
+	assert !e.containsValue("a") && !e.containsValue("c");
+	Snapshot<String,String> m = e.getMark();
+	e.remove("a"); e.remove("a");
+	assert e.size()==0 && !e.containsKey("a");
+	e.put("b","b"); e.put("b","c");
+	assert e.size()==1 && e.containsKey("b") && e.containsValue("c");
+	// the snapshot is unaffected by later changes.
+	assert m.size()==1 && m.get("a").equals("b") && !m.containsKey("b");
+	e.undoToMark(m);
+	assert e.size()==1 && e.containsKey("a") && !e.containsKey("b");
+	e.put("c", "d"); e.put(null, null);
+	assert e.size()==3 && e.containsKey(null) && e.get(null)==null;
+	Environment.Mark m2 = e.getMark();
+	e.clear();
+	assert e.size()==0 && !e.containsKey("a") && !e.containsKey(null);
+	e.undoToMark(m2);
+	assert e.size()==3 && e.containsKey("c") && e.containsKey(null);
+	e.undoToMark(m2); // repeatable.
+	assert e.size()==3 && e.equals(e.getMark()) && !e.equals(m);
+	try {
+	    m.put("x", "y");
+	    assert false : "snapshots are immutable";
+	} catch (UnsupportedOperationException ex) { /* expected */ }
+	// random changes and undos, against HashEnvironment, with keys
+	// whose hash codes collide.
+	Random r = new Random(23);
+	SnapshotEnvironment<Object,Integer> se =
+	    new SnapshotEnvironment<Object,Integer>();
+	HashEnvironment<Object,Integer> he = new HashEnvironment<Object,Integer>();
+	List<Environment.Mark[]> marks = new ArrayList<Environment.Mark[]>();
+	List<Map<Object,Integer>> copies = new ArrayList<Map<Object,Integer>>();
+	for (int k=0; k<40000; k++) {
+	    int op = r.nextInt(20), n = r.nextInt(k/20 + 10);
+	    Object key = (n%3==0) ? (Object) new Collider(n) : new Integer(n);
+	    if (op==0) {
+		marks.add(new Environment.Mark[] { se.getMark(), he.getMark() });
+		copies.add(new java.util.HashMap<Object,Integer>(he));
+	    } else if (op==1 && !marks.isEmpty()) {
+		int j = r.nextInt(marks.size());
+		assert copies.get(j).equals(marks.get(j)[0]);
+		se.undoToMark(marks.get(j)[0]); he.undoToMark(marks.get(j)[1]);
+		while (marks.size() > j+1) {
+		    marks.remove(marks.size()-1);
+		    copies.remove(copies.size()-1);
+		}
+	    } else if (op < 6) {
+		assert eq(se.remove(key), he.remove(key));
+	    } else {
+		Integer v = (op==6) ? null : new Integer(r.nextInt());
+		assert eq(se.put(key, v), he.put(key, v));
+	    }
+	    assert se.size()==he.size() && eq(se.get(key), he.get(key));
+	    assert se.containsKey(key)==he.containsKey(key);
+	    if (k % 4000 == 0) assert se.equals(he) && he.equals(se);
+	}
+	assert se.equals(he) && se.hashCode()==he.hashCode();
+	for (Iterator<Object> it = se.keySet().iterator(); it.hasNext(); )
+	    if (it.next() instanceof Integer) it.remove();
+	for (Object o : se.keySet()) assert o instanceof Collider;
+	// readers on other threads check the snapshots published by a
+	// writer which pushes and pops scopes: a scope of depth d binds
+	// "depth" to d and "v0".."v<d-1>" to 0..d-1.
+	final SnapshotEnvironment<String,Integer> env =
+	    new SnapshotEnvironment<String,Integer>();
+	final java.util.concurrent.atomic.AtomicBoolean done =
+	    new java.util.concurrent.atomic.AtomicBoolean();
+	final java.util.concurrent.atomic.AtomicInteger bad =
+	    new java.util.concurrent.atomic.AtomicInteger();
+	env.put("depth", new Integer(0));
+	Thread[] readers = new Thread[3];
+	for (int t=0; t<readers.length; t++) {
+	    readers[t] = new Thread() {
+		public void run() {
+		    while (!done.get()) {
+			Snapshot<String,Integer> s = env.getMark();
+			int d = s.get("depth").intValue();
+			// between the two puts of a push, "v<d>" is bound too.
+			if (s.size() != d+1 && s.size() != d+2)
+			    bad.incrementAndGet();
+			for (int i=0; i<d; i++)
+			    if (s.get("v"+i).intValue() != i)
+				bad.incrementAndGet();
+			Integer v = env.get("v0"); // the live map, too.
+			if (v!=null && v.intValue()!=0) bad.incrementAndGet();
+		    }
+		}
+	    };
+	    readers[t].start();
+	}
+	Environment.Mark[] scopes = new Environment.Mark[64];
+	int depth = 0;
+	for (int k=0; k<200000; k++) {
+	    if (depth==scopes.length || (depth>0 && r.nextBoolean()))
+		env.undoToMark(scopes[--depth]);
+	    else {
+		scopes[depth] = env.getMark();
+		env.put("v"+depth, new Integer(depth));
+		depth++;
+		env.put("depth", new Integer(depth));
+	    }
+	}
+	done.set(true);
+	for (Thread t : readers) t.join();
+	assert bad.get()==0 : bad.get()+" inconsistent reads";
+	System.err.println("PASSED.");
+    }
+    private static boolean eq(Object a, Object b) {
+	return (a==null) ? b==null : a.equals(b);
+    }
+    /** A key whose hash codes collide often. */
+    private static class Collider {
+	final int n;
+	Collider(int n) { this.n = n; }
+	public int hashCode() { return n % 7; }
+	public boolean equals(Object o) {
+	    return (o instanceof Collider) && ((Collider)o).n == n;
+	}
+    }
+}
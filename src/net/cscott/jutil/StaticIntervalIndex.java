@@ -0,0 +1,322 @@
+// StaticIntervalIndex.java, created Mon Oct 19 22:03:26 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+/**
+ * A {@link StaticIntervalIndex} is an immutable set of closed integer
+ * intervals, built once and then queried for the intervals which
+ * overlap a range or contain a point.  Unlike an {@link IntervalTree}
+ * it has no nodes or pointers: the intervals are sorted by low
+ * endpoint into a single flat array of primitive records, and the
+ * search tree is <i>implicit</i> -- the subarray
+ * <code>[lo,hi)</code> is a subtree whose root is the record in the
+ * middle.  Each record holds its interval's endpoints, the largest
+ * high endpoint in its subtree (the augmentation of CLR section 15.3),
+ * and the interval's <i>id</i>.  A query is a pruned binary search
+ * over this array; it allocates nothing, and reports each interval
+ * found to a {@link Visitor} callback, which can stop the search.
+ * <p>
+ * Intervals are identified by id: their position in the collection
+ * or arrays the index was built from.  An index built from
+ * {@link IntervalTree.Interval}s also remembers their data, available
+ * from {@link #datum(int)}.  The index can be saved to a file with
+ * {@link #save(File)}; {@link #load(File)} maps that file into memory
+ * rather than reading it, so a large index is available immediately
+ * and can be shared between processes.  (Data are not saved.)
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ * @see IntervalTree
+ * @see LongIntervalTree
+ */
+public final class StaticIntervalIndex {
+    /** Receives the intervals found by a query. */
+    public interface Visitor {
+	/** Called once for each interval found, with its id and
+	 *  endpoints.
+	 * @return <code>true</code> to continue the search, or
+	 *         <code>false</code> to stop it. */
+	public boolean visit(int id, int low, int high);
+    }
+
+    // a record is four ints: low, high, subtree max, id.
+    private static final int LOW=0, HIGH=1, MAX=2, ID=3, RECORD=4;
+    /** First int of a saved index; also identifies its byte order. */
+    private static final int MAGIC = 0x4A554956; // "JUIV"
+    private static final int HEADER = 2; // magic, size.
+
+    /** The records, in order of low endpoint. */
+    private final IntBuffer r;
+    private final int n;
+    /** Interval data, by id, or <code>null</code>. */
+    private final Object[] data;
+
+    /** Creates an index of the given {@link IntervalTree.Interval}s.
+     *  The id of each interval is its position in the iteration order
+     *  of <code>intervals</code>.  O(n lg n) time. */
+    public StaticIntervalIndex(Collection<? extends IntervalTree.Interval> intervals) {
+	int size = intervals.size(), i = 0;
+	int[] lows = new int[size], highs = new int[size];
+	this.data = new Object[size];
+	for (IntervalTree.Interval iv : intervals) {
+	    lows[i] = iv.low; highs[i] = iv.high; data[i] = iv.datum;
+	    i++;
+	}
+	this.n = size;
+	this.r = build(lows, highs);
+    }
+    /** Creates an index of the intervals
+     *  [<code>lows[i]</code>,<code>highs[i]</code>], whose ids are
+     *  their indices <code>i</code>.  O(n lg n) time.
+     * @exception IllegalArgumentException if the arrays have different
+     *            lengths, or some <code>lows[i] &gt; highs[i]</code>. */
+    public StaticIntervalIndex(int[] lows, int[] highs) {
+	this.n = lows.length;
+	this.data = null;
+	this.r = build(lows, highs);
+    }
+    private StaticIntervalIndex(IntBuffer r, int n) {
+	this.r = r; this.n = n; this.data = null;
+    }
+    private static IntBuffer build(int[] lows, int[] highs) {
+	int n = lows.length;
+	if (highs.length != n)
+	    throw new IllegalArgumentException("Endpoint arrays differ in length");
+	// sort ids by low endpoint, packed into longs to avoid boxing.
+	long[] order = new long[n];
+	for (int i=0; i<n; i++) {
+	    if (lows[i] > highs[i])
+		throw new IllegalArgumentException("Empty interval: ["+
+						   lows[i]+","+highs[i]+"]");
+	    order[i] = ((long)lows[i] << 32) | i;
+	}
+	Arrays.sort(order);
+	int[] rec = new int[RECORD*n];
+	for (int j=0; j<n; j++) {
+	    int id = (int) order[j];
+	    rec[RECORD*j+LOW] = lows[id];
+	    rec[RECORD*j+HIGH] = highs[id];
+	    rec[RECORD*j+ID] = id;
+	}
+	fillMax(rec, 0, n);
+	return IntBuffer.wrap(rec);
+    }
+    /** Computes the subtree maxima for the subtree <code>[lo,hi)</code>,
+     *  and returns its maximum. */
+    private static int fillMax(int[] rec, int lo, int hi) {
+	if (lo >= hi) return Integer.MIN_VALUE;
+	int mid = (lo + hi) >>> 1;
+	int m = Math.max(rec[RECORD*mid+HIGH],
+			 Math.max(fillMax(rec, lo, mid), fillMax(rec, mid+1, hi)));
+	rec[RECORD*mid+MAX] = m;
+	return m;
+    }
+
+    /** Returns the number of intervals in this index. */
+    public int size() { return n; }
+    /** Returns the datum of the interval with the given id, if this
+     *  index was built from {@link IntervalTree.Interval}s; otherwise
+     *  <code>null</code>. */
+    public Object datum(int id) { return (data==null) ? null : data[id]; }
+
+    /** Reports every interval which overlaps
+     *  [<code>low</code>,<code>high</code>] to <code>v</code>, in order
+     *  of low endpoint, until <code>v</code> returns false.
+     *  O(min(n, (k+1) lg n)) time, where k is the number of intervals
+     *  reported, since they need not be adjacent in order of low
+     *  endpoint; a query which reports nothing still takes O(lg n).
+     *  Allocates nothing.
+     * @return <code>false</code> if the visitor stopped the search. */
+    public boolean forEachOverlapping(int low, int high, Visitor v) {
+	return overlapping(0, n, low, high, v);
+    }
+    /** Reports every interval which contains the point <code>p</code>
+     *  to <code>v</code>, in order of low endpoint, until <code>v</code>
+     *  returns false.
+     * @return <code>false</code> if the visitor stopped the search. */
+    public boolean forEachContaining(int p, Visitor v) {
+	return overlapping(0, n, p, p, v);
+    }
+    private boolean overlapping(int lo, int hi, int low, int high, Visitor v) {
+	// recurse on the left, iterate on the right.
+	while (lo < hi) {
+	    int mid = (lo + hi) >>> 1, base = RECORD*mid;
+	    if (r.get(base+MAX) < low) return true; // nothing here reaches low.
+	    if (!overlapping(lo, mid, low, high, v)) return false;
+	    int l = r.get(base+LOW);
+	    if (l > high) return true; // nor does anything to the right.
+	    int h = r.get(base+HIGH);
+	    if (h >= low && !v.visit(r.get(base+ID), l, h)) return false;
+	    lo = mid+1;
+	}
+	return true;
+    }
+    /** Returns the number of intervals which overlap
+     *  [<code>low</code>,<code>high</code>].  Allocates nothing. */
+    public int countOverlapping(int low, int high) {
+	return count(0, n, low, high);
+    }
+    /** Returns the number of intervals which contain the point
+     *  <code>p</code>.  Allocates nothing. */
+    public int countContaining(int p) {
+	return count(0, n, p, p);
+    }
+    private int count(int lo, int hi, int low, int high) {
+	int c = 0;
+	while (lo < hi) {
+	    int mid = (lo + hi) >>> 1, base = RECORD*mid;
+	    if (r.get(base+MAX) < low) break;
+	    c += count(lo, mid, low, high);
+	    if (r.get(base+LOW) > high) break;
+	    if (r.get(base+HIGH) >= low) c++;
+	    lo = mid+1;
+	}
+	return c;
+    }
+
+    /** Writes this index to the given file, in this machine's native
+     *  byte order, so that {@link #load(File)} can map it without
+     *  conversion.  Data are not saved. */
+    public void save(File f) throws IOException {
+	RandomAccessFile raf = new RandomAccessFile(f, "rw");
+	try {
+	    FileChannel ch = raf.getChannel();
+	    ch.truncate(0);
+	    ByteBuffer buf = ByteBuffer.allocate(1<<16).order(ByteOrder.nativeOrder());
+	    buf.putInt(MAGIC).putInt(n);
+	    for (int i=0; i<RECORD*n; i++) {
+		if (!buf.hasRemaining()) { buf.flip(); write(ch, buf); }
+		buf.putInt(r.get(i));
+	    }
+	    buf.flip();
+	    write(ch, buf);
+	} finally {
+	    raf.close();
+	}
+    }
+    private static void write(FileChannel ch, ByteBuffer buf) throws IOException {
+	while (buf.hasRemaining()) ch.write(buf);
+	buf.clear();
+    }
+    /** Returns the index saved in the given file by
+     *  {@link #save(File)}.  The file is mapped into memory, not read;
+     *  it must not be modified while the index is in use.  The mapping
+     *  lasts until the index is garbage collected.
+     * @exception IOException if the file can't be read, or is not a
+     *            saved index. */
+    public static StaticIntervalIndex load(File f) throws IOException {
+	FileInputStream in = new FileInputStream(f);
+	try {
+	    FileChannel ch = in.getChannel();
+	    ByteBuffer bb = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+	    if (bb.capacity() < 4*HEADER)
+		throw new IOException(f+" is not an interval index");
+	    bb.order(ByteOrder.BIG_ENDIAN);
+	    if (bb.getInt(0) != MAGIC) bb.order(ByteOrder.LITTLE_ENDIAN);
+	    if (bb.getInt(0) != MAGIC)
+		throw new IOException(f+" is not an interval index");
+	    int n = bb.getInt(4);
+	    if (n < 0 || bb.capacity() != 4L*(HEADER + (long)RECORD*n))
+		throw new IOException(f+" is truncated");
+	    bb.position(4*HEADER);
+	    return new StaticIntervalIndex(bb.slice().order(bb.order()).asIntBuffer(), n);
+	} finally {
+	    in.close(); // the mapping remains valid.
+	}
+    }
+
+    /** Self-test function. */
+    public static void main(String[] args) throws IOException {
+	// using example data from CLR pg 291
+	List<IntervalTree.Interval> clr = new ArrayList<IntervalTree.Interval>();
+	int[][] data = { {0,3}, {5,8}, {15,23}, {6,10}, {16,21}, {8,9},
+			 {17,19}, {25,30}, {19,20}, {26,26} };
+	for (int i=0; i<data.length; i++)
+	    clr.add(new IntervalTree.Interval(data[i][0]+"-"+data[i][1],
+					      data[i][0], data[i][1]));
+	StaticIntervalIndex idx = new StaticIntervalIndex(clr);
+	assert idx.size()==10 && idx.datum(2).equals("15-23");
+	assert idx.countOverlapping(22, 25)==2;
+	assert idx.countOverlapping(11, 14)==0;
+	assert idx.countContaining(26)==2 && idx.countContaining(31)==0;
+	final StringBuffer sb = new StringBuffer();
+	idx.forEachOverlapping(8, 16, new Visitor() {
+	    public boolean visit(int id, int low, int high) {
+		sb.append(low+"-"+high+" ");
+		return true;
+	    }
+	});
+	assert sb.toString().equals("5-8 6-10 8-9 15-23 16-21 ") : sb;
+	// early termination.
+	final int[] seen = new int[1];
+	assert !idx.forEachOverlapping(0, 100, new Visitor() {
+	    public boolean visit(int id, int low, int high) {
+		return ++seen[0] < 3;
+	    }
+	});
+	assert seen[0]==3;
+
+	// random intervals, against brute force, in memory and mapped.
+	Random rnd = new Random(4);
+	int n = 20000;
+	int[] lows = new int[n], highs = new int[n];
+	for (int i=0; i<n; i++) {
+	    lows[i] = rnd.nextInt(1000000) - 500000;
+	    highs[i] = lows[i] + ((i%50==0) ? rnd.nextInt(100000) : rnd.nextInt(100));
+	}
+	idx = new StaticIntervalIndex(lows, highs);
+	File f = File.createTempFile("jutil-intervals", ".idx");
+	try {
+	    idx.save(f);
+	    assert f.length()==4L*(HEADER + RECORD*n);
+	    StaticIntervalIndex mapped = load(f);
+	    final boolean[] found = new boolean[n];
+	    Visitor mark = new Visitor() {
+		public boolean visit(int id, int low, int high) {
+		    assert !found[id];
+		    found[id] = true;
+		    return true;
+		}
+	    };
+	    for (int q=0; q<200; q++) {
+		int lo = rnd.nextInt(1100000) - 550000, hi = lo + rnd.nextInt(1000);
+		int expect = 0;
+		for (int i=0; i<n; i++)
+		    if (lows[i] <= hi && highs[i] >= lo) expect++;
+		assert idx.countOverlapping(lo, hi)==expect;
+		assert mapped.countOverlapping(lo, hi)==expect;
+		Arrays.fill(found, false);
+		mapped.forEachOverlapping(lo, hi, mark);
+		for (int i=0; i<n; i++)
+		    assert found[i] == (lows[i] <= hi && highs[i] >= lo);
+		assert idx.countContaining(lo)==mapped.countContaining(lo);
+	    }
+	    assert mapped.datum(0)==null;
+	    // a damaged file is rejected.
+	    RandomAccessFile raf = new RandomAccessFile(f, "rw");
+	    raf.setLength(100);
+	    raf.close();
+	    try {
+		load(f);
+		assert false : "truncated file loaded";
+	    } catch (IOException e) { /* expected */ }
+	} finally {
+	    f.delete();
+	}
+	System.out.println("PASSED.");
+    }
+}
@@ -34,6 +34,8 @@ class TestMap {
 	doit(HashMap.class);
 	//doit(TreeMap.class);//sortedmap
 	doit(HashEnvironment.class);
+	doit(OpenHashEnvironment.class);
+	doit(SnapshotEnvironment.class);
 	//doit(PersistentEnvironment.class);//sortedmap.
 	doit(LinearMap.class);
 	doit(GenericInvertibleMap.class);
@@ -54,6 +56,7 @@ class TestMap {
 		    return o1.hashCode() - o2.hashCode();
 		}
 	    }), "PersistentMapFactory");//sortedmap
+	// BTreeMap is tested from BTreeMap.main().
     }
 
     static void doit(Class c) {
@@ -92,19 +95,21 @@ class TestMap {
 	    System.err.println("SKIPPING: "+t);
 	}
     }
-    static void doit(final MapFactory mf, String str) {
-	doit(new Factory() {
+    static boolean doit(final MapFactory mf, String str) {
+	return doit(new Factory() {
 		Map build() { return mf.makeMap(); }
 		Map build(Map m) { return mf.makeMap(m); }
 	    }, str);
     }
-    static void doit(Factory f, String str) {
+    /** Returns <code>false</code> if any test failed. */
+    static boolean doit(Factory f, String str) {
 	System.err.println("TESTING "+str);
 	TestMap mt = new TestMap(f);
 	mt.test();
 	if (mt.failed) {
 	    System.err.println("FAILURES testing "+str);
 	}
+	return !mt.failed;
     }
 
     // my local state.
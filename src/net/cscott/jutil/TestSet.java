@@ -59,6 +59,17 @@ class TestSet {
 		    return o1.hashCode() - o2.hashCode();
 		}
 	    }), "PersistentSetFactory");//sortedset
+	doit(Factories.bTreeSetFactory(4, new java.util.Comparator() {
+		public int compare(Object o1, Object o2) {
+		    // null is lowest
+		    if (o1==null) return (o2==null)?0:-1;
+		    if (o2==null) return (o1==null)?0: 1;
+		    // now can't be null.
+		    if (o1 instanceof Comparable && o2 instanceof Comparable)
+			return ((Comparable)o1).compareTo(o2);
+		    return o1.hashCode() - o2.hashCode();
+		}
+	    }), "BTreeSet");//sortedset
     }
     public final static TestSet ONE_OF_THESE = new TestSet(null);
     // this next field can be changed for impl's w/ problems w/ real 'null'
@@ -0,0 +1,451 @@
+// TimerWheel.java, created Mon Oct 19 20:04:37 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+/**
+ * A {@link TimerWheel} is a hierarchical timing wheel: a <i>monotone</i>
+ * {@link Heap} with {@link Long} keys (typically deadlines) which is
+ * suited to timer queues where most timers are cancelled before they
+ * fire.  Insert and delete ("cancel") take O(1) time, independent of
+ * the number of pending timers.  As with {@link RadixHeap}, the key of
+ * every entry inserted must be no smaller than the key most recently
+ * returned by <code>extractMinimum()</code> -- a timer can't be set
+ * for a time which has already passed.
+ * <p>
+ * The wheel has 11 levels of 64 slots each.  An entry whose key first
+ * differs from the last extracted key in bit <i>b</i> goes in level
+ * <i>b/6</i>, in the slot given by the six bits of its key at that
+ * level; so every slot at level 0 holds entries with a single key, in
+ * insertion order.  A bitmap per level records which slots are
+ * occupied.  When level 0 is empty, <code>extractMinimum()</code>
+ * takes the first occupied slot of the lowest occupied level and
+ * "cascades" its entries into lower levels.  Each entry cascades at
+ * most 10 times, so extract-min is amortized O(1), as is
+ * <code>minimum()</code> except that it must scan one (uncascaded)
+ * slot for its smallest key.  (The result is cached until the
+ * minimum changes, so a timer loop which polls <code>minimum()</code>
+ * every tick pays for the scan only once.)  Keys are compared as
+ * primitive <code>long</code>s.
+ * <p>
+ * Inserting a key smaller than the last extracted key, or decreasing
+ * a key below it, throws an {@link IllegalArgumentException}.
+ * <code>minimum()</code> does not count as an extraction, and
+ * <code>clear()</code> forgets the last extracted key.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ * @see RadixHeap
+ */
+public class TimerWheel<V> extends AbstractHeap<Long,V> {
+    private static final int BITS = 6, SLOTS = 1<<BITS, LEVELS = 11;
+    /** <code>wheel[level][slot]</code> is the head of a circular
+     *  doubly-linked list of entries, or <code>null</code>. */
+    private final Entry<V>[][] wheel =
+	(Entry<V>[][]) new Entry[LEVELS][SLOTS];
+    /** Bit <i>s</i> of <code>occupied[level]</code> is set iff
+     *  <code>wheel[level][s]</code> is non-empty. */
+    private final long[] occupied = new long[LEVELS];
+    /** Bit <i>l</i> is set iff <code>occupied[l]</code> is non-zero. */
+    private int levels = 0;
+    /** The last extracted key, biased (see {@link #bias(long)}). */
+    private long now = bias(Long.MIN_VALUE);
+    /** Number of entries in the heap. */
+    private int size = 0;
+    /** A cached entry with minimal key, or <code>null</code> if it must
+     *  be recomputed. */
+    private Entry<V> min = null;
+
+    /** Creates a new, empty {@link TimerWheel}. */
+    public TimerWheel() { super((Comparator<Long>)null); }
+    /** Constructs a new heap with the same entries as the specified
+     *  {@link Heap}.  O(n) time. */
+    public TimerWheel(Heap<Long,? extends V> h) {
+	this();
+	for (Map.Entry<Long,? extends V> e : h.entries())
+	    insert(e.getKey(), e.getValue());
+    }
+
+    /** Insert an entry into the heap.  O(1) time.
+     * @exception IllegalArgumentException if <code>key</code> is smaller
+     *            than the last extracted key. */
+    public Map.Entry<Long,V> insert(Long key, V value) {
+	Entry<V> e = new Entry<V>(key, value);
+	insert(e);
+	return e;
+    }
+    protected void insert(Map.Entry<Long,V> me) {
+	Entry<V> e = (Entry<V>) me;
+	checkKey(e.u);
+	link(e);
+	if (min!=null && less(e, min)) min = e;
+	size++;
+    }
+    /** Returns an entry with minimal key; of several entries with the
+     *  same minimal key, the one inserted first.  O(1) time if the
+     *  smallest entries have already been cascaded to level 0; otherwise
+     *  it takes time proportional to the number of entries in the slot
+     *  which holds them.
+     * @exception NoSuchElementException if the heap is empty. */
+    public Map.Entry<Long,V> minimum() {
+	if (size==0) throw new NoSuchElementException();
+	if (min==null) {
+	    int l = Integer.numberOfTrailingZeros(levels);
+	    Entry<V> head = wheel[l][Long.numberOfTrailingZeros(occupied[l])];
+	    min = (l==0) ? head : slotMinimum(head);
+	}
+	return min;
+    }
+    /** Returns the key of an entry with minimal key as a primitive
+     *  <code>long</code>.
+     * @exception NoSuchElementException if the heap is empty. */
+    public long minimumKey() {
+	return unbias(((Entry<V>)minimum()).u);
+    }
+    /** Returns the key most recently extracted from this heap, as a
+     *  primitive <code>long</code>, or <code>Long.MIN_VALUE</code> if
+     *  nothing has been extracted since the heap was created or
+     *  cleared.  No key smaller than this may be inserted. */
+    public long lastKey() { return unbias(now); }
+    /** Remove and return an entry with minimal key; of several entries
+     *  with the same minimal key, the one inserted first.  Amortized
+     *  O(1) time.
+     * @exception NoSuchElementException if the heap is empty. */
+    public Map.Entry<Long,V> extractMinimum() {
+	if (size==0) throw new NoSuchElementException();
+	while ((levels & 1)==0) cascade();
+	Entry<V> e = wheel[0][Long.numberOfTrailingZeros(occupied[0])];
+	now = e.u;
+	unlink(e);
+	size--;
+	min = null;
+	return e;
+    }
+    /** Removes every entry whose key is no greater than
+     *  <code>time</code>, in key order, and adds its value to the given
+     *  collection: that is, fires the timers which have expired by
+     *  <code>time</code>.  Amortized O(1) time per entry removed.
+     * @return the number of entries removed. */
+    public int extractExpired(long time, Collection<? super V> fired) {
+	int n = 0;
+	while (size > 0 && minimumKey() <= time) {
+	    fired.add(extractMinimum().getValue());
+	    n++;
+	}
+	return n;
+    }
+    /** Replace the key in the specified map entry with the specified
+     *  <b>smaller</b> key.  O(1) time.
+     * @exception UnsupportedOperationException if the new key is
+     *            greater than the current key.
+     * @exception IllegalArgumentException if the new key is smaller
+     *            than the last extracted key.
+     * @exception NoSuchElementException if the entry is not in this
+     *            heap. */
+    public void decreaseKey(Map.Entry<Long,V> me, Long newkey) {
+	Entry<V> e = checkIn(me);
+	if (newkey.longValue() > unbias(e.u))
+	    throw new UnsupportedOperationException("New key is greater than "+
+						    "current key.");
+	updateKey(me, newkey);
+    }
+    /** Replace the key in the specified map entry with the specified
+     *  key, which may be larger or smaller than its current key; that
+     *  is, reschedule a timer.  O(1) time.
+     * @exception IllegalArgumentException if the new key is smaller
+     *            than the last extracted key.
+     * @exception NoSuchElementException if the entry is not in this
+     *            heap. */
+    public void updateKey(Map.Entry<Long,V> me, Long newkey) {
+	Entry<V> e = checkIn(me);
+	checkKey(bias(newkey.longValue()));
+	unlink(e);
+	e._setKey(newkey);
+	link(e);
+	if (min==e) min = null;
+	else if (min!=null && less(e, min)) min = e;
+    }
+    /** Remove the specified map entry from the mapping; that is, cancel
+     *  a timer.  O(1) time.
+     * @exception NoSuchElementException if the entry is not in this
+     *            heap. */
+    public void delete(Map.Entry<Long,V> me) {
+	Entry<V> e = checkIn(me);
+	unlink(e);
+	if (min==e) min = null;
+	size--;
+    }
+    /** Cancelled and expired entries are unlinked, with null
+     *  <code>next</code>. */
+    private Entry<V> checkIn(Map.Entry<Long,V> me) {
+	Entry<V> e = (Entry<V>) me;
+	if (e.next==null) throw new NoSuchElementException("Entry is not in heap.");
+	return e;
+    }
+    public int size() { return size; }
+    /** Removes all entries from this heap, and forgets the last
+     *  extracted key.  O(n) time. */
+    public void clear() {
+	for (int l=0; l<LEVELS; l++) {
+	    for (long bits = occupied[l]; bits!=0; bits &= bits-1) {
+		int s = Long.numberOfTrailingZeros(bits);
+		Entry<V> head = wheel[l][s], e = head;
+		do {
+		    Entry<V> next = e.next;
+		    e.prev = e.next = null;
+		    e = next;
+		} while (e!=head);
+		wheel[l][s] = null;
+	    }
+	    occupied[l] = 0;
+	}
+	levels = 0;
+	size = 0;
+	min = null;
+	now = bias(Long.MIN_VALUE);
+    }
+    /** Returns the entries of this heap, in no particular order. */
+    public Collection<Map.Entry<Long,V>> entries() {
+	return new AbstractCollection<Map.Entry<Long,V>>() {
+	    public int size() { return size; }
+	    public Iterator<Map.Entry<Long,V>> iterator() {
+		return new UnmodifiableIterator<Map.Entry<Long,V>>() {
+		    int slot = -1; // index into the whole wheel.
+		    Entry<V> e = advance();
+		    /** Returns the head of the next occupied slot. */
+		    private Entry<V> advance() {
+			while (++slot < LEVELS*SLOTS) {
+			    Entry<V> head = wheel[slot/SLOTS][slot%SLOTS];
+			    if (head!=null) return head;
+			}
+			return null;
+		    }
+		    public boolean hasNext() { return e!=null; }
+		    public Map.Entry<Long,V> next() {
+			if (e==null) throw new NoSuchElementException();
+			Entry<V> r = e;
+			e = e.next;
+			if (e==wheel[slot/SLOTS][slot%SLOTS]) e = advance();
+			return r;
+		    }
+		};
+	    }
+	};
+    }
+
+    // helper functions.
+    /** Maps signed keys to longs whose unsigned order is the signed
+     *  order of the keys, so the top level of the wheel is ordered
+     *  correctly. */
+    private static long bias(long k) { return k ^ Long.MIN_VALUE; }
+    private static long unbias(long u) { return u ^ Long.MIN_VALUE; }
+    /** Returns true if the key of <code>a</code> is smaller than the
+     *  key of <code>b</code>. */
+    private static boolean less(Entry<?> a, Entry<?> b) {
+	return a.u + Long.MIN_VALUE < b.u + Long.MIN_VALUE; // unsigned.
+    }
+    private void checkKey(long u) {
+	if (u + Long.MIN_VALUE < now + Long.MIN_VALUE) // unsigned compare.
+	    throw new IllegalArgumentException
+		("Key "+unbias(u)+" is less than the last extracted key "+
+		 unbias(now)+"; timer wheels are monotone.");
+    }
+    /** Returns the entry with minimal key in the given slot list; of
+     *  several, the first. */
+    private Entry<V> slotMinimum(Entry<V> head) {
+	Entry<V> min = head;
+	for (Entry<V> e = head.next; e!=head; e = e.next)
+	    if (less(e, min)) min = e;
+	return min;
+    }
+    /** Level 0 is empty: make the smallest key in the first occupied
+     *  slot of the lowest occupied level the new <code>now</code>, and
+     *  move the entries of that slot to lower levels. */
+    private void cascade() {
+	int l = Integer.numberOfTrailingZeros(levels);
+	int s = Long.numberOfTrailingZeros(occupied[l]);
+	Entry<V> head = wheel[l][s];
+	now = slotMinimum(head).u;
+	wheel[l][s] = null;
+	occupied[l] &= ~(1L << s);
+	if (occupied[l]==0) levels &= ~(1 << l);
+	// relink in list order, so that equal keys stay in insertion order.
+	Entry<V> e = head;
+	do {
+	    Entry<V> next = e.next;
+	    link(e);
+	    e = next;
+	} while (e!=head);
+    }
+    /** Appends <code>e</code> to the slot for its key, relative to
+     *  <code>now</code>. */
+    private void link(Entry<V> e) {
+	long x = e.u ^ now;
+	int l = (x==0) ? 0 : (63 - Long.numberOfLeadingZeros(x)) / BITS;
+	int s = (int) (e.u >>> (l*BITS)) & (SLOTS-1);
+	e.level = l; e.slot = s;
+	Entry<V> head = wheel[l][s];
+	if (head==null) {
+	    wheel[l][s] = e.next = e.prev = e;
+	    occupied[l] |= 1L << s;
+	    levels |= 1 << l;
+	} else {
+	    e.next = head;
+	    e.prev = head.prev;
+	    head.prev.next = e;
+	    head.prev = e;
+	}
+    }
+    private void unlink(Entry<V> e) {
+	int l = e.level, s = e.slot;
+	if (e.next==e) {
+	    wheel[l][s] = null;
+	    occupied[l] &= ~(1L << s);
+	    if (occupied[l]==0) levels &= ~(1 << l);
+	} else {
+	    e.prev.next = e.next;
+	    e.next.prev = e.prev;
+	    if (wheel[l][s]==e) wheel[l][s] = e.next;
+	}
+	e.prev = e.next = null;
+    }
+
+    /** Our {@link TimerWheel} {@link java.util.Map.Entry}s look like
+     *  this: */
+    private static final class Entry<V> extends PairMapEntry<Long,V> {
+	/** The key, biased. */
+	long u;
+	/** The slot containing this entry. */
+	int level, slot;
+	/** Neighbors in the slot's list; <code>null</code> if this entry
+	 *  is not in the heap. */
+	Entry<V> prev, next;
+	Entry(Long key, V value) { super(key, value); this.u = bias(key.longValue()); }
+	Long _setKey(Long key) { this.u = bias(key.longValue()); return setKey(key); }
+    }
+    // to implement updateKey, etc...
+    protected final Long setKey(Map.Entry<Long,V> me, Long newkey) {
+	return ((Entry<V>) me)._setKey(newkey);
+    }
+
+    /** Self-test function. */
+    public static void main(String[] args) {
+	// example from CLR, page 146/151, shifted to be non-negative.
+	TimerWheel<Integer> h = new TimerWheel<Integer>();
+	assert h.isEmpty() && h.size()==0;
+	int el[] = { 4, 1, 3, 2, 16, 9, 10, 14, 8, 7 };
+	for (int i=0; i<el.length; i++)
+	    h.insert(Long.valueOf(el[i]), Integer.valueOf(i));
+	assert h.size()==10 && h.entries().size()==10;
+	assert h.minimum().getKey().intValue()==1 && h.minimumKey()==1;
+	assert h.lastKey()==Long.MIN_VALUE; // minimum() doesn't extract.
+	h.insert(Long.valueOf(0), Integer.valueOf(-1));
+	assert h.extractMinimum().getValue().intValue()==-1 && h.lastKey()==0;
+	assert h.extractMinimum().getKey().intValue()==1;
+	try {
+	    h.insert(Long.valueOf(0), Integer.valueOf(0));
+	    assert false : "monotonicity violation not caught";
+	} catch (IllegalArgumentException ex) { /* expected */ }
+	h.insert(Long.valueOf(1), Integer.valueOf(99)); // equal is ok.
+	assert h.extractMinimum().getValue().intValue()==99;
+	System.out.println(h);
+	ArrayList<Integer> fired = new ArrayList<Integer>();
+	assert h.extractExpired(9, fired)==6 && h.lastKey()==9;
+	assert fired.toString().equals("[3, 2, 0, 9, 8, 5]") : fired;
+	{
+	// decreaseKey, delete and updateKey (tests borrowed from
+	// BinaryHeap.java, with letters as numbers)
+	TimerWheel<String> hh = new TimerWheel<String>();
+	ArrayList<Map.Entry<Long,String>> mel =
+	    new ArrayList<Map.Entry<Long,String>>();
+	String s = "CSASCOTTZM";
+	for (int i=0; i<s.length(); i++)
+	    mel.add(hh.insert(Long.valueOf(s.charAt(i)),
+			      s.substring(i, i+1).toLowerCase()+i));
+	assert hh.extractMinimum().getValue().equals("a2");
+	hh.decreaseKey(mel.get(3), Long.valueOf('B')); // s3
+	assert hh.extractMinimum().getValue().equals("s3");
+	hh.delete(mel.get(4)); // c4
+	assert hh.extractMinimum().getValue().equals("c0");
+	hh.updateKey(mel.get(9), Long.valueOf('P')); // m9
+	assert hh.extractMinimum().getValue().equals("o5");
+	assert hh.extractMinimum().getValue().equals("m9");
+	assert hh.size()==4 && hh.entries().size()==4;
+	assert hh.extractMinimum().getValue().equals("s1");
+	// equal keys come out in insertion order.
+	assert hh.extractMinimum().getValue().equals("t6");
+	assert hh.extractMinimum().getValue().equals("t7");
+	try {
+	    hh.delete(mel.get(4));
+	    assert false : "deleted entry deleted again";
+	} catch (NoSuchElementException ex) { /* expected */ }
+	try {
+	    hh.decreaseKey(mel.get(4), Long.valueOf('D')); // cancelled.
+	    assert false : "cancelled entry rekeyed";
+	} catch (NoSuchElementException ex) { /* expected */ }
+	try {
+	    hh.updateKey(mel.get(2), Long.valueOf('Y')); // expired.
+	    assert false : "expired entry rekeyed";
+	} catch (NoSuchElementException ex) { /* expected */ }
+	assert hh.size()==1;
+	try {
+	    hh.decreaseKey(mel.get(8), Long.valueOf('A'));
+	    assert false : "monotonicity violation not caught";
+	} catch (IllegalArgumentException ex) { /* expected */ }
+	hh.clear();
+	assert hh.isEmpty() && hh.lastKey()==Long.MIN_VALUE;
+	}
+	// negative and very large keys, with many cancellations, against
+	// a reference BinaryHeap driven with the same monotone workload.
+	// keys are distinct, so both heaps extract the same entries.
+	Random r = new Random(2);
+	int n = 50000;
+	TimerWheel<Integer> tw = new TimerWheel<Integer>();
+	BinaryHeap<Long,Integer> bh = new BinaryHeap<Long,Integer>();
+	Map.Entry<Long,Integer>[] te = new Map.Entry[n], be = new Map.Entry[n];
+	int[] live = new int[n], pos = new int[n]; // ids of pending timers.
+	int nlive = 0;
+	long base = Long.MIN_VALUE;
+	for (int i=0; i<n; i++) {
+	    int op = r.nextInt(4), id;
+	    if (nlive==0 || op < 2) {
+		long delta = 1 + ((i%100==0) ? (r.nextLong()>>>24) : r.nextInt(5000));
+		Long k = Long.valueOf((((base>>17) + delta)<<17) | i);
+		te[i] = tw.insert(k, Integer.valueOf(i));
+		be[i] = bh.insert(k, Integer.valueOf(i));
+		live[pos[i] = nlive++] = i;
+		continue;
+	    } else if (op==2) { // cancel a random timer.
+		id = live[r.nextInt(nlive)];
+		tw.delete(te[id]);
+		bh.delete(be[id]);
+	    } else { // fire the next timer.
+		id = tw.extractMinimum().getValue().intValue();
+		assert id == bh.extractMinimum().getValue().intValue();
+		base = te[id].getKey().longValue();
+		assert base == tw.lastKey();
+	    }
+	    live[pos[id]] = live[--nlive];
+	    pos[live[pos[id]]] = pos[id];
+	    assert tw.size()==bh.size() && tw.size()==nlive;
+	    if (r.nextBoolean() && nlive > 0) // exercise the cached minimum.
+		assert tw.minimum().getValue().equals(bh.minimum().getValue());
+	}
+	for (long prev = base; !tw.isEmpty(); ) {
+	    assert tw.minimumKey()==bh.minimum().getKey().longValue();
+	    long k = tw.extractMinimum().getKey().longValue();
+	    assert prev <= k && k == bh.extractMinimum().getKey().longValue();
+	    prev = k;
+	}
+	// DONE.
+	System.out.println("PASSED.");
+    }
+}
@@ -0,0 +1,238 @@
+// UndoableDisjointSet.java, created Tue Oct 20 13:17:52 2026 by cananian
+// Copyright (C) 2026 C. Scott Ananian <cscott@cscott.net>
+// Licensed under the terms of the GNU GPL; see COPYING for details.
+package net.cscott.jutil;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+/**
+ * {@link UndoableDisjointSet} is a disjoint-set forest which can be
+ * rolled back, for backtracking search.  It is an
+ * {@link Environment}: {@link #getMark()} records the current
+ * partition, and {@link #undoToMark(Environment.Mark)} undoes every
+ * <code>union</code> made since, so it can be marked and restored in
+ * step with a {@link HashEnvironment} in the same solver.  Viewed as
+ * a {@link Map}, it maps every element which has been passed to
+ * <code>union</code> to its representative, and cannot be modified
+ * directly.
+ * <p>
+ * Path compression would make undo impossible without copying, so
+ * this uses union-by-rank alone: <code>find</code> takes O(lg n) time,
+ * <code>union</code> O(lg n), and <code>undoToMark</code> O(1) for
+ * each <code>union</code> it undoes.
+ *
+ * @author  C. Scott Ananian <cscott@cscott.net>
+ * @version $Id$
+ * @see DisjointSet
+ */
+public class UndoableDisjointSet<E> extends AbstractMap<E,E>
+    implements Environment<E,E> {
+    // elements are numbered in the order they are added.
+    private final Map<E,Integer> index = new HashMap<E,Integer>();
+    private final List<E> elements = new ArrayList<E>();
+    private int[] parent = new int[16];
+    private byte[] rank = new byte[16];
+    // the undo trail: -1 for each element added, and for each union
+    // (x<<1)|inc, where root x was linked under another, whose rank
+    // was incremented if inc is 1.
+    private int[] trail = new int[16];
+    private int trailSize = 0;
+
+    /** Creates an empty {@link UndoableDisjointSet}. */
+    public UndoableDisjointSet() { }
+
+    /** Unites the sets that contain <code>o1</code> and
+     *  <code>o2</code>.  If both were previously singletons, the
+     *  representative of the union is <code>o2</code>.
+     *  @return <code>false</code> if they were already in the same
+     *  set. */
+    public boolean union(E o1, E o2) {
+	int x = findRoot(id(o1)), y = findRoot(id(o2));
+	if (x == y) return false;
+	int inc = 0;
+	if (rank[x] > rank[y]) { int t = x; x = y; y = t; }
+	else if (rank[x] == rank[y]) { rank[y]++; inc = 1; }
+	parent[x] = y;
+	record((x << 1) | inc);
+	return true;
+    }
+    /** Returns the representative of the (unique) set containing
+     *  <code>o</code>. */
+    public E find(E o) {
+	Integer i = index.get(o);
+	return (i == null) ? o : elements.get(findRoot(i.intValue()));
+    }
+    /** Determines if <code>o1</code> and <code>o2</code> are in the
+     *  same set. */
+    public boolean sameSet(E o1, E o2) {
+	Integer i = index.get(o1), j = index.get(o2);
+	if (i == null || j == null)
+	    return (o1 == null) ? o2 == null : o1.equals(o2);
+	return findRoot(i.intValue()) == findRoot(j.intValue());
+    }
+    /** Determines if <code>o</code> has been passed to
+     *  <code>union</code> since the last mark undone. */
+    public boolean contains(Object o) { return index.containsKey(o); }
+
+    private int findRoot(int x) {
+	while (parent[x] != x)
+	    x = parent[x];
+	return x;
+    }
+    /** Returns the number of <code>o</code>, adding it if need be. */
+    private int id(E o) {
+	Integer i = index.get(o);
+	if (i != null) return i.intValue();
+	int n = elements.size();
+	if (n == parent.length) {
+	    int[] np = new int[2*n];
+	    byte[] nr = new byte[2*n];
+	    System.arraycopy(parent, 0, np, 0, n);
+	    System.arraycopy(rank, 0, nr, 0, n);
+	    parent = np; rank = nr;
+	}
+	parent[n] = n;
+	rank[n] = 0;
+	elements.add(o);
+	index.put(o, new Integer(n));
+	record(-1);
+	return n;
+    }
+    private void record(int t) {
+	if (trailSize == trail.length) {
+	    int[] nt = new int[2*trailSize];
+	    System.arraycopy(trail, 0, nt, 0, trailSize);
+	    trail = nt;
+	}
+	trail[trailSize++] = t;
+    }
+
+    // --- ENVIRONMENT INTERFACE
+    public Environment.Mark getMark() {
+	return new Mark(trailSize);
+    }
+    public void undoToMark(Environment.Mark m) {
+	int i = ((Mark)m).i;
+	assert i <= trailSize : "mark has already been undone";
+	while (trailSize > i) {
+	    int t = trail[--trailSize];
+	    if (t < 0) { // remove the last element added.
+		E o = elements.remove(elements.size()-1);
+		index.remove(o);
+	    } else { // unlink a root.
+		int x = t >>> 1, y = parent[x];
+		parent[x] = x;
+		if ((t & 1) != 0) rank[y]--;
+	    }
+	}
+    }
+    private static class Mark implements Environment.Mark {
+	final int i;
+	Mark(int i) { this.i = i; }
+    }
+
+    // --- MAP INTERFACE
+    public int size() { return elements.size(); }
+    public boolean containsKey(Object key) { return contains(key); }
+    public E get(Object key) {
+	Integer i = index.get(key);
+	return (i == null) ? null : elements.get(findRoot(i.intValue()));
+    }
+    public Set<Map.Entry<E,E>> entrySet() {
+	return new AbstractSet<Map.Entry<E,E>>() {
+	    public int size() { return elements.size(); }
+	    public Iterator<Map.Entry<E,E>> iterator() {
+		return new UnmodifiableIterator<Map.Entry<E,E>>() {
+		    int i = 0;
+		    public boolean hasNext() { return i < elements.size(); }
+		    public Map.Entry<E,E> next() {
+			if (!hasNext())
+			    throw new java.util.NoSuchElementException();
+			final int n = i++;
+			return new AbstractMapEntry<E,E>() {
+			    public E getKey() { return elements.get(n); }
+			    public E getValue() {
+				return elements.get(findRoot(n));
+			    }
+			};
+		    }
+		};
+	    }
+	};
+    }
+
+    /** Self-test method. */
+    public static void main(String[] args) {
+	UndoableDisjointSet<String> ds = new UndoableDisjointSet<String>();
+	HashEnvironment<String,String> env = new HashEnvironment<String,String>();
+	String a="a", b="b", c="c", d="d", e="e", f="f", g="g", h="h";
+	assert !ds.contains(a) && ds.find(a)==a;
+	ds.union(e, c); ds.union(b, h); ds.union(h, c);
+	assert ds.find(e)==ds.find(c) && ds.find(h)==ds.find(e);
+	assert ds.find(b)==ds.find(c) && ds.find(b)!=ds.find(a);
+	// mark both environments together, as a solver would.
+	Environment.Mark m1 = ds.getMark(), m2 = env.getMark();
+	env.put(a, b);
+	ds.union(d, f); ds.union(g, d); ds.union(c, f);
+	assert ds.sameSet(e, g) && ds.size() == 7 && ds.get(g) == ds.find(e);
+	ds.undoToMark(m1); env.undoToMark(m2);
+	assert !ds.sameSet(e, g) && !ds.contains(d) && ds.size() == 4;
+	assert ds.sameSet(b, e) && env.isEmpty();
+	ds.undoToMark(m1); // repeatable.
+	assert ds.sameSet(b, e) && ds.size() == 4;
+	assert ds.entrySet().size() == 4 && ds.containsValue(ds.find(b));
+	// random unions and rollbacks, against a DisjointSet rebuilt
+	// from the surviving unions.
+	Random r = new Random(13);
+	UndoableDisjointSet<Integer> uds = new UndoableDisjointSet<Integer>();
+	List<int[]> unions = new ArrayList<int[]>();
+	List<Environment.Mark> marks = new ArrayList<Environment.Mark>();
+	List<Integer> markedAt = new ArrayList<Integer>();
+	for (int k = 0; k < 3000; k++) {
+	    int op = r.nextInt(10);
+	    if (op == 0) {
+		marks.add(uds.getMark());
+		markedAt.add(new Integer(unions.size()));
+	    } else if (op == 1 && !marks.isEmpty()) {
+		int j = r.nextInt(marks.size());
+		uds.undoToMark(marks.get(j));
+		int n = markedAt.get(j).intValue();
+		while (unions.size() > n) unions.remove(unions.size()-1);
+		while (marks.size() > j+1) {
+		    marks.remove(marks.size()-1);
+		    markedAt.remove(markedAt.size()-1);
+		}
+	    } else {
+		int x = r.nextInt(300), y = r.nextInt(300);
+		uds.union(new Integer(x), new Integer(y));
+		unions.add(new int[] { x, y });
+	    }
+	    if (k % 50 == 0) {
+		DisjointSet<Integer> ref = new DisjointSet<Integer>();
+		Set<Integer> seen = new java.util.HashSet<Integer>();
+		for (int[] u : unions) {
+		    seen.add(new Integer(u[0])); seen.add(new Integer(u[1]));
+		    if (!ref.find(new Integer(u[0])).equals
+			(ref.find(new Integer(u[1]))))
+			ref.union(new Integer(u[0]), new Integer(u[1]));
+		}
+		assert uds.size() == seen.size();
+		for (int q = 0; q < 100; q++) {
+		    Integer x = new Integer(r.nextInt(300));
+		    Integer y = new Integer(r.nextInt(300));
+		    assert uds.sameSet(x, y) ==
+			ref.find(x).equals(ref.find(y));
+		    assert uds.contains(x) == seen.contains(x);
+		}
+	    }
+	}
+	System.err.println("PASSED.");
+    }
+}